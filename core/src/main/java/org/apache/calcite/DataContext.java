@@ -18,6 +18,7 @@
 
 import org.apache.calcite.adapter.java.JavaTypeFactory;
 import org.apache.calcite.linq4j.QueryProvider;
+import org.apache.calcite.linq4j.Spill;
 import org.apache.calcite.linq4j.tree.Expressions;
 import org.apache.calcite.linq4j.tree.ParameterExpression;
 import org.apache.calcite.schema.SchemaPlus;
@@ -89,7 +90,12 @@ enum Variable {
     /** Time zone in which the current statement is executing. Required;
      * defaults to the time zone of the JVM if the connection does not specify a
      * time zone. */
-    TIME_ZONE("timeZone", TimeZone.class);
+    TIME_ZONE("timeZone", TimeZone.class),
+
+    /** Manager that allows operators to write rows to temporary files if they
+     * would otherwise exceed their memory budget. Optional; if not present,
+     * operators work in memory. */
+    SPILL_MANAGER("spillManager", Spill.Manager.class);
 
     public final String camelName;
     public final Class clazz;
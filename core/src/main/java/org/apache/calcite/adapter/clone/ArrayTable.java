@@ -27,9 +27,11 @@
 import org.apache.calcite.linq4j.tree.Primitive;
 import org.apache.calcite.rel.RelCollation;
 import org.apache.calcite.rel.RelCollations;
+import org.apache.calcite.rel.RelReferentialConstraint;
 import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.rel.type.RelDataTypeFactory;
 import org.apache.calcite.rel.type.RelProtoDataType;
+import org.apache.calcite.schema.ColumnStatistic;
 import org.apache.calcite.schema.ScannableTable;
 import org.apache.calcite.schema.SchemaPlus;
 import org.apache.calcite.schema.Statistic;
@@ -39,12 +41,14 @@
 import org.apache.calcite.util.Pair;
 
 import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 
 import java.lang.reflect.Array;
 import java.lang.reflect.Type;
 import java.util.AbstractList;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -58,13 +62,23 @@
 class ArrayTable extends AbstractQueryableTable implements ScannableTable {
   private final RelProtoDataType protoRowType;
   private final Supplier<Content> supplier;
+  private final boolean columnStatistics;
 
   /** Creates an ArrayTable. */
   public ArrayTable(Type elementType, RelProtoDataType protoRowType,
       Supplier<Content> supplier) {
+    this(elementType, protoRowType, supplier, false);
+  }
+
+  /** Creates an ArrayTable, optionally deriving per-column statistics
+   * (distinct count, null count, min, max and histogram) from its
+   * contents. */
+  public ArrayTable(Type elementType, RelProtoDataType protoRowType,
+      Supplier<Content> supplier, boolean columnStatistics) {
     super(elementType);
     this.protoRowType = protoRowType;
     this.supplier = supplier;
+    this.columnStatistics = columnStatistics;
   }
 
   public RelDataType getRowType(RelDataTypeFactory typeFactory) {
@@ -79,7 +93,11 @@ public Statistic getStatistic() {
         keys.add(ImmutableBitSet.of(ord.i));
       }
     }
-    return Statistics.of(content.size, keys, content.collations);
+    return Statistics.of((double) content.size, keys,
+        ImmutableList.<RelReferentialConstraint>of(), content.collations,
+        columnStatistics
+            ? content.columnStatistics()
+            : ImmutableList.<ColumnStatistic>of());
   }
 
   public Enumerable<Object[]> scan(DataContext root) {
@@ -91,6 +109,11 @@ public Enumerator<Object[]> enumerator() {
     };
   }
 
+  /** Returns the contents of this table, loading them if necessary. */
+  Content content() {
+    return supplier.get();
+  }
+
   public <T> Queryable<T> asQueryable(final QueryProvider queryProvider,
       SchemaPlus schema, String tableName) {
     return new AbstractTableQueryable<T>(queryProvider, schema, this,
@@ -197,6 +220,9 @@ enum RepresentationType {
 
   /** Column definition and value set. */
   public static class Column {
+    /** Number of buckets in the histogram of each column. */
+    private static final int HISTOGRAM_BUCKET_COUNT = 100;
+
     final Representation representation;
     final Object dataSet;
     final int cardinality;
@@ -214,6 +240,28 @@ public Column permute(int[] sources) {
           cardinality);
     }
 
+    /** Computes statistics about this column. Builds a histogram if the
+     * values are comparable. */
+    ColumnStatistic statistic(int size) {
+      final List<Comparable> values = new ArrayList<>();
+      int nullCount = 0;
+      for (int i = 0; i < size; i++) {
+        final Object o = representation.getObject(dataSet, i);
+        if (o == null) {
+          ++nullCount;
+        } else if (o instanceof Comparable) {
+          values.add((Comparable) o);
+        } else {
+          return Statistics.column(
+              (double) (cardinality - (nullCount > 0 ? 1 : 0)),
+              null, null, null, null);
+        }
+      }
+      //noinspection unchecked
+      Collections.sort((List) values);
+      return Statistics.column(values, nullCount, HISTOGRAM_BUCKET_COUNT);
+    }
+
     @Override public String toString() {
       return "Column(representation=" + representation
           + ", value=" + representation.toString(dataSet) + ")";
@@ -803,12 +851,25 @@ public static class Content {
     private final List<Column> columns;
     private final int size;
     private final ImmutableList<RelCollation> collations;
+    private final ImmutableList<Supplier<ColumnStatistic>> columnStatistics;
 
     public Content(List<? extends Column> columns, int size,
         Iterable<? extends RelCollation> collations) {
       this.columns = ImmutableList.copyOf(columns);
       this.size = size;
       this.collations = ImmutableList.copyOf(collations);
+      final ImmutableList.Builder<Supplier<ColumnStatistic>> builder =
+          ImmutableList.builder();
+      for (final Column column : this.columns) {
+        builder.add(
+            Suppliers.memoize(
+                new Supplier<ColumnStatistic>() {
+                  public ColumnStatistic get() {
+                    return column.statistic(Content.this.size);
+                  }
+                }));
+      }
+      this.columnStatistics = builder.build();
     }
 
     @Deprecated // to be removed before 2.0
@@ -819,6 +880,30 @@ public Content(List<? extends Column> columns, int size, int sortField) {
               : ImmutableList.<RelCollation>of());
     }
 
+    /** Returns the number of rows. */
+    int size() {
+      return size;
+    }
+
+    /** Returns the column with a given ordinal. */
+    Column column(int ordinal) {
+      return columns.get(ordinal);
+    }
+
+    /** Returns statistics about each column. Statistics are computed the
+     * first time that each element is accessed. */
+    List<ColumnStatistic> columnStatistics() {
+      return new AbstractList<ColumnStatistic>() {
+        public ColumnStatistic get(int index) {
+          return columnStatistics.get(index).get();
+        }
+
+        public int size() {
+          return columnStatistics.size();
+        }
+      };
+    }
+
     @SuppressWarnings("unchecked")
     public <T> Enumerator<T> enumerator() {
       if (columns.size() == 1) {
@@ -54,6 +54,7 @@ public class CloneSchema extends AbstractSchema {
   // TODO: test Factory
 
   private final SchemaPlus sourceSchema;
+  private final boolean columnStatistics;
 
   /**
    * Creates a CloneSchema.
@@ -61,8 +62,20 @@ public class CloneSchema extends AbstractSchema {
    * @param sourceSchema JDBC data source
    */
   public CloneSchema(SchemaPlus sourceSchema) {
+    this(sourceSchema, false);
+  }
+
+  /**
+   * Creates a CloneSchema.
+   *
+   * @param sourceSchema JDBC data source
+   * @param columnStatistics Whether cloned tables derive column statistics
+   *                         from their contents
+   */
+  public CloneSchema(SchemaPlus sourceSchema, boolean columnStatistics) {
     super();
     this.sourceSchema = sourceSchema;
+    this.columnStatistics = columnStatistics;
   }
 
   @Override protected Map<String, Table> getTableMap() {
@@ -85,7 +98,7 @@ private Table createCloneTable(QueryProvider queryProvider,
     final JavaTypeFactory typeFactory =
         ((CalciteConnection) queryProvider).getTypeFactory();
     return createCloneTable(typeFactory, Schemas.proto(sourceTable),
-        ImmutableList.<RelCollation>of(), null, queryable);
+        ImmutableList.<RelCollation>of(), null, queryable, columnStatistics);
   }
 
   @Deprecated // to be removed before 2.0
@@ -100,6 +113,14 @@ public static <T> Table createCloneTable(final JavaTypeFactory typeFactory,
   public static <T> Table createCloneTable(final JavaTypeFactory typeFactory,
       final RelProtoDataType protoRowType, final List<RelCollation> collations,
       final List<ColumnMetaData.Rep> repList, final Enumerable<T> source) {
+    return createCloneTable(typeFactory, protoRowType, collations, repList,
+        source, false);
+  }
+
+  public static <T> Table createCloneTable(final JavaTypeFactory typeFactory,
+      final RelProtoDataType protoRowType, final List<RelCollation> collations,
+      final List<ColumnMetaData.Rep> repList, final Enumerable<T> source,
+      boolean columnStatistics) {
     final Type elementType;
     if (source instanceof QueryableTable) {
       elementType = ((QueryableTable) source).getElementType();
@@ -129,7 +150,8 @@ public ArrayTable.Content get() {
                 return new ArrayTable.Content(loader.representationValues,
                     loader.size(), collation2);
               }
-            }));
+            }),
+        columnStatistics);
   }
 
   /** Schema factory that creates a
@@ -149,11 +171,15 @@ public ArrayTable.Content get() {
    *         jdbcDriver: 'com.mysql.jdbc.Driver',
    *         jdbcUrl: 'jdbc:mysql://localhost/foodmart',
    *         jdbcUser: 'foodmart',
-   *         jdbcPassword: 'foodmart'
+   *         jdbcPassword: 'foodmart',
+   *         columnStatistics: true
    *       }
    *     }
    *   ]
    * }</pre></blockquote>
+   *
+   * <p>The optional {@code columnStatistics} operand (default false) causes
+   * cloned tables to provide column statistics to the optimizer.
    */
   public static class Factory implements SchemaFactory {
     public Schema create(
@@ -163,7 +189,8 @@ public Schema create(
       SchemaPlus schema =
           parentSchema.add(name,
               JdbcSchema.create(parentSchema, name + "$source", operand));
-      return new CloneSchema(schema);
+      return new CloneSchema(schema,
+          Boolean.TRUE.equals(operand.get("columnStatistics")));
     }
   }
 }
@@ -0,0 +1,905 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.clone;
+
+import org.apache.calcite.DataContext;
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rex.RexCall;
+import org.apache.calcite.rex.RexInputRef;
+import org.apache.calcite.rex.RexLiteral;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.runtime.Bindable;
+import org.apache.calcite.sql.SqlKind;
+import org.apache.calcite.sql.type.SqlTypeName;
+import org.apache.calcite.util.Pair;
+
+import com.google.common.collect.ImmutableList;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates scans, filters, projects and aggregates over the columns of an
+ * {@link ArrayTable}, a batch of rows at a time.
+ *
+ * <p>Each batch is a range of row ordinals. A selection vector holds the
+ * ordinals of the rows in the batch that are still live; each filter works
+ * on one column, directly on its {@link ArrayTable.Representation}, and
+ * compacts the selection vector. Rows are never copied while being filtered,
+ * and only the projected columns of the surviving rows are decoded.
+ */
+class ColumnVectors {
+  private ColumnVectors() {}
+
+  /** Converts a filter on a table into a {@link Predicate}, or returns null
+   * if it cannot be evaluated on column vectors.
+   *
+   * @param node Filter condition, referencing the table's columns
+   * @param rowType Row type of the table
+   */
+  static Predicate predicate(RexNode node, RelDataType rowType) {
+    if (!(node instanceof RexCall)) {
+      return null;
+    }
+    final List<RexNode> operands = ((RexCall) node).getOperands();
+    SqlKind kind = node.getKind();
+    switch (kind) {
+    case IS_NULL:
+    case IS_NOT_NULL:
+      if (operands.get(0) instanceof RexInputRef) {
+        return new Predicate(((RexInputRef) operands.get(0)).getIndex(), kind,
+            null);
+      }
+      return null;
+    case EQUALS:
+    case NOT_EQUALS:
+    case LESS_THAN:
+    case LESS_THAN_OR_EQUAL:
+    case GREATER_THAN:
+    case GREATER_THAN_OR_EQUAL:
+      RexNode op0 = operands.get(0);
+      RexNode op1 = operands.get(1);
+      if (op0 instanceof RexLiteral && op1 instanceof RexInputRef) {
+        op0 = operands.get(1);
+        op1 = operands.get(0);
+        kind = kind.reverse();
+      }
+      if (!(op0 instanceof RexInputRef && op1 instanceof RexLiteral)) {
+        return null;
+      }
+      final int column = ((RexInputRef) op0).getIndex();
+      final Comparable value =
+          value((RexLiteral) op1,
+              rowType.getFieldList().get(column).getType().getSqlTypeName());
+      if (value == null) {
+        return null;
+      }
+      return new Predicate(column, kind, value);
+    default:
+      return null;
+    }
+  }
+
+  /** Converts a literal to the form in which {@link Predicate} compares it
+   * with values of a column of a given type, or returns null if it cannot. */
+  private static Comparable value(RexLiteral literal, SqlTypeName typeName) {
+    final Comparable value = literal.getValue();
+    if (value == null) {
+      return null;
+    }
+    switch (typeName) {
+    case TINYINT:
+    case SMALLINT:
+    case INTEGER:
+    case BIGINT:
+      if (value instanceof BigDecimal) {
+        try {
+          return ((BigDecimal) value).longValueExact();
+        } catch (ArithmeticException e) {
+          return null;
+        }
+      }
+      return null;
+    case REAL:
+    case FLOAT:
+    case DOUBLE:
+      if (value instanceof BigDecimal) {
+        return ((BigDecimal) value).doubleValue();
+      }
+      return null;
+    case DECIMAL:
+      return value instanceof BigDecimal ? value : null;
+    case CHAR:
+    case VARCHAR:
+      switch (literal.getTypeName()) {
+      case CHAR:
+      case VARCHAR:
+        return literal.getValueAs(String.class);
+      default:
+        return null;
+      }
+    case BOOLEAN:
+      return value instanceof Boolean ? value : null;
+    default:
+      return null;
+    }
+  }
+
+  /** Creates a {@link Bindable} that scans a table, applying predicates
+   * and returning the given columns. */
+  static Bindable<Object[]> scan(final ArrayTable table,
+      final List<Predicate> predicates, final int[] projects,
+      final int batchSize) {
+    return new Bindable<Object[]>() {
+      public Enumerable<Object[]> bind(DataContext dataContext) {
+        return new AbstractEnumerable<Object[]>() {
+          public Enumerator<Object[]> enumerator() {
+            return new ScanEnumerator(table.content(), predicates, projects,
+                batchSize);
+          }
+        };
+      }
+    };
+  }
+
+  /** Creates a {@link Bindable} that scans a table, applying predicates
+   * and then aggregating. */
+  static Bindable<Object[]> aggregate(final ArrayTable table,
+      final List<Predicate> predicates, final int[] groupColumns,
+      final List<AggSpec> aggSpecs, final int batchSize) {
+    return new Bindable<Object[]>() {
+      public Enumerable<Object[]> bind(DataContext dataContext) {
+        return Linq4j.asEnumerable(
+            aggregate(table.content(), predicates, groupColumns, aggSpecs,
+                batchSize));
+      }
+    };
+  }
+
+  private static List<Object[]> aggregate(ArrayTable.Content content,
+      List<Predicate> predicates, int[] groupColumns, List<AggSpec> aggSpecs,
+      int batchSize) {
+    final Batch batch = new Batch(content, predicates, batchSize);
+    final List<Accumulator> accumulators = new ArrayList<>();
+    for (AggSpec aggSpec : aggSpecs) {
+      accumulators.add(aggSpec.accumulator(content));
+    }
+    final Map<Object, Integer> groupMap = new HashMap<>();
+    final List<Object> groupKeys = new ArrayList<>();
+    final int[] groups = new int[batchSize];
+    final Object[] keyValues = new Object[groupColumns.length];
+    int groupCount = groupColumns.length == 0 ? 1 : 0;
+    for (Accumulator accumulator : accumulators) {
+      accumulator.grow(groupCount);
+    }
+    while (batch.next()) {
+      // Assign a group to each live row.
+      if (groupColumns.length > 0) {
+        for (int i = 0; i < batch.count; i++) {
+          for (int j = 0; j < groupColumns.length; j++) {
+            final ArrayTable.Column column = content.column(groupColumns[j]);
+            keyValues[j] =
+                column.representation.getObject(column.dataSet,
+                    batch.selection[i]);
+          }
+          final Object key = keyValues.length == 1
+              ? keyValues[0]
+              : Arrays.asList(keyValues.clone());
+          Integer group = groupMap.get(key);
+          if (group == null) {
+            group = groupCount++;
+            groupMap.put(key, group);
+            groupKeys.add(key);
+          }
+          groups[i] = group;
+        }
+        for (Accumulator accumulator : accumulators) {
+          accumulator.grow(groupCount);
+        }
+      }
+
+      // Update accumulators, one column at a time.
+      for (Accumulator accumulator : accumulators) {
+        accumulator.add(batch.selection, batch.count, groups);
+      }
+    }
+
+    final List<Object[]> rows = new ArrayList<>(groupCount);
+    for (int g = 0; g < groupCount; g++) {
+      final Object[] row = new Object[groupColumns.length + aggSpecs.size()];
+      if (groupColumns.length == 1) {
+        row[0] = groupKeys.get(g);
+      } else if (groupColumns.length > 1) {
+        final List key = (List) groupKeys.get(g);
+        for (int j = 0; j < groupColumns.length; j++) {
+          row[j] = key.get(j);
+        }
+      }
+      for (int j = 0; j < accumulators.size(); j++) {
+        row[groupColumns.length + j] = accumulators.get(j).result(g);
+      }
+      rows.add(row);
+    }
+    return rows;
+  }
+
+  /** Compares a column value with a value converted by
+   * {@link #value(RexLiteral, SqlTypeName)}. */
+  @SuppressWarnings("unchecked")
+  static int compare(Object o, Comparable value) {
+    if (value instanceof Long) {
+      final long x = ((Number) o).longValue();
+      final long y = (Long) value;
+      return x < y ? -1 : x > y ? 1 : 0;
+    }
+    if (value instanceof Double) {
+      final double x = ((Number) o).doubleValue();
+      final double y = (Double) value;
+      return x < y ? -1 : x > y ? 1 : 0;
+    }
+    return ((Comparable) o).compareTo(value);
+  }
+
+  /** Returns whether a column's representation can never hold null. */
+  private static boolean isNotNull(ArrayTable.Column column) {
+    switch (column.representation.getType()) {
+    case PRIMITIVE_ARRAY:
+    case BIT_SLICED_PRIMITIVE_ARRAY:
+      return true;
+    default:
+      return false;
+    }
+  }
+
+  /** Keeps the rows in a selection vector whose value in a column of
+   * integers is between {@code lo} and {@code hi} (or, if {@code negate}, is
+   * not between them). Reads primitive arrays directly.
+   *
+   * @return Number of rows kept */
+  private static int filterRange(ArrayTable.Representation representation,
+      Object dataSet, long lo, long hi, boolean negate, int[] selection,
+      int count) {
+    int k = 0;
+    if (dataSet instanceof int[]) {
+      final int[] values = (int[]) dataSet;
+      for (int i = 0; i < count; i++) {
+        final int row = selection[i];
+        final long v = values[row];
+        if ((v >= lo && v <= hi) != negate) {
+          selection[k++] = row;
+        }
+      }
+    } else if (dataSet instanceof long[]
+        && representation instanceof ArrayTable.PrimitiveArray) {
+      final long[] values = (long[]) dataSet;
+      for (int i = 0; i < count; i++) {
+        final int row = selection[i];
+        final long v = values[row];
+        if ((v >= lo && v <= hi) != negate) {
+          selection[k++] = row;
+        }
+      }
+    } else if (dataSet instanceof short[]) {
+      final short[] values = (short[]) dataSet;
+      for (int i = 0; i < count; i++) {
+        final int row = selection[i];
+        final long v = values[row];
+        if ((v >= lo && v <= hi) != negate) {
+          selection[k++] = row;
+        }
+      }
+    } else if (dataSet instanceof byte[]) {
+      final byte[] values = (byte[]) dataSet;
+      for (int i = 0; i < count; i++) {
+        final int row = selection[i];
+        final long v = values[row];
+        if ((v >= lo && v <= hi) != negate) {
+          selection[k++] = row;
+        }
+      }
+    } else {
+      for (int i = 0; i < count; i++) {
+        final int row = selection[i];
+        final long v = representation.getInt(dataSet, row);
+        if ((v >= lo && v <= hi) != negate) {
+          selection[k++] = row;
+        }
+      }
+    }
+    return k;
+  }
+
+  /** Comparison between a column and a constant, or a test whether a column
+   * is null. */
+  static class Predicate {
+    final int column;
+    final SqlKind kind;
+    final Comparable value;
+
+    Predicate(int column, SqlKind kind, Comparable value) {
+      this.column = column;
+      this.kind = kind;
+      this.value = value;
+    }
+
+    @Override public String toString() {
+      return kind + "($" + column + (value == null ? "" : ", " + value) + ")";
+    }
+
+    /** Returns whether a value satisfies this predicate. */
+    boolean test(Object o) {
+      switch (kind) {
+      case IS_NULL:
+        return o == null;
+      case IS_NOT_NULL:
+        return o != null;
+      }
+      return o != null && accept(compare(o, value));
+    }
+
+    private boolean accept(int c) {
+      switch (kind) {
+      case EQUALS:
+        return c == 0;
+      case NOT_EQUALS:
+        return c != 0;
+      case LESS_THAN:
+        return c < 0;
+      case LESS_THAN_OR_EQUAL:
+        return c <= 0;
+      case GREATER_THAN:
+        return c > 0;
+      case GREATER_THAN_OR_EQUAL:
+        return c >= 0;
+      default:
+        throw new AssertionError(kind);
+      }
+    }
+
+    /** Removes from a selection vector the rows that do not satisfy this
+     * predicate.
+     *
+     * @param column Column
+     * @param selection Ordinals of live rows; compacted in place
+     * @param count Number of live rows
+     * @return Number of rows that remain live */
+    int filter(ArrayTable.Column column, int[] selection, int count) {
+      final ArrayTable.Representation representation = column.representation;
+      final Object dataSet = column.dataSet;
+      switch (representation.getType()) {
+      case CONSTANT:
+        return test(representation.getObject(dataSet, 0)) ? count : 0;
+      case PRIMITIVE_ARRAY:
+      case BIT_SLICED_PRIMITIVE_ARRAY:
+        switch (kind) {
+        case IS_NULL:
+          return 0;
+        case IS_NOT_NULL:
+          return count;
+        }
+        if (value instanceof Long) {
+          final long v = (Long) value;
+          switch (kind) {
+          case EQUALS:
+            return filterRange(representation, dataSet, v, v, false,
+                selection, count);
+          case NOT_EQUALS:
+            return filterRange(representation, dataSet, v, v, true,
+                selection, count);
+          case LESS_THAN:
+            return v == Long.MIN_VALUE
+                ? 0
+                : filterRange(representation, dataSet, Long.MIN_VALUE, v - 1,
+                    false, selection, count);
+          case LESS_THAN_OR_EQUAL:
+            return filterRange(representation, dataSet, Long.MIN_VALUE, v,
+                false, selection, count);
+          case GREATER_THAN:
+            return v == Long.MAX_VALUE
+                ? 0
+                : filterRange(representation, dataSet, v + 1, Long.MAX_VALUE,
+                    false, selection, count);
+          case GREATER_THAN_OR_EQUAL:
+            return filterRange(representation, dataSet, v, Long.MAX_VALUE,
+                false, selection, count);
+          }
+        }
+        break;
+      case OBJECT_DICTIONARY:
+        return filterDictionary((ArrayTable.ObjectDictionary) representation,
+            dataSet, selection, count);
+      }
+      int k = 0;
+      for (int i = 0; i < count; i++) {
+        final int row = selection[i];
+        if (test(representation.getObject(dataSet, row))) {
+          selection[k++] = row;
+        }
+      }
+      return k;
+    }
+
+    /** Filters a dictionary-encoded column. Because the dictionary is
+     * sorted, the predicate becomes a range of codes, and is evaluated
+     * without decoding any values. */
+    private int filterDictionary(ArrayTable.ObjectDictionary dictionary,
+        Object dataSet, int[] selection, int count) {
+      final Pair<Object, Comparable[]> pair = toPair(dataSet);
+      final Object codes = pair.left;
+      final Comparable[] codeValues = pair.right;
+      final ArrayTable.Representation codeRepresentation =
+          dictionary.representation;
+      // If the column contains null, its code is after the last value.
+      final int n = codeValues.length > 0
+          && codeValues[codeValues.length - 1] == null
+          ? codeValues.length - 1
+          : codeValues.length;
+      switch (kind) {
+      case IS_NULL:
+        return filterRange(codeRepresentation, codes, n, n, false, selection,
+            count);
+      case IS_NOT_NULL:
+        return filterRange(codeRepresentation, codes, 0, n - 1, false,
+            selection, count);
+      }
+      final int lower = bound(codeValues, n, false);
+      final int upper = bound(codeValues, n, true);
+      switch (kind) {
+      case EQUALS:
+        return filterRange(codeRepresentation, codes, lower, upper - 1,
+            false, selection, count);
+      case NOT_EQUALS:
+        count = filterRange(codeRepresentation, codes, 0, n - 1, false,
+            selection, count);
+        return filterRange(codeRepresentation, codes, lower, upper - 1,
+            true, selection, count);
+      case LESS_THAN:
+        return filterRange(codeRepresentation, codes, 0, lower - 1, false,
+            selection, count);
+      case LESS_THAN_OR_EQUAL:
+        return filterRange(codeRepresentation, codes, 0, upper - 1, false,
+            selection, count);
+      case GREATER_THAN:
+        return filterRange(codeRepresentation, codes, upper, n - 1, false,
+            selection, count);
+      case GREATER_THAN_OR_EQUAL:
+        return filterRange(codeRepresentation, codes, lower, n - 1, false,
+            selection, count);
+      default:
+        throw new AssertionError(kind);
+      }
+    }
+
+    /** Returns the first code in a sorted dictionary whose value is not less
+     * than (or, if {@code strict}, is greater than) this predicate's
+     * value. */
+    private int bound(Comparable[] codeValues, int n, boolean strict) {
+      int lo = 0;
+      int hi = n;
+      while (lo < hi) {
+        final int mid = (lo + hi) >>> 1;
+        final int c = compare(codeValues[mid], value);
+        if (c < 0 || strict && c == 0) {
+          lo = mid + 1;
+        } else {
+          hi = mid;
+        }
+      }
+      return lo;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> Pair<Object, T> toPair(Object dataSet) {
+    return (Pair<Object, T>) dataSet;
+  }
+
+  /** Batch of rows, and the selection vector of those that satisfy a list
+   * of predicates. */
+  private static class Batch {
+    final ArrayTable.Content content;
+    final List<Predicate> predicates;
+    final int[] selection;
+    int count;
+    int start;
+
+    Batch(ArrayTable.Content content, List<Predicate> predicates,
+        int batchSize) {
+      this.content = content;
+      this.predicates = predicates;
+      this.selection = new int[batchSize];
+    }
+
+    /** Moves to the next batch that has at least one live row. */
+    boolean next() {
+      final int size = content.size();
+      while (start < size) {
+        final int end = Math.min(start + selection.length, size);
+        count = end - start;
+        for (int i = 0; i < count; i++) {
+          selection[i] = start + i;
+        }
+        start = end;
+        for (Predicate predicate : predicates) {
+          count = predicate.filter(content.column(predicate.column),
+              selection, count);
+          if (count == 0) {
+            break;
+          }
+        }
+        if (count > 0) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /** Enumerator that decodes the projected columns of each batch's live
+   * rows, a column at a time. */
+  private static class ScanEnumerator implements Enumerator<Object[]> {
+    private final ArrayTable.Content content;
+    private final List<Predicate> predicates;
+    private final int[] projects;
+    private Batch batch;
+    private Object[][] rows;
+    private int i;
+
+    ScanEnumerator(ArrayTable.Content content, List<Predicate> predicates,
+        int[] projects, int batchSize) {
+      this.content = content;
+      this.predicates = predicates;
+      this.projects = projects;
+      this.batch = new Batch(content, predicates, batchSize);
+    }
+
+    public Object[] current() {
+      return rows[i];
+    }
+
+    public boolean moveNext() {
+      if (rows != null && ++i < batch.count) {
+        return true;
+      }
+      if (!batch.next()) {
+        rows = null;
+        return false;
+      }
+      rows = new Object[batch.count][projects.length];
+      for (int j = 0; j < projects.length; j++) {
+        final ArrayTable.Column column = content.column(projects[j]);
+        for (int k = 0; k < batch.count; k++) {
+          rows[k][j] = column.representation.getObject(column.dataSet,
+              batch.selection[k]);
+        }
+      }
+      i = 0;
+      return true;
+    }
+
+    public void reset() {
+      batch = new Batch(content, predicates, batch.selection.length);
+      rows = null;
+    }
+
+    public void close() {
+    }
+  }
+
+  /** Aggregate function to be evaluated over column vectors. */
+  static class AggSpec {
+    final SqlKind kind;
+    final int column;
+    final SqlTypeName typeName;
+
+    /** Creates an AggSpec.
+     *
+     * @param kind COUNT, SUM, SUM0, MIN or MAX
+     * @param column Argument column, or -1 for {@code COUNT(*)}
+     * @param typeName Type of result
+     */
+    AggSpec(SqlKind kind, int column, SqlTypeName typeName) {
+      this.kind = kind;
+      this.column = column;
+      this.typeName = typeName;
+    }
+
+    /** Returns whether an aggregate function can be evaluated over column
+     * vectors. */
+    static boolean canHandle(SqlKind kind, int argCount,
+        SqlTypeName typeName) {
+      switch (kind) {
+      case COUNT:
+        return argCount <= 1;
+      case MIN:
+      case MAX:
+        return argCount == 1;
+      case SUM:
+      case SUM0:
+        return argCount == 1
+            && (SqlTypeName.INT_TYPES.contains(typeName)
+                || SqlTypeName.APPROX_TYPES.contains(typeName)
+                || typeName == SqlTypeName.DECIMAL);
+      default:
+        return false;
+      }
+    }
+
+    Accumulator accumulator(ArrayTable.Content content) {
+      final ArrayTable.Column column =
+          this.column < 0 ? null : content.column(this.column);
+      switch (kind) {
+      case COUNT:
+        return new CountAccumulator(column);
+      case MIN:
+      case MAX:
+        return new MinMaxAccumulator(column, kind == SqlKind.MAX);
+      default:
+        if (SqlTypeName.INT_TYPES.contains(typeName)) {
+          return new LongSumAccumulator(column, typeName, kind == SqlKind.SUM0);
+        }
+        return new SumAccumulator(column, typeName, kind == SqlKind.SUM0);
+      }
+    }
+  }
+
+  /** Holds the state of an aggregate function for each group. */
+  abstract static class Accumulator {
+    /** Ensures that there is state for at least the given number of
+     * groups. */
+    abstract void grow(int groupCount);
+
+    /** Adds the live rows of a batch.
+     *
+     * @param selection Ordinals of live rows
+     * @param count Number of live rows
+     * @param groups Group of each live row */
+    abstract void add(int[] selection, int count, int[] groups);
+
+    /** Returns the value of the aggregate function for a group. */
+    abstract Object result(int group);
+  }
+
+  /** Accumulator for {@code COUNT}. */
+  private static class CountAccumulator extends Accumulator {
+    private final ArrayTable.Column column;
+    private long[] counts = new long[0];
+
+    CountAccumulator(ArrayTable.Column column) {
+      this.column = column == null || isNotNull(column) ? null : column;
+    }
+
+    void grow(int groupCount) {
+      if (counts.length < groupCount) {
+        counts = Arrays.copyOf(counts, Math.max(groupCount, counts.length * 2));
+      }
+    }
+
+    void add(int[] selection, int count, int[] groups) {
+      if (column == null) {
+        for (int i = 0; i < count; i++) {
+          ++counts[groups[i]];
+        }
+      } else {
+        for (int i = 0; i < count; i++) {
+          if (column.representation.getObject(column.dataSet, selection[i])
+              != null) {
+            ++counts[groups[i]];
+          }
+        }
+      }
+    }
+
+    Object result(int group) {
+      return counts[group];
+    }
+  }
+
+  /** Accumulator for {@code SUM} and {@code $SUM0} of integers. */
+  private static class LongSumAccumulator extends Accumulator {
+    private final ArrayTable.Column column;
+    private final SqlTypeName typeName;
+    private final boolean zero;
+    private long[] sums = new long[0];
+    private long[] counts = new long[0];
+
+    LongSumAccumulator(ArrayTable.Column column, SqlTypeName typeName,
+        boolean zero) {
+      this.column = column;
+      this.typeName = typeName;
+      this.zero = zero;
+    }
+
+    void grow(int groupCount) {
+      if (sums.length < groupCount) {
+        final int n = Math.max(groupCount, sums.length * 2);
+        sums = Arrays.copyOf(sums, n);
+        counts = Arrays.copyOf(counts, n);
+      }
+    }
+
+    void add(int[] selection, int count, int[] groups) {
+      final Object dataSet = column.dataSet;
+      if (dataSet instanceof int[]) {
+        final int[] values = (int[]) dataSet;
+        for (int i = 0; i < count; i++) {
+          sums[groups[i]] += values[selection[i]];
+          ++counts[groups[i]];
+        }
+        return;
+      }
+      for (int i = 0; i < count; i++) {
+        final Object o =
+            column.representation.getObject(dataSet, selection[i]);
+        if (o != null) {
+          sums[groups[i]] += ((Number) o).longValue();
+          ++counts[groups[i]];
+        }
+      }
+    }
+
+    Object result(int group) {
+      if (counts[group] == 0 && !zero) {
+        return null;
+      }
+      final long sum = sums[group];
+      switch (typeName) {
+      case TINYINT:
+        return (byte) sum;
+      case SMALLINT:
+        return (short) sum;
+      case INTEGER:
+        return (int) sum;
+      default:
+        return sum;
+      }
+    }
+  }
+
+  /** Accumulator for {@code SUM} and {@code $SUM0} of approximate and
+   * decimal numbers. */
+  private static class SumAccumulator extends Accumulator {
+    private final ArrayTable.Column column;
+    private final SqlTypeName typeName;
+    private final boolean zero;
+    private double[] sums = new double[0];
+    private BigDecimal[] decimalSums = new BigDecimal[0];
+    private long[] counts = new long[0];
+
+    SumAccumulator(ArrayTable.Column column, SqlTypeName typeName,
+        boolean zero) {
+      this.column = column;
+      this.typeName = typeName;
+      this.zero = zero;
+    }
+
+    void grow(int groupCount) {
+      if (counts.length < groupCount) {
+        final int n = Math.max(groupCount, counts.length * 2);
+        counts = Arrays.copyOf(counts, n);
+        if (typeName == SqlTypeName.DECIMAL) {
+          final int oldLength = decimalSums.length;
+          decimalSums = Arrays.copyOf(decimalSums, n);
+          Arrays.fill(decimalSums, oldLength, n, BigDecimal.ZERO);
+        } else {
+          sums = Arrays.copyOf(sums, n);
+        }
+      }
+    }
+
+    void add(int[] selection, int count, int[] groups) {
+      final Object dataSet = column.dataSet;
+      if (dataSet instanceof double[]) {
+        final double[] values = (double[]) dataSet;
+        for (int i = 0; i < count; i++) {
+          sums[groups[i]] += values[selection[i]];
+          ++counts[groups[i]];
+        }
+        return;
+      }
+      for (int i = 0; i < count; i++) {
+        final Object o =
+            column.representation.getObject(dataSet, selection[i]);
+        if (o != null) {
+          final int group = groups[i];
+          if (typeName == SqlTypeName.DECIMAL) {
+            decimalSums[group] = decimalSums[group].add(
+                o instanceof BigDecimal
+                    ? (BigDecimal) o
+                    : new BigDecimal(o.toString()));
+          } else {
+            sums[group] += ((Number) o).doubleValue();
+          }
+          ++counts[group];
+        }
+      }
+    }
+
+    Object result(int group) {
+      if (counts[group] == 0 && !zero) {
+        return null;
+      }
+      switch (typeName) {
+      case DECIMAL:
+        return decimalSums[group];
+      case REAL:
+        return (float) sums[group];
+      default:
+        return sums[group];
+      }
+    }
+  }
+
+  /** Accumulator for {@code MIN} and {@code MAX}. */
+  private static class MinMaxAccumulator extends Accumulator {
+    private final ArrayTable.Column column;
+    private final boolean max;
+    private Comparable[] values = new Comparable[0];
+
+    MinMaxAccumulator(ArrayTable.Column column, boolean max) {
+      this.column = column;
+      this.max = max;
+    }
+
+    void grow(int groupCount) {
+      if (values.length < groupCount) {
+        values =
+            Arrays.copyOf(values, Math.max(groupCount, values.length * 2));
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    void add(int[] selection, int count, int[] groups) {
+      for (int i = 0; i < count; i++) {
+        final Comparable o = (Comparable)
+            column.representation.getObject(column.dataSet, selection[i]);
+        if (o != null) {
+          final Comparable v = values[groups[i]];
+          if (v == null || (max ? o.compareTo(v) > 0 : o.compareTo(v) < 0)) {
+            values[groups[i]] = o;
+          }
+        }
+      }
+    }
+
+    Object result(int group) {
+      return values[group];
+    }
+  }
+
+  /** Returns the {@link Predicate}s for a list of filters. */
+  static List<Predicate> predicates(List<RexNode> filters,
+      RelDataType rowType) {
+    final ImmutableList.Builder<Predicate> builder = ImmutableList.builder();
+    for (RexNode filter : filters) {
+      final Predicate predicate = predicate(filter, rowType);
+      assert predicate != null : filter;
+      builder.add(predicate);
+    }
+    return builder.build();
+  }
+}
+
+// End ColumnVectors.java
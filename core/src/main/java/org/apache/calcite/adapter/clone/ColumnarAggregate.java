@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.clone;
+
+import org.apache.calcite.adapter.enumerable.EnumerableRel;
+import org.apache.calcite.adapter.enumerable.EnumerableRelImplementor;
+import org.apache.calcite.plan.RelOptCluster;
+import org.apache.calcite.plan.RelTraitSet;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.core.Aggregate;
+import org.apache.calcite.rel.core.AggregateCall;
+import org.apache.calcite.util.ImmutableBitSet;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+/**
+ * Aggregate over a {@link ColumnarTableScan} that reads the columns of the
+ * underlying {@link ArrayTable} directly, accumulating each aggregate
+ * function over a batch of rows at a time.
+ *
+ * <p>Supports {@code COUNT}, {@code SUM}, {@code $SUM0}, {@code MIN} and
+ * {@code MAX}, without {@code DISTINCT} or {@code FILTER}.
+ */
+public class ColumnarAggregate extends Aggregate implements EnumerableRel {
+  /** Creates a ColumnarAggregate.
+   *
+   * <p>The input must be a {@link ColumnarTableScan} (possibly wrapped while
+   * planning). */
+  public ColumnarAggregate(RelOptCluster cluster, RelTraitSet traitSet,
+      RelNode input, ImmutableBitSet groupSet,
+      List<AggregateCall> aggCalls) {
+    super(cluster, traitSet, input, false, groupSet, null, aggCalls);
+    assert canImplement(this);
+  }
+
+  @Override public ColumnarAggregate copy(RelTraitSet traitSet,
+      RelNode input, boolean indicator, ImmutableBitSet groupSet,
+      List<ImmutableBitSet> groupSets, List<AggregateCall> aggCalls) {
+    assert !indicator;
+    assert groupSets == null || groupSets.equals(ImmutableList.of(groupSet));
+    return new ColumnarAggregate(getCluster(), traitSet, input, groupSet,
+        aggCalls);
+  }
+
+  /** Returns whether an aggregate can be evaluated over column vectors. */
+  static boolean canImplement(Aggregate aggregate) {
+    if (aggregate.indicator
+        || aggregate.getGroupType() != Group.SIMPLE) {
+      return false;
+    }
+    for (AggregateCall aggCall : aggregate.getAggCallList()) {
+      if (aggCall.isDistinct()
+          || aggCall.filterArg >= 0
+          || !ColumnVectors.AggSpec.canHandle(
+              aggCall.getAggregation().getKind(),
+              aggCall.getArgList().size(), aggCall.type.getSqlTypeName())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
+    final ColumnarTableScan scan = (ColumnarTableScan) getInput();
+    final int[] groupColumns = new int[groupSet.cardinality()];
+    int i = 0;
+    for (int key : groupSet) {
+      groupColumns[i++] = scan.projects.get(key);
+    }
+    final ImmutableList.Builder<ColumnVectors.AggSpec> aggSpecs =
+        ImmutableList.builder();
+    for (AggregateCall aggCall : aggCalls) {
+      aggSpecs.add(
+          new ColumnVectors.AggSpec(aggCall.getAggregation().getKind(),
+              aggCall.getArgList().isEmpty()
+                  ? -1
+                  : scan.projects.get(aggCall.getArgList().get(0)),
+              aggCall.type.getSqlTypeName()));
+    }
+    return ColumnarTableScan.implement(implementor, this,
+        ColumnVectors.aggregate(scan.getTable().unwrap(ArrayTable.class),
+            ColumnVectors.predicates(scan.filters,
+                scan.getTable().getRowType()),
+            groupColumns, aggSpecs.build(), scan.batchSize));
+  }
+}
+
+// End ColumnarAggregate.java
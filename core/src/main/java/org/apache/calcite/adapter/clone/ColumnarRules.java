@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.clone;
+
+import org.apache.calcite.adapter.enumerable.EnumerableAggregate;
+import org.apache.calcite.adapter.enumerable.EnumerableCalc;
+import org.apache.calcite.adapter.enumerable.EnumerableSortedAggregate;
+import org.apache.calcite.adapter.enumerable.EnumerableTableScan;
+import org.apache.calcite.plan.RelOptRule;
+import org.apache.calcite.plan.RelOptRuleCall;
+import org.apache.calcite.plan.RelOptUtil;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rex.RexBuilder;
+import org.apache.calcite.rex.RexInputRef;
+import org.apache.calcite.rex.RexLocalRef;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexProgram;
+import org.apache.calcite.rex.RexShuttle;
+import org.apache.calcite.rex.RexUtil;
+import org.apache.calcite.util.ImmutableBitSet;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Rules that convert scans of {@link ArrayTable}, and the filters, projects
+ * and aggregates above them, to operators that work on column vectors.
+ *
+ * <p>The rules apply to a physical plan, after the
+ * {@link org.apache.calcite.adapter.enumerable.EnumerableConvention enumerable}
+ * operators have been chosen; see
+ * {@link org.apache.calcite.config.CalciteConnectionProperty#COLUMNAR_BATCH_SIZE}.
+ */
+public class ColumnarRules {
+  private ColumnarRules() {
+  }
+
+  public static final RelOptRule CALC = new ColumnarCalcRule();
+
+  public static final RelOptRule AGGREGATE = new ColumnarAggregateRule();
+
+  /** Returns the rules, for a given number of rows per batch. */
+  public static List<RelOptRule> rules(int batchSize) {
+    return ImmutableList.<RelOptRule>of(new ColumnarScanRule(batchSize), CALC,
+        AGGREGATE);
+  }
+
+  /** Rule that converts an {@link EnumerableTableScan} of an
+   * {@link ArrayTable} to a {@link ColumnarTableScan}. */
+  public static class ColumnarScanRule extends RelOptRule {
+    private final int batchSize;
+
+    public ColumnarScanRule(int batchSize) {
+      super(operand(EnumerableTableScan.class, none()));
+      this.batchSize = batchSize;
+    }
+
+    @Override public void onMatch(RelOptRuleCall call) {
+      final EnumerableTableScan scan = call.rel(0);
+      if (scan.getTable().unwrap(ArrayTable.class) == null) {
+        return;
+      }
+      call.transformTo(
+          ColumnarTableScan.create(scan.getCluster(), scan.getTable(),
+              ImmutableList.<RexNode>of(), scan.identity(), batchSize));
+    }
+  }
+
+  /** Rule that pushes the conditions of an {@link EnumerableCalc} that can
+   * be evaluated on column vectors into a {@link ColumnarTableScan}, and
+   * prunes the columns that the scan decodes. If nothing else remains, the
+   * calc is removed. */
+  private static class ColumnarCalcRule extends RelOptRule {
+    private ColumnarCalcRule() {
+      super(
+          operand(EnumerableCalc.class,
+              operand(ColumnarTableScan.class, none())));
+    }
+
+    @Override public void onMatch(RelOptRuleCall call) {
+      final EnumerableCalc calc = call.rel(0);
+      final ColumnarTableScan scan = call.rel(1);
+      final RexBuilder rexBuilder = calc.getCluster().getRexBuilder();
+      final RelDataType tableRowType = scan.getTable().getRowType();
+      final RexProgram program = calc.getProgram();
+      final List<RexNode> projects = new ArrayList<>();
+      for (RexLocalRef ref : program.getProjectList()) {
+        projects.add(program.expandLocalRef(ref));
+      }
+
+      // Push down each conjunction that compares a column with a constant.
+      final List<RexNode> filters = new ArrayList<>(scan.filters);
+      final List<RexNode> residue = new ArrayList<>();
+      if (program.getCondition() != null) {
+        final RexNode condition =
+            program.expandLocalRef(program.getCondition());
+        for (RexNode node : RelOptUtil.conjunctions(condition)) {
+          final RexNode filter = toTable(node, scan);
+          if (ColumnVectors.predicate(filter, tableRowType) != null) {
+            filters.add(filter);
+          } else {
+            residue.add(node);
+          }
+        }
+      }
+
+      // If the calc only returns distinct columns, the scan can do it.
+      if (residue.isEmpty() && !projects.isEmpty()) {
+        final List<Integer> columns = new ArrayList<>();
+        for (RexNode project : projects) {
+          if (!(project instanceof RexInputRef)) {
+            break;
+          }
+          columns.add(scan.projects.get(((RexInputRef) project).getIndex()));
+        }
+        if (columns.size() == projects.size()
+            && new HashSet<>(columns).size() == columns.size()) {
+          call.transformTo(
+              ColumnarTableScan.create(scan.getCluster(), scan.getTable(),
+                  filters, columns, scan.batchSize));
+          return;
+        }
+      }
+
+      // Otherwise keep a calc, and have the scan decode only the columns it
+      // uses.
+      final RexNode condition = residue.isEmpty()
+          ? null
+          : RexUtil.composeConjunction(rexBuilder, residue, false);
+      ImmutableBitSet used = RelOptUtil.InputFinder.bits(projects, condition);
+      if (used.isEmpty()) {
+        used = ImmutableBitSet.of(0);
+      }
+      if (filters.size() == scan.filters.size()
+          && used.cardinality() == scan.projects.size()) {
+        return;
+      }
+      final List<Integer> columns = new ArrayList<>();
+      final int[] map = new int[scan.projects.size()];
+      for (int i : used) {
+        map[i] = columns.size();
+        columns.add(scan.projects.get(i));
+      }
+      final ColumnarTableScan newScan =
+          ColumnarTableScan.create(scan.getCluster(), scan.getTable(),
+              filters, columns, scan.batchSize);
+      final RexShuttle shuttle = new RexShuttle() {
+        @Override public RexNode visitInputRef(RexInputRef ref) {
+          return new RexInputRef(map[ref.getIndex()], ref.getType());
+        }
+      };
+      final RexProgram newProgram =
+          RexProgram.create(newScan.getRowType(), shuttle.apply(projects),
+              condition == null ? null : shuttle.apply(condition),
+              calc.getRowType(), rexBuilder);
+      call.transformTo(EnumerableCalc.create(newScan, newProgram));
+    }
+
+    /** Converts an expression on the output of a scan to an expression on
+     * the columns of its table. */
+    private static RexNode toTable(RexNode node,
+        final ColumnarTableScan scan) {
+      final RelDataType tableRowType = scan.getTable().getRowType();
+      return node.accept(
+          new RexShuttle() {
+            @Override public RexNode visitInputRef(RexInputRef ref) {
+              return RexInputRef.of(scan.projects.get(ref.getIndex()),
+                  tableRowType);
+            }
+          });
+    }
+  }
+
+  /** Rule that converts an {@link EnumerableAggregate} on a
+   * {@link ColumnarTableScan} to a {@link ColumnarAggregate}. */
+  private static class ColumnarAggregateRule extends RelOptRule {
+    private ColumnarAggregateRule() {
+      super(
+          operand(EnumerableAggregate.class,
+              operand(ColumnarTableScan.class, none())));
+    }
+
+    @Override public void onMatch(RelOptRuleCall call) {
+      final EnumerableAggregate aggregate = call.rel(0);
+      final ColumnarTableScan scan = call.rel(1);
+      // A sorted aggregate promises to return rows in order of the group
+      // keys; ColumnarAggregate does not.
+      if (aggregate instanceof EnumerableSortedAggregate
+          || !ColumnarAggregate.canImplement(aggregate)) {
+        return;
+      }
+      call.transformTo(
+          new ColumnarAggregate(aggregate.getCluster(),
+              aggregate.getTraitSet(), scan, aggregate.getGroupSet(),
+              aggregate.getAggCallList()));
+    }
+  }
+}
+
+// End ColumnarRules.java
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.clone;
+
+import org.apache.calcite.adapter.enumerable.EnumerableConvention;
+import org.apache.calcite.adapter.enumerable.EnumerableRel;
+import org.apache.calcite.adapter.enumerable.EnumerableRelImplementor;
+import org.apache.calcite.adapter.enumerable.JavaRowFormat;
+import org.apache.calcite.adapter.enumerable.PhysType;
+import org.apache.calcite.adapter.enumerable.PhysTypeImpl;
+import org.apache.calcite.linq4j.tree.BlockBuilder;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.linq4j.tree.Expressions;
+import org.apache.calcite.plan.RelOptCluster;
+import org.apache.calcite.plan.RelOptTable;
+import org.apache.calcite.plan.RelTraitSet;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.RelWriter;
+import org.apache.calcite.rel.core.TableScan;
+import org.apache.calcite.rel.metadata.RelMdUtil;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rel.type.RelDataTypeFactory;
+import org.apache.calcite.rel.type.RelDataTypeField;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexUtil;
+import org.apache.calcite.runtime.Bindable;
+import org.apache.calcite.util.BuiltInMethod;
+import org.apache.calcite.util.ImmutableIntList;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+/**
+ * Scan of an {@link ArrayTable} that applies filters and projects to the
+ * table's columns a batch of rows at a time, rather than decoding every row.
+ *
+ * <p>Each filter compares a column with a constant, or tests whether a
+ * column is null; see {@link ColumnarRules}.
+ */
+public class ColumnarTableScan extends TableScan implements EnumerableRel {
+  /** Filters, referencing the columns of the table. */
+  public final ImmutableList<RexNode> filters;
+  /** Columns of the table to return. */
+  public final ImmutableIntList projects;
+  /** Number of rows in each batch. */
+  public final int batchSize;
+
+  /** Creates a ColumnarTableScan.
+   *
+   * <p>Use {@link #create} unless you know what you are doing. */
+  ColumnarTableScan(RelOptCluster cluster, RelTraitSet traitSet,
+      RelOptTable table, ImmutableList<RexNode> filters,
+      ImmutableIntList projects, int batchSize) {
+    super(cluster, traitSet, table);
+    this.filters = Preconditions.checkNotNull(filters);
+    this.projects = Preconditions.checkNotNull(projects);
+    this.batchSize = batchSize;
+    Preconditions.checkArgument(table.unwrap(ArrayTable.class) != null);
+    Preconditions.checkArgument(batchSize > 0);
+  }
+
+  /** Creates a ColumnarTableScan. */
+  public static ColumnarTableScan create(RelOptCluster cluster,
+      RelOptTable table, List<RexNode> filters, List<Integer> projects,
+      int batchSize) {
+    final RelTraitSet traitSet =
+        cluster.traitSetOf(EnumerableConvention.INSTANCE);
+    return new ColumnarTableScan(cluster, traitSet, table,
+        ImmutableList.copyOf(filters), ImmutableIntList.copyOf(projects),
+        batchSize);
+  }
+
+  @Override public RelNode copy(RelTraitSet traitSet, List<RelNode> inputs) {
+    assert inputs.isEmpty();
+    return new ColumnarTableScan(getCluster(), traitSet, table, filters,
+        projects, batchSize);
+  }
+
+  @Override public RelDataType deriveRowType() {
+    final RelDataTypeFactory.FieldInfoBuilder builder =
+        getCluster().getTypeFactory().builder();
+    final List<RelDataTypeField> fieldList =
+        table.getRowType().getFieldList();
+    for (int project : projects) {
+      builder.add(fieldList.get(project));
+    }
+    return builder.build();
+  }
+
+  @Override public RelWriter explainTerms(RelWriter pw) {
+    return super.explainTerms(pw)
+        .itemIf("filters", filters, !filters.isEmpty())
+        .itemIf("projects", projects, !projects.equals(identity()))
+        .item("batchSize", batchSize);
+  }
+
+  @Override public double estimateRowCount(RelMetadataQuery mq) {
+    return super.estimateRowCount(mq)
+        * RelMdUtil.guessSelectivity(
+            RexUtil.composeConjunction(getCluster().getRexBuilder(), filters,
+                true));
+  }
+
+  /** Creates the object that evaluates this scan at run time. */
+  Bindable<Object[]> bindable() {
+    return ColumnVectors.scan(table.unwrap(ArrayTable.class),
+        ColumnVectors.predicates(filters, table.getRowType()),
+        projects.toIntArray(), batchSize);
+  }
+
+  public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
+    return implement(implementor, this, bindable());
+  }
+
+  /** Generates code that calls a {@link Bindable} to produce the rows of a
+   * relational expression. */
+  static Result implement(EnumerableRelImplementor implementor, RelNode rel,
+      Bindable<Object[]> bindable) {
+    final BlockBuilder builder = new BlockBuilder();
+    final PhysType physType =
+        PhysTypeImpl.of(implementor.getTypeFactory(), rel.getRowType(),
+            JavaRowFormat.ARRAY);
+    final Expression enumerable_ = builder.append("enumerable",
+        Expressions.call(implementor.stash(bindable, Bindable.class),
+            BuiltInMethod.BINDABLE_BIND.method,
+            implementor.getRootExpression()));
+    builder.add(
+        rel.getRowType().getFieldCount() == 1
+            ? Expressions.call(BuiltInMethod.SLICE0.method, enumerable_)
+            : enumerable_);
+    return implementor.result(physType, builder.toBlock());
+  }
+}
+
+// End ColumnarTableScan.java
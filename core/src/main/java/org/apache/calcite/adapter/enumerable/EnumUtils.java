@@ -16,8 +16,10 @@
  */
 package org.apache.calcite.adapter.enumerable;
 
+import org.apache.calcite.DataContext;
 import org.apache.calcite.adapter.java.JavaTypeFactory;
 import org.apache.calcite.linq4j.Ord;
+import org.apache.calcite.linq4j.Spill;
 import org.apache.calcite.linq4j.function.Function2;
 import org.apache.calcite.linq4j.tree.BlockStatement;
 import org.apache.calcite.linq4j.tree.ConstantUntypedNull;
@@ -26,6 +28,7 @@
 import org.apache.calcite.linq4j.tree.MethodDeclaration;
 import org.apache.calcite.linq4j.tree.ParameterExpression;
 import org.apache.calcite.linq4j.tree.Primitive;
+import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.core.JoinRelType;
 import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.rel.type.RelDataTypeField;
@@ -36,6 +39,7 @@
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 
+import java.io.Serializable;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
@@ -81,6 +85,47 @@ public static MethodDeclaration overridingMethodDecl(Method method,
         body);
   }
 
+  /** Returns an expression that gets the
+   * {@link org.apache.calcite.linq4j.Spill.Manager} of the current statement;
+   * its value is null if operators must not spill. */
+  static Expression spillManager() {
+    return Expressions.convert_(
+        Expressions.call(DataContext.ROOT,
+            BuiltInMethod.DATA_CONTEXT_GET.method,
+            Expressions.constant(DataContext.Variable.SPILL_MANAGER.camelName)),
+        Spill.Manager.class);
+  }
+
+  /** Returns an expression for a
+   * {@link org.apache.calcite.linq4j.Spill.Serializer} that can write rows of a
+   * given physical type to spill files, or null if the rows cannot be spilled
+   * because the row class or the class of a field is not serializable. */
+  static Expression spillSerializer(PhysType physType) {
+    final int fieldCount = physType.getRowType().getFieldCount();
+    for (int i = 0; i < fieldCount; i++) {
+      final Class clazz = physType.fieldClass(i);
+      if (!clazz.isPrimitive()
+          && !Serializable.class.isAssignableFrom(clazz)) {
+        return null;
+      }
+    }
+    return physType.getFormat().spillSerializer(physType.getJavaRowType());
+  }
+
+  /** Returns the estimated size in memory, in bytes, of a row produced by a
+   * relational expression. Includes an allowance for the headers of the row
+   * object and its boxed fields. */
+  static int rowSize(RelNode rel) {
+    final int fieldCount = rel.getRowType().getFieldCount();
+    final Double size = rel.getCluster().getMetadataQuery()
+        .getAverageRowSize(rel);
+    final double valueSize = size == null || size.isNaN() || size <= 0
+        ? fieldCount * 8
+        : size;
+    return (int) Math.min(valueSize + 16 * (fieldCount + 1),
+        Integer.MAX_VALUE);
+  }
+
   static Type javaClass(
       JavaTypeFactory typeFactory, RelDataType type) {
     final Type clazz = typeFactory.getJavaClass(type);
@@ -30,12 +30,15 @@
 import org.apache.calcite.linq4j.tree.ParameterExpression;
 import org.apache.calcite.linq4j.tree.Types;
 import org.apache.calcite.plan.RelOptCluster;
+import org.apache.calcite.plan.RelOptCost;
+import org.apache.calcite.plan.RelOptPlanner;
 import org.apache.calcite.plan.RelTraitSet;
 import org.apache.calcite.prepare.CalcitePrepareImpl;
 import org.apache.calcite.rel.InvalidRelException;
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.core.Aggregate;
 import org.apache.calcite.rel.core.AggregateCall;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
 import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.rel.type.RelDataTypeField;
 import org.apache.calcite.rex.RexInputRef;
@@ -54,7 +57,11 @@
 import java.util.List;
 
 /** Implementation of {@link org.apache.calcite.rel.core.Aggregate} in
- * {@link org.apache.calcite.adapter.enumerable.EnumerableConvention enumerable calling convention}. */
+ * {@link org.apache.calcite.adapter.enumerable.EnumerableConvention enumerable calling convention}.
+ *
+ * <p>If the statement has a spill memory budget, an aggregate with a single
+ * grouping set writes the input rows of groups that do not fit into memory
+ * to disk, and aggregates them afterwards. */
 public class EnumerableAggregate extends Aggregate implements EnumerableRel {
   public EnumerableAggregate(
       RelOptCluster cluster,
@@ -95,11 +102,37 @@ public EnumerableAggregate(
     }
   }
 
+  @Override public RelOptCost computeSelfCost(RelOptPlanner planner,
+      RelMetadataQuery mq) {
+    final EnumerableCostModel model = EnumerableCostModel.of(planner);
+    if (model == null) {
+      return super.computeSelfCost(planner, mq);
+    }
+    // Each input row finds its group, either in a hash table or, if the
+    // input is sorted, by comparing with the previous row. If the hash table
+    // is too large, the input spills.
+    final double inputRowCount = mq.getRowCount(getInput());
+    final double cpu = inputRowCount
+        * model.get(isInputSorted()
+            ? EnumerableCostModel.Constant.MERGE
+            : EnumerableCostModel.Constant.HASH_BUILD);
+    return model.makeCost(planner, mq.getRowCount(this), cpu,
+        mq.memory(this), EnumerableCostModel.bytes(getInput(), mq));
+  }
+
+  /** Returns whether this aggregate relies on its input being sorted on the
+   * group keys, and therefore returns each group as soon as the key
+   * changes. */
+  protected boolean isInputSorted() {
+    return false;
+  }
+
   public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
     final JavaTypeFactory typeFactory = implementor.getTypeFactory();
     final BlockBuilder builder = new BlockBuilder();
     final EnumerableRel child = (EnumerableRel) getInput();
-    final Result result = implementor.visitChild(this, 0, child, pref);
+    final Result result =
+        implementor.visitChild(this, 0, child, implementor.inputPrefer(pref));
     Expression childExp =
         builder.append(
             "child",
@@ -429,6 +462,7 @@ public RexToLixTranslator rowTranslator() {
                       accumulatorAdder,
                       resultSelector))));
     } else if (aggCalls.isEmpty()
+        && !isInputSorted()
         && groupSet.equals(
             ImmutableBitSet.range(child.getRowType().getFieldCount()))) {
       builder.add(
@@ -451,6 +485,42 @@ public RexToLixTranslator rowTranslator() {
                   resultBlock.toBlock(),
                   key_,
                   acc_));
+      if (isInputSorted()) {
+        // Aggregation that emits each group as soon as its key changes
+        builder.add(
+            Expressions.return_(null,
+                Expressions.call(
+                    BuiltInMethod.SORTED_GROUP_BY.method,
+                    childExp,
+                    keySelector_,
+                    accumulatorInitializer,
+                    accumulatorAdder,
+                    resultSelector_,
+                    Util.first(keyPhysType.comparer(),
+                        Expressions.constant(null)))));
+        return implementor.result(physType, builder.toBlock());
+      }
+      final Expression serializer = EnumUtils.spillSerializer(inputPhysType);
+      if (implementor.spill() && serializer != null) {
+        // Aggregation that writes the input rows of groups that do not fit
+        // into the statement's memory budget to disk, and aggregates them
+        // afterwards using the same accumulator functions
+        builder.add(
+            Expressions.return_(null,
+                Expressions.call(
+                    BuiltInMethod.SPILLING_GROUP_BY.method,
+                    childExp,
+                    keySelector_,
+                    accumulatorInitializer,
+                    accumulatorAdder,
+                    resultSelector_,
+                    Util.first(keyPhysType.comparer(),
+                        Expressions.constant(null)),
+                    EnumUtils.spillManager(),
+                    Expressions.constant(EnumUtils.rowSize(this)),
+                    serializer)));
+        return implementor.result(physType, builder.toBlock());
+      }
       builder.add(
           Expressions.return_(null,
               Expressions.call(childExp,
@@ -26,6 +26,7 @@
 import org.apache.calcite.linq4j.tree.Expressions;
 import org.apache.calcite.linq4j.tree.MemberDeclaration;
 import org.apache.calcite.linq4j.tree.ParameterExpression;
+import org.apache.calcite.linq4j.tree.Statement;
 import org.apache.calcite.linq4j.tree.Types;
 import org.apache.calcite.plan.RelOptCluster;
 import org.apache.calcite.plan.RelTraitSet;
@@ -120,11 +121,12 @@ public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
     final EnumerableRel child = (EnumerableRel) getInput();
 
     final Result result =
-        implementor.visitChild(this, 0, child, pref);
+        implementor.visitChild(this, 0, child, implementor.inputPrefer(pref));
 
     final PhysType physType =
         PhysTypeImpl.of(
-            typeFactory, getRowType(), pref.prefer(result.format));
+            typeFactory, getRowType(),
+            implementor.outputFormat(pref, result.format));
 
     // final Enumerable<Employee> inputEnumerable = <<child adapter>>;
     // return new Enumerable<IntString>() {
@@ -154,7 +156,16 @@ public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
         new RexSimplify(rexBuilder, false, RexUtil.EXECUTOR);
     final RexProgram program = this.program.normalize(rexBuilder, simplify);
 
+    // If the condition and the projections have calls in common, translate
+    // the projections in a block nested within the one that evaluates the
+    // condition, so that each common call is evaluated once per row. The
+    // projected row is saved in a field, and "current()" returns it.
+    final boolean shared = !program.getSharedExprs().isEmpty();
+    final ParameterExpression outputRow =
+        Expressions.parameter(outputJavaType, "outputRow");
+
     BlockStatement moveNextBody;
+    BlockStatement currentBody;
     if (program.getCondition() == null) {
       moveNextBody =
           Blocks.toFunctionBlock(
@@ -172,11 +183,34 @@ public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
                   Collections.singletonList(
                       Pair.of(input, result.physType))),
               implementor.allCorrelateVariables);
-      builder2.add(
-          Expressions.ifThen(
-              condition,
-              Expressions.return_(
-                  null, Expressions.constant(true))));
+      final Statement then;
+      if (shared) {
+        final BlockBuilder builder4 = new BlockBuilder(true, builder2);
+        List<Expression> expressions =
+            RexToLixTranslator.translateProjects(
+                program,
+                typeFactory,
+                builder4,
+                physType,
+                DataContext.ROOT,
+                new RexToLixTranslator.InputGetterImpl(
+                    Collections.singletonList(
+                        Pair.of(input, result.physType))),
+                implementor.allCorrelateVariables);
+        builder4.add(
+            Expressions.statement(
+                Expressions.assign(outputRow,
+                    physType.record(expressions))));
+        builder4.add(
+            Expressions.return_(
+                null, Expressions.constant(true)));
+        then = builder4.toBlock();
+      } else {
+        then =
+            Expressions.return_(
+                null, Expressions.constant(true));
+      }
+      builder2.add(Expressions.ifThen(condition, then));
       moveNextBody =
           Expressions.block(
               Expressions.while_(
@@ -189,23 +223,28 @@ public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
                   Expressions.constant(false)));
     }
 
-    final BlockBuilder builder3 = new BlockBuilder();
-    List<Expression> expressions =
-        RexToLixTranslator.translateProjects(
-            program,
-            typeFactory,
-            builder3,
-            physType,
-            DataContext.ROOT,
-            new RexToLixTranslator.InputGetterImpl(
-                Collections.singletonList(
-                    Pair.of(input, result.physType))),
-            implementor.allCorrelateVariables);
-    builder3.add(
-        Expressions.return_(
-            null, physType.record(expressions)));
-    BlockStatement currentBody =
-        builder3.toBlock();
+    if (shared) {
+      currentBody =
+          Blocks.toFunctionBlock(outputRow);
+    } else {
+      final BlockBuilder builder3 = new BlockBuilder();
+      List<Expression> expressions =
+          RexToLixTranslator.translateProjects(
+              program,
+              typeFactory,
+              builder3,
+              physType,
+              DataContext.ROOT,
+              new RexToLixTranslator.InputGetterImpl(
+                  Collections.singletonList(
+                      Pair.of(input, result.physType))),
+              implementor.allCorrelateVariables);
+      builder3.add(
+          Expressions.return_(
+              null, physType.record(expressions)));
+      currentBody =
+          builder3.toBlock();
+    }
 
     final Expression inputEnumerable =
         builder.append(
@@ -214,40 +253,43 @@ public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
         Expressions.new_(
             enumeratorType,
             NO_EXPRS,
-            Expressions.list(
+            Expressions.<MemberDeclaration>list(
                 Expressions.fieldDecl(
                     Modifier.PUBLIC
                     | Modifier.FINAL,
                     inputEnumerator,
                     Expressions.call(
                         inputEnumerable,
-                        BuiltInMethod.ENUMERABLE_ENUMERATOR.method)),
-                EnumUtils.overridingMethodDecl(
-                    BuiltInMethod.ENUMERATOR_RESET.method,
-                    NO_PARAMS,
-                    Blocks.toFunctionBlock(
-                        Expressions.call(
-                            inputEnumerator,
-                            BuiltInMethod.ENUMERATOR_RESET.method))),
-                EnumUtils.overridingMethodDecl(
-                    BuiltInMethod.ENUMERATOR_MOVE_NEXT.method,
-                    NO_PARAMS,
-                    moveNextBody),
-                EnumUtils.overridingMethodDecl(
-                    BuiltInMethod.ENUMERATOR_CLOSE.method,
-                    NO_PARAMS,
-                    Blocks.toFunctionBlock(
-                        Expressions.call(
-                            inputEnumerator,
-                            BuiltInMethod.ENUMERATOR_CLOSE.method))),
-                Expressions.methodDecl(
-                    Modifier.PUBLIC,
-                    BRIDGE_METHODS
-                        ? Object.class
-                        : outputJavaType,
-                    "current",
-                    NO_PARAMS,
-                    currentBody)));
+                        BuiltInMethod.ENUMERABLE_ENUMERATOR.method)))
+                .appendIf(shared,
+                    Expressions.fieldDecl(Modifier.PRIVATE, outputRow))
+                .appendAll(
+                    EnumUtils.overridingMethodDecl(
+                        BuiltInMethod.ENUMERATOR_RESET.method,
+                        NO_PARAMS,
+                        Blocks.toFunctionBlock(
+                            Expressions.call(
+                                inputEnumerator,
+                                BuiltInMethod.ENUMERATOR_RESET.method))),
+                    EnumUtils.overridingMethodDecl(
+                        BuiltInMethod.ENUMERATOR_MOVE_NEXT.method,
+                        NO_PARAMS,
+                        moveNextBody),
+                    EnumUtils.overridingMethodDecl(
+                        BuiltInMethod.ENUMERATOR_CLOSE.method,
+                        NO_PARAMS,
+                        Blocks.toFunctionBlock(
+                            Expressions.call(
+                                inputEnumerator,
+                                BuiltInMethod.ENUMERATOR_CLOSE.method))),
+                    Expressions.methodDecl(
+                        Modifier.PUBLIC,
+                        BRIDGE_METHODS
+                            ? Object.class
+                            : outputJavaType,
+                        "current",
+                        NO_PARAMS,
+                        currentBody)));
     builder.add(
         Expressions.return_(
             null,
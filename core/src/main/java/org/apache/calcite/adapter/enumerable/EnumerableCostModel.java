@@ -0,0 +1,371 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.enumerable;
+
+import org.apache.calcite.plan.RelOptCost;
+import org.apache.calcite.plan.RelOptCostFactory;
+import org.apache.calcite.plan.RelOptPlanner;
+import org.apache.calcite.plan.RelOptUtil;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+
+/**
+ * Calibrated model of the cost of {@link EnumerableRel} operators.
+ *
+ * <p>Each {@link Constant} is the time, in nanoseconds, that an operator
+ * spends on one unit of work of a particular kind, such as probing a hash
+ * table with one row. Operators such as {@link EnumerableJoin},
+ * {@link EnumerableMergeJoin} and {@link EnumerableThetaJoin} multiply the
+ * constants by their estimated row counts, and report the result as the CPU
+ * component of their cost. If an operator's memory footprint, as estimated
+ * by {@link org.apache.calcite.rel.metadata.RelMdMemory}, exceeds the
+ * {@link #getMemoryBudget() memory budget}, the operator also reports the
+ * cost of spilling its input to disk as the I/O component of its cost.
+ *
+ * <p>The default constants are plausible for a current machine, but are
+ * best measured on the machine that will run queries, for instance by
+ * running {@code CostCalibrationBenchmark} in the {@code ubenchmark}
+ * module, which writes them to a file that {@link #load(File)} can read.
+ *
+ * <p>A planner uses a model if its context contains one (see
+ * {@link #of(RelOptPlanner)}) and it was created with the model's
+ * {@link #getCostFactory() cost factory}, which compares costs by their
+ * total estimated time. The connection property
+ * {@link org.apache.calcite.config.CalciteConnectionProperty#COST_MODEL}
+ * arranges both. Without a model, operators report costs as before.
+ */
+public class EnumerableCostModel {
+  /** Model with the default constants and no memory budget. */
+  public static final EnumerableCostModel DEFAULT =
+      new EnumerableCostModel(ImmutableMap.<Constant, Double>of(), 0L);
+
+  private final ImmutableMap<Constant, Double> constants;
+  private final long memoryBudget;
+
+  /** Creates an EnumerableCostModel.
+   *
+   * @param constants    Values of constants; a constant that is not present
+   *                     has its {@link Constant#defaultValue default value}
+   * @param memoryBudget Memory, in bytes, that an operator may use before it
+   *                     spills; 0 means that operators never spill
+   */
+  public EnumerableCostModel(Map<Constant, Double> constants,
+      long memoryBudget) {
+    final Map<Constant, Double> map = new EnumMap<>(Constant.class);
+    for (Constant constant : Constant.values()) {
+      map.put(constant, constant.defaultValue);
+    }
+    map.putAll(constants);
+    this.constants = ImmutableMap.copyOf(map);
+    Preconditions.checkArgument(memoryBudget >= 0);
+    this.memoryBudget = memoryBudget;
+  }
+
+  /** Returns the model in a planner's context, or null. */
+  public static EnumerableCostModel of(RelOptPlanner planner) {
+    return planner.getContext().unwrap(EnumerableCostModel.class);
+  }
+
+  /** Creates a model from properties whose names are those of
+   * {@link Constant#camelName constants}. */
+  public static EnumerableCostModel of(Properties properties,
+      long memoryBudget) {
+    final Map<Constant, Double> map = new EnumMap<>(Constant.class);
+    for (Constant constant : Constant.values()) {
+      final String s = properties.getProperty(constant.camelName);
+      if (s != null) {
+        map.put(constant, Double.valueOf(s));
+      }
+    }
+    return new EnumerableCostModel(map, memoryBudget);
+  }
+
+  /** Reads a model from a properties file. */
+  public static EnumerableCostModel load(File file, long memoryBudget)
+      throws IOException {
+    final Properties properties = new Properties();
+    try (InputStream in = new FileInputStream(file)) {
+      properties.load(in);
+    }
+    return of(properties, memoryBudget);
+  }
+
+  /** Returns the constants of this model as properties, in the form read by
+   * {@link #of(Properties, long)}. */
+  public Properties toProperties() {
+    final Properties properties = new Properties();
+    for (Map.Entry<Constant, Double> entry : constants.entrySet()) {
+      properties.setProperty(entry.getKey().camelName,
+          String.valueOf(entry.getValue()));
+    }
+    return properties;
+  }
+
+  /** Returns the value of a constant, in nanoseconds. */
+  public double get(Constant constant) {
+    return constants.get(constant);
+  }
+
+  /** Returns the memory, in bytes, that an operator may use before it
+   * spills; 0 means that operators never spill. */
+  public long getMemoryBudget() {
+    return memoryBudget;
+  }
+
+  /** Returns a model with the same constants as this and a given memory
+   * budget. */
+  public EnumerableCostModel withMemoryBudget(long memoryBudget) {
+    return memoryBudget == this.memoryBudget
+        ? this
+        : new EnumerableCostModel(constants, memoryBudget);
+  }
+
+  /** Returns a factory for costs that are compared by their total estimated
+   * time, using this model's {@link Constant#ROW} constant to convert
+   * row counts to time. */
+  public RelOptCostFactory getCostFactory() {
+    return new CostFactory(get(Constant.ROW));
+  }
+
+  /** Returns the number of bytes in the output of a relational expression.
+   * If the average row size is not known, assumes 8 bytes per field. */
+  public static double bytes(RelNode rel, RelMetadataQuery mq) {
+    final Double averageRowSize = mq.getAverageRowSize(rel);
+    return mq.getRowCount(rel)
+        * (averageRowSize != null
+            ? averageRowSize
+            : rel.getRowType().getFieldCount() * 8d);
+  }
+
+  /** Creates the cost of an operator.
+   *
+   * @param planner      Planner
+   * @param rowCount     Number of rows the operator outputs
+   * @param cpu          Time, in nanoseconds, the operator spends computing
+   * @param memory       Memory, in bytes, the operator needs, or null if
+   *                     not known
+   * @param spillBytes   Bytes the operator would write to disk, and read
+   *                     back, if its memory exceeds the budget
+   */
+  public RelOptCost makeCost(RelOptPlanner planner, double rowCount,
+      double cpu, Double memory, double spillBytes) {
+    double io = 0d;
+    if (memoryBudget > 0 && memory != null && memory > memoryBudget) {
+      io = spillBytes * get(Constant.SPILL_BYTE);
+    }
+    return planner.getCostFactory().makeCost(rowCount, cpu, io);
+  }
+
+  @Override public int hashCode() {
+    return Objects.hash(constants, memoryBudget);
+  }
+
+  @Override public boolean equals(Object obj) {
+    return obj == this
+        || obj instanceof EnumerableCostModel
+        && constants.equals(((EnumerableCostModel) obj).constants)
+        && memoryBudget == ((EnumerableCostModel) obj).memoryBudget;
+  }
+
+  @Override public String toString() {
+    return constants + ", memoryBudget=" + memoryBudget;
+  }
+
+  /** A unit of work whose time the model knows. */
+  public enum Constant {
+    /** Producing a row and passing it to the consuming operator. */
+    ROW("row", 10d),
+
+    /** Adding a row to a hash table. */
+    HASH_BUILD("hashBuild", 60d),
+
+    /** Looking up a row in a hash table. */
+    HASH_PROBE("hashProbe", 40d),
+
+    /** Advancing one row in a merge of sorted inputs. */
+    MERGE("merge", 15d),
+
+    /** Evaluating a join condition on one pair of rows. */
+    NESTED_LOOP("nestedLoop", 5d),
+
+    /** Comparing two rows while sorting. */
+    SORT_COMPARE("sortCompare", 20d),
+
+    /** Writing a byte to a temporary file and reading it back. */
+    SPILL_BYTE("spillByte", 2d);
+
+    /** Name of the constant in a properties file. */
+    public final String camelName;
+
+    /** Value, in nanoseconds, if the model does not specify one. */
+    public final double defaultValue;
+
+    Constant(String camelName, double defaultValue) {
+      this.camelName = camelName;
+      this.defaultValue = defaultValue;
+    }
+  }
+
+  /** Cost whose components are all in nanoseconds, except for the row
+   * count, which {@link CostFactory} converts to nanoseconds using the
+   * model's {@link Constant#ROW} constant. Costs are compared by their
+   * total. */
+  private static class Cost implements RelOptCost {
+    final double rowCount;
+    final double cpu;
+    final double io;
+    final double rowNanos;
+
+    Cost(double rowCount, double cpu, double io, double rowNanos) {
+      this.rowCount = rowCount;
+      this.cpu = cpu;
+      this.io = io;
+      this.rowNanos = rowNanos;
+    }
+
+    /** Returns the estimated time, in nanoseconds. */
+    double total() {
+      return rowCount * rowNanos + cpu + io;
+    }
+
+    public double getRows() {
+      return rowCount;
+    }
+
+    public double getCpu() {
+      return cpu;
+    }
+
+    public double getIo() {
+      return io;
+    }
+
+    public boolean isInfinite() {
+      return Double.isInfinite(total());
+    }
+
+    public boolean equals(RelOptCost cost) {
+      return cost instanceof Cost
+          && rowCount == ((Cost) cost).rowCount
+          && cpu == ((Cost) cost).cpu
+          && io == ((Cost) cost).io;
+    }
+
+    @Override public boolean equals(Object obj) {
+      return obj instanceof Cost && equals((RelOptCost) obj);
+    }
+
+    @Override public int hashCode() {
+      return Objects.hash(rowCount, cpu, io);
+    }
+
+    public boolean isEqWithEpsilon(RelOptCost cost) {
+      return cost instanceof Cost
+          && Math.abs(total() - ((Cost) cost).total()) < RelOptUtil.EPSILON;
+    }
+
+    public boolean isLe(RelOptCost cost) {
+      return this == cost || total() <= ((Cost) cost).total();
+    }
+
+    public boolean isLt(RelOptCost cost) {
+      return total() < ((Cost) cost).total();
+    }
+
+    public RelOptCost plus(RelOptCost cost) {
+      final Cost that = (Cost) cost;
+      return new Cost(rowCount + that.rowCount, cpu + that.cpu,
+          io + that.io, rowNanos);
+    }
+
+    public RelOptCost minus(RelOptCost cost) {
+      if (isInfinite()) {
+        return this;
+      }
+      final Cost that = (Cost) cost;
+      return new Cost(rowCount - that.rowCount, cpu - that.cpu,
+          io - that.io, rowNanos);
+    }
+
+    public RelOptCost multiplyBy(double factor) {
+      return new Cost(rowCount * factor, cpu * factor, io * factor,
+          rowNanos);
+    }
+
+    public double divideBy(RelOptCost cost) {
+      final double total = ((Cost) cost).total();
+      return total == 0d ? 1d : total() / total;
+    }
+
+    @Override public String toString() {
+      return "{" + rowCount + " rows, " + cpu + " cpu, " + io + " io}";
+    }
+  }
+
+  /** Factory for {@link Cost}. */
+  private static class CostFactory implements RelOptCostFactory {
+    private final double rowNanos;
+    private final Cost infinity;
+    private final Cost huge;
+    private final Cost tiny;
+    private final Cost zero;
+
+    CostFactory(double rowNanos) {
+      this.rowNanos = rowNanos;
+      this.infinity = makeCost(Double.POSITIVE_INFINITY,
+          Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+      // Large, but not so large that adding two of them overflows
+      this.huge = makeCost(0d, Double.MAX_VALUE / 8d, 0d);
+      this.tiny = makeCost(1d, 1d, 0d);
+      this.zero = makeCost(0d, 0d, 0d);
+    }
+
+    public Cost makeCost(double rowCount, double cpu, double io) {
+      return new Cost(rowCount, cpu, io, rowNanos);
+    }
+
+    public RelOptCost makeHugeCost() {
+      return huge;
+    }
+
+    public RelOptCost makeInfiniteCost() {
+      return infinity;
+    }
+
+    public RelOptCost makeTinyCost() {
+      return tiny;
+    }
+
+    public RelOptCost makeZeroCost() {
+      return zero;
+    }
+  }
+}
+
+// End EnumerableCostModel.java
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.enumerable;
+
+import org.apache.calcite.DataContext;
+import org.apache.calcite.linq4j.function.Function1;
+import org.apache.calcite.linq4j.tree.BlockBuilder;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.linq4j.tree.Expressions;
+import org.apache.calcite.plan.RelOptCluster;
+import org.apache.calcite.plan.RelTraitSet;
+import org.apache.calcite.plan.hep.HepRelVertex;
+import org.apache.calcite.rel.RelDistribution;
+import org.apache.calcite.rel.RelDistributionTraitDef;
+import org.apache.calcite.rel.RelDistributions;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.RelWriter;
+import org.apache.calcite.rel.core.Exchange;
+import org.apache.calcite.util.BuiltInMethod;
+
+/** Implementation of {@link org.apache.calcite.rel.core.Exchange} in
+ * {@link EnumerableConvention enumerable calling convention} that evaluates
+ * its input in parallel.
+ *
+ * <p>The input must be a pipeline of calcs, filters and projects, optionally
+ * topped by an aggregate, over a single table scan. The exchange reads the
+ * table on the calling thread, divides its rows into morsels of
+ * {@link #morselSize} rows, and evaluates the pipeline over up to
+ * {@link #parallelism} morsels at a time in a shared
+ * {@link java.util.concurrent.ForkJoinPool}. It returns the results of the
+ * morsels in the order that the table returned the morsels; an aggregate in
+ * the pipeline therefore computes partial results, which an aggregate above
+ * the exchange must combine.
+ *
+ * @see EnumerableExchangeRule */
+public class EnumerableExchange extends Exchange implements EnumerableRel {
+  /** Maximum number of morsels evaluated at the same time. */
+  public final int parallelism;
+
+  /** Number of rows in each morsel. */
+  public final int morselSize;
+
+  /** Creates an EnumerableExchange.
+   *
+   * <p>Use {@link #create} unless you know what you're doing. */
+  public EnumerableExchange(RelOptCluster cluster, RelTraitSet traitSet,
+      RelNode input, RelDistribution distribution, int parallelism,
+      int morselSize) {
+    super(cluster, traitSet, input, distribution);
+    this.parallelism = parallelism;
+    this.morselSize = morselSize;
+    assert getConvention() instanceof EnumerableConvention;
+    assert parallelism > 0 : parallelism;
+    assert morselSize > 0 : morselSize;
+  }
+
+  /** Creates an EnumerableExchange that gathers the rows of its input into a
+   * single stream. */
+  public static EnumerableExchange create(RelNode input, int parallelism,
+      int morselSize) {
+    final RelDistribution distribution =
+        RelDistributionTraitDef.INSTANCE.canonize(RelDistributions.SINGLETON);
+    final RelTraitSet traitSet =
+        input.getTraitSet().replace(EnumerableConvention.INSTANCE)
+            .replace(distribution);
+    return new EnumerableExchange(input.getCluster(), traitSet, input,
+        distribution, parallelism, morselSize);
+  }
+
+  @Override public EnumerableExchange copy(RelTraitSet traitSet,
+      RelNode newInput, RelDistribution newDistribution) {
+    return new EnumerableExchange(getCluster(), traitSet, newInput,
+        newDistribution, parallelism, morselSize);
+  }
+
+  @Override public RelWriter explainTerms(RelWriter pw) {
+    return super.explainTerms(pw)
+        .item("parallelism", parallelism)
+        .item("morselSize", morselSize);
+  }
+
+  /** Returns the table scan at the leaf of a pipeline of calcs, filters and
+   * projects, or null if {@code rel} is not such a pipeline, or if the rows
+   * of its scan cannot be divided into morsels. */
+  static EnumerableTableScan pipelineScan(RelNode rel) {
+    for (;;) {
+      if (rel instanceof HepRelVertex) {
+        rel = ((HepRelVertex) rel).getCurrentRel();
+      }
+      if (rel instanceof EnumerableTableScan) {
+        final EnumerableTableScan scan = (EnumerableTableScan) rel;
+        return scan.canSplit() ? scan : null;
+      }
+      if (rel instanceof EnumerableCalc
+          || rel instanceof EnumerableFilter
+          || rel instanceof EnumerableProject) {
+        rel = rel.getInput(0);
+      } else {
+        return null;
+      }
+    }
+  }
+
+  public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
+    RelNode input = getInput();
+    if (input instanceof EnumerableAggregate) {
+      input = ((EnumerableAggregate) input).getInput();
+    }
+    final EnumerableTableScan scan = pipelineScan(input);
+    if (scan == null) {
+      throw new AssertionError("input of exchange is not a pipeline over a "
+          + "table that can be split: " + getInput());
+    }
+    final BlockBuilder builder = new BlockBuilder();
+    final Expression source =
+        builder.append("source", scan.getSourceExpression());
+
+    // The pipeline becomes the body of a function whose parameter, "root",
+    // hides the statement's data context. Inside the function, the scan
+    // reads just the rows of the current morsel.
+    final Result result =
+        implementor.visitChild(this, 0, (EnumerableRel) getInput(), pref);
+    final BlockBuilder pipelineBuilder = new BlockBuilder();
+    pipelineBuilder.add(result.block);
+
+    builder.add(
+        Expressions.return_(null,
+            Expressions.call(
+                BuiltInMethod.SCHEMAS_EXCHANGE.method,
+                DataContext.ROOT,
+                source,
+                Expressions.lambda(Function1.class, pipelineBuilder.toBlock(),
+                    DataContext.ROOT),
+                Expressions.constant(morselSize),
+                Expressions.constant(parallelism))));
+    return implementor.result(result.physType, builder.toBlock());
+  }
+}
+
+// End EnumerableExchange.java
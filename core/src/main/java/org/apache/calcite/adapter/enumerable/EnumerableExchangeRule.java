@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.enumerable;
+
+import org.apache.calcite.plan.RelOptRule;
+import org.apache.calcite.plan.RelOptRuleCall;
+import org.apache.calcite.plan.hep.HepRelVertex;
+import org.apache.calcite.rel.InvalidRelException;
+import org.apache.calcite.rel.RelDistribution;
+import org.apache.calcite.rel.RelDistributionTraitDef;
+import org.apache.calcite.rel.RelDistributions;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.core.Aggregate;
+import org.apache.calcite.rel.core.AggregateCall;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.calcite.sql.SqlAggFunction;
+import org.apache.calcite.sql.fun.SqlStdOperatorTable;
+import org.apache.calcite.util.ImmutableBitSet;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rule that inserts an {@link EnumerableExchange} above a pipeline that reads
+ * a large table, so that the pipeline is evaluated over morsels of the table
+ * in parallel.
+ *
+ * <p>A pipeline is a chain of {@link EnumerableCalc},
+ * {@link EnumerableFilter} and {@link EnumerableProject} over an
+ * {@link EnumerableTableScan}. If the pipeline is the input to an
+ * {@link EnumerableAggregate} whose aggregate functions can be computed in
+ * two phases, the rule also splits the aggregate into a partial aggregate
+ * below the exchange and a final aggregate above it.
+ *
+ * <p>The rule is intended for a {@link org.apache.calcite.plan.hep.HepPlanner}
+ * that visits the tree top-down, after the Volcano planner has chosen a
+ * physical plan. The relational expressions below the exchange are marked
+ * with {@link RelDistributions#RANDOM_DISTRIBUTED}, and the rule does not
+ * match them again.
+ */
+public class EnumerableExchangeRule extends RelOptRule {
+  /** Default number of rows in a morsel. */
+  public static final int DEFAULT_MORSEL_SIZE = 1024;
+
+  private final int parallelism;
+  private final int morselSize;
+
+  /** Creates an EnumerableExchangeRule.
+   *
+   * @param parallelism Maximum number of morsels that each exchange evaluates
+   *                    at the same time
+   * @param morselSize  Number of rows in each morsel; the rule only fires if
+   *                    the table is estimated to have at least two morsels
+   */
+  public EnumerableExchangeRule(int parallelism, int morselSize) {
+    super(operand(EnumerableRel.class, any()),
+        "EnumerableExchangeRule:" + parallelism + ":" + morselSize);
+    if (parallelism < 2) {
+      throw new IllegalArgumentException("parallelism must be at least 2");
+    }
+    if (morselSize < 1) {
+      throw new IllegalArgumentException("morsel size must be positive");
+    }
+    this.parallelism = parallelism;
+    this.morselSize = morselSize;
+  }
+
+  public EnumerableExchangeRule(int parallelism) {
+    this(parallelism, DEFAULT_MORSEL_SIZE);
+  }
+
+  @Override public void onMatch(RelOptRuleCall call) {
+    final RelNode rel = call.rel(0);
+    if (rel instanceof EnumerableExchange || isDistributed(rel)) {
+      return;
+    }
+    final RelMetadataQuery mq = call.getMetadataQuery();
+    if (rel instanceof EnumerableAggregate) {
+      final EnumerableAggregate aggregate = (EnumerableAggregate) rel;
+      final EnumerableTableScan scan =
+          EnumerableExchange.pipelineScan(aggregate.getInput());
+      if (scan != null
+          && isLarge(scan, mq)
+          && !(aggregate instanceof EnumerableSortedAggregate)) {
+        final RelNode newRel = splitAggregate(aggregate);
+        if (newRel != null) {
+          call.transformTo(newRel);
+        }
+      }
+      return;
+    }
+    if (rel instanceof EnumerableTableScan) {
+      // Nothing to evaluate in parallel
+      return;
+    }
+    final EnumerableTableScan scan = EnumerableExchange.pipelineScan(rel);
+    if (scan != null && isLarge(scan, mq)) {
+      call.transformTo(
+          EnumerableExchange.create(distribute(rel), parallelism,
+              morselSize));
+    }
+  }
+
+  private boolean isLarge(EnumerableTableScan scan, RelMetadataQuery mq) {
+    final Double rowCount = mq.getRowCount(scan);
+    return rowCount != null && rowCount >= 2d * morselSize;
+  }
+
+  /** Converts an aggregate over a pipeline into a final aggregate, over an
+   * exchange, over a partial aggregate, over the pipeline; or returns null if
+   * the aggregate functions cannot be computed in two phases. */
+  private RelNode splitAggregate(EnumerableAggregate aggregate) {
+    if (aggregate.getGroupType() != Aggregate.Group.SIMPLE
+        || aggregate.indicator) {
+      return null;
+    }
+    final int groupCount = aggregate.getGroupCount();
+    final List<AggregateCall> finalCalls = new ArrayList<>();
+    for (AggregateCall aggCall : aggregate.getAggCallList()) {
+      final SqlAggFunction finalFunction = finalFunction(aggCall);
+      if (finalFunction == null) {
+        return null;
+      }
+      finalCalls.add(
+          AggregateCall.create(finalFunction, false,
+              ImmutableList.of(groupCount + finalCalls.size()), -1,
+              aggCall.getType(), aggCall.getName()));
+    }
+    final RelNode partial =
+        aggregate.copy(
+            aggregate.getTraitSet().plus(RelDistributions.RANDOM_DISTRIBUTED),
+            ImmutableList.of(distribute(aggregate.getInput())));
+    final EnumerableExchange exchange =
+        EnumerableExchange.create(partial, parallelism, morselSize);
+    try {
+      return new EnumerableAggregate(aggregate.getCluster(),
+          aggregate.getTraitSet(), exchange, false,
+          ImmutableBitSet.range(groupCount), null, finalCalls);
+    } catch (InvalidRelException e) {
+      EnumerableRules.LOGGER.debug(e.toString());
+      return null;
+    }
+  }
+
+  /** Returns the function that combines the partial results of an aggregate
+   * call, or null if the call cannot be computed in two phases. */
+  private static SqlAggFunction finalFunction(AggregateCall aggCall) {
+    if (aggCall.isDistinct()) {
+      return null;
+    }
+    switch (aggCall.getAggregation().getKind()) {
+    case COUNT:
+      return SqlStdOperatorTable.SUM0;
+    case SUM:
+    case SUM0:
+    case MIN:
+    case MAX:
+      return aggCall.getAggregation();
+    default:
+      return null;
+    }
+  }
+
+  /** Returns a copy of a pipeline in which each relational expression is
+   * marked as randomly distributed. */
+  private static RelNode distribute(RelNode rel) {
+    if (rel instanceof HepRelVertex) {
+      rel = ((HepRelVertex) rel).getCurrentRel();
+    }
+    final List<RelNode> inputs = new ArrayList<>();
+    for (RelNode input : rel.getInputs()) {
+      inputs.add(distribute(input));
+    }
+    return rel.copy(rel.getTraitSet().plus(RelDistributions.RANDOM_DISTRIBUTED),
+        inputs);
+  }
+
+  private static boolean isDistributed(RelNode rel) {
+    final RelDistribution distribution =
+        rel.getTraitSet().getTrait(RelDistributionTraitDef.INSTANCE);
+    return distribution != null
+        && distribution.getType() == RelDistribution.Type.RANDOM_DISTRIBUTED;
+  }
+}
+
+// End EnumerableExchangeRule.java
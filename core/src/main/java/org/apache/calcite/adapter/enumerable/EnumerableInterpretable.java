@@ -18,6 +18,8 @@
 
 import org.apache.calcite.DataContext;
 import org.apache.calcite.avatica.Helper;
+import org.apache.calcite.config.CalciteConnectionConfig;
+import org.apache.calcite.config.CalciteConnectionConfigImpl;
 import org.apache.calcite.interpreter.InterpretableConvention;
 import org.apache.calcite.interpreter.InterpretableRel;
 import org.apache.calcite.interpreter.Interpreter;
@@ -41,8 +43,16 @@
 import org.apache.calcite.runtime.Hook;
 import org.apache.calcite.runtime.Typed;
 import org.apache.calcite.runtime.Utilities;
+import org.apache.calcite.util.Pair;
 import org.apache.calcite.util.Util;
 
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+
 import org.codehaus.commons.compiler.CompileException;
 import org.codehaus.commons.compiler.CompilerFactoryFactory;
 import org.codehaus.commons.compiler.IClassBodyEvaluator;
@@ -52,6 +62,9 @@
 import java.io.StringReader;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Relational expression that converts an enumerable input to interpretable
@@ -62,6 +75,25 @@
  */
 public class EnumerableInterpretable extends ConverterImpl
     implements InterpretableRel {
+  /** Caches of compiled classes, keyed by maximum size; see
+   * {@link org.apache.calcite.config.CalciteConnectionProperty#BINDABLE_CACHE_MAX_SIZE}.
+   *
+   * <p>Each cache maps (whether the class has a single field, generated
+   * source) to a compiled class. We cache classes, not instances, because the
+   * generated code stores the {@link DataContext} in a member variable and
+   * therefore an instance must not be shared between statements. */
+  private static final LoadingCache<Integer,
+      Cache<Pair<Boolean, String>, Class>> BINDABLE_CACHES =
+      CacheBuilder.newBuilder().build(
+          new CacheLoader<Integer, Cache<Pair<Boolean, String>, Class>>() {
+            public Cache<Pair<Boolean, String>, Class> load(Integer maxSize) {
+              return CacheBuilder.newBuilder()
+                  .maximumSize(maxSize)
+                  .recordStats()
+                  .build();
+            }
+          });
+
   protected EnumerableInterpretable(RelOptCluster cluster, RelNode input) {
     super(cluster, ConventionTraitDef.INSTANCE,
         cluster.traitSetOf(InterpretableConvention.INSTANCE), input);
@@ -85,9 +117,29 @@ public Node implement(final InterpreterImplementor implementor) {
   public static Bindable toBindable(Map<String, Object> parameters,
       CalcitePrepare.SparkHandler spark, EnumerableRel rel,
       EnumerableRel.Prefer prefer) {
+    return toBindable(parameters, spark, rel, prefer,
+        new CalciteConnectionConfigImpl(new Properties()));
+  }
+
+  /** Generates and compiles code for a relational expression.
+   *
+   * @param parameters Map into which stashed values are placed
+   * @param spark Spark handler, or null
+   * @param rel Root of the expression to implement
+   * @param prefer Preferred row format
+   * @param config Connection configuration; for example, its
+   *               {@link CalciteConnectionConfig#bindableCacheMaxSize()}
+   *               determines whether compiled classes are cached, and its
+   *               {@link CalciteConnectionConfig#spillMemoryBudget()} whether
+   *               operators may spill to disk
+   * @return Bindable that executes the generated code
+   */
+  public static Bindable toBindable(Map<String, Object> parameters,
+      CalcitePrepare.SparkHandler spark, EnumerableRel rel,
+      EnumerableRel.Prefer prefer, CalciteConnectionConfig config) {
     EnumerableRelImplementor relImplementor =
         new EnumerableRelImplementor(rel.getCluster().getRexBuilder(),
-            parameters);
+            parameters, config);
 
     final ClassDeclaration expr = relImplementor.implementRoot(rel, prefer);
     String s = Expressions.toString(expr.memberDeclarations, "\n", false);
@@ -102,7 +154,8 @@ public static Bindable toBindable(Map<String, Object> parameters,
       if (spark != null && spark.enabled()) {
         return spark.compile(expr, s);
       } else {
-        return getBindable(expr, s, rel.getRowType().getFieldCount());
+        return getBindable(expr, s, rel.getRowType().getFieldCount(),
+            config.bindableCacheMaxSize());
       }
     } catch (Exception e) {
       throw Helper.INSTANCE.wrap("Error while compiling generated Java code:\n"
@@ -118,6 +171,77 @@ static ArrayBindable getArrayBindable(ClassDeclaration expr, String s,
 
   static Bindable getBindable(ClassDeclaration expr, String s, int fieldCount)
       throws CompileException, IOException {
+    return (Bindable) newInstance(compile(expr, s, fieldCount));
+  }
+
+  /** Returns a bindable for the given generated code, re-using a previously
+   * compiled class if the cache of the given size has one for the same
+   * source. */
+  static Bindable getBindable(final ClassDeclaration expr, final String s,
+      final int fieldCount, int cacheMaxSize)
+      throws CompileException, IOException {
+    if (cacheMaxSize <= 0) {
+      return getBindable(expr, s, fieldCount);
+    }
+    final Cache<Pair<Boolean, String>, Class> cache =
+        BINDABLE_CACHES.getUnchecked(cacheMaxSize);
+    final Class clazz;
+    try {
+      clazz = cache.get(Pair.of(fieldCount == 1, s),
+          new Callable<Class>() {
+            public Class call() throws Exception {
+              return compile(expr, s, fieldCount);
+            }
+          });
+    } catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause(), CompileException.class,
+          IOException.class);
+      throw new RuntimeException(e.getCause());
+    }
+    return (Bindable) newInstance(clazz);
+  }
+
+  /** Returns statistics (hits, misses, evictions, load time) of the caches
+   * of compiled classes, summed over all cache sizes in use. */
+  public static CacheStats bindableCacheStats() {
+    CacheStats stats = new CacheStats(0, 0, 0, 0, 0, 0);
+    for (Cache<Pair<Boolean, String>, Class> cache
+        : BINDABLE_CACHES.asMap().values()) {
+      stats = stats.plus(cache.stats());
+    }
+    return stats;
+  }
+
+  /** Removes all entries from the caches of compiled classes. For testing. */
+  public static void clearBindableCaches() {
+    BINDABLE_CACHES.invalidateAll();
+  }
+
+  /** Returns a bindable that can be used by a different statement than
+   * {@code bindable}.
+   *
+   * <p>If {@code bindable} is an instance of a generated class, returns a new
+   * instance of the same class, because generated code stores the
+   * {@link DataContext} in a member field while it is executing. Other
+   * bindables are returned unchanged. */
+  public static <T> Bindable<T> copy(Bindable<T> bindable) {
+    if (bindable instanceof Utilities) {
+      //noinspection unchecked
+      return (Bindable<T>) newInstance(bindable.getClass());
+    }
+    return bindable;
+  }
+
+  private static Object newInstance(Class clazz) {
+    try {
+      return clazz.newInstance();
+    } catch (InstantiationException | IllegalAccessException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static Class compile(ClassDeclaration expr, String s,
+      int fieldCount) throws CompileException, IOException {
     ICompilerFactory compilerFactory;
     try {
       compilerFactory = CompilerFactoryFactory.getDefaultCompilerFactory();
@@ -137,7 +261,8 @@ static Bindable getBindable(ClassDeclaration expr, String s, int fieldCount)
       // Add line numbers to the generated janino class
       cbe.setDebuggingInformation(true, true, true);
     }
-    return (Bindable) cbe.createInstance(new StringReader(s));
+    cbe.cook(new StringReader(s));
+    return cbe.getClazz();
   }
 
   /** Converts a bindable over scalar values into an array bindable, with each
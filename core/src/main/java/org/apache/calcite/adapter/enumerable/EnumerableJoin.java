@@ -142,10 +142,22 @@ public static EnumerableJoin create(
       }
     }
 
-    // Cheaper if the smaller number of rows is coming from the LHS.
-    // Model this by adding L log L to the cost.
     final double rightRowCount = right.estimateRowCount(mq);
     final double leftRowCount = left.estimateRowCount(mq);
+    final EnumerableCostModel model = EnumerableCostModel.of(planner);
+    if (model != null) {
+      // Build a hash table on the right input, and probe it with each row of
+      // the left input. If the table is too large, both inputs spill.
+      final double cpu =
+          rightRowCount * model.get(EnumerableCostModel.Constant.HASH_BUILD)
+          + leftRowCount * model.get(EnumerableCostModel.Constant.HASH_PROBE);
+      return model.makeCost(planner, rowCount, cpu, mq.memory(this),
+          EnumerableCostModel.bytes(left, mq)
+              + EnumerableCostModel.bytes(right, mq));
+    }
+
+    // Cheaper if the smaller number of rows is coming from the LHS.
+    // Model this by adding L log L to the cost.
     if (Double.isInfinite(leftRowCount)) {
       rowCount = leftRowCount;
     } else {
@@ -198,6 +210,44 @@ public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
     final PhysType keyPhysType =
         leftResult.physType.project(
             leftKeys, JavaRowFormat.LIST);
+    final Expression leftKeySelector =
+        leftResult.physType.generateAccessor(leftKeys);
+    final Expression rightKeySelector =
+        rightResult.physType.generateAccessor(rightKeys);
+    final Expression resultSelector =
+        EnumUtils.joinSelector(joinType,
+            physType,
+            ImmutableList.of(
+                leftResult.physType, rightResult.physType));
+    final Expression comparer =
+        Util.first(keyPhysType.comparer(), Expressions.constant(null));
+    final Expression leftSerializer =
+        EnumUtils.spillSerializer(leftResult.physType);
+    final Expression rightSerializer =
+        EnumUtils.spillSerializer(rightResult.physType);
+    if (implementor.spill()
+        && leftSerializer != null
+        && rightSerializer != null) {
+      // The connection has a memory budget and both inputs can be written to
+      // disk, so generate a join that spills if the right input exceeds it.
+      return implementor.result(
+          physType,
+          builder.append(
+              Expressions.call(
+                  BuiltInMethod.SPILLING_JOIN.method,
+                  leftExpression,
+                  rightExpression,
+                  leftKeySelector,
+                  rightKeySelector,
+                  resultSelector,
+                  comparer,
+                  Expressions.constant(joinType.generatesNullsOnLeft()),
+                  Expressions.constant(joinType.generatesNullsOnRight()),
+                  EnumUtils.spillManager(),
+                  Expressions.constant(EnumUtils.rowSize(right)),
+                  leftSerializer,
+                  rightSerializer)).toBlock());
+    }
     return implementor.result(
         physType,
         builder.append(
@@ -206,15 +256,10 @@ public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
                 BuiltInMethod.JOIN.method,
                 Expressions.list(
                     rightExpression,
-                    leftResult.physType.generateAccessor(leftKeys),
-                    rightResult.physType.generateAccessor(rightKeys),
-                    EnumUtils.joinSelector(joinType,
-                        physType,
-                        ImmutableList.of(
-                            leftResult.physType, rightResult.physType)))
-                    .append(
-                        Util.first(keyPhysType.comparer(),
-                            Expressions.constant(null)))
+                    leftKeySelector,
+                    rightKeySelector,
+                    resultSelector)
+                    .append(comparer)
                     .append(
                         Expressions.constant(joinType.generatesNullsOnLeft()))
                     .append(
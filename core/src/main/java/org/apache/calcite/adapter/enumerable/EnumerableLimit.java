@@ -16,6 +16,7 @@
  */
 package org.apache.calcite.adapter.enumerable;
 
+import org.apache.calcite.DataContext;
 import org.apache.calcite.linq4j.tree.BlockBuilder;
 import org.apache.calcite.linq4j.tree.Expression;
 import org.apache.calcite.linq4j.tree.Expressions;
@@ -31,6 +32,7 @@
 import org.apache.calcite.rel.metadata.RelMdCollation;
 import org.apache.calcite.rel.metadata.RelMdDistribution;
 import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.calcite.rex.RexDynamicParam;
 import org.apache.calcite.rex.RexLiteral;
 import org.apache.calcite.rex.RexNode;
 import org.apache.calcite.util.BuiltInMethod;
@@ -117,7 +119,7 @@ public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
           Expressions.call(
               v,
               BuiltInMethod.SKIP.method,
-              Expressions.constant(RexLiteral.intValue(offset))));
+              getExpression(offset)));
     }
     if (fetch != null) {
       v = builder.append(
@@ -125,7 +127,7 @@ public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
           Expressions.call(
               v,
               BuiltInMethod.TAKE.method,
-              Expressions.constant(RexLiteral.intValue(fetch))));
+              getExpression(fetch)));
     }
 
     builder.add(
@@ -134,6 +136,25 @@ public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
             v));
     return implementor.result(physType, builder.toBlock());
   }
+
+  /** Returns an expression that evaluates an offset or fetch, which must be
+   * either an integer literal or a dynamic parameter. The value of a dynamic
+   * parameter may be any kind of {@link Number}; for example, a JDBC client
+   * may bind it using {@code setLong}. */
+  static Expression getExpression(RexNode offset) {
+    if (offset instanceof RexDynamicParam) {
+      final RexDynamicParam param = (RexDynamicParam) offset;
+      return Expressions.call(
+          Expressions.convert_(
+              Expressions.call(DataContext.ROOT,
+                  BuiltInMethod.DATA_CONTEXT_GET.method,
+                  Expressions.constant("?" + param.getIndex())),
+              Number.class),
+          BuiltInMethod.INT_VALUE.method);
+    } else {
+      return Expressions.constant(RexLiteral.intValue(offset));
+    }
+  }
 }
 
 // End EnumerableLimit.java
@@ -27,6 +27,9 @@
  * {@code offset} or {@code fetch} set to an
  * {@link EnumerableLimit}
  * on top of a "pure" {@code Sort} that has no offset or fetch.
+ *
+ * <p>If the sort has a sort key and {@code fetch}, the rule also produces an
+ * {@link EnumerableSort} that applies the offset and fetch while sorting.
  */
 class EnumerableLimitRule extends RelOptRule {
   EnumerableLimitRule() {
@@ -40,6 +43,10 @@ class EnumerableLimitRule extends RelOptRule {
     if (sort.offset == null && sort.fetch == null) {
       return;
     }
+    if (sort.getConvention() == EnumerableConvention.INSTANCE) {
+      // Already implemented, perhaps as a "Top-N" EnumerableSort
+      return;
+    }
     final RelTraitSet traitSet =
         sort.getTraitSet().replace(EnumerableConvention.INSTANCE);
     RelNode input = sort.getInput();
@@ -62,6 +69,21 @@ class EnumerableLimitRule extends RelOptRule {
             x,
             sort.offset,
             sort.fetch));
+    if (sort.fetch != null
+        && !sort.getCollation().getFieldCollations().isEmpty()) {
+      // Also offer a "Top-N" sort, which retains only offset + fetch rows
+      // while sorting. The planner will choose it unless the input is
+      // already sorted.
+      final RelNode sortInput = sort.getInput();
+      call.transformTo(
+          EnumerableSort.create(
+              convert(sortInput,
+                  sortInput.getTraitSet()
+                      .replace(EnumerableConvention.INSTANCE)),
+              sort.getCollation(),
+              sort.offset,
+              sort.fetch));
+    }
   }
 }
 
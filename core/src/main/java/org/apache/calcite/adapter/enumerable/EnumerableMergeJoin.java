@@ -123,6 +123,12 @@ public static EnumerableMergeJoin create(RelNode left, RelNode right,
     final double rightRowCount = right.estimateRowCount(mq);
     final double leftRowCount = left.estimateRowCount(mq);
     final double rowCount = mq.getRowCount(this);
+    final EnumerableCostModel model = EnumerableCostModel.of(planner);
+    if (model != null) {
+      final double cpu = (leftRowCount + rightRowCount)
+          * model.get(EnumerableCostModel.Constant.MERGE);
+      return model.makeCost(planner, rowCount, cpu, mq.memory(this), 0d);
+    }
     final double d = leftRowCount + rightRowCount + rowCount;
     return planner.getCostFactory().makeCost(d, 0, 0);
   }
@@ -25,6 +25,7 @@
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.core.Minus;
 import org.apache.calcite.util.BuiltInMethod;
+import org.apache.calcite.util.Util;
 
 import java.util.List;
 
@@ -34,7 +35,6 @@ public class EnumerableMinus extends Minus implements EnumerableRel {
   public EnumerableMinus(RelOptCluster cluster, RelTraitSet traitSet,
       List<RelNode> inputs, boolean all) {
     super(cluster, traitSet, inputs, all);
-    assert !all;
   }
 
   public EnumerableMinus copy(RelTraitSet traitSet, List<RelNode> inputs,
@@ -57,10 +57,11 @@ public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
         minusExp = childExp;
       } else {
         minusExp =
-            Expressions.call(minusExp,
-                BuiltInMethod.EXCEPT.method,
-                Expressions.list(childExp)
-                    .appendIfNotNull(result.physType.comparer()));
+            Expressions.call(BuiltInMethod.HASH_EXCEPT.method, minusExp,
+                childExp,
+                Util.first(result.physType.comparer(),
+                    Expressions.constant(null)),
+                Expressions.constant(all));
       }
 
       // Once the first input has chosen its format, ask for the same for
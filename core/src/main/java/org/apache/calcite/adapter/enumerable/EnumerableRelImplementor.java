@@ -17,6 +17,8 @@
 package org.apache.calcite.adapter.enumerable;
 
 import org.apache.calcite.DataContext;
+import org.apache.calcite.config.CalciteConnectionConfig;
+import org.apache.calcite.config.CalciteConnectionConfigImpl;
 import org.apache.calcite.jdbc.JavaTypeFactoryImpl;
 import org.apache.calcite.linq4j.Enumerable;
 import org.apache.calcite.linq4j.function.Function1;
@@ -59,6 +61,7 @@
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
 
 /**
@@ -73,6 +76,16 @@ public class EnumerableRelImplementor extends JavaRelImplementor {
   private static final int MAX_CONSTRUCTOR_ARG_COUNT = 10;
 
   public final Map<String, Object> map;
+
+  /** Configuration of the connection for which code is being generated. */
+  public final CalciteConnectionConfig config;
+
+  /** Whether operators should pass rows to each other as synthetic classes
+   * with primitive fields.
+   *
+   * @see org.apache.calcite.config.CalciteConnectionProperty#PRIMITIVE_ROWS */
+  public final boolean primitiveRows;
+
   private final Map<String, RexToLixTranslator.InputGetter> corrVars =
       Maps.newHashMap();
   private final Map<Object, ParameterExpression> stashedParameters =
@@ -88,8 +101,47 @@ public RexToLixTranslator.InputGetter apply(String name) {
 
   public EnumerableRelImplementor(RexBuilder rexBuilder,
       Map<String, Object> internalParameters) {
+    this(rexBuilder, internalParameters,
+        new CalciteConnectionConfigImpl(new Properties()));
+  }
+
+  public EnumerableRelImplementor(RexBuilder rexBuilder,
+      Map<String, Object> internalParameters, CalciteConnectionConfig config) {
     super(rexBuilder);
     this.map = internalParameters;
+    this.config = config;
+    this.primitiveRows = config.primitiveRows();
+  }
+
+  /** Returns whether operators such as {@link EnumerableJoin} may write rows
+   * to disk when they exceed the statement's memory budget. If false, they
+   * generate code that holds all rows in memory.
+   *
+   * @see org.apache.calcite.config.CalciteConnectionProperty#SPILL_MEMORY_BUDGET */
+  public boolean spill() {
+    return config.spillMemoryBudget() > 0;
+  }
+
+  /** Returns the preference that an operator that reads its input only via
+   * the input's {@link PhysType}, such as {@link EnumerableCalc}, should
+   * pass to its input.
+   *
+   * <p>If {@link #primitiveRows}, the input is asked to produce a synthetic
+   * class, whose NOT NULL fields are primitives, whatever format the
+   * operator itself has been asked to produce. */
+  public EnumerableRel.Prefer inputPrefer(EnumerableRel.Prefer prefer) {
+    return primitiveRows ? EnumerableRel.Prefer.CUSTOM_NICE : prefer;
+  }
+
+  /** Returns the format of the rows produced by an operator that creates new
+   * rows, such as {@link EnumerableCalc}, given the preference of its
+   * consumer and the format of its input.
+   *
+   * <p>If {@link #primitiveRows}, produces a synthetic class unless the
+   * consumer requires arrays. */
+  public JavaRowFormat outputFormat(EnumerableRel.Prefer prefer,
+      JavaRowFormat inputFormat) {
+    return primitiveRows ? prefer.preferCustom() : prefer.prefer(inputFormat);
   }
 
   public EnumerableRel.Result visitChild(
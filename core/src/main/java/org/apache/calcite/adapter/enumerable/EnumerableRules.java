@@ -57,6 +57,9 @@ private EnumerableRules() {
   public static final EnumerableAggregateRule ENUMERABLE_AGGREGATE_RULE =
       new EnumerableAggregateRule();
 
+  public static final RelOptRule ENUMERABLE_SORTED_AGGREGATE_RULE =
+      new EnumerableSortedAggregateRule();
+
   public static final EnumerableSortRule ENUMERABLE_SORT_RULE =
       new EnumerableSortRule();
 
@@ -20,16 +20,27 @@
 import org.apache.calcite.linq4j.tree.Expression;
 import org.apache.calcite.linq4j.tree.Expressions;
 import org.apache.calcite.plan.RelOptCluster;
+import org.apache.calcite.plan.RelOptCost;
+import org.apache.calcite.plan.RelOptPlanner;
 import org.apache.calcite.plan.RelTraitSet;
 import org.apache.calcite.rel.RelCollation;
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.core.Sort;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.calcite.rex.RexLiteral;
 import org.apache.calcite.rex.RexNode;
 import org.apache.calcite.util.BuiltInMethod;
 import org.apache.calcite.util.Pair;
 
+import java.util.Comparator;
+
 /** Implementation of {@link org.apache.calcite.rel.core.Sort} in
- * {@link org.apache.calcite.adapter.enumerable.EnumerableConvention enumerable calling convention}. */
+ * {@link org.apache.calcite.adapter.enumerable.EnumerableConvention enumerable calling convention}.
+ *
+ * <p>If {@code fetch} is specified, the sort is "Top-N": it holds at most
+ * {@code offset + fetch} rows in memory. Otherwise, if the statement has a
+ * spill memory budget, the sort writes sorted runs that exceed the budget to
+ * disk and merges them. */
 public class EnumerableSort extends Sort implements EnumerableRel {
   /**
    * Creates an EnumerableSort.
@@ -64,6 +75,51 @@ public static EnumerableSort create(RelNode child, RelCollation collation,
         offset, fetch);
   }
 
+  @Override public RelOptCost computeSelfCost(RelOptPlanner planner,
+      RelMetadataQuery mq) {
+    final EnumerableCostModel model = EnumerableCostModel.of(planner);
+    if (model != null) {
+      return calibratedCost(planner, mq, model);
+    }
+    if (fetch == null) {
+      return super.computeSelfCost(planner, mq);
+    }
+    // Top-N reads every input row, but each insertion costs log of the number
+    // of rows retained, not log of the number of input rows.
+    final double inputRowCount = mq.getRowCount(getInput());
+    final double rowCount = mq.getRowCount(this);
+    double retained = inputRowCount;
+    if (fetch instanceof RexLiteral
+        && (offset == null || offset instanceof RexLiteral)) {
+      retained = Math.min(inputRowCount,
+          RexLiteral.intValue(fetch)
+              + (offset == null ? 0 : RexLiteral.intValue(offset)));
+    }
+    final double bytesPerRow = getRowType().getFieldCount() * 4;
+    return planner.getCostFactory().makeCost(
+        inputRowCount * Math.log(Math.max(retained, 2d)) * bytesPerRow,
+        rowCount, 0);
+  }
+
+  private RelOptCost calibratedCost(RelOptPlanner planner,
+      RelMetadataQuery mq, EnumerableCostModel model) {
+    final double inputRowCount = mq.getRowCount(getInput());
+    final double rowCount = mq.getRowCount(this);
+    double retained = inputRowCount;
+    if (fetch instanceof RexLiteral
+        && (offset == null || offset instanceof RexLiteral)) {
+      retained = Math.min(inputRowCount,
+          RexLiteral.intValue(fetch)
+              + (offset == null ? 0 : RexLiteral.intValue(offset)));
+    }
+    // Each row is compared with log(retained) others. A full sort that does
+    // not fit in memory writes runs to disk and reads them back.
+    final double cpu = inputRowCount * Math.log(Math.max(retained, 2d))
+        * model.get(EnumerableCostModel.Constant.SORT_COMPARE);
+    return model.makeCost(planner, rowCount, cpu, mq.memory(this),
+        EnumerableCostModel.bytes(getInput(), mq));
+  }
+
   public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
     final BlockBuilder builder = new BlockBuilder();
     final EnumerableRel child = (EnumerableRel) getInput();
@@ -81,14 +137,55 @@ public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
         inputPhysType.generateCollationKey(
             collation.getFieldCollations());
 
-    builder.add(
-        Expressions.return_(null,
-            Expressions.call(childExp,
-                BuiltInMethod.ORDER_BY.method,
-                Expressions.list(
-                    builder.append("keySelector", pair.left))
-                    .appendIfNotNull(
-                        builder.appendIfNotNull("comparator", pair.right)))));
+    final Expression serializer = EnumUtils.spillSerializer(inputPhysType);
+    if (implementor.spill() && fetch == null && serializer != null) {
+      // Sort that writes sorted runs to disk and merges them if the input
+      // exceeds the statement's memory budget
+      Expression sorted =
+          Expressions.call(
+              BuiltInMethod.SPILLING_ORDER_BY.method,
+              childExp,
+              builder.append("keySelector", pair.left),
+              pair.right == null
+                  ? Expressions.constant(null, Comparator.class)
+                  : builder.append("comparator", pair.right),
+              EnumUtils.spillManager(),
+              Expressions.constant(EnumUtils.rowSize(getInput())),
+              serializer);
+      if (offset != null) {
+        sorted =
+            Expressions.call(sorted, BuiltInMethod.SKIP.method,
+                EnumerableLimit.getExpression(offset));
+      }
+      builder.add(Expressions.return_(null, sorted));
+    } else if (fetch == null && offset == null) {
+      builder.add(
+          Expressions.return_(null,
+              Expressions.call(childExp,
+                  BuiltInMethod.ORDER_BY.method,
+                  Expressions.list(
+                      builder.append("keySelector", pair.left))
+                      .appendIfNotNull(
+                          builder.appendIfNotNull("comparator",
+                              pair.right)))));
+    } else {
+      // Top-N: retain at most offset + fetch rows while sorting
+      builder.add(
+          Expressions.return_(null,
+              Expressions.call(
+                  BuiltInMethod.ORDER_BY_WITH_FETCH_AND_OFFSET.method,
+                  childExp,
+                  builder.append("keySelector", pair.left),
+                  pair.right == null
+                      ? Expressions.constant(null, Comparator.class)
+                      : builder.append("comparator", pair.right),
+                  offset == null
+                      ? Expressions.constant(0)
+                      : EnumerableLimit.getExpression(offset),
+                  fetch == null
+                      ? Expressions.constant(-1)
+                      : EnumerableLimit.getExpression(fetch))));
+    }
     return implementor.result(physType, builder.toBlock());
   }
 }
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.enumerable;
+
+import org.apache.calcite.plan.RelOptCluster;
+import org.apache.calcite.plan.RelOptCost;
+import org.apache.calcite.plan.RelOptPlanner;
+import org.apache.calcite.plan.RelTraitSet;
+import org.apache.calcite.rel.InvalidRelException;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.core.AggregateCall;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.calcite.util.ImmutableBitSet;
+
+import java.util.List;
+
+/** Implementation of {@link org.apache.calcite.rel.core.Aggregate} in
+ * {@link EnumerableConvention enumerable calling convention} whose input is
+ * sorted on the group keys.
+ *
+ * <p>Because rows with the same key are adjacent, each group is returned as
+ * soon as its key changes. The aggregate uses constant memory, and returns
+ * its first rows before it has read all of its input.
+ *
+ * @see EnumerableSortedAggregateRule */
+public class EnumerableSortedAggregate extends EnumerableAggregate {
+  public EnumerableSortedAggregate(
+      RelOptCluster cluster,
+      RelTraitSet traitSet,
+      RelNode child,
+      boolean indicator,
+      ImmutableBitSet groupSet,
+      List<ImmutableBitSet> groupSets,
+      List<AggregateCall> aggCalls)
+      throws InvalidRelException {
+    super(cluster, traitSet, child, indicator, groupSet, groupSets, aggCalls);
+    if (getGroupType() != Group.SIMPLE || groupSet.isEmpty()) {
+      throw new InvalidRelException(
+          "sorted aggregation requires a single, non-empty grouping set");
+    }
+  }
+
+  @Override public EnumerableSortedAggregate copy(RelTraitSet traitSet,
+      RelNode input, boolean indicator, ImmutableBitSet groupSet,
+      List<ImmutableBitSet> groupSets, List<AggregateCall> aggCalls) {
+    try {
+      return new EnumerableSortedAggregate(getCluster(), traitSet, input,
+          indicator, groupSet, groupSets, aggCalls);
+    } catch (InvalidRelException e) {
+      // Semantic error not possible. Must be a bug. Convert to
+      // internal error.
+      throw new AssertionError(e);
+    }
+  }
+
+  @Override public RelOptCost computeSelfCost(RelOptPlanner planner,
+      RelMetadataQuery mq) {
+    // Same work per row as a hash aggregate, but no hash table. (The cost of
+    // sorting the input, if any, is paid by the input.) A calibrated cost
+    // model knows the difference already.
+    final RelOptCost cost = super.computeSelfCost(planner, mq);
+    return EnumerableCostModel.of(planner) != null
+        ? cost
+        : cost.multiplyBy(0.9d);
+  }
+
+  @Override protected boolean isInputSorted() {
+    return true;
+  }
+}
+
+// End EnumerableSortedAggregate.java
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.enumerable;
+
+import org.apache.calcite.plan.RelOptRule;
+import org.apache.calcite.plan.RelOptRuleCall;
+import org.apache.calcite.plan.RelTraitSet;
+import org.apache.calcite.rel.InvalidRelException;
+import org.apache.calcite.rel.RelCollation;
+import org.apache.calcite.rel.RelCollations;
+import org.apache.calcite.rel.RelFieldCollation;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.core.Aggregate;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.calcite.util.ImmutableBitSet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rule that converts an {@link EnumerableAggregate} to an
+ * {@link EnumerableSortedAggregate} if its input is sorted on the group keys.
+ *
+ * <p>The rule matches the aggregate and each relational expression that can
+ * implement its input, and uses
+ * {@link RelMetadataQuery#collations(RelNode)} to find whether a leading
+ * prefix of one of the input's collations consists of exactly the group
+ * keys, in any order.
+ */
+class EnumerableSortedAggregateRule extends RelOptRule {
+  EnumerableSortedAggregateRule() {
+    super(
+        operand(EnumerableAggregate.class,
+            operand(RelNode.class, any())),
+        "EnumerableSortedAggregateRule");
+  }
+
+  @Override public void onMatch(RelOptRuleCall call) {
+    final EnumerableAggregate aggregate = call.rel(0);
+    final RelNode input = call.rel(1);
+    if (aggregate instanceof EnumerableSortedAggregate
+        || aggregate.getGroupType() != Aggregate.Group.SIMPLE
+        || aggregate.getGroupSet().isEmpty()) {
+      return;
+    }
+    final RelMetadataQuery mq = call.getMetadataQuery();
+    final List<RelCollation> collations = mq.collations(input);
+    if (collations == null) {
+      return;
+    }
+    for (RelCollation collation : collations) {
+      final RelCollation prefix =
+          coveringPrefix(collation, aggregate.getGroupSet());
+      if (prefix == null) {
+        continue;
+      }
+      final RelNode sortedInput =
+          convert(aggregate.getInput(),
+              aggregate.getInput().getTraitSet().replace(prefix));
+      final RelTraitSet traitSet =
+          aggregate.getTraitSet()
+              .replace(outputCollation(prefix, aggregate.getGroupSet()));
+      try {
+        call.transformTo(
+            new EnumerableSortedAggregate(aggregate.getCluster(), traitSet,
+                sortedInput, aggregate.indicator, aggregate.getGroupSet(),
+                aggregate.getGroupSets(), aggregate.getAggCallList()));
+      } catch (InvalidRelException e) {
+        EnumerableRules.LOGGER.debug(e.toString());
+      }
+      return;
+    }
+  }
+
+  /** Returns the leading fields of a collation if they are exactly the
+   * fields of {@code groupSet}, otherwise null. */
+  private static RelCollation coveringPrefix(RelCollation collation,
+      ImmutableBitSet groupSet) {
+    final int groupCount = groupSet.cardinality();
+    final List<RelFieldCollation> fieldCollations =
+        collation.getFieldCollations();
+    if (fieldCollations.size() < groupCount) {
+      return null;
+    }
+    final List<RelFieldCollation> prefix =
+        fieldCollations.subList(0, groupCount);
+    final ImmutableBitSet.Builder keys = ImmutableBitSet.builder();
+    for (RelFieldCollation fieldCollation : prefix) {
+      keys.set(fieldCollation.getFieldIndex());
+    }
+    if (!keys.build().equals(groupSet)) {
+      return null;
+    }
+    return RelCollations.of(prefix);
+  }
+
+  /** Returns the collation of the output of the aggregate, given the
+   * collation of its input. Group keys are the leading fields of the
+   * output, in the order of {@code groupSet}. */
+  private static RelCollation outputCollation(RelCollation inputCollation,
+      ImmutableBitSet groupSet) {
+    final List<RelFieldCollation> fieldCollations = new ArrayList<>();
+    for (RelFieldCollation fieldCollation
+        : inputCollation.getFieldCollations()) {
+      fieldCollations.add(
+          fieldCollation.copy(groupSet.indexOf(fieldCollation.getFieldIndex())));
+    }
+    return RelCollations.of(fieldCollations);
+  }
+}
+
+// End EnumerableSortedAggregateRule.java
@@ -48,6 +48,7 @@
 import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
 
+import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
@@ -135,10 +136,32 @@ public static JavaRowFormat deduceFormat(RelOptTable table) {
   }
 
   private Expression getExpression(PhysType physType) {
+    return toRows(physType, getSourceExpression());
+  }
+
+  /** Returns an expression for the {@link Enumerable} of the table's rows in
+   * their native format. */
+  Expression getSourceExpression() {
     final Expression expression = table.getExpression(Queryable.class);
     final Expression expression2 = toEnumerable(expression);
     assert Types.isAssignableFrom(Enumerable.class, expression2.getType());
-    return toRows(physType, expression2);
+    return expression2;
+  }
+
+  /** Returns whether the rows of this scan can be divided into morsels and
+   * the morsels substituted for the table by an {@link EnumerableExchange}.
+   *
+   * <p>That is possible if the generated code reads the table via
+   * {@code Schemas.enumerable} or {@code Schemas.queryable}, which recognize
+   * a data context that is processing a morsel. */
+  boolean canSplit() {
+    final Expression expression = table.getExpression(Queryable.class);
+    if (!(expression instanceof MethodCallExpression)) {
+      return false;
+    }
+    final Method method = ((MethodCallExpression) expression).method;
+    return method.equals(BuiltInMethod.SCHEMAS_ENUMERABLE_SCANNABLE.method)
+        || method.equals(BuiltInMethod.SCHEMAS_QUERYABLE.method);
   }
 
   private Expression toEnumerable(Expression expression) {
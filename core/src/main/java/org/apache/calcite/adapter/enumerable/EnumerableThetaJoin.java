@@ -92,6 +92,13 @@ protected EnumerableThetaJoin(RelOptCluster cluster, RelTraitSet traits,
 
     final double rightRowCount = right.estimateRowCount(mq);
     final double leftRowCount = left.estimateRowCount(mq);
+    final EnumerableCostModel model = EnumerableCostModel.of(planner);
+    if (model != null) {
+      // Evaluate the condition for every pair of rows.
+      final double cpu = leftRowCount * rightRowCount
+          * model.get(EnumerableCostModel.Constant.NESTED_LOOP);
+      return model.makeCost(planner, rowCount, cpu, mq.memory(this), 0d);
+    }
     if (Double.isInfinite(leftRowCount)) {
       rowCount = leftRowCount;
     }
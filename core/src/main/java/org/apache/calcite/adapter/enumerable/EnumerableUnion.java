@@ -25,6 +25,7 @@
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.core.Union;
 import org.apache.calcite.util.BuiltInMethod;
+import org.apache.calcite.util.Util;
 
 import java.util.List;
 
@@ -57,10 +58,10 @@ public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
       } else {
         unionExp = all
             ? Expressions.call(unionExp, BuiltInMethod.CONCAT.method, childExp)
-            : Expressions.call(unionExp,
-                BuiltInMethod.UNION.method,
-                Expressions.list(childExp)
-                    .appendIfNotNull(result.physType.comparer()));
+            : Expressions.call(BuiltInMethod.HASH_UNION.method, unionExp,
+                childExp,
+                Util.first(result.physType.comparer(),
+                    Expressions.constant(null)));
       }
 
       // Once the first input has chosen its format, ask for the same for
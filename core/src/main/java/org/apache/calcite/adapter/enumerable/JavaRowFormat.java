@@ -29,6 +29,7 @@
 import org.apache.calcite.runtime.Unit;
 import org.apache.calcite.util.BuiltInMethod;
 
+import java.io.Serializable;
 import java.lang.reflect.Type;
 import java.util.List;
 
@@ -73,6 +74,16 @@ public MemberExpression field(Expression expression, int field,
         return Expressions.field(expression, Types.nthField(field, type));
       }
     }
+
+    @Override public Expression spillSerializer(Type javaRowClass) {
+      if (javaRowClass instanceof Class
+          && !Serializable.class.isAssignableFrom((Class) javaRowClass)) {
+        // Rows are instances of a user's class, say a table in a
+        // ReflectiveSchema. (Synthetic classes are always serializable.)
+        return null;
+      }
+      return Expressions.call(BuiltInMethod.SPILL_OBJECT_SERIALIZER.method);
+    }
   },
 
   SCALAR {
@@ -99,6 +110,10 @@ public Expression field(Expression expression, int field, Type fromType,
       assert field == 0;
       return expression;
     }
+
+    @Override public Expression spillSerializer(Type javaRowClass) {
+      return Expressions.call(BuiltInMethod.SPILL_VALUE_SERIALIZER.method);
+    }
   },
 
   /** A list that is comparable and immutable. Useful for records with 0 fields
@@ -186,6 +201,10 @@ public Expression field(Expression expression, int field, Type fromType,
       }
       return RexToLixTranslator.convert(e, fromType, fieldType);
     }
+
+    @Override public Expression spillSerializer(Type javaRowClass) {
+      return Expressions.call(BuiltInMethod.FLAT_LIST_SPILL_SERIALIZER.method);
+    }
   },
 
   /**
@@ -246,6 +265,10 @@ public Expression field(Expression expression, int field, Type fromType,
       }
       return RexToLixTranslator.convert(e, fromType, fieldType);
     }
+
+    @Override public Expression spillSerializer(Type javaRowClass) {
+      return Expressions.call(BuiltInMethod.SPILL_ARRAY_SERIALIZER.method);
+    }
   };
 
   public JavaRowFormat optimize(RelDataType rowType) {
@@ -284,6 +307,14 @@ public Expression comparer() {
     return null;
   }
 
+  /** Returns an expression for a
+   * {@link org.apache.calcite.linq4j.Spill.Serializer} that can write rows of
+   * this format and class to spill files, or null if such rows cannot be
+   * spilled. */
+  public Expression spillSerializer(Type javaRowClass) {
+    return null;
+  }
+
   /** Returns a reference to a particular field.
    *
    * <p>{@code fromType} may be null; if null, uses the natural type of the
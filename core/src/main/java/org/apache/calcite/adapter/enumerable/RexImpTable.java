@@ -339,12 +339,14 @@ public Expression implement(RexToLixTranslator translator,
 
     // LIKE and SIMILAR
     final MethodImplementor likeImplementor =
-        new MethodImplementor(BuiltInMethod.LIKE.method);
+        new LikeImplementor(BuiltInMethod.LIKE.method,
+            BuiltInMethod.LIKE_MATCHER.method);
     defineImplementor(LIKE, NullPolicy.STRICT, likeImplementor, false);
     defineImplementor(NOT_LIKE, NullPolicy.STRICT,
         NotImplementor.of(likeImplementor), false);
     final MethodImplementor similarImplementor =
-        new MethodImplementor(BuiltInMethod.SIMILAR.method);
+        new LikeImplementor(BuiltInMethod.SIMILAR.method,
+            BuiltInMethod.SIMILAR_MATCHER.method);
     defineImplementor(SIMILAR_TO, NullPolicy.STRICT, similarImplementor, false);
     defineImplementor(NOT_SIMILAR_TO, NullPolicy.STRICT,
         NotImplementor.of(similarImplementor), false);
@@ -1651,6 +1653,38 @@ public Expression implement(
     }
   }
 
+  /** Implementor for the {@code LIKE} and {@code SIMILAR TO} operators.
+   *
+   * <p>If the pattern and escape are literals, generates a call to a
+   * {@link org.apache.calcite.runtime.Like.Matcher}. The expression that
+   * creates the matcher is constant, so the optimizer hoists it into a
+   * static field, and the pattern is translated and compiled once rather
+   * than for each row. Otherwise generates a call to a method that looks up
+   * the matcher in a cache. */
+  private static class LikeImplementor extends MethodImplementor {
+    private final Method matcherMethod;
+
+    LikeImplementor(Method method, Method matcherMethod) {
+      super(method);
+      this.matcherMethod = matcherMethod;
+    }
+
+    @Override public Expression implement(
+        RexToLixTranslator translator,
+        RexCall call,
+        List<Expression> translatedOperands) {
+      for (RexNode operand : Util.skip(call.getOperands(), 1)) {
+        if (!(translator.deref(operand) instanceof RexLiteral)) {
+          return super.implement(translator, call, translatedOperands);
+        }
+      }
+      final Expression matcher =
+          Expressions.call(matcherMethod, Util.skip(translatedOperands, 1));
+      return Expressions.call(matcher, BuiltInMethod.MATCHER_MATCHES.method,
+          translatedOperands.get(0));
+    }
+  }
+
   /** Implementor for a function that generates calls to a given method. */
   private static class SequenceImplementor extends MethodImplementor {
     SequenceImplementor(Method method) {
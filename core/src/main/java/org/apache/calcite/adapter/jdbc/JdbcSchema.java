@@ -19,23 +19,30 @@
 import org.apache.calcite.avatica.AvaticaUtils;
 import org.apache.calcite.avatica.SqlType;
 import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.rel.RelCollation;
+import org.apache.calcite.rel.RelReferentialConstraint;
 import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.rel.type.RelDataTypeFactory;
 import org.apache.calcite.rel.type.RelDataTypeImpl;
 import org.apache.calcite.rel.type.RelDataTypeSystem;
 import org.apache.calcite.rel.type.RelProtoDataType;
+import org.apache.calcite.schema.ColumnStatistic;
 import org.apache.calcite.schema.Function;
 import org.apache.calcite.schema.Schema;
 import org.apache.calcite.schema.SchemaFactory;
 import org.apache.calcite.schema.SchemaPlus;
 import org.apache.calcite.schema.Schemas;
+import org.apache.calcite.schema.Statistic;
+import org.apache.calcite.schema.Statistics;
 import org.apache.calcite.schema.Table;
 import org.apache.calcite.sql.SqlDialect;
 import org.apache.calcite.sql.type.SqlTypeFactoryImpl;
 import org.apache.calcite.sql.type.SqlTypeName;
+import org.apache.calcite.util.ImmutableBitSet;
 import org.apache.calcite.util.Util;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
@@ -46,7 +53,11 @@
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
@@ -304,6 +315,80 @@ RelProtoDataType getRelDataType(DatabaseMetaData metaData, String catalogName,
     return RelDataTypeImpl.proto(fieldInfo.build());
   }
 
+  /** Reads approximate statistics about a table from the index information
+   * in the database's metadata: the row count, and the number of distinct
+   * values of each column that is the only column of an index. Returns
+   * {@link Statistics#UNKNOWN} if the driver supplies none. */
+  Statistic getStatistic(String catalogName, String schemaName,
+      String tableName) {
+    Connection connection = null;
+    ResultSet resultSet = null;
+    try {
+      connection = dataSource.getConnection();
+      final DatabaseMetaData metaData = connection.getMetaData();
+      final List<String> columnNames =
+          getRelDataType(metaData, catalogName, schemaName, tableName)
+              .apply(new SqlTypeFactoryImpl(RelDataTypeSystem.DEFAULT))
+              .getFieldNames();
+      resultSet =
+          metaData.getIndexInfo(catalogName, schemaName, tableName, false,
+              true);
+      Double rowCount = null;
+      final Map<String, List<String>> indexColumns = new HashMap<>();
+      final Map<String, Long> indexCardinalities = new HashMap<>();
+      while (resultSet.next()) {
+        final long cardinality = resultSet.getLong(11); // CARDINALITY
+        if (resultSet.getShort(7) // TYPE
+            == DatabaseMetaData.tableIndexStatistic) {
+          if (cardinality > 0) {
+            rowCount = (double) cardinality;
+          }
+          continue;
+        }
+        final String indexName = resultSet.getString(6); // INDEX_NAME
+        final String columnName = resultSet.getString(9); // COLUMN_NAME
+        if (indexName == null || columnName == null) {
+          continue;
+        }
+        List<String> list = indexColumns.get(indexName);
+        if (list == null) {
+          list = new ArrayList<>();
+          indexColumns.put(indexName, list);
+        }
+        list.add(columnName);
+        if (cardinality > 0) {
+          indexCardinalities.put(indexName, cardinality);
+        }
+      }
+      final ColumnStatistic[] columnStatistics =
+          new ColumnStatistic[columnNames.size()];
+      boolean found = rowCount != null;
+      for (Map.Entry<String, List<String>> entry : indexColumns.entrySet()) {
+        final Long cardinality = indexCardinalities.get(entry.getKey());
+        if (cardinality != null && entry.getValue().size() == 1) {
+          final int i = columnNames.indexOf(entry.getValue().get(0));
+          if (i >= 0) {
+            columnStatistics[i] =
+                Statistics.column((double) cardinality, null, null, null,
+                    null);
+            found = true;
+          }
+        }
+      }
+      if (!found) {
+        return Statistics.UNKNOWN;
+      }
+      return Statistics.of(rowCount, ImmutableList.<ImmutableBitSet>of(),
+          ImmutableList.<RelReferentialConstraint>of(),
+          ImmutableList.<RelCollation>of(), Arrays.asList(columnStatistics));
+    } catch (SQLException e) {
+      // Statistics are optional; not all drivers support index information.
+      return Statistics.UNKNOWN;
+    } finally {
+      close(connection, null, resultSet);
+    }
+  }
+
   private RelDataType sqlType(RelDataTypeFactory typeFactory, int dataType,
       int precision, int scale, String typeString) {
     // Fall back to ANY if type is unknown
@@ -43,6 +43,7 @@
 import org.apache.calcite.schema.ScannableTable;
 import org.apache.calcite.schema.Schema;
 import org.apache.calcite.schema.SchemaPlus;
+import org.apache.calcite.schema.Statistic;
 import org.apache.calcite.schema.TranslatableTable;
 import org.apache.calcite.schema.impl.AbstractTableQueryable;
 import org.apache.calcite.sql.SqlIdentifier;
@@ -77,6 +78,7 @@
 class JdbcTable extends AbstractQueryableTable
     implements TranslatableTable, ScannableTable, ModifiableTable {
   private RelProtoDataType protoRowType;
+  private Statistic statistic;
   private final JdbcSchema jdbcSchema;
   private final String jdbcCatalogName;
   private final String jdbcSchemaName;
@@ -101,6 +103,15 @@ public String toString() {
     return jdbcTableType;
   }
 
+  @Override public Statistic getStatistic() {
+    if (statistic == null) {
+      statistic =
+          jdbcSchema.getStatistic(jdbcCatalogName, jdbcSchemaName,
+              jdbcTableName);
+    }
+    return statistic;
+  }
+
   public RelDataType getRowType(RelDataTypeFactory typeFactory) {
     if (protoRowType == null) {
       try {
@@ -68,6 +68,30 @@ public interface CalciteConnectionConfig extends ConnectionConfig {
   <T> T typeSystem(Class<T> typeSystemClass, T defaultTypeSystem);
   /** @see CalciteConnectionProperty#CONFORMANCE */
   SqlConformance conformance();
+  /** @see CalciteConnectionProperty#BINDABLE_CACHE_MAX_SIZE */
+  int bindableCacheMaxSize();
+  /** @see CalciteConnectionProperty#PLAN_CACHE_MAX_SIZE */
+  int planCacheMaxSize();
+  /** @see CalciteConnectionProperty#SPILL_MEMORY_BUDGET */
+  long spillMemoryBudget();
+  /** @see CalciteConnectionProperty#SPILL_DIRECTORY */
+  String spillDirectory();
+  /** @see CalciteConnectionProperty#PARALLELISM */
+  int parallelism();
+  /** @see CalciteConnectionProperty#COMPILED_INTERPRETER */
+  boolean compiledInterpreter();
+  /** @see CalciteConnectionProperty#COLUMNAR_BATCH_SIZE */
+  int columnarBatchSize();
+  /** @see CalciteConnectionProperty#STATISTICS_FILE */
+  String statisticsFile();
+  /** @see CalciteConnectionProperty#PLANNER_PHASE_TIMEOUT */
+  int plannerPhaseTimeout();
+  /** @see CalciteConnectionProperty#PLANNER_PHASE_RULE_LIMIT */
+  int plannerPhaseRuleLimit();
+  /** @see CalciteConnectionProperty#COST_MODEL */
+  String costModel();
+  /** @see CalciteConnectionProperty#PRIMITIVE_ROWS */
+  boolean primitiveRows();
 }
 
 // End CalciteConnectionConfig.java
@@ -28,7 +28,9 @@
 import org.apache.calcite.sql.validate.SqlConformanceEnum;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 /** Implementation of {@link CalciteConnectionConfig}. */
@@ -38,6 +40,25 @@ public CalciteConnectionConfigImpl(Properties properties) {
     super(properties);
   }
 
+  @Override public int hashCode() {
+    return toMap().hashCode();
+  }
+
+  @Override public boolean equals(Object obj) {
+    return obj == this
+        || obj instanceof CalciteConnectionConfigImpl
+        && toMap().equals(((CalciteConnectionConfigImpl) obj).toMap());
+  }
+
+  /** Returns the properties, including defaults, as a map. */
+  private Map<String, String> toMap() {
+    final Map<String, String> map = new HashMap<>();
+    for (String name : properties.stringPropertyNames()) {
+      map.put(name, properties.getProperty(name));
+    }
+    return map;
+  }
+
   /** Returns a copy of this configuration with one property changed. */
   public CalciteConnectionConfigImpl set(CalciteConnectionProperty property,
       String value) {
@@ -170,6 +191,85 @@ public SqlConformance conformance() {
     return CalciteConnectionProperty.CONFORMANCE.wrap(properties)
         .getEnum(SqlConformanceEnum.class);
   }
+
+  public int bindableCacheMaxSize() {
+    return CalciteConnectionProperty.BINDABLE_CACHE_MAX_SIZE.wrap(properties)
+        .getInt();
+  }
+
+  public int planCacheMaxSize() {
+    return CalciteConnectionProperty.PLAN_CACHE_MAX_SIZE.wrap(properties)
+        .getInt();
+  }
+
+  public long spillMemoryBudget() {
+    final String s =
+        CalciteConnectionProperty.SPILL_MEMORY_BUDGET.wrap(properties)
+            .getString();
+    if (s == null || s.isEmpty()) {
+      return 0L;
+    }
+    final long multiplier;
+    switch (Character.toLowerCase(s.charAt(s.length() - 1))) {
+    case 'k':
+      multiplier = 1L << 10;
+      break;
+    case 'm':
+      multiplier = 1L << 20;
+      break;
+    case 'g':
+      multiplier = 1L << 30;
+      break;
+    default:
+      return Long.parseLong(s.trim());
+    }
+    return Long.parseLong(s.substring(0, s.length() - 1).trim()) * multiplier;
+  }
+
+  public String spillDirectory() {
+    return CalciteConnectionProperty.SPILL_DIRECTORY.wrap(properties)
+        .getString();
+  }
+
+  public int parallelism() {
+    return CalciteConnectionProperty.PARALLELISM.wrap(properties)
+        .getInt();
+  }
+
+  public boolean compiledInterpreter() {
+    return CalciteConnectionProperty.COMPILED_INTERPRETER.wrap(properties)
+        .getBoolean();
+  }
+
+  public int columnarBatchSize() {
+    return CalciteConnectionProperty.COLUMNAR_BATCH_SIZE.wrap(properties)
+        .getInt();
+  }
+
+  public String statisticsFile() {
+    return CalciteConnectionProperty.STATISTICS_FILE.wrap(properties)
+        .getString();
+  }
+
+  public int plannerPhaseTimeout() {
+    return CalciteConnectionProperty.PLANNER_PHASE_TIMEOUT.wrap(properties)
+        .getInt();
+  }
+
+  public int plannerPhaseRuleLimit() {
+    return CalciteConnectionProperty.PLANNER_PHASE_RULE_LIMIT.wrap(properties)
+        .getInt();
+  }
+
+  public String costModel() {
+    return CalciteConnectionProperty.COST_MODEL.wrap(properties)
+        .getString();
+  }
+
+  public boolean primitiveRows() {
+    return CalciteConnectionProperty.PRIMITIVE_ROWS.wrap(properties)
+        .getBoolean();
+  }
 }
 
 // End CalciteConnectionConfigImpl.java
@@ -136,7 +136,90 @@ public enum CalciteConnectionProperty implements ConnectionProperty {
   TYPE_SYSTEM("typeSystem", Type.PLUGIN, null, false),
 
   /** SQL conformance level. */
-  CONFORMANCE("conformance", Type.ENUM, SqlConformanceEnum.DEFAULT, false);
+  CONFORMANCE("conformance", Type.ENUM, SqlConformanceEnum.DEFAULT, false),
+
+  /** Maximum number of compiled
+   * {@link org.apache.calcite.runtime.Bindable} classes to keep, keyed by
+   * generated Java source, so that statements whose generated code is
+   * identical are compiled only once. The least recently used entries are
+   * evicted when the limit is reached. Connections with the same value share
+   * a cache. The default, 0, disables the cache. */
+  BINDABLE_CACHE_MAX_SIZE("bindableCacheMaxSize", Type.NUMBER, 0, false),
+
+  /** Maximum number of prepared SQL statements to keep, so that preparing a
+   * statement whose SQL text, root schema, schema version and connection
+   * properties are the same as a previous statement's skips parsing,
+   * validation, planning and code generation. The least recently used
+   * entries are evicted when the limit is reached. Connections with the
+   * same value share a cache. The default, 0, disables the cache. */
+  PLAN_CACHE_MAX_SIZE("planCacheMaxSize", Type.NUMBER, 0, false),
+
+  /** Maximum amount of memory that an operator, such as a hash join, may
+   * use to hold rows before it writes them to temporary files. A number of
+   * bytes, optionally followed by "k", "m" or "g"; for example "64m". The
+   * default, null, means that operators never spill. */
+  SPILL_MEMORY_BUDGET("spillMemoryBudget", Type.STRING, null, false),
+
+  /** Directory in which operators create temporary files when they spill.
+   * The default, null, means the system's temporary directory. */
+  SPILL_DIRECTORY("spillDirectory", Type.STRING, null, false),
+
+  /** Maximum number of threads that a query may use to evaluate an operator
+   * in parallel. If greater than 1, the planner inserts exchanges above
+   * pipelines that read large tables, and each exchange evaluates its
+   * pipeline over morsels of the table on several threads at once. The
+   * default, 1, evaluates each query on the calling thread. */
+  PARALLELISM("parallelism", Type.NUMBER, 1, false),
+
+  /** Whether the interpreter should fuse chains of filters and projects
+   * into a single generated class, and evaluate equi-joins using a hash
+   * table rather than a nested loop. The default, false, interprets each
+   * relational expression separately. */
+  COMPILED_INTERPRETER("compiledInterpreter", Type.BOOLEAN, false, false),
+
+  /** Number of rows that operators on in-memory tables, such as those in a
+   * {@link org.apache.calcite.adapter.clone.CloneSchema}, process at a time.
+   * If greater than 0, scans, filters, projects and aggregates on such
+   * tables work on column vectors of this many rows. The default, 0, reads
+   * them a row at a time. */
+  COLUMNAR_BATCH_SIZE("columnarBatchSize", Type.NUMBER, 0, false),
+
+  /** File in which statistics collected by
+   * {@link org.apache.calcite.statistic.StatisticsCollector} are stored. If
+   * specified, the planner uses those statistics in preference to the ones
+   * that tables supply themselves. */
+  STATISTICS_FILE("statisticsFile", Type.STRING, null, false),
+
+  /** Maximum time, in milliseconds, that the planner may spend in each
+   * planning phase. When the time has elapsed, the planner stops firing
+   * rules as soon as it has found a complete plan, and returns the cheapest
+   * plan found so far. The default, 0, means no limit. */
+  PLANNER_PHASE_TIMEOUT("plannerPhaseTimeout", Type.NUMBER, 0, false),
+
+  /** Maximum number of rules that the planner may fire in each planning
+   * phase. When the limit is reached, the planner stops firing rules as
+   * soon as it has found a complete plan, and returns the cheapest plan
+   * found so far. The default, 0, means no limit. */
+  PLANNER_PHASE_RULE_LIMIT("plannerPhaseRuleLimit", Type.NUMBER, 0, false),
+
+  /** Calibrated cost model for Enumerable operators. Either "default", for
+   * the built-in constants, or the name of a properties file written by the
+   * calibration benchmark in the ubenchmark module. If specified, the
+   * planner compares plans by their estimated time, taking into account
+   * CPU per row, memory, and the cost of spilling to disk when an
+   * operator's memory exceeds {@link #SPILL_MEMORY_BUDGET}. The default,
+   * null, compares plans mainly by row counts.
+   *
+   * @see org.apache.calcite.adapter.enumerable.EnumerableCostModel */
+  COST_MODEL("costModel", Type.STRING, null, false),
+
+  /** Whether generated code should pass rows between operators such as
+   * {@code EnumerableCalc} and {@code EnumerableAggregate} as synthetic
+   * classes, whose NOT NULL fields are primitives, rather than as arrays of
+   * boxed values. Only the last operator converts rows to the format that
+   * the caller requires. The default, false, lets each operator use the
+   * format of its input. */
+  PRIMITIVE_ROWS("primitiveRows", Type.BOOLEAN, false, false);
 
   private final String camelName;
   private final Type type;
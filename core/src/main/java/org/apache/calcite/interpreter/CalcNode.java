@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.interpreter;
+
+import org.apache.calcite.rel.core.Calc;
+
+/**
+ * Interpreter node that implements a
+ * {@link org.apache.calcite.rel.core.Calc}.
+ *
+ * <p>The program is compiled to a single class, so a pipeline of filters and
+ * projects that the interpreter has fused into a {@code Calc} evaluates each
+ * row with one call, without creating intermediate rows.
+ */
+public class CalcNode extends AbstractSingleNode<Calc> {
+  private final Scalar scalar;
+  private final Context context;
+
+  public CalcNode(Interpreter interpreter, Calc rel) {
+    super(interpreter, rel);
+    this.scalar = interpreter.compile(rel.getProgram());
+    this.context = interpreter.createContext();
+  }
+
+  public void run() throws InterruptedException {
+    Row row;
+    while ((row = source.receive()) != null) {
+      context.values = row.getValues();
+      final Object[] values = (Object[]) scalar.execute(context);
+      if (values != null) {
+        sink.send(new Row(values));
+      }
+    }
+  }
+}
+
+// End CalcNode.java
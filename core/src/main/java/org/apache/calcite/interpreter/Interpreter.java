@@ -17,10 +17,13 @@
 package org.apache.calcite.interpreter;
 
 import org.apache.calcite.DataContext;
+import org.apache.calcite.config.CalciteConnectionProperty;
+import org.apache.calcite.jdbc.CalciteConnection;
 import org.apache.calcite.linq4j.AbstractEnumerable;
 import org.apache.calcite.linq4j.Enumerable;
 import org.apache.calcite.linq4j.Enumerator;
 import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.linq4j.QueryProvider;
 import org.apache.calcite.linq4j.TransformedEnumerator;
 import org.apache.calcite.plan.hep.HepPlanner;
 import org.apache.calcite.plan.hep.HepProgram;
@@ -33,11 +36,8 @@
 import org.apache.calcite.rel.rules.ProjectTableScanRule;
 import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.rel.type.RelDataTypeFactory;
-import org.apache.calcite.rex.RexCall;
-import org.apache.calcite.rex.RexInputRef;
-import org.apache.calcite.rex.RexLiteral;
 import org.apache.calcite.rex.RexNode;
-import org.apache.calcite.sql.fun.SqlStdOperatorTable;
+import org.apache.calcite.rex.RexProgram;
 import org.apache.calcite.util.ReflectUtil;
 import org.apache.calcite.util.ReflectiveVisitDispatcher;
 import org.apache.calcite.util.ReflectiveVisitor;
@@ -46,10 +46,8 @@
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
-import java.math.BigDecimal;
 import java.util.ArrayDeque;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 import java.util.NoSuchElementException;
 
@@ -67,10 +65,22 @@ public class Interpreter extends AbstractEnumerable<Object[]>
   private final RelNode rootRel;
   private final Map<RelNode, List<RelNode>> relInputs = Maps.newHashMap();
   protected final ScalarCompiler scalarCompiler;
+  /** Whether to fuse chains of filters and projects into generated code, and
+   * to use hash joins; see
+   * {@link CalciteConnectionProperty#COMPILED_INTERPRETER}. */
+  final boolean compiled;
 
   /** Creates an Interpreter. */
   public Interpreter(DataContext dataContext, RelNode rootRel) {
+    this(dataContext, rootRel, isCompiled(dataContext));
+  }
+
+  /** Creates an Interpreter, specifying whether it should use compiled
+   * pipelines. */
+  public Interpreter(DataContext dataContext, RelNode rootRel,
+      boolean compiled) {
     this.dataContext = Preconditions.checkNotNull(dataContext);
+    this.compiled = compiled;
     this.scalarCompiler =
         new JaninoRexCompiler(rootRel.getCluster().getRexBuilder());
     final RelNode rel = optimize(rootRel);
@@ -78,6 +88,12 @@ public Interpreter(DataContext dataContext, RelNode rootRel) {
     this.rootRel = compiler.visitRoot(rel);
   }
 
+  private static boolean isCompiled(DataContext dataContext) {
+    final QueryProvider queryProvider = dataContext.getQueryProvider();
+    return queryProvider instanceof CalciteConnection
+        && ((CalciteConnection) queryProvider).config().compiledInterpreter();
+  }
+
   private RelNode optimize(RelNode rootRel) {
     final HepProgram hepProgram = new HepProgramBuilder()
         .addRuleInstance(CalcSplitRule.INSTANCE)
@@ -132,6 +148,15 @@ public Scalar compile(List<RexNode> nodes, RelDataType inputRowType) {
     return scalarCompiler.compile(nodes, inputRowType);
   }
 
+  /** Compiles a program to an executable form.
+   *
+   * <p>The {@link Scalar#execute(Context)} method of the result returns the
+   * output row as an {@code Object[]}, or null if the row does not satisfy
+   * the program's condition. */
+  public Scalar compile(RexProgram program) {
+    return scalarCompiler.compile(program);
+  }
+
   RelDataType combinedRowType(List<RelNode> inputs) {
     final RelDataTypeFactory.FieldInfoBuilder builder =
         dataContext.getTypeFactory().builder();
@@ -141,114 +166,6 @@ RelDataType combinedRowType(List<RelNode> inputs) {
     return builder.build();
   }
 
-  /** Not used. */
-  private class FooCompiler implements ScalarCompiler {
-    public Scalar compile(List<RexNode> nodes, RelDataType inputRowType) {
-      final RexNode node = nodes.get(0);
-      if (node instanceof RexCall) {
-        final RexCall call = (RexCall) node;
-        final Scalar argScalar = compile(call.getOperands(), inputRowType);
-        return new Scalar() {
-          final Object[] args = new Object[call.getOperands().size()];
-
-          public void execute(final Context context, Object[] results) {
-            results[0] = execute(context);
-          }
-
-          public Object execute(Context context) {
-            Comparable o0;
-            Comparable o1;
-            switch (call.getKind()) {
-            case LESS_THAN:
-            case LESS_THAN_OR_EQUAL:
-            case GREATER_THAN:
-            case GREATER_THAN_OR_EQUAL:
-            case EQUALS:
-            case NOT_EQUALS:
-              argScalar.execute(context, args);
-              o0 = (Comparable) args[0];
-              if (o0 == null) {
-                return null;
-              }
-              o1 = (Comparable) args[1];
-              if (o1 == null) {
-                return null;
-              }
-              if (o0 instanceof BigDecimal) {
-                if (o1 instanceof Double || o1 instanceof Float) {
-                  o1 = new BigDecimal(((Number) o1).doubleValue());
-                } else {
-                  o1 = new BigDecimal(((Number) o1).longValue());
-                }
-              }
-              if (o1 instanceof BigDecimal) {
-                if (o0 instanceof Double || o0 instanceof Float) {
-                  o0 = new BigDecimal(((Number) o0).doubleValue());
-                } else {
-                  o0 = new BigDecimal(((Number) o0).longValue());
-                }
-              }
-              final int c = o0.compareTo(o1);
-              switch (call.getKind()) {
-              case LESS_THAN:
-                return c < 0;
-              case LESS_THAN_OR_EQUAL:
-                return c <= 0;
-              case GREATER_THAN:
-                return c > 0;
-              case GREATER_THAN_OR_EQUAL:
-                return c >= 0;
-              case EQUALS:
-                return c == 0;
-              case NOT_EQUALS:
-                return c != 0;
-              default:
-                throw new AssertionError("unknown expression " + call);
-              }
-            default:
-              if (call.getOperator() == SqlStdOperatorTable.UPPER) {
-                argScalar.execute(context, args);
-                String s0 = (String) args[0];
-                if (s0 == null) {
-                  return null;
-                }
-                return s0.toUpperCase(Locale.ROOT);
-              }
-              if (call.getOperator() == SqlStdOperatorTable.SUBSTRING) {
-                argScalar.execute(context, args);
-                String s0 = (String) args[0];
-                Number i1 = (Number) args[1];
-                Number i2 = (Number) args[2];
-                if (s0 == null || i1 == null || i2 == null) {
-                  return null;
-                }
-                return s0.substring(i1.intValue() - 1,
-                    i1.intValue() - 1 + i2.intValue());
-              }
-              throw new AssertionError("unknown expression " + call);
-            }
-          }
-        };
-      }
-      return new Scalar() {
-        public void execute(Context context, Object[] results) {
-          results[0] = execute(context);
-        }
-
-        public Object execute(Context context) {
-          switch (node.getKind()) {
-          case LITERAL:
-            return ((RexLiteral) node).getValueAs(Comparable.class);
-          case INPUT_REF:
-            return context.values[((RexInputRef) node).getIndex()];
-          default:
-            throw new RuntimeException("unknown expression type " + node);
-          }
-        }
-      };
-    }
-  }
-
   public Source source(RelNode rel, int ordinal) {
     final RelNode input = getInput(rel, ordinal);
     final NodeInfo nodeInfo = nodes.get(input);
@@ -507,6 +424,9 @@ public void rewrite(RelNode r) {
    * values. */
   interface ScalarCompiler {
     Scalar compile(List<RexNode> nodes, RelDataType inputRowType);
+
+    /** Compiles a program; see {@link Interpreter#compile(RexProgram)}. */
+    Scalar compile(RexProgram program);
   }
 }
 
@@ -16,6 +16,7 @@
  */
 package org.apache.calcite.interpreter;
 
+import org.apache.calcite.DataContext;
 import org.apache.calcite.adapter.enumerable.JavaRowFormat;
 import org.apache.calcite.adapter.enumerable.PhysType;
 import org.apache.calcite.adapter.enumerable.PhysTypeImpl;
@@ -112,6 +113,88 @@ public RexToLixTranslator.InputGetter apply(String a0) {
     return baz(context_, outputValues_, builder.toBlock());
   }
 
+  public Scalar compile(RexProgram program) {
+    final BlockBuilder builder = new BlockBuilder();
+    final ParameterExpression context_ =
+        Expressions.parameter(Context.class, "context");
+    final ParameterExpression outputValues_ =
+        Expressions.parameter(Object[].class, "outputValues");
+    final JavaTypeFactoryImpl javaTypeFactory =
+        new JavaTypeFactoryImpl(rexBuilder.getTypeFactory().getTypeSystem());
+
+    // public Object execute(Context)
+    final RexToLixTranslator.InputGetter inputGetter =
+        new RexToLixTranslator.InputGetterImpl(
+            ImmutableList.of(
+                Pair.<Expression, PhysType>of(
+                    Expressions.field(context_,
+                        BuiltInMethod.CONTEXT_VALUES.field),
+                    PhysTypeImpl.of(javaTypeFactory,
+                        program.getInputRowType(), JavaRowFormat.ARRAY,
+                        false))));
+    final Function1<String, RexToLixTranslator.InputGetter> correlates =
+        new Function1<String, RexToLixTranslator.InputGetter>() {
+          public RexToLixTranslator.InputGetter apply(String a0) {
+            throw new UnsupportedOperationException();
+          }
+        };
+
+    // The translator refers to the data context as "root"; declare it.
+    builder.add(
+        Expressions.declare(Modifier.FINAL, DataContext.ROOT,
+            Expressions.field(context_, BuiltInMethod.CONTEXT_ROOT.field)));
+    if (program.getCondition() != null) {
+      final Expression condition =
+          RexToLixTranslator.translateCondition(program, javaTypeFactory,
+              builder, inputGetter, correlates);
+      builder.add(
+          Expressions.ifThen(Expressions.not(condition),
+              Expressions.return_(null, Expressions.constant(null))));
+    }
+    final List<Expression> list =
+        RexToLixTranslator.translateProjects(program, javaTypeFactory, builder,
+            null, DataContext.ROOT, inputGetter, correlates);
+    final Expression values_ = builder.append("values",
+        Expressions.newArrayBounds(Object.class, 1,
+            Expressions.constant(list.size())));
+    for (int i = 0; i < list.size(); i++) {
+      builder.add(
+          Expressions.statement(
+              Expressions.assign(
+                  Expressions.arrayIndex(values_, Expressions.constant(i)),
+                  list.get(i))));
+    }
+    builder.add(Expressions.return_(null, values_));
+
+    final List<MemberDeclaration> declarations = Lists.newArrayList();
+    declarations.add(
+        Expressions.methodDecl(Modifier.PUBLIC, Object.class,
+            BuiltInMethod.SCALAR_EXECUTE1.method.getName(),
+            ImmutableList.of(context_), builder.toBlock()));
+
+    // public void execute(Context, Object[] outputValues)
+    final BlockBuilder builder2 = new BlockBuilder();
+    final Expression values2_ = builder2.append("values",
+        Expressions.convert_(
+            Expressions.call(
+                Expressions.parameter(Scalar.class, "this"),
+                BuiltInMethod.SCALAR_EXECUTE1.method, context_),
+            Object[].class));
+    builder2.add(
+        Expressions.ifThen(
+            Expressions.notEqual(values2_, Expressions.constant(null)),
+            Expressions.statement(
+                Expressions.call(System.class, "arraycopy", values2_,
+                    Expressions.constant(0), outputValues_,
+                    Expressions.constant(0),
+                    Expressions.arrayLength(values2_)))));
+    declarations.add(
+        Expressions.methodDecl(Modifier.PUBLIC, void.class,
+            BuiltInMethod.SCALAR_EXECUTE2.method.getName(),
+            ImmutableList.of(context_, outputValues_), builder2.toBlock()));
+    return compileClass(declarations);
+  }
+
   /** Given a method that implements {@link Scalar#execute(Context, Object[])},
    * adds a bridge method that implements {@link Scalar#execute(Context)}, and
    * compiles. */
@@ -143,6 +226,12 @@ static Scalar baz(ParameterExpression context_,
             BuiltInMethod.SCALAR_EXECUTE1.method.getName(),
             ImmutableList.of(context_), builder.toBlock()));
 
+    return compileClass(declarations);
+  }
+
+  /** Compiles a class that implements {@link Scalar} and has the given
+   * methods. */
+  private static Scalar compileClass(List<MemberDeclaration> declarations) {
     final ClassDeclaration classDeclaration =
         Expressions.classDecl(Modifier.PUBLIC, "Buzz", null,
             ImmutableList.<Type>of(Scalar.class), declarations);
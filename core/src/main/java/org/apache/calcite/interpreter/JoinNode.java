@@ -16,16 +16,34 @@
  */
 package org.apache.calcite.interpreter;
 
+import org.apache.calcite.plan.RelOptUtil;
 import org.apache.calcite.rel.core.Join;
+import org.apache.calcite.rel.core.SemiJoin;
+import org.apache.calcite.rel.type.RelDataTypeField;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.sql.type.SqlTypeUtil;
+import org.apache.calcite.util.ImmutableIntList;
+import org.apache.calcite.util.Pair;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Interpreter node that implements a
  * {@link org.apache.calcite.rel.core.Join}.
+ *
+ * <p>If the interpreter is compiling pipelines and the join condition
+ * contains equalities between the inputs, builds a hash table on the right
+ * input and probes it with rows from the left; otherwise compares every
+ * pair of rows.
  */
 public class JoinNode implements Node {
   private final Source leftSource;
@@ -34,19 +52,70 @@ public class JoinNode implements Node {
   private final Join rel;
   private final Scalar condition;
   private final Context context;
+  private final ImmutableIntList leftKeys;
+  private final ImmutableIntList rightKeys;
+  private final ImmutableList<Boolean> filterNulls;
 
   public JoinNode(Interpreter interpreter, Join rel) {
     this.leftSource = interpreter.source(rel, 0);
     this.rightSource = interpreter.source(rel, 1);
     this.sink = interpreter.sink(rel);
-    this.condition = interpreter.compile(ImmutableList.of(rel.getCondition()),
-        interpreter.combinedRowType(rel.getInputs()));
     this.rel = rel;
     this.context = interpreter.createContext();
 
+    final List<Integer> leftKeys = new ArrayList<>();
+    final List<Integer> rightKeys = new ArrayList<>();
+    final List<Boolean> filterNulls = new ArrayList<>();
+    RexNode condition = rel.getCondition();
+    if (interpreter.compiled && !(rel instanceof SemiJoin)) {
+      final RexNode remaining =
+          RelOptUtil.splitJoinCondition(rel.getLeft(), rel.getRight(),
+              condition, leftKeys, rightKeys, filterNulls);
+      if (!leftKeys.isEmpty() && sameKeyTypes(rel, leftKeys, rightKeys)) {
+        condition = remaining;
+      } else {
+        leftKeys.clear();
+      }
+    }
+    if (leftKeys.isEmpty()) {
+      this.leftKeys = null;
+      this.rightKeys = null;
+      this.filterNulls = null;
+    } else {
+      this.leftKeys = ImmutableIntList.copyOf(leftKeys);
+      this.rightKeys = ImmutableIntList.copyOf(rightKeys);
+      this.filterNulls = ImmutableList.copyOf(filterNulls);
+    }
+    this.condition = condition.isAlwaysTrue() && this.leftKeys != null
+        ? null
+        : interpreter.compile(ImmutableList.of(condition),
+            interpreter.combinedRowType(rel.getInputs()));
+  }
+
+  /** Returns whether each pair of keys has the same type, and therefore the
+   * same Java representation, so that values can be compared using
+   * {@link Object#equals(Object)}. */
+  private static boolean sameKeyTypes(Join rel, List<Integer> leftKeys,
+      List<Integer> rightKeys) {
+    final List<RelDataTypeField> leftFields =
+        rel.getLeft().getRowType().getFieldList();
+    final List<RelDataTypeField> rightFields =
+        rel.getRight().getRowType().getFieldList();
+    for (Pair<Integer, Integer> pair : Pair.zip(leftKeys, rightKeys)) {
+      if (!SqlTypeUtil.equalSansNullability(rel.getCluster().getTypeFactory(),
+          leftFields.get(pair.left).getType(),
+          rightFields.get(pair.right).getType())) {
+        return false;
+      }
+    }
+    return true;
   }
 
   public void run() throws InterruptedException {
+    if (leftKeys != null) {
+      runHash();
+      return;
+    }
     List<Row> rightList = null;
     final int leftCount = rel.getLeft().getRowType().getFieldCount();
     final int rightCount = rel.getRight().getRowType().getFieldCount();
@@ -71,6 +140,83 @@ public void run() throws InterruptedException {
       }
     }
   }
+
+  private void runHash() throws InterruptedException {
+    final int leftCount = rel.getLeft().getRowType().getFieldCount();
+    final int rightCount = rel.getRight().getRowType().getFieldCount();
+    context.values = new Object[leftCount + rightCount];
+
+    // Build a hash table on the right input.
+    final List<Row> rightList = new ArrayList<>();
+    final Map<List<Object>, List<Integer>> map = new HashMap<>();
+    Row right;
+    while ((right = rightSource.receive()) != null) {
+      final List<Object> key = key(right, rightKeys);
+      if (key != null) {
+        List<Integer> ordinals = map.get(key);
+        if (ordinals == null) {
+          ordinals = new ArrayList<>(1);
+          map.put(key, ordinals);
+        }
+        ordinals.add(rightList.size());
+      }
+      rightList.add(right);
+    }
+
+    // Probe it with each row from the left input.
+    final BitSet rightMatched = new BitSet(rightList.size());
+    Row left;
+    while ((left = leftSource.receive()) != null) {
+      System.arraycopy(left.getValues(), 0, context.values, 0, leftCount);
+      boolean matched = false;
+      final List<Object> key = key(left, leftKeys);
+      final List<Integer> ordinals = key == null ? null : map.get(key);
+      if (ordinals != null) {
+        for (int ordinal : ordinals) {
+          System.arraycopy(rightList.get(ordinal).getValues(), 0,
+              context.values, leftCount, rightCount);
+          if (condition == null
+              || Boolean.TRUE.equals(condition.execute(context))) {
+            sink.send(Row.asCopy(context.values));
+            matched = true;
+            rightMatched.set(ordinal);
+          }
+        }
+      }
+      if (!matched && rel.getJoinType().generatesNullsOnRight()) {
+        Arrays.fill(context.values, leftCount, leftCount + rightCount, null);
+        sink.send(Row.asCopy(context.values));
+      }
+    }
+
+    // Emit right rows that matched nothing.
+    if (rel.getJoinType().generatesNullsOnLeft()) {
+      Arrays.fill(context.values, 0, leftCount, null);
+      for (int i = 0; i < rightList.size(); i++) {
+        if (!rightMatched.get(i)) {
+          System.arraycopy(rightList.get(i).getValues(), 0, context.values,
+              leftCount, rightCount);
+          sink.send(Row.asCopy(context.values));
+        }
+      }
+    }
+  }
+
+  /** Returns the join key of a row, or null if the key contains a null
+   * that cannot match anything. */
+  private List<Object> key(Row row, ImmutableIntList keys) {
+    final Object[] values = new Object[keys.size()];
+    for (int i = 0; i < values.length; i++) {
+      final Object value = row.getObject(keys.get(i));
+      if (value == null && filterNulls.get(i)) {
+        return null;
+      }
+      values[i] = value instanceof BigDecimal
+          ? ((BigDecimal) value).stripTrailingZeros()
+          : value;
+    }
+    return Arrays.asList(values);
+  }
 }
 
 // End JoinNode.java
@@ -16,7 +16,10 @@
  */
 package org.apache.calcite.interpreter;
 
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.SingleRel;
 import org.apache.calcite.rel.core.Aggregate;
+import org.apache.calcite.rel.core.Calc;
 import org.apache.calcite.rel.core.Filter;
 import org.apache.calcite.rel.core.Join;
 import org.apache.calcite.rel.core.Project;
@@ -25,7 +28,13 @@
 import org.apache.calcite.rel.core.Union;
 import org.apache.calcite.rel.core.Values;
 import org.apache.calcite.rel.core.Window;
+import org.apache.calcite.rel.logical.LogicalCalc;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rex.RexBuilder;
 import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexOver;
+import org.apache.calcite.rex.RexProgram;
+import org.apache.calcite.rex.RexProgramBuilder;
 
 import com.google.common.collect.ImmutableList;
 
@@ -43,10 +52,67 @@ public static class CoreCompiler extends Interpreter.Compiler {
       super(interpreter);
     }
 
+    public void rewrite(Filter filter) {
+      fuse(filter);
+    }
+
+    public void rewrite(Project project) {
+      fuse(project);
+    }
+
+    public void rewrite(Calc calc) {
+      fuse(calc);
+    }
+
+    /** If the interpreter is compiling pipelines, and a filter, project or
+     * calc sits on top of another, merges them into a single
+     * {@link LogicalCalc} so that they are evaluated by one
+     * {@link CalcNode}. Called repeatedly, collapses a whole chain. */
+    private void fuse(SingleRel top) {
+      if (!interpreter.compiled) {
+        return;
+      }
+      final RelNode bottom = top.getInput();
+      if (!(bottom instanceof Filter
+          || bottom instanceof Project
+          || bottom instanceof Calc)) {
+        return;
+      }
+      final RexProgram topProgram = program(top);
+      final RexProgram bottomProgram = program(bottom);
+      if (RexOver.containsOver(topProgram)
+          || RexOver.containsOver(bottomProgram)) {
+        return;
+      }
+      final RexProgram program =
+          RexProgramBuilder.mergePrograms(topProgram, bottomProgram,
+              top.getCluster().getRexBuilder());
+      rel = LogicalCalc.create(bottom.getInput(0), program);
+    }
+
+    private static RexProgram program(RelNode rel) {
+      final RexBuilder rexBuilder = rel.getCluster().getRexBuilder();
+      final RelDataType inputRowType = rel.getInput(0).getRowType();
+      if (rel instanceof Calc) {
+        return ((Calc) rel).getProgram();
+      } else if (rel instanceof Filter) {
+        return RexProgram.create(inputRowType,
+            rexBuilder.identityProjects(inputRowType),
+            ((Filter) rel).getCondition(), rel.getRowType(), rexBuilder);
+      } else {
+        return RexProgram.create(inputRowType, ((Project) rel).getProjects(),
+            null, rel.getRowType(), rexBuilder);
+      }
+    }
+
     public void visit(Aggregate agg) {
       node = new AggregateNode(interpreter, agg);
     }
 
+    public void visit(Calc calc) {
+      node = new CalcNode(interpreter, calc);
+    }
+
     public void visit(Filter filter) {
       node = new FilterNode(interpreter, filter);
     }
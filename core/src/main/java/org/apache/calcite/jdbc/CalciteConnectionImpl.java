@@ -37,6 +37,7 @@
 import org.apache.calcite.linq4j.Ord;
 import org.apache.calcite.linq4j.QueryProvider;
 import org.apache.calcite.linq4j.Queryable;
+import org.apache.calcite.linq4j.Spill;
 import org.apache.calcite.linq4j.function.Function0;
 import org.apache.calcite.linq4j.tree.Expression;
 import org.apache.calcite.linq4j.tree.Expressions;
@@ -65,6 +66,7 @@
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 
+import java.io.File;
 import java.io.Serializable;
 import java.lang.reflect.Type;
 import java.sql.PreparedStatement;
@@ -95,6 +97,14 @@
   // must be package-protected
   static final Trojan TROJAN = createTrojan();
 
+  /** Listener that publishes each spill to {@link Hook#SPILL}. */
+  private static final Spill.Listener SPILL_LISTENER =
+      new Spill.Listener() {
+        public void onSpill(String operator, long rowCount, long byteCount) {
+          Hook.SPILL.run(new Object[] {operator, rowCount, byteCount});
+        }
+      };
+
   /**
    * Creates a CalciteConnectionImpl.
    *
@@ -290,6 +300,14 @@ public <T> Enumerable<T> enumerable(Meta.StatementHandle handle,
       throw new RuntimeException(e);
     }
     map.put(DataContext.Variable.CANCEL_FLAG.camelName, cancelFlag);
+    final long spillMemoryBudget = config().spillMemoryBudget();
+    if (spillMemoryBudget > 0) {
+      final String spillDirectory = config().spillDirectory();
+      map.put(DataContext.Variable.SPILL_MANAGER.camelName,
+          new Spill.Manager(spillMemoryBudget,
+              spillDirectory == null ? null : new File(spillDirectory),
+              SPILL_LISTENER));
+    }
     final DataContext dataContext = createDataContext(map, signature.rootSchema);
     return signature.enumerable(dataContext);
   }
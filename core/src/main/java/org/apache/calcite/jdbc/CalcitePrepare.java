@@ -344,6 +344,18 @@ public Enumerable<T> enumerable(DataContext dataContext) {
     public List<RelCollation> getCollationList() {
       return collationList;
     }
+
+    public Bindable<T> getBindable() {
+      return bindable;
+    }
+
+    /** Returns a copy of this signature with a given maximum row count and
+     * bindable. */
+    public CalciteSignature<T> copy(long maxRowCount, Bindable<T> bindable) {
+      return new CalciteSignature<>(sql, parameters, internalParameters,
+          rowType, columns, cursorFactory, rootSchema, collationList,
+          maxRowCount, bindable, statementType);
+    }
   }
 
   /** A union type of the three possible ways of expressing a query: as a SQL
@@ -45,6 +45,7 @@
 import java.util.NavigableMap;
 import java.util.NavigableSet;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Schema.
@@ -65,6 +66,9 @@ public abstract class CalciteSchema {
   protected final NameMap<FunctionEntry> nullaryFunctionMap;
   protected final NameMap<CalciteSchema> subSchemaMap;
   private List<? extends List<String>> path;
+  /** Number of changes to this schema's definitions; see
+   * {@link #getModificationCount()}. Only used in the root schema. */
+  private final AtomicLong modificationCount = new AtomicLong();
 
   protected CalciteSchema(CalciteSchema parent, Schema schema,
       String name, NameMap<CalciteSchema> subSchemaMap,
@@ -166,6 +170,7 @@ public TableEntry add(String tableName, Table table,
     final TableEntryImpl entry =
         new TableEntryImpl(this, tableName, table, sqls);
     tableMap.put(tableName, entry);
+    changed();
     return entry;
   }
 
@@ -177,6 +182,7 @@ private FunctionEntry add(String name, Function function) {
     if (function.getParameters().isEmpty()) {
       nullaryFunctionMap.put(name, entry);
     }
+    changed();
     return entry;
   }
 
@@ -186,9 +192,27 @@ private LatticeEntry add(String name, Lattice lattice) {
     }
     final LatticeEntryImpl entry = new LatticeEntryImpl(this, name, lattice);
     latticeMap.put(name, entry);
+    changed();
     return entry;
   }
 
+  /** Records that a table, function, lattice, sub-schema or path has been
+   * defined in this schema. */
+  protected void changed() {
+    root().modificationCount.incrementAndGet();
+  }
+
+  /** Returns the number of changes that have been made to the explicit
+   * definitions (tables, functions, lattices, sub-schemas and paths) of this
+   * schema's root and all of its descendants.
+   *
+   * <p>Callers that cache the results of planning may use it to detect that
+   * the schema has changed. It does not reflect changes in the implicit
+   * contents of an underlying {@link Schema}. */
+  public long getModificationCount() {
+    return root().modificationCount.get();
+  }
+
   public CalciteSchema root() {
     for (CalciteSchema schema = this;;) {
       if (schema.parent == null) {
@@ -607,6 +631,7 @@ public <T> T unwrap(Class<T> clazz) {
 
     public void setPath(ImmutableList<ImmutableList<String>> path) {
       CalciteSchema.this.path = path;
+      changed();
     }
 
     public void add(String name, Table table) {
@@ -73,6 +73,9 @@ public abstract class AbstractRelOptPlanner implements RelOptPlanner {
 
   private RexExecutor executor;
 
+  /** Profiler that records per-rule statistics, or null. */
+  private RelOptProfiler profiler;
+
   //~ Constructors -----------------------------------------------------------
 
   /**
@@ -260,6 +263,38 @@ public void addListener(RelOptListener newListener) {
   public void registerMetadataProviders(List<RelMetadataProvider> list) {
   }
 
+  /**
+   * Attaches a profiler, which records the match attempts, firings and
+   * timings of each rule in this planner. The profiler is also added as a
+   * listener.
+   *
+   * @param profiler Profiler
+   */
+  public void setProfiler(RelOptProfiler profiler) {
+    assert profiler != null;
+    assert this.profiler == null : "planner already has a profiler";
+    this.profiler = profiler;
+    addListener(profiler);
+  }
+
+  /** Returns the profiler attached to this planner, or null. */
+  public RelOptProfiler getProfiler() {
+    return profiler;
+  }
+
+  /**
+   * Attaches the profiler of the current thread, if there is one.
+   * Sub-classes should call this method at the end of their constructor.
+   *
+   * @see RelOptProfiler#THREAD_PROFILER
+   */
+  protected void attachThreadProfiler() {
+    final RelOptProfiler profiler = RelOptProfiler.THREAD_PROFILER.get();
+    if (profiler != null) {
+      setProfiler(profiler);
+    }
+  }
+
   public boolean addRelTraitDef(RelTraitDef relTraitDef) {
     return false;
   }
@@ -327,6 +362,18 @@ protected void fireRule(
     }
   }
 
+  /**
+   * Notifies the profiler, if any, that the planner is trying to match a
+   * rule's operands against a relational expression.
+   *
+   * @param rule Rule
+   */
+  protected void notifyMatchAttempt(RelOptRule rule) {
+    if (profiler != null) {
+      profiler.ruleMatchAttempted(rule);
+    }
+  }
+
   /**
    * Takes care of tracing and listener notification when a rule's
    * transformation is applied.
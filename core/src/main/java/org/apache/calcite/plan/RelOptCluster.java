@@ -51,6 +51,11 @@ public class RelOptCluster {
   private final RelTraitSet emptyTraitSet;
   private RelMetadataQuery mq;
 
+  /** Metadata query of each worker thread, used while a planner fires rules
+   * on several threads; see {@link #setMultiThreaded(boolean)}. */
+  private final ThreadLocal<RelMetadataQuery> threadMq = new ThreadLocal<>();
+  private boolean multiThreaded;
+
   //~ Constructors -----------------------------------------------------------
 
   /**
@@ -149,12 +154,44 @@ public MetadataFactory getMetadataFactory() {
    * for example if you are in a {@link RelOptRule#onMatch(RelOptRuleCall)}
    * method, then use {@link RelOptRuleCall#getMetadataQuery()} instead. */
   public RelMetadataQuery getMetadataQuery() {
+    if (multiThreaded) {
+      final RelMetadataQuery threadMq = this.threadMq.get();
+      if (threadMq != null) {
+        return threadMq;
+      }
+    }
     if (mq == null) {
       mq = RelMetadataQuery.instance();
     }
     return mq;
   }
 
+  /**
+   * Sets whether threads other than the planner's may be using this cluster.
+   * A {@link RelMetadataQuery} is not thread-safe, so while this is set, a
+   * thread that has called {@link #setThreadMetadataQuery} gets its own
+   * query from {@link #getMetadataQuery()}.
+   *
+   * <p>Call from the planner's thread, while no other thread is using the
+   * cluster.
+   */
+  public void setMultiThreaded(boolean multiThreaded) {
+    this.multiThreaded = multiThreaded;
+  }
+
+  /**
+   * Sets the metadata query that {@link #getMetadataQuery()} returns in the
+   * current thread while this cluster is multi-threaded, or removes it if
+   * {@code mq} is null.
+   */
+  public void setThreadMetadataQuery(RelMetadataQuery mq) {
+    if (mq == null) {
+      threadMq.remove();
+    } else {
+      threadMq.set(mq);
+    }
+  }
+
   /**
    * Should be called whenever the current {@link RelMetadataQuery} becomes
    * invalid. Typically invoked from {@link RelOptRuleCall#transformTo}.
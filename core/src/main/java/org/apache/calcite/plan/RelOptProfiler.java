@@ -0,0 +1,281 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.plan;
+
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.util.JsonBuilder;
+import org.apache.calcite.util.TryThreadLocal;
+
+import com.google.common.collect.Ordering;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listener that records, for each rule, how often it was tried and fired,
+ * how long it spent in {@link RelOptRule#onMatch}, how many relational
+ * expressions it produced, and how many of those were chosen for the final
+ * plan.
+ *
+ * <p>Works with any planner that sends the usual {@link RelOptListener}
+ * events. Match attempts are reported by {@link AbstractRelOptPlanner} via
+ * {@link #ruleMatchAttempted(RelOptRule)}; call
+ * {@link AbstractRelOptPlanner#setProfiler(RelOptProfiler)} to attach a
+ * profiler to a planner. Planners that are created while
+ * {@link #THREAD_PROFILER} is set attach themselves to it, which allows
+ * one profiler to see the Volcano planner and the Hep planners created by a
+ * {@link org.apache.calcite.tools.Program}.
+ *
+ * <p>A rule is charged for a relational expression if the expression was
+ * registered with the planner while one of the rule's calls was in progress.
+ * Time spent in nested planners is charged to the enclosing rule as well as
+ * to the nested rules.
+ *
+ * <p>Not thread-safe.
+ */
+public class RelOptProfiler implements RelOptListener {
+  /** Profiler that planners created in the current thread attach themselves
+   * to, or null. */
+  public static final TryThreadLocal<RelOptProfiler> THREAD_PROFILER =
+      TryThreadLocal.of(null);
+
+  private static final Ordering<RuleStatistics> ORDERING =
+      new Ordering<RuleStatistics>() {
+        public int compare(RuleStatistics o1, RuleStatistics o2) {
+          final int c = Long.compare(o2.elapsedNanos, o1.elapsedNanos);
+          return c != 0 ? c : o1.rule.compareTo(o2.rule);
+        }
+      };
+
+  /** Statistics for each rule, keyed by rule description. */
+  private final Map<String, RuleStatistics> map = new LinkedHashMap<>();
+
+  /** Rule calls in progress, innermost first. */
+  private final Deque<Frame> stack = new ArrayDeque<>();
+
+  /** Rule that produced each relational expression. */
+  private final Map<RelNode, RuleStatistics> producers =
+      new IdentityHashMap<>();
+
+  /** Creates a RelOptProfiler. */
+  public RelOptProfiler() {
+  }
+
+  private RuleStatistics stats(RelOptRule rule) {
+    final String description = rule.toString();
+    RuleStatistics stats = map.get(description);
+    if (stats == null) {
+      stats = new RuleStatistics(description);
+      map.put(description, stats);
+    }
+    return stats;
+  }
+
+  /** Called by a planner when it tries to match a rule's operands against a
+   * relational expression. */
+  public void ruleMatchAttempted(RelOptRule rule) {
+    ++stats(rule).attempts;
+  }
+
+  public void ruleAttempted(RuleAttemptedEvent event) {
+    final RelOptRuleCall call = event.getRuleCall();
+    if (event.isBefore()) {
+      ++stats(call.getRule()).fires;
+      stack.push(new Frame(call, true, System.nanoTime()));
+    } else {
+      final Frame frame = pop(call, true);
+      if (frame != null) {
+        stats(call.getRule()).elapsedNanos += System.nanoTime() - frame.start;
+      }
+    }
+  }
+
+  public void ruleProductionSucceeded(RuleProductionEvent event) {
+    final RelOptRuleCall call = event.getRuleCall();
+    if (event.isBefore()) {
+      ++stats(call.getRule()).transformations;
+      stack.push(new Frame(call, false, 0L));
+    } else {
+      pop(call, false);
+    }
+  }
+
+  /** Pops the frame for a given call, and any frames above it that were
+   * abandoned because a rule threw. */
+  private Frame pop(RelOptRuleCall call, boolean attempt) {
+    for (Frame frame : stack) {
+      if (frame.call == call && frame.attempt == attempt) {
+        for (;;) {
+          if (stack.pop() == frame) {
+            return frame;
+          }
+        }
+      }
+    }
+    return null;
+  }
+
+  public void relEquivalenceFound(RelEquivalenceEvent event) {
+    final Frame frame = stack.peek();
+    if (frame == null || producers.containsKey(event.getRel())) {
+      return;
+    }
+    final RuleStatistics stats = stats(frame.call.getRule());
+    producers.put(event.getRel(), stats);
+    ++stats.produced;
+  }
+
+  public void relDiscarded(RelDiscardedEvent event) {
+  }
+
+  public void relChosen(RelChosenEvent event) {
+    if (event.getRel() == null) {
+      return;
+    }
+    final RuleStatistics stats = producers.get(event.getRel());
+    if (stats != null) {
+      ++stats.chosen;
+    }
+  }
+
+  /** Returns the statistics of the rules that have been seen, the most
+   * expensive first. */
+  public List<RuleStatistics> getStatistics() {
+    return ORDERING.sortedCopy(map.values());
+  }
+
+  /** Forgets all statistics. */
+  public void clear() {
+    map.clear();
+    stack.clear();
+    producers.clear();
+  }
+
+  /** Returns the statistics as a JSON document. */
+  public String toJson() {
+    final JsonBuilder jsonBuilder = new JsonBuilder();
+    final List<Object> list = jsonBuilder.list();
+    for (RuleStatistics stats : getStatistics()) {
+      final Map<String, Object> ruleMap = jsonBuilder.map();
+      jsonBuilder.put(ruleMap, "rule", stats.rule)
+          .put(ruleMap, "attempts", stats.attempts)
+          .put(ruleMap, "fires", stats.fires)
+          .put(ruleMap, "transformations", stats.transformations)
+          .put(ruleMap, "produced", stats.produced)
+          .put(ruleMap, "chosen", stats.chosen)
+          .put(ruleMap, "elapsedMillis", stats.getElapsedMillis());
+      list.add(ruleMap);
+    }
+    final Map<String, Object> root = jsonBuilder.map();
+    jsonBuilder.put(root, "rules", list);
+    return jsonBuilder.toJsonString(root);
+  }
+
+  /** Returns the statistics as text, one line per rule. */
+  @Override public String toString() {
+    final StringBuilder buf = new StringBuilder();
+    for (RuleStatistics stats : getStatistics()) {
+      buf.append(stats).append('\n');
+    }
+    return buf.toString();
+  }
+
+  /** Rule call in progress. */
+  private static class Frame {
+    final RelOptRuleCall call;
+    /** Whether the frame is for {@code onMatch} (as opposed to the
+     * registration of a rule's result). */
+    final boolean attempt;
+    final long start;
+
+    Frame(RelOptRuleCall call, boolean attempt, long start) {
+      this.call = call;
+      this.attempt = attempt;
+      this.start = start;
+    }
+  }
+
+  /** Statistics about the calls to one rule. */
+  public static class RuleStatistics {
+    private final String rule;
+    private int attempts;
+    private int fires;
+    private int transformations;
+    private int produced;
+    private int chosen;
+    private long elapsedNanos;
+
+    RuleStatistics(String rule) {
+      this.rule = rule;
+    }
+
+    @Override public String toString() {
+      return String.format(Locale.ROOT,
+          "%s: attempts=%d, fires=%d, transformations=%d, produced=%d,"
+              + " chosen=%d, time=%.3fms",
+          rule, attempts, fires, transformations, produced, chosen,
+          getElapsedMillis());
+    }
+
+    /** Returns the description of the rule. */
+    public String getRule() {
+      return rule;
+    }
+
+    /** Returns the number of times the planner tried to match the rule's
+     * operands. */
+    public int getAttempts() {
+      return attempts;
+    }
+
+    /** Returns the number of times {@link RelOptRule#onMatch} was called. */
+    public int getFires() {
+      return fires;
+    }
+
+    /** Returns the number of times the rule called
+     * {@link RelOptRuleCall#transformTo}. */
+    public int getTransformations() {
+      return transformations;
+    }
+
+    /** Returns the number of relational expressions the rule added to the
+     * planner. */
+    public int getProduced() {
+      return produced;
+    }
+
+    /** Returns the number of relational expressions produced by the rule that
+     * are in the final plan. */
+    public int getChosen() {
+      return chosen;
+    }
+
+    /** Returns the time spent in {@link RelOptRule#onMatch}. */
+    public double getElapsedMillis() {
+      return (double) elapsedNanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+  }
+}
+
+// End RelOptProfiler.java
@@ -545,7 +545,8 @@ private static class Cache {
     Cache() {
     }
 
-    RelTraitSet getOrAdd(List<RelTrait> traits) {
+    /** Synchronized, because a planner may fire rules on several threads. */
+    synchronized RelTraitSet getOrAdd(List<RelTrait> traits) {
       RelTraitSet traitSet1 = map.get(traits);
       if (traitSet1 != null) {
         return traitSet1;
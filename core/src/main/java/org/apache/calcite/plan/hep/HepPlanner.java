@@ -29,6 +29,7 @@
 import org.apache.calcite.plan.RelOptRuleOperand;
 import org.apache.calcite.plan.RelTrait;
 import org.apache.calcite.plan.RelTraitSet;
+import org.apache.calcite.rel.RelDigest;
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.convert.Converter;
 import org.apache.calcite.rel.convert.ConverterRule;
@@ -48,9 +49,11 @@
 
 import com.google.common.collect.ImmutableList;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -74,7 +77,7 @@ public class HepPlanner extends AbstractRelOptPlanner {
 
   private RelTraitSet requestedRootTraits;
 
-  private Map<String, HepRelVertex> mapDigestToVertex;
+  private Map<RelDigest, HepRelVertex> mapDigestToVertex;
 
   private final Set<RelOptRule> allRules;
 
@@ -86,6 +89,13 @@ public class HepPlanner extends AbstractRelOptPlanner {
 
   private boolean noDAG;
 
+  /**
+   * Whether to remember, for each vertex, which rules have had no effect on
+   * it, and not apply them again until the vertex or one of its descendants
+   * changes.
+   */
+  private boolean incremental = true;
+
   /**
    * Query graph, with edges directed from parent to child. This is a
    * single-rooted DAG, possibly with additional roots corresponding to
@@ -140,6 +150,7 @@ public HepPlanner(
     // in order to provide deterministic behavior.
     allRules = new LinkedHashSet<>();
     this.noDAG = noDAG;
+    attachThreadProfiler();
   }
 
   //~ Methods ----------------------------------------------------------------
@@ -155,6 +166,25 @@ public RelNode getRoot() {
     return root;
   }
 
+  /**
+   * Sets whether the planner skips rules that are known to have no effect.
+   *
+   * <p>If {@code incremental} is true (the default), the planner remembers,
+   * for each vertex, which rules it has applied without effect, and does not
+   * apply them again until the vertex or one of its descendants changes. A
+   * pass of a {@link HepProgram} instruction over a graph that has not changed
+   * since the previous pass is therefore cheap.
+   *
+   * <p>The planner assumes that whether a rule fires on a vertex depends only
+   * on the vertex and its descendants. This is not true of
+   * {@link ConverterRule} and {@link CommonRelSubExprRule}, which look at
+   * the vertex's parents, so the planner always applies those. If a rule
+   * depends on other state, set {@code incremental} to false.
+   */
+  public void setIncremental(boolean incremental) {
+    this.incremental = incremental;
+  }
+
   public List<RelOptRule> getRules() {
     return ImmutableList.copyOf(allRules);
   }
@@ -381,9 +411,16 @@ private void applyRules(
       while (iter.hasNext()) {
         HepRelVertex vertex = iter.next();
         for (RelOptRule rule : rules) {
+          if (incremental && vertex.isFixpoint(rule)) {
+            continue;
+          }
           HepRelVertex newVertex =
               applyRule(rule, vertex, forceConversions);
-          if (newVertex != null) {
+          if (newVertex == null) {
+            if (incremental && dependsOnlyOnDescendants(rule)) {
+              vertex.addFixpoint(rule);
+            }
+          } else {
             ++nMatches;
             if (nMatches >= currentProgram.matchLimit) {
               return;
@@ -407,6 +444,28 @@ private void applyRules(
     } while (!fixpoint);
   }
 
+  /** Returns whether the effect of a rule on a vertex depends only on the
+   * vertex and its descendants, and not on its parents. */
+  private static boolean dependsOnlyOnDescendants(RelOptRule rule) {
+    return !(rule instanceof ConverterRule)
+        && !(rule instanceof CommonRelSubExprRule);
+  }
+
+  /** Records that a vertex has changed, and therefore so have its ancestors;
+   * rules that have had no effect on them may now have an effect. */
+  private void markChanged(HepRelVertex vertex) {
+    final Set<HepRelVertex> visited = new HashSet<>();
+    final Deque<HepRelVertex> queue = new ArrayDeque<>();
+    queue.add(vertex);
+    while (!queue.isEmpty()) {
+      final HepRelVertex v = queue.pop();
+      if (visited.add(v)) {
+        v.clearFixpoints();
+        queue.addAll(Graphs.predecessorListOf(graph, v));
+      }
+    }
+  }
+
   private Iterator<HepRelVertex> getGraphIterator(HepRelVertex start) {
     // Make sure there's no garbage, because topological sort
     // doesn't start from a specific root, and rules can't
@@ -451,6 +510,7 @@ private HepRelVertex applyRule(
       RelOptRule rule,
       HepRelVertex vertex,
       boolean forceConversions) {
+    notifyMatchAttempt(rule);
     RelTrait parentTrait = null;
     List<RelNode> parents = null;
     if (rule instanceof ConverterRule) {
@@ -701,6 +761,9 @@ private HepRelVertex applyTransformationResults(
     } else {
       contractVertices(newVertex, vertex, parents);
     }
+    if (incremental) {
+      markChanged(newVertex);
+    }
 
     if (getListener() != null) {
       // Assume listener doesn't want to see garbage.
@@ -766,8 +829,7 @@ private HepRelVertex addRelToGraph(
     // try to find equivalent rel only if DAG is allowed
     if (!noDAG) {
       // Now, check if an equivalent vertex already exists in graph.
-      String digest = rel.getDigest();
-      HepRelVertex equivVertex = mapDigestToVertex.get(digest);
+      HepRelVertex equivVertex = mapDigestToVertex.get(rel.getRelDigest());
       if (equivVertex != null) {
         // Use existing vertex.
         return equivVertex;
@@ -832,13 +894,13 @@ private void updateVertex(HepRelVertex vertex, RelNode rel) {
       // reachable from here.
       notifyDiscard(vertex.getCurrentRel());
     }
-    String oldDigest = vertex.getCurrentRel().toString();
-    if (mapDigestToVertex.get(oldDigest) == vertex) {
-      mapDigestToVertex.remove(oldDigest);
-    }
-    String newDigest = rel.recomputeDigest();
-    if (mapDigestToVertex.get(newDigest) == null) {
-      mapDigestToVertex.put(newDigest, vertex);
+    // Leave the entry for the vertex's old rel, if any. The old rel is
+    // equivalent to the new one, so if we see it again, we can use this
+    // vertex.
+    rel.clearDigest();
+    final RelDigest newKey = rel.getRelDigest();
+    if (mapDigestToVertex.get(newKey) == null) {
+      mapDigestToVertex.put(newKey, vertex);
     } else {
       // REVIEW jvs 5-Apr-2006:  Could this lead us to
       // miss common subexpressions?  When called from
@@ -847,6 +909,7 @@ private void updateVertex(HepRelVertex vertex, RelNode rel) {
     }
     if (rel != vertex.getCurrentRel()) {
       vertex.replaceRel(rel);
+      vertex.clearFixpoints();
     }
     notifyEquivalence(
         rel,
@@ -870,7 +933,7 @@ private RelNode buildFinalPlan(HepRelVertex vertex) {
       }
       child = buildFinalPlan((HepRelVertex) child);
       rel.replaceInput(i, child);
-      rel.recomputeDigest();
+      rel.clearDigest();
     }
 
     return rel;
@@ -909,7 +972,7 @@ private void collectGarbage() {
     graphSizeLastGC = graph.vertexSet().size();
 
     // Clean up digest map too.
-    Iterator<Map.Entry<String, HepRelVertex>> digestIter =
+    Iterator<Map.Entry<RelDigest, HepRelVertex>> digestIter =
         mapDigestToVertex.entrySet().iterator();
     while (digestIter.hasNext()) {
       HepRelVertex vertex = digestIter.next().getValue();
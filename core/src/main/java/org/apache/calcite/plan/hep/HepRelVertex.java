@@ -18,6 +18,7 @@
 
 import org.apache.calcite.plan.RelOptCost;
 import org.apache.calcite.plan.RelOptPlanner;
+import org.apache.calcite.plan.RelOptRule;
 import org.apache.calcite.plan.RelTraitSet;
 import org.apache.calcite.rel.AbstractRelNode;
 import org.apache.calcite.rel.RelNode;
@@ -25,7 +26,9 @@
 import org.apache.calcite.rel.metadata.RelMetadataQuery;
 import org.apache.calcite.rel.type.RelDataType;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * HepRelVertex wraps a real {@link RelNode} as a vertex in a DAG representing
@@ -39,6 +42,12 @@ public class HepRelVertex extends AbstractRelNode {
    */
   private RelNode currentRel;
 
+  /**
+   * Rules that have been applied to this vertex without effect since the
+   * vertex, or one of its descendants, last changed.
+   */
+  private final Set<RelOptRule> fixpointRules = new HashSet<>();
+
   //~ Constructors -----------------------------------------------------------
 
   HepRelVertex(RelNode rel) {
@@ -88,6 +97,22 @@ void replaceRel(RelNode newRel) {
     currentRel = newRel;
   }
 
+  /** Returns whether a rule is known to have no effect on this vertex. */
+  boolean isFixpoint(RelOptRule rule) {
+    return fixpointRules.contains(rule);
+  }
+
+  /** Records that a rule has had no effect on this vertex. */
+  void addFixpoint(RelOptRule rule) {
+    fixpointRules.add(rule);
+  }
+
+  /** Forgets which rules have had no effect on this vertex, because it or one
+   * of its descendants has changed. */
+  void clearFixpoints() {
+    fixpointRules.clear();
+  }
+
   /**
    * @return current implementation chosen for this vertex
    */
@@ -23,6 +23,8 @@
 import org.apache.calcite.plan.Context;
 import org.apache.calcite.plan.Convention;
 import org.apache.calcite.plan.ConventionTraitDef;
+import org.apache.calcite.plan.MulticastRelOptListener;
+import org.apache.calcite.plan.RelOptCluster;
 import org.apache.calcite.plan.RelOptCost;
 import org.apache.calcite.plan.RelOptCostFactory;
 import org.apache.calcite.plan.RelOptLattice;
@@ -40,8 +42,10 @@
 import org.apache.calcite.plan.RelTraitDef;
 import org.apache.calcite.plan.RelTraitSet;
 import org.apache.calcite.prepare.CalcitePrepareImpl;
+import org.apache.calcite.rel.RelDigest;
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.RelVisitor;
+import org.apache.calcite.rel.SingleRel;
 import org.apache.calcite.rel.convert.Converter;
 import org.apache.calcite.rel.convert.ConverterRule;
 import org.apache.calcite.rel.metadata.JaninoRelMetadataProvider;
@@ -58,14 +62,15 @@
 import org.apache.calcite.rel.rules.SemiJoinRule;
 import org.apache.calcite.rel.rules.SortRemoveRule;
 import org.apache.calcite.rel.rules.UnionToDistinctRule;
-import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.runtime.Hook;
 import org.apache.calcite.sql.SqlExplainLevel;
+import org.apache.calcite.util.ControlFlowException;
 import org.apache.calcite.util.Litmus;
 import org.apache.calcite.util.Pair;
 import org.apache.calcite.util.SaffronProperties;
 import org.apache.calcite.util.Util;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.LinkedListMultimap;
@@ -75,6 +80,7 @@
 import com.google.common.collect.Ordering;
 import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
@@ -91,6 +97,14 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -131,6 +145,48 @@ public class VolcanoPlanner extends AbstractRelOptPlanner {
    */
   protected boolean impatient = false;
 
+  /**
+   * Maximum time, in milliseconds, to spend in each planning phase, or 0 if
+   * there is no limit.
+   *
+   * @see #setPhaseBudget(long, int)
+   */
+  private long phaseTimeoutMillis;
+
+  /**
+   * Maximum number of rules to fire in each planning phase, or 0 if there
+   * is no limit.
+   *
+   * @see #setPhaseBudget(long, int)
+   */
+  private int phaseRuleLimit;
+
+  private final List<VolcanoPlannerPhaseListener> phaseListeners =
+      new ArrayList<>();
+
+  /**
+   * Number of rule matches to evaluate at a time, each on its own thread;
+   * 1 means fire rules one at a time on the planner's thread.
+   *
+   * @see #setParallelism(int, boolean)
+   */
+  private int parallelism = 1;
+
+  /**
+   * Whether, when firing rules in parallel, to register results in the order
+   * that matches were taken from the queue.
+   *
+   * @see #setParallelism(int, boolean)
+   */
+  private boolean deterministic = true;
+
+  /** Runs rule calls when {@link #parallelism} &gt; 1. Created on demand. */
+  private ExecutorService executor;
+
+  /** Rule call that the current thread is evaluating, if it is a worker
+   * thread; see {@link VolcanoRuleCall#evaluate()}. */
+  final ThreadLocal<VolcanoRuleCall> parallelCall = new ThreadLocal<>();
+
   /**
    * Operands that apply to a given class of {@link RelNode}.
    *
@@ -147,16 +203,15 @@ public class VolcanoPlanner extends AbstractRelOptPlanner {
   final List<RelSet> allSets = new ArrayList<>();
 
   /**
-   * Canonical map from {@link String digest} to the unique
+   * Canonical map from {@link RelDigest digest} to the unique
    * {@link RelNode relational expression} with that digest.
    *
-   * <p>Row type is part of the key for the rare occasion that similar
+   * <p>Row type is part of the digest for the rare occasion that similar
    * expressions have different types, e.g. variants of
    * {@code Project(child=rel#1, a=null)} where a is a null INTEGER or a
    * null VARCHAR(10).
    */
-  private final Map<Pair<String, RelDataType>, RelNode> mapDigestToRel =
-      new HashMap<>();
+  private final Map<RelDigest, RelNode> mapDigestToRel = new HashMap<>();
 
   /**
    * Map each registered expression ({@link RelNode}) to its equivalence set
@@ -277,6 +332,7 @@ public VolcanoPlanner(RelOptCostFactory costFactory, //
     super(costFactory == null ? VolcanoCost.FACTORY : costFactory, //
         externalContext);
     this.zeroCost = this.costFactory.makeZeroCost();
+    attachThreadProfiler();
   }
 
   //~ Methods ----------------------------------------------------------------
@@ -448,6 +504,7 @@ public List<RelOptRule> getRules() {
   }
 
   public boolean addRule(RelOptRule rule) {
+    checkPlannerThread();
     if (locked) {
       return false;
     }
@@ -496,6 +553,7 @@ public boolean addRule(RelOptRule rule) {
   }
 
   public boolean removeRule(RelOptRule rule) {
+    checkPlannerThread();
     if (!ruleSet.remove(rule)) {
       // Rule was not present.
       return false;
@@ -545,6 +603,20 @@ public RelNode changeTraits(final RelNode rel, RelTraitSet toTraits) {
     assert !rel.getTraitSet().equals(toTraits);
     assert toTraits.allSimple();
 
+    if (parallelism > 1 && parallelCall.get() != null) {
+      // We are on a worker thread, and cannot create a subset. If the subset
+      // exists, use it; otherwise create a placeholder, which we will
+      // replace when we register the rule's results.
+      if (rel instanceof RelSubset) {
+        final RelSubset subset =
+            ((RelSubset) rel).set.getSubset(toTraits.simplify());
+        if (subset != null) {
+          return subset;
+        }
+      }
+      return new DeferredConversion(rel.getCluster(), toTraits, rel);
+    }
+
     RelSubset rel2 = ensureRegistered(rel, null);
     if (rel2.getTraitSet().equals(toTraits)) {
       return rel2;
@@ -599,6 +671,12 @@ public RelNode findBestExp() {
       int firstFiniteTick = -1;
       int splitCount = 0;
       int giveUpTick = Integer.MAX_VALUE;
+      int ruleCount = 0;
+      boolean budgetExhausted = false;
+      final long startNanos = System.nanoTime();
+      final long deadlineNanos = phaseTimeoutMillis > 0
+          ? startNanos + TimeUnit.MILLISECONDS.toNanos(phaseTimeoutMillis)
+          : Long.MAX_VALUE;
 
       while (true) {
         ++tick;
@@ -638,16 +716,37 @@ public RelNode findBestExp() {
           injectImportanceBoost();
         }
 
+        if (!root.bestCost.isInfinite()
+            && (phaseRuleLimit > 0 && ruleCount >= phaseRuleLimit
+                || deadlineNanos != Long.MAX_VALUE
+                    && System.nanoTime() - deadlineNanos > 0)) {
+          // We have used up this phase's budget, and we have a complete
+          // plan. Take the current best.
+          LOGGER.debug("Planner budget exhausted; PHASE = {}; RULES = {}",
+              phase, ruleCount);
+          budgetExhausted = true;
+          break;
+        }
+
         LOGGER.debug("PLANNER = {}; TICK = {}/{}; PHASE = {}; COST = {}",
             this, cumulativeTicks, tick, phase.toString(), root.bestCost);
 
-        VolcanoRuleMatch match = ruleQueue.popMatch(phase);
-        if (match == null) {
-          break;
-        }
+        if (parallelism > 1) {
+          final int matchCount = fireRulesInParallel(phase);
+          if (matchCount == 0) {
+            break;
+          }
+          ruleCount += matchCount;
+        } else {
+          VolcanoRuleMatch match = ruleQueue.popMatch(phase);
+          if (match == null) {
+            break;
+          }
 
-        assert match.getRule().matches(match);
-        match.onMatch();
+          assert match.getRule().matches(match);
+          match.onMatch();
+          ++ruleCount;
+        }
 
         // The root may have been merged with another
         // subset. Find the new root subset.
@@ -655,6 +754,14 @@ public RelNode findBestExp() {
       }
 
       ruleQueue.phaseCompleted(phase);
+      if (!phaseListeners.isEmpty()) {
+        firePhaseCompleted(phase, ruleCount, budgetExhausted,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+      }
+    }
+    if (executor != null) {
+      executor.shutdown();
+      executor = null;
     }
     if (LOGGER.isTraceEnabled()) {
       StringWriter sw = new StringWriter();
@@ -673,6 +780,198 @@ public RelNode findBestExp() {
     return cheapest;
   }
 
+  /**
+   * Takes up to {@link #parallelism} matches from the queue, evaluates them
+   * on worker threads, then registers their results.
+   *
+   * @return Number of matches taken from the queue; 0 if the queue is empty
+   */
+  private int fireRulesInParallel(VolcanoPlannerPhase phase) {
+    final List<VolcanoRuleMatch> matches = new ArrayList<>();
+    while (matches.size() < parallelism) {
+      final VolcanoRuleMatch match = ruleQueue.popMatch(phase);
+      if (match == null) {
+        break;
+      }
+      assert match.getRule().matches(match);
+      matches.add(match);
+    }
+    if (matches.size() <= 1) {
+      // Not worth the overhead of another thread.
+      for (VolcanoRuleMatch match : matches) {
+        match.onMatch();
+      }
+      return matches.size();
+    }
+
+    if (executor == null) {
+      final ThreadPoolExecutor threadPool =
+          new ThreadPoolExecutor(parallelism, parallelism, 1L,
+              TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+              new ThreadFactoryBuilder()
+                  .setDaemon(true)
+                  .setNameFormat("volcano-planner-%d")
+                  .build());
+      threadPool.allowCoreThreadTimeOut(true);
+      executor = threadPool;
+    }
+    final Set<RelOptCluster> clusters =
+        Collections.newSetFromMap(new IdentityHashMap<RelOptCluster, Boolean>());
+    for (VolcanoRuleMatch match : matches) {
+      clusters.add(match.rels[0].getCluster());
+    }
+    for (RelOptCluster cluster : clusters) {
+      cluster.setMultiThreaded(true);
+    }
+    final JaninoRelMetadataProvider metadataProvider =
+        RelMetadataQuery.THREAD_PROVIDERS.get();
+    final CompletionService<VolcanoRuleMatch> completionService =
+        new ExecutorCompletionService<>(executor);
+    List<VolcanoRuleMatch> commitOrder = matches;
+    try {
+      for (final VolcanoRuleMatch match : matches) {
+        completionService.submit(
+            new Callable<VolcanoRuleMatch>() {
+              public VolcanoRuleMatch call() {
+                RelMetadataQuery.THREAD_PROVIDERS.set(metadataProvider);
+                try {
+                  match.evaluate();
+                } finally {
+                  RelMetadataQuery.THREAD_PROVIDERS.remove();
+                }
+                return match;
+              }
+            });
+      }
+      final List<VolcanoRuleMatch> completed = new ArrayList<>();
+      for (int i = 0; i < matches.size(); i++) {
+        completed.add(completionService.take().get());
+      }
+      if (!deterministic) {
+        commitOrder = completed;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    } finally {
+      for (RelOptCluster cluster : clusters) {
+        cluster.setMultiThreaded(false);
+      }
+    }
+
+    // Now that no other thread is using the planner, register the results.
+    for (VolcanoRuleMatch match : commitOrder) {
+      match.commit();
+    }
+    return matches.size();
+  }
+
+  /** Throws if the current thread is a worker evaluating a rule call. Such
+   * a thread must not modify the planner; the call will be fired again on
+   * the planner's thread. */
+  private void checkPlannerThread() {
+    if (parallelism > 1 && parallelCall.get() != null) {
+      throw PlannerThreadRequired.INSTANCE;
+    }
+  }
+
+  /**
+   * Replaces the placeholders that {@link #changeTraits} created while rules
+   * were running on worker threads with the subsets that they stand for.
+   */
+  RelNode resolveDeferred(RelNode rel) {
+    if (rel instanceof DeferredConversion) {
+      final RelNode input =
+          resolveDeferred(((DeferredConversion) rel).getInput());
+      final RelTraitSet traitSet = rel.getTraitSet();
+      return input.getTraitSet().equals(traitSet)
+          ? input
+          : changeTraits(input, traitSet);
+    }
+    if (rel instanceof RelSubset) {
+      return rel;
+    }
+    final List<RelNode> inputs = rel.getInputs();
+    for (int i = 0; i < inputs.size(); i++) {
+      final RelNode input = inputs.get(i);
+      final RelNode newInput = resolveDeferred(input);
+      if (newInput != input) {
+        rel.replaceInput(i, newInput);
+      }
+    }
+    return rel;
+  }
+
+  private void firePhaseCompleted(VolcanoPlannerPhase phase, int ruleCount,
+      boolean budgetExhausted, long elapsedMillis) {
+    int subsetCount = 0;
+    for (RelSet set : allSets) {
+      subsetCount += set.subsets.size();
+    }
+    final VolcanoPlannerPhaseListener.PhaseStatistics statistics =
+        new VolcanoPlannerPhaseListener.PhaseStatistics(phase, ruleCount,
+            allSets.size(), subsetCount, elapsedMillis, budgetExhausted,
+            root.bestCost);
+    for (VolcanoPlannerPhaseListener listener : phaseListeners) {
+      listener.phaseCompleted(statistics);
+    }
+  }
+
+  /**
+   * Sets a budget for each planning phase.
+   *
+   * <p>When a phase has run for longer than {@code timeoutMillis}, or has
+   * fired {@code ruleLimit} rules, the planner stops firing rules in that
+   * phase as soon as it has a complete plan, and continues with the cheapest
+   * plan found so far. A value of 0 means no limit.
+   *
+   * @param timeoutMillis Maximum time per phase, in milliseconds
+   * @param ruleLimit     Maximum number of rules fired per phase
+   */
+  public void setPhaseBudget(long timeoutMillis, int ruleLimit) {
+    Preconditions.checkArgument(timeoutMillis >= 0);
+    Preconditions.checkArgument(ruleLimit >= 0);
+    this.phaseTimeoutMillis = timeoutMillis;
+    this.phaseRuleLimit = ruleLimit;
+  }
+
+  /**
+   * Sets how many rule matches the planner may evaluate at the same time.
+   *
+   * <p>If {@code parallelism} is greater than 1, the planner takes up to that
+   * many matches from the queue at a time and calls each rule's
+   * {@link RelOptRule#onMatch} on a separate thread. While rules are running,
+   * the planner's graph does not change: a rule's results, and any subsets
+   * it asks for via {@link #changeTraits}, are saved and registered
+   * afterwards on the planner's thread. A rule that needs to modify the
+   * planner directly (for example, by calling {@link #register}) is fired
+   * again on the planner's thread.
+   *
+   * <p>Because rules in the same batch do not see each other's results, the
+   * planner may explore the space in a different order than when
+   * {@code parallelism} is 1.
+   *
+   * @param parallelism   Number of matches to evaluate at a time
+   * @param deterministic Whether to register results in the order that
+   *                      matches were taken from the queue, so that
+   *                      planning is reproducible; if false, results are
+   *                      registered in the order that rules finish
+   */
+  public void setParallelism(int parallelism, boolean deterministic) {
+    Preconditions.checkArgument(parallelism >= 1,
+        "parallelism must be positive");
+    this.parallelism = parallelism;
+    this.deterministic = deterministic;
+  }
+
+  /** Adds a listener that is notified, with statistics, at the end of each
+   * planning phase. */
+  public void addPhaseListener(VolcanoPlannerPhaseListener listener) {
+    phaseListeners.add(Preconditions.checkNotNull(listener));
+  }
+
   /** Informs {@link JaninoRelMetadataProvider} about the different kinds of
    * {@link RelNode} that we will be dealing with. It will reduce the number
    * of times that we need to re-generate the provider. */
@@ -847,6 +1146,7 @@ private void clearImportanceBoost() {
   public RelSubset register(
       RelNode rel,
       RelNode equivRel) {
+    checkPlannerThread();
     assert !isRegistered(rel) : "pre: isRegistered(rel)";
     final RelSet set;
     if (equivRel == null) {
@@ -875,6 +1175,7 @@ public RelSubset ensureRegistered(RelNode rel, RelNode equivRel) {
       if (equivRel != null) {
         final RelSubset equivSubset = getSubset(equivRel);
         if (subset.set != equivSubset.set) {
+          checkPlannerThread();
           merge(equivSubset.set, subset.set);
         }
       }
@@ -937,6 +1238,10 @@ public void registerAbstractRelationalRules() {
   }
 
   public void registerSchema(RelOptSchema schema) {
+    if (registeredSchemas.contains(schema)) {
+      return;
+    }
+    checkPlannerThread();
     if (registeredSchemas.add(schema)) {
       try {
         schema.registerRules(this);
@@ -1158,6 +1463,12 @@ void checkForSatisfiedConverters(
   public void setImportance(RelNode rel, double importance) {
     assert rel != null;
     if (importance == 0d) {
+      final VolcanoRuleCall call =
+          parallelism > 1 ? parallelCall.get() : null;
+      if (call != null) {
+        call.deferImportance(rel, importance);
+        return;
+      }
       relImportances.put(rel, importance);
     }
   }
@@ -1230,11 +1541,6 @@ public int compare(
     pw.println();
   }
 
-  /** Computes the key for {@link #mapDigestToRel}. */
-  private static Pair<String, RelDataType> key(RelNode rel) {
-    return Pair.of(rel.getDigest(), rel.getRowType());
-  }
-
   /**
    * Re-computes the digest of a {@link RelNode}.
    *
@@ -1245,15 +1551,13 @@ private static Pair<String, RelDataType> key(RelNode rel) {
    * @param rel Relational expression
    */
   void rename(RelNode rel) {
-    final String oldDigest = rel.getDigest();
+    final RelDigest oldKey = rel.getRelDigest();
     if (fixUpInputs(rel)) {
-      final Pair<String, RelDataType> oldKey =
-          Pair.of(oldDigest, rel.getRowType());
       final RelNode removed = mapDigestToRel.remove(oldKey);
       assert removed == rel;
-      final String newDigest = rel.recomputeDigest();
-      LOGGER.trace("Rename #{} from '{}' to '{}'", rel.getId(), oldDigest, newDigest);
-      final Pair<String, RelDataType> key = key(rel);
+      rel.clearDigest();
+      final RelDigest key = rel.getRelDigest();
+      LOGGER.trace("Rename #{} to '{}'", rel.getId(), key);
       final RelNode equivRel = mapDigestToRel.put(key, rel);
       if (equivRel != null) {
         assert equivRel != rel;
@@ -1305,7 +1609,7 @@ void reregister(
     // Is there an equivalent relational expression? (This might have
     // just occurred because the relational expression's child was just
     // found to be equivalent to another set.)
-    final Pair<String, RelDataType> key = key(rel);
+    final RelDigest key = rel.getRelDigest();
     RelNode equivRel = mapDigestToRel.get(key);
     if (equivRel != null && equivRel != rel) {
       assert equivRel.getClass() == rel.getClass();
@@ -1353,6 +1657,7 @@ void fireRules(
       boolean deferred) {
     for (RelOptRuleOperand operand : classOperands.get(rel.getClass())) {
       if (operand.matches(rel)) {
+        notifyMatchAttempt(operand.getRule());
         final VolcanoRuleCall ruleCall;
         if (deferred) {
           ruleCall = new DeferringRuleCall(this, operand);
@@ -1510,7 +1815,7 @@ private RelSubset registerImpl(
 
     // If it is equivalent to an existing expression, return the set that
     // the equivalent expression belongs to.
-    Pair<String, RelDataType> key = key(rel);
+    RelDigest key = rel.getRelDigest();
     RelNode equivExp = mapDigestToRel.get(key);
     if (equivExp == null) {
       // do nothing
@@ -1536,9 +1841,12 @@ private RelSubset registerImpl(
       if ((set != null)
           && (set != childSet)
           && (set.equivalentSet == null)) {
-        LOGGER.trace(
-            "Register #{} {} (and merge sets, because it is a conversion)",
-            rel.getId(), rel.getDigest());
+        if (LOGGER.isTraceEnabled()) {
+          // Only build the digest string if it will be logged
+          LOGGER.trace(
+              "Register #{} {} (and merge sets, because it is a conversion)",
+              rel.getId(), rel.getDigest());
+        }
         merge(set, childSet);
         registerCount++;
 
@@ -1547,8 +1855,8 @@ private RelSubset registerImpl(
         // check whether we are now equivalent to an existing
         // expression.
         if (fixUpInputs(rel)) {
-          rel.recomputeDigest();
-          key = key(rel);
+          rel.clearDigest();
+          key = rel.getRelDigest();
           RelNode equivRel = mapDigestToRel.get(key);
           if ((equivRel != rel) && (equivRel != null)) {
             // make sure this bad rel didn't get into the
@@ -1672,12 +1980,15 @@ private RelSubset registerSubset(
 
   // implement RelOptPlanner
   public void addListener(RelOptListener newListener) {
-    // TODO jvs 6-Apr-2006:  new superclass AbstractRelOptPlanner
-    // now defines a multicast listener; just need to hook it in
-    if (listener != null) {
-      throw Util.needToImplement("multiple VolcanoPlanner listeners");
+    if (listener == null) {
+      listener = newListener;
+      return;
     }
-    listener = newListener;
+    final MulticastRelOptListener multicastListener =
+        new MulticastRelOptListener();
+    multicastListener.addListener(listener);
+    multicastListener.addListener(newListener);
+    listener = multicastListener;
   }
 
   // implement RelOptPlanner
@@ -1770,6 +2081,31 @@ public void ensureRegistered(
 
   //~ Inner Classes ----------------------------------------------------------
 
+  /**
+   * Placeholder for the result of {@link #changeTraits} called on a worker
+   * thread. Has the desired traits and the row type of its input. The
+   * planner replaces it, before registering a rule's results, with the
+   * subset of the input's set that has the desired traits.
+   */
+  static class DeferredConversion extends SingleRel {
+    DeferredConversion(RelOptCluster cluster, RelTraitSet traitSet,
+        RelNode input) {
+      super(cluster, traitSet, input);
+    }
+
+    @Override public RelNode copy(RelTraitSet traitSet, List<RelNode> inputs) {
+      return new DeferredConversion(getCluster(), traitSet, sole(inputs));
+    }
+  }
+
+  /**
+   * Thrown when a rule running on a worker thread tries to modify the
+   * planner. The planner then fires the rule on its own thread.
+   */
+  private static class PlannerThreadRequired extends ControlFlowException {
+    static final PlannerThreadRequired INSTANCE = new PlannerThreadRequired();
+  }
+
   /**
    * A rule call which defers its actions. Whereas {@link RelOptRuleCall}
    * invokes the rule when it finds a match, a <code>DeferringRuleCall</code>
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.plan.volcano;
+
+import org.apache.calcite.plan.RelOptCost;
+
+/**
+ * Listener that is notified each time a {@link VolcanoPlanner} completes a
+ * planning phase.
+ *
+ * @see VolcanoPlanner#addPhaseListener(VolcanoPlannerPhaseListener)
+ */
+public interface VolcanoPlannerPhaseListener {
+  /** Called when the planner has completed a phase. */
+  void phaseCompleted(PhaseStatistics statistics);
+
+  /** Statistics about a planning phase. */
+  class PhaseStatistics {
+    public final VolcanoPlannerPhase phase;
+    /** Number of rules fired during the phase. */
+    public final int ruleCount;
+    /** Number of equivalence sets at the end of the phase. */
+    public final int setCount;
+    /** Number of subsets at the end of the phase. */
+    public final int subsetCount;
+    /** Time spent in the phase, in milliseconds. */
+    public final long elapsedMillis;
+    /** Whether the planner stopped firing rules because the phase's time or
+     * rule budget was exhausted, rather than because there were no more
+     * rules to fire or the cost stopped improving. */
+    public final boolean budgetExhausted;
+    /** Cost of the best plan at the end of the phase; infinite if there is no
+     * complete plan. */
+    public final RelOptCost bestCost;
+
+    public PhaseStatistics(VolcanoPlannerPhase phase, int ruleCount,
+        int setCount, int subsetCount, long elapsedMillis,
+        boolean budgetExhausted, RelOptCost bestCost) {
+      this.phase = phase;
+      this.ruleCount = ruleCount;
+      this.setCount = setCount;
+      this.subsetCount = subsetCount;
+      this.elapsedMillis = elapsedMillis;
+      this.budgetExhausted = budgetExhausted;
+      this.bestCost = bestCost;
+    }
+
+    @Override public String toString() {
+      return "PhaseStatistics(phase: " + phase
+          + ", rules: " + ruleCount
+          + ", sets: " + setCount
+          + ", subsets: " + subsetCount
+          + ", millis: " + elapsedMillis
+          + ", budgetExhausted: " + budgetExhausted
+          + ", bestCost: " + bestCost
+          + ")";
+    }
+  }
+}
+
+// End VolcanoPlannerPhaseListener.java
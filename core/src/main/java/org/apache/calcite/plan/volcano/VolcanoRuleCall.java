@@ -16,12 +16,15 @@
  */
 package org.apache.calcite.plan.volcano;
 
+import org.apache.calcite.plan.RelOptCluster;
 import org.apache.calcite.plan.RelOptListener;
 import org.apache.calcite.plan.RelOptRuleCall;
 import org.apache.calcite.plan.RelOptRuleOperand;
 import org.apache.calcite.plan.RelTraitPropagationVisitor;
 import org.apache.calcite.plan.RelTraitSet;
 import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.calcite.util.Pair;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -30,6 +33,7 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -47,6 +51,17 @@ public class VolcanoRuleCall extends RelOptRuleCall {
    */
   private List<RelNode> generatedRelList;
 
+  /**
+   * Results of {@link #transformTo} while this call is being evaluated on a
+   * worker thread, waiting for {@link #commit()}; otherwise null.
+   */
+  private List<Pair<RelNode, Map<RelNode, RelNode>>> deferredResults;
+
+  /**
+   * Importances set by the rule while being evaluated on a worker thread.
+   */
+  private Map<RelNode, Double> deferredImportances;
+
   //~ Constructors -----------------------------------------------------------
 
   /**
@@ -87,6 +102,11 @@ protected VolcanoRuleCall(
 
   // implement RelOptRuleCall
   public void transformTo(RelNode rel, Map<RelNode, RelNode> equiv) {
+    if (deferredResults != null) {
+      // We are running on a worker thread; see evaluate().
+      deferredResults.add(Pair.of(rel, equiv));
+      return;
+    }
     if (LOGGER.isDebugEnabled()) {
       LOGGER.debug("Transform to: rel#{} via {}{}", rel.getId(), getRule(),
           equiv.isEmpty() ? "" : " with equivalences " + equiv);
@@ -157,53 +177,17 @@ protected void onMatch() {
     assert getRule().matches(this);
     volcanoPlanner.checkCancel();
     try {
-      if (volcanoPlanner.isRuleExcluded(getRule())) {
-        LOGGER.debug("Rule [{}] not fired due to exclusion filter", getRule());
+      if (!canFire()) {
         return;
       }
 
-      for (int i = 0; i < rels.length; i++) {
-        RelNode rel = rels[i];
-        RelSubset subset = volcanoPlanner.getSubset(rel);
-
-        if (subset == null) {
-          LOGGER.debug(
-              "Rule [{}] not fired because operand #{} ({}) has no subset",
-              getRule(), i, rel);
-          return;
-        }
-
-        if (subset.set.equivalentSet != null) {
-          LOGGER.debug(
-              "Rule [{}] not fired because operand #{} ({}) belongs to obsolete set",
-              getRule(), i, rel);
-          return;
-        }
-
-        final Double importance =
-            volcanoPlanner.relImportances.get(rel);
-        if ((importance != null) && (importance == 0d)) {
-          LOGGER.debug("Rule [{}] not fired because operand #{} ({}) has importance=0",
-              getRule(), i, rel);
-          return;
-        }
-      }
-
       if (LOGGER.isDebugEnabled()) {
         LOGGER.debug(
             "call#{}: Apply rule [{}] to {}",
             id, getRule(), Arrays.toString(rels));
       }
 
-      if (volcanoPlanner.listener != null) {
-        RelOptListener.RuleAttemptedEvent event =
-            new RelOptListener.RuleAttemptedEvent(
-                volcanoPlanner,
-                rels[0],
-                this,
-                true);
-        volcanoPlanner.listener.ruleAttempted(event);
-      }
+      notifyAttempted(true);
 
       if (LOGGER.isDebugEnabled()) {
         this.generatedRelList = new ArrayList<>();
@@ -222,21 +206,137 @@ protected void onMatch() {
         this.generatedRelList = null;
       }
 
-      if (volcanoPlanner.listener != null) {
-        RelOptListener.RuleAttemptedEvent event =
-            new RelOptListener.RuleAttemptedEvent(
-                volcanoPlanner,
-                rels[0],
-                this,
-                false);
-        volcanoPlanner.listener.ruleAttempted(event);
+      notifyAttempted(false);
+    } catch (Exception e) {
+      throw new RuntimeException("Error while applying rule " + getRule()
+          + ", args " + Arrays.toString(rels), e);
+    }
+  }
+
+  /**
+   * Returns whether this rule call may fire: that is, the rule is not
+   * excluded, and each operand is registered, belongs to a live set and does
+   * not have zero importance.
+   */
+  private boolean canFire() {
+    if (volcanoPlanner.isRuleExcluded(getRule())) {
+      LOGGER.debug("Rule [{}] not fired due to exclusion filter", getRule());
+      return false;
+    }
+
+    for (int i = 0; i < rels.length; i++) {
+      RelNode rel = rels[i];
+      RelSubset subset = volcanoPlanner.getSubset(rel);
+
+      if (subset == null) {
+        LOGGER.debug(
+            "Rule [{}] not fired because operand #{} ({}) has no subset",
+            getRule(), i, rel);
+        return false;
+      }
+
+      if (subset.set.equivalentSet != null) {
+        LOGGER.debug(
+            "Rule [{}] not fired because operand #{} ({}) belongs to obsolete set",
+            getRule(), i, rel);
+        return false;
+      }
+
+      final Double importance =
+          volcanoPlanner.relImportances.get(rel);
+      if ((importance != null) && (importance == 0d)) {
+        LOGGER.debug("Rule [{}] not fired because operand #{} ({}) has importance=0",
+            getRule(), i, rel);
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void notifyAttempted(boolean before) {
+    if (volcanoPlanner.listener != null) {
+      RelOptListener.RuleAttemptedEvent event =
+          new RelOptListener.RuleAttemptedEvent(
+              volcanoPlanner,
+              rels[0],
+              this,
+              before);
+      volcanoPlanner.listener.ruleAttempted(event);
+    }
+  }
+
+  /**
+   * Calls the rule on a worker thread, when the planner is firing rules in
+   * parallel. Rather than registering the results, saves them so that
+   * {@link #commit()} can register them later on the planner's thread.
+   *
+   * <p>Never throws. If the rule fails, or needs to modify the planner,
+   * {@link #commit()} will fire it again on the planner's thread.
+   */
+  void evaluate() {
+    deferredResults = new ArrayList<>();
+    deferredImportances = new LinkedHashMap<>();
+    final RelOptCluster cluster = rels[0].getCluster();
+    cluster.setThreadMetadataQuery(RelMetadataQuery.instance());
+    volcanoPlanner.parallelCall.set(this);
+    try {
+      getRule().onMatch(this);
+    } catch (Throwable e) {
+      LOGGER.debug("call#{}: Rule {} will be fired on the planner's thread",
+          id, getRule(), e);
+      deferredResults = null;
+    } finally {
+      volcanoPlanner.parallelCall.remove();
+      cluster.setThreadMetadataQuery(null);
+    }
+  }
+
+  /**
+   * Registers the results saved by {@link #evaluate()}. Called on the
+   * planner's thread, in the order that the planner chooses.
+   */
+  void commit() {
+    final List<Pair<RelNode, Map<RelNode, RelNode>>> results =
+        deferredResults;
+    final Map<RelNode, Double> importances = deferredImportances;
+    deferredResults = null;
+    deferredImportances = null;
+    if (results == null) {
+      onMatch();
+      return;
+    }
+    volcanoPlanner.checkCancel();
+    try {
+      // Commits of earlier calls in the same batch may have merged or
+      // pruned our operands.
+      if (!canFire()) {
+        return;
+      }
+      notifyAttempted(true);
+      for (Pair<RelNode, Map<RelNode, RelNode>> result : results) {
+        final Map<RelNode, RelNode> equiv = new LinkedHashMap<>();
+        for (Map.Entry<RelNode, RelNode> entry : result.right.entrySet()) {
+          equiv.put(volcanoPlanner.resolveDeferred(entry.getKey()),
+              volcanoPlanner.resolveDeferred(entry.getValue()));
+        }
+        transformTo(volcanoPlanner.resolveDeferred(result.left), equiv);
+      }
+      for (Map.Entry<RelNode, Double> entry : importances.entrySet()) {
+        volcanoPlanner.setImportance(entry.getKey(), entry.getValue());
       }
+      notifyAttempted(false);
     } catch (Exception e) {
       throw new RuntimeException("Error while applying rule " + getRule()
           + ", args " + Arrays.toString(rels), e);
     }
   }
 
+  /** Records an importance that a rule set while being evaluated on a worker
+   * thread. */
+  void deferImportance(RelNode rel, double importance) {
+    deferredImportances.put(rel, importance);
+  }
+
   /**
    * Applies this rule, with a given relational expression in the first slot.
    */
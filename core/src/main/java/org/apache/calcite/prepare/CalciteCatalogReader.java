@@ -54,6 +54,7 @@
 import org.apache.calcite.sql.validate.SqlUserDefinedTableFunction;
 import org.apache.calcite.sql.validate.SqlUserDefinedTableMacro;
 import org.apache.calcite.sql.validate.SqlValidatorUtil;
+import org.apache.calcite.statistic.FileStatisticStore;
 import org.apache.calcite.util.Util;
 
 import com.google.common.base.Preconditions;
@@ -81,6 +82,7 @@ public class CalciteCatalogReader implements Prepare.CatalogReader {
   protected final RelDataTypeFactory typeFactory;
   private final List<List<String>> schemaPaths;
   protected final SqlNameMatcher nameMatcher;
+  private final FileStatisticStore statisticStore;
 
   public CalciteCatalogReader(CalciteSchema rootSchema, boolean caseSensitive,
       List<String> defaultSchema, RelDataTypeFactory typeFactory) {
@@ -93,6 +95,12 @@ public CalciteCatalogReader(CalciteSchema rootSchema, boolean caseSensitive,
   protected CalciteCatalogReader(CalciteSchema rootSchema,
       SqlNameMatcher nameMatcher, List<List<String>> schemaPaths,
       RelDataTypeFactory typeFactory) {
+    this(rootSchema, nameMatcher, schemaPaths, typeFactory, null);
+  }
+
+  private CalciteCatalogReader(CalciteSchema rootSchema,
+      SqlNameMatcher nameMatcher, List<List<String>> schemaPaths,
+      RelDataTypeFactory typeFactory, FileStatisticStore statisticStore) {
     this.rootSchema = Preconditions.checkNotNull(rootSchema);
     this.nameMatcher = nameMatcher;
     this.schemaPaths =
@@ -100,11 +108,22 @@ protected CalciteCatalogReader(CalciteSchema rootSchema,
             ? schemaPaths
             : new LinkedHashSet<>(schemaPaths));
     this.typeFactory = typeFactory;
+    this.statisticStore = statisticStore;
   }
 
   public CalciteCatalogReader withSchemaPath(List<String> schemaPath) {
     return new CalciteCatalogReader(rootSchema, nameMatcher,
-        ImmutableList.of(schemaPath, ImmutableList.<String>of()), typeFactory);
+        ImmutableList.of(schemaPath, ImmutableList.<String>of()), typeFactory,
+        statisticStore);
+  }
+
+  /** Returns a catalog reader whose tables use statistics from a given
+   * store, where present, in preference to those of the tables
+   * themselves. */
+  public CalciteCatalogReader withStatisticStore(
+      FileStatisticStore statisticStore) {
+    return new CalciteCatalogReader(rootSchema, nameMatcher, schemaPaths,
+        typeFactory, statisticStore);
   }
 
   public Prepare.PreparingTable getTable(final List<String> names) {
@@ -144,8 +163,15 @@ private Prepare.PreparingTable getTableFrom(List<String> names,
           return relOptTable;
         }
       }
-      return RelOptTableImpl.create(this, table.getRowType(typeFactory), entry,
-          null);
+      final RelDataType rowType = table.getRowType(typeFactory);
+      final RelOptTableImpl relOptTable =
+          RelOptTableImpl.create(this, rowType, entry, null);
+      if (statisticStore != null) {
+        return relOptTable.withStatistic(
+            statisticStore.statistic(entry.path(), rowType,
+                table.getStatistic()));
+      }
+      return relOptTable;
     }
     return null;
   }
@@ -20,6 +20,7 @@
 import org.apache.calcite.adapter.enumerable.EnumerableBindable;
 import org.apache.calcite.adapter.enumerable.EnumerableCalc;
 import org.apache.calcite.adapter.enumerable.EnumerableConvention;
+import org.apache.calcite.adapter.enumerable.EnumerableCostModel;
 import org.apache.calcite.adapter.enumerable.EnumerableInterpretable;
 import org.apache.calcite.adapter.enumerable.EnumerableInterpreterRule;
 import org.apache.calcite.adapter.enumerable.EnumerableRel;
@@ -58,6 +59,7 @@
 import org.apache.calcite.plan.RelOptCluster;
 import org.apache.calcite.plan.RelOptCostFactory;
 import org.apache.calcite.plan.RelOptPlanner;
+import org.apache.calcite.plan.RelOptProfiler;
 import org.apache.calcite.plan.RelOptRule;
 import org.apache.calcite.plan.RelOptTable;
 import org.apache.calcite.plan.RelOptUtil;
@@ -131,17 +133,25 @@
 import org.apache.calcite.sql2rel.SqlRexConvertletTable;
 import org.apache.calcite.sql2rel.SqlToRelConverter;
 import org.apache.calcite.sql2rel.StandardConvertletTable;
+import org.apache.calcite.statistic.FileStatisticStore;
 import org.apache.calcite.tools.Frameworks;
 import org.apache.calcite.util.ImmutableIntList;
 import org.apache.calcite.util.Pair;
 import org.apache.calcite.util.Util;
 
 import com.google.common.base.Supplier;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Type;
 import java.math.BigDecimal;
 import java.sql.DatabaseMetaData;
@@ -151,6 +161,7 @@
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 import static org.apache.calcite.util.Static.RESOURCE;
@@ -185,6 +196,20 @@ public class CalcitePrepareImpl implements CalcitePrepare {
   /** Whether the streaming is enabled. */
   public static final boolean ENABLE_STREAM = true;
 
+  /** Caches of prepared statements, keyed by maximum size; see
+   * {@link org.apache.calcite.config.CalciteConnectionProperty#PLAN_CACHE_MAX_SIZE}. */
+  private static final LoadingCache<Integer,
+      Cache<PlanCacheKey, CalciteSignature>> PLAN_CACHES =
+      CacheBuilder.newBuilder().build(
+          new CacheLoader<Integer, Cache<PlanCacheKey, CalciteSignature>>() {
+            public Cache<PlanCacheKey, CalciteSignature> load(Integer maxSize) {
+              return CacheBuilder.newBuilder()
+                  .maximumSize(maxSize)
+                  .recordStats()
+                  .build();
+            }
+          });
+
   private static final Set<String> SIMPLE_SQLS =
       ImmutableSet.of(
           "SELECT 1",
@@ -203,6 +228,7 @@ public class CalcitePrepareImpl implements CalcitePrepare {
           EnumerableRules.ENUMERABLE_PROJECT_RULE,
           EnumerableRules.ENUMERABLE_FILTER_RULE,
           EnumerableRules.ENUMERABLE_AGGREGATE_RULE,
+          EnumerableRules.ENUMERABLE_SORTED_AGGREGATE_RULE,
           EnumerableRules.ENUMERABLE_SORT_RULE,
           EnumerableRules.ENUMERABLE_LIMIT_RULE,
           EnumerableRules.ENUMERABLE_COLLECT_RULE,
@@ -512,6 +538,28 @@ protected RelOptPlanner createPlanner(CalcitePrepare.Context prepareContext) {
     return createPlanner(prepareContext, null, null);
   }
 
+  /** Returns the cost model specified by the
+   * {@link org.apache.calcite.config.CalciteConnectionProperty#COST_MODEL}
+   * connection property, or null. */
+  private static EnumerableCostModel costModel(
+      CalciteConnectionConfig config) {
+    final String costModel = config.costModel();
+    if (costModel == null) {
+      return null;
+    }
+    if (costModel.equals("default")) {
+      return EnumerableCostModel.DEFAULT
+          .withMemoryBudget(config.spillMemoryBudget());
+    }
+    try {
+      return EnumerableCostModel.load(new File(costModel),
+          config.spillMemoryBudget());
+    } catch (IOException e) {
+      throw new RuntimeException("Error while reading cost model "
+          + costModel, e);
+    }
+  }
+
   /** Creates a query planner and initializes it with a default set of
    * rules. */
   protected RelOptPlanner createPlanner(
@@ -521,8 +569,16 @@ protected RelOptPlanner createPlanner(
     if (externalContext == null) {
       externalContext = Contexts.of(prepareContext.config());
     }
+    final EnumerableCostModel costModel = costModel(prepareContext.config());
+    if (costModel != null && costFactory == null) {
+      costFactory = costModel.getCostFactory();
+      externalContext =
+          Contexts.chain(externalContext, Contexts.of(costModel));
+    }
     final VolcanoPlanner planner =
         new VolcanoPlanner(costFactory, externalContext);
+    planner.setPhaseBudget(prepareContext.config().plannerPhaseTimeout(),
+        prepareContext.config().plannerPhaseRuleLimit());
     planner.addRelTraitDef(ConventionTraitDef.INSTANCE);
     if (ENABLE_COLLATION_TRAIT) {
       planner.addRelTraitDef(RelCollationTraitDef.INSTANCE);
@@ -617,6 +673,60 @@ <T> CalciteSignature<T> prepare_(
     if (SIMPLE_SQLS.contains(query.sql)) {
       return simplePrepare(context, query.sql);
     }
+    final int planCacheMaxSize = context.config().planCacheMaxSize();
+    if (query.sql == null || planCacheMaxSize <= 0) {
+      return prepare3_(context, query, elementType, maxRowCount);
+    }
+    final Cache<PlanCacheKey, CalciteSignature> cache =
+        PLAN_CACHES.getUnchecked(planCacheMaxSize);
+    final CalciteSchema rootSchema = context.getRootSchema();
+    final long modificationCount = rootSchema.getModificationCount();
+    final PlanCacheKey key =
+        new PlanCacheKey(query.sql, rootSchema, modificationCount,
+            context.getDefaultSchemaPath(), context.config(), elementType,
+            enableBindable);
+    //noinspection unchecked
+    final CalciteSignature<T> cached = cache.getIfPresent(key);
+    if (cached != null) {
+      return cached.copy(maxRowCount,
+          EnumerableInterpretable.copy(cached.getBindable()));
+    }
+    final CalciteSignature<T> signature =
+        prepare3_(context, query, elementType, maxRowCount);
+    // Do not cache if the schema changed while we were preparing (for
+    // example, the statement was DDL) or if the statement has no root schema
+    // (DDL statements return a dummy signature).
+    if (signature.rootSchema != null
+        && rootSchema.getModificationCount() == modificationCount) {
+      cache.put(key, signature);
+    }
+    return signature;
+  }
+
+  /** Returns statistics (hits, misses, evictions) of the caches of prepared
+   * statements, summed over all cache sizes in use. */
+  public static CacheStats planCacheStats() {
+    CacheStats stats = new CacheStats(0, 0, 0, 0, 0, 0);
+    for (Cache<PlanCacheKey, CalciteSignature> cache
+        : PLAN_CACHES.asMap().values()) {
+      stats = stats.plus(cache.stats());
+    }
+    return stats;
+  }
+
+  /** Removes all entries from the caches of prepared statements. For
+   * testing. */
+  public static void clearPlanCaches() {
+    PLAN_CACHES.invalidateAll();
+  }
+
+  /** Prepares a statement without consulting the cache of prepared
+   * statements. */
+  private <T> CalciteSignature<T> prepare3_(
+      Context context,
+      Query<T> query,
+      Type elementType,
+      long maxRowCount) {
     final JavaTypeFactory typeFactory = context.getTypeFactory();
     CalciteCatalogReader catalogReader =
         new CalciteCatalogReader(
@@ -624,6 +734,11 @@ <T> CalciteSignature<T> prepare_(
             context.config().caseSensitive(),
             context.getDefaultSchemaPath(),
             typeFactory);
+    final String statisticsFile = context.config().statisticsFile();
+    if (statisticsFile != null) {
+      catalogReader = catalogReader.withStatisticStore(
+          FileStatisticStore.of(new File(statisticsFile)));
+    }
     final List<Function1<Context, RelOptPlanner>> plannerFactories =
         createPlannerFactories();
     if (plannerFactories.isEmpty()) {
@@ -1048,6 +1163,13 @@ public <R> R perform(CalciteServerStatement statement,
         createPlanner(prepareContext,
             action.getConfig().getContext(),
             action.getConfig().getCostFactory());
+    if (planner instanceof VolcanoPlanner
+        && (action.getConfig().getPlannerPhaseTimeout() > 0
+            || action.getConfig().getPlannerPhaseRuleLimit() > 0)) {
+      ((VolcanoPlanner) planner).setPhaseBudget(
+          action.getConfig().getPlannerPhaseTimeout(),
+          action.getConfig().getPlannerPhaseRuleLimit());
+    }
     final RelOptCluster cluster = createCluster(planner, rexBuilder);
     return action.apply(cluster, catalogReader,
         prepareContext.getRootSchema().plus(), statement);
@@ -1229,8 +1351,19 @@ protected SqlValidator createSqlValidator(CatalogReader catalogReader) {
         RelRoot root,
         SqlExplainFormat format,
         SqlExplainLevel detailLevel) {
+      return createPreparedExplanation(resultType, parameterRowType, root,
+          format, detailLevel, null);
+    }
+
+    @Override protected PreparedResult createPreparedExplanation(
+        RelDataType resultType,
+        RelDataType parameterRowType,
+        RelRoot root,
+        SqlExplainFormat format,
+        SqlExplainLevel detailLevel,
+        RelOptProfiler profiler) {
       return new CalcitePreparedExplain(resultType, parameterRowType, root,
-          format, detailLevel);
+          format, detailLevel, profiler);
     }
 
     @Override protected PreparedResult implement(RelRoot root) {
@@ -1255,7 +1388,7 @@ protected SqlValidator createSqlValidator(CatalogReader catalogReader) {
         try {
           CatalogReader.THREAD_LOCAL.set(catalogReader);
           bindable = EnumerableInterpretable.toBindable(internalParameters,
-              context.spark(), enumerable, prefer);
+              context.spark(), enumerable, prefer, context.config());
         } finally {
           CatalogReader.THREAD_LOCAL.remove();
         }
@@ -1316,8 +1449,10 @@ public CalcitePreparedExplain(
         RelDataType parameterRowType,
         RelRoot root,
         SqlExplainFormat format,
-        SqlExplainLevel detailLevel) {
-      super(resultType, parameterRowType, root, format, detailLevel);
+        SqlExplainLevel detailLevel,
+        RelOptProfiler profiler) {
+      super(resultType, parameterRowType, root, format, detailLevel,
+          profiler);
     }
 
     public Bindable getBindable(final Meta.CursorFactory cursorFactory) {
@@ -1489,6 +1624,52 @@ public RexNode parameter(ParameterExpression param) {
       throw new RuntimeException("unknown parameter " + param);
     }
   }
+
+  /** Key of an entry in the cache of prepared statements.
+   *
+   * <p>The root schema is compared by identity, together with its
+   * modification count, so that an entry becomes unreachable (and is
+   * eventually evicted) as soon as the schema changes. */
+  private static class PlanCacheKey {
+    private final String sql;
+    private final CalciteSchema rootSchema;
+    private final long modificationCount;
+    private final List<String> defaultSchemaPath;
+    private final CalciteConnectionConfig config;
+    private final Type elementType;
+    private final boolean enableBindable;
+
+    PlanCacheKey(String sql, CalciteSchema rootSchema, long modificationCount,
+        List<String> defaultSchemaPath, CalciteConnectionConfig config,
+        Type elementType, boolean enableBindable) {
+      this.sql = sql;
+      this.rootSchema = rootSchema;
+      this.modificationCount = modificationCount;
+      this.defaultSchemaPath = defaultSchemaPath;
+      this.config = config;
+      this.elementType = elementType;
+      this.enableBindable = enableBindable;
+    }
+
+    @Override public int hashCode() {
+      return Objects.hash(sql, System.identityHashCode(rootSchema),
+          modificationCount, defaultSchemaPath, config, elementType,
+          enableBindable);
+    }
+
+    @Override public boolean equals(Object obj) {
+      return obj == this
+          || obj instanceof PlanCacheKey
+          && sql.equals(((PlanCacheKey) obj).sql)
+          && rootSchema == ((PlanCacheKey) obj).rootSchema
+          && modificationCount == ((PlanCacheKey) obj).modificationCount
+          && Objects.equals(defaultSchemaPath,
+              ((PlanCacheKey) obj).defaultSchemaPath)
+          && config.equals(((PlanCacheKey) obj).config)
+          && Objects.equals(elementType, ((PlanCacheKey) obj).elementType)
+          && enableBindable == ((PlanCacheKey) obj).enableBindable;
+    }
+  }
 }
 
 // End CalcitePrepareImpl.java
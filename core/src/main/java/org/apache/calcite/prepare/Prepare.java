@@ -22,11 +22,13 @@
 import org.apache.calcite.jdbc.CalcitePrepare;
 import org.apache.calcite.jdbc.CalciteSchema;
 import org.apache.calcite.jdbc.CalciteSchema.LatticeEntry;
+import org.apache.calcite.plan.AbstractRelOptPlanner;
 import org.apache.calcite.plan.Convention;
 import org.apache.calcite.plan.RelOptCluster;
 import org.apache.calcite.plan.RelOptLattice;
 import org.apache.calcite.plan.RelOptMaterialization;
 import org.apache.calcite.plan.RelOptPlanner;
+import org.apache.calcite.plan.RelOptProfiler;
 import org.apache.calcite.plan.RelOptSchema;
 import org.apache.calcite.plan.RelOptTable;
 import org.apache.calcite.plan.RelOptUtil;
@@ -125,6 +127,21 @@ protected abstract PreparedResult createPreparedExplanation(
       SqlExplainFormat format,
       SqlExplainLevel detailLevel);
 
+  /**
+   * Creates an explanation that also reports the statistics recorded by a
+   * planner profiler. The default implementation ignores the profiler.
+   */
+  protected PreparedResult createPreparedExplanation(
+      RelDataType resultType,
+      RelDataType parameterRowType,
+      RelRoot root,
+      SqlExplainFormat format,
+      SqlExplainLevel detailLevel,
+      RelOptProfiler profiler) {
+    return createPreparedExplanation(resultType, parameterRowType, root,
+        format, detailLevel);
+  }
+
   /**
    * Optimizes a query plan.
    *
@@ -193,6 +210,21 @@ protected RelRoot optimize(RelRoot root,
     return root.withRel(rootRel4);
   }
 
+  /** Returns the profiler of the planner of a relational expression,
+   * attaching a new profiler if the planner does not have one. */
+  private static RelOptProfiler profiler(RelNode rel) {
+    final RelOptPlanner planner = rel.getCluster().getPlanner();
+    if (planner instanceof AbstractRelOptPlanner) {
+      final AbstractRelOptPlanner abstractPlanner =
+          (AbstractRelOptPlanner) planner;
+      if (abstractPlanner.getProfiler() == null) {
+        abstractPlanner.setProfiler(new RelOptProfiler());
+      }
+      return abstractPlanner.getProfiler();
+    }
+    return new RelOptProfiler();
+  }
+
   protected Program getProgram() {
     // Allow a test to override the default program.
     final Holder<Program> holder = Holder.of(null);
@@ -310,6 +342,15 @@ public PreparedResult prepareSql(
       switch (sqlExplain.getDepth()) {
       case PHYSICAL:
       default:
+        if (sqlExplain.withPlannerStatistics()) {
+          final RelOptProfiler profiler = profiler(root.rel);
+          try (TryThreadLocal.Memo ignored =
+                   RelOptProfiler.THREAD_PROFILER.push(profiler)) {
+            root = optimize(root, getMaterializations(), getLattices());
+          }
+          return createPreparedExplanation(null, parameterRowType, root,
+              sqlExplain.getFormat(), sqlExplain.getDetailLevel(), profiler);
+        }
         root = optimize(root, getMaterializations(), getLattices());
         return createPreparedExplanation(null, parameterRowType, root,
             sqlExplain.getFormat(), sqlExplain.getDetailLevel());
@@ -490,6 +531,7 @@ public final RelOptTable extend(List<RelDataTypeField> extendedFields) {
     private final RelRoot root;
     private final SqlExplainFormat format;
     private final SqlExplainLevel detailLevel;
+    private final RelOptProfiler profiler;
 
     public PreparedExplain(
         RelDataType rowType,
@@ -497,18 +539,38 @@ public PreparedExplain(
         RelRoot root,
         SqlExplainFormat format,
         SqlExplainLevel detailLevel) {
+      this(rowType, parameterRowType, root, format, detailLevel, null);
+    }
+
+    public PreparedExplain(
+        RelDataType rowType,
+        RelDataType parameterRowType,
+        RelRoot root,
+        SqlExplainFormat format,
+        SqlExplainLevel detailLevel,
+        RelOptProfiler profiler) {
       this.rowType = rowType;
       this.parameterRowType = parameterRowType;
       this.root = root;
       this.format = format;
       this.detailLevel = detailLevel;
+      this.profiler = profiler;
     }
 
     public String getCode() {
       if (root == null) {
         return RelOptUtil.dumpType(rowType);
-      } else {
-        return RelOptUtil.dumpPlan("", root.rel, format, detailLevel);
+      }
+      final String plan =
+          RelOptUtil.dumpPlan("", root.rel, format, detailLevel);
+      if (profiler == null) {
+        return plan;
+      }
+      switch (format) {
+      case JSON:
+        return plan + "\n" + profiler.toJson();
+      default:
+        return plan + "\nPlanner statistics:\n" + profiler;
       }
     }
 
@@ -42,6 +42,7 @@
 import org.apache.calcite.schema.Schema;
 import org.apache.calcite.schema.SchemaPlus;
 import org.apache.calcite.schema.Schemas;
+import org.apache.calcite.schema.Statistic;
 import org.apache.calcite.schema.StreamableTable;
 import org.apache.calcite.schema.Table;
 import org.apache.calcite.schema.TranslatableTable;
@@ -80,6 +81,11 @@ public class RelOptTableImpl extends Prepare.AbstractPreparingTable {
    * count. Now the materialized table can tell the same lie. */
   private final Double rowCount;
 
+  /** Statistics that override those of the table, or null; for example,
+   * statistics collected by
+   * {@link org.apache.calcite.statistic.StatisticsCollector}. */
+  private final Statistic statistic;
+
   private RelOptTableImpl(
       RelOptSchema schema,
       RelDataType rowType,
@@ -87,12 +93,24 @@ private RelOptTableImpl(
       Table table,
       Function<Class, Expression> expressionFunction,
       Double rowCount) {
+    this(schema, rowType, names, table, expressionFunction, rowCount, null);
+  }
+
+  private RelOptTableImpl(
+      RelOptSchema schema,
+      RelDataType rowType,
+      List<String> names,
+      Table table,
+      Function<Class, Expression> expressionFunction,
+      Double rowCount,
+      Statistic statistic) {
     this.schema = schema;
     this.rowType = Preconditions.checkNotNull(rowType);
     this.names = ImmutableList.copyOf(names);
     this.table = table; // may be null
     this.expressionFunction = expressionFunction; // may be null
     this.rowCount = rowCount; // may be null
+    this.statistic = statistic; // may be null
   }
 
   public static RelOptTableImpl create(
@@ -130,7 +148,22 @@ public static RelOptTableImpl create(RelOptSchema schema, RelDataType rowType,
    */
   public RelOptTableImpl copy(RelDataType newRowType) {
     return new RelOptTableImpl(this.schema, newRowType, this.names, this.table,
-        this.expressionFunction, this.rowCount);
+        this.expressionFunction, this.rowCount, this.statistic);
+  }
+
+  /**
+   * Creates a copy of this RelOptTable that uses the given statistics rather
+   * than those of the table.
+   */
+  public RelOptTableImpl withStatistic(Statistic statistic) {
+    return new RelOptTableImpl(this.schema, this.rowType, this.names,
+        this.table, this.expressionFunction, this.rowCount, statistic);
+  }
+
+  /** Returns the statistics of this table. Must not be called if there is
+   * no underlying table. */
+  private Statistic statistic() {
+    return statistic != null ? statistic : table.getStatistic();
   }
 
   private static Function<Class, Expression> getClassExpressionFunction(
@@ -184,6 +217,9 @@ public <T> T unwrap(Class<T> clazz) {
     if (clazz.isInstance(table)) {
       return clazz.cast(table);
     }
+    if (clazz == Statistic.class && table != null) {
+      return clazz.cast(statistic());
+    }
     if (clazz == CalciteSchema.class) {
       return clazz.cast(
           Schemas.subSchema(((CalciteCatalogReader) schema).rootSchema,
@@ -221,7 +257,7 @@ public double getRowCount() {
       return rowCount;
     }
     if (table != null) {
-      final Double rowCount = table.getStatistic().getRowCount();
+      final Double rowCount = statistic().getRowCount();
       if (rowCount != null) {
         return rowCount;
       }
@@ -266,28 +302,28 @@ public RelNode toRel(ToRelContext context) {
 
   public List<RelCollation> getCollationList() {
     if (table != null) {
-      return table.getStatistic().getCollations();
+      return statistic().getCollations();
     }
     return ImmutableList.of();
   }
 
   public RelDistribution getDistribution() {
     if (table != null) {
-      return table.getStatistic().getDistribution();
+      return statistic().getDistribution();
     }
     return RelDistributionTraitDef.INSTANCE.getDefault();
   }
 
   public boolean isKey(ImmutableBitSet columns) {
     if (table != null) {
-      return table.getStatistic().isKey(columns);
+      return statistic().isKey(columns);
     }
     return false;
   }
 
   public List<RelReferentialConstraint> getReferentialConstraints() {
     if (table != null) {
-      return table.getStatistic().getReferentialConstraints();
+      return statistic().getReferentialConstraints();
     }
     return ImmutableList.of();
   }
@@ -312,7 +348,7 @@ public List<String> getQualifiedName() {
   public SqlMonotonicity getMonotonicity(String columnName) {
     final int i = rowType.getFieldNames().indexOf(columnName);
     if (i >= 0) {
-      for (RelCollation collation : table.getStatistic().getCollations()) {
+      for (RelCollation collation : statistic().getCollations()) {
         final RelFieldCollation fieldCollation =
             collation.getFieldCollations().get(0);
         if (fieldCollation.getFieldIndex() == i) {
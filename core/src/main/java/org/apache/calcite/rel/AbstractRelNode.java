@@ -52,6 +52,7 @@
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Base class for every relational expression ({@link RelNode}).
@@ -59,18 +60,16 @@
 public abstract class AbstractRelNode implements RelNode {
   //~ Static fields/initializers ---------------------------------------------
 
-  // TODO jvs 10-Oct-2003:  Make this thread safe.  Either synchronize, or
-  // keep this per-VolcanoPlanner.
-
-  /** Generator for {@link #id} values. */
-  static int nextId = 0;
+  /** Generator for {@link #id} values. Thread-safe, because a planner may
+   * fire rules on several threads. */
+  private static final AtomicInteger NEXT_ID = new AtomicInteger();
 
   private static final Logger LOGGER = CalciteTrace.getPlannerTracer();
 
   //~ Instance fields --------------------------------------------------------
 
   /**
-   * Description, consists of id plus digest.
+   * Description, consists of id plus digest. Computed on demand if null.
    */
   private String desc;
 
@@ -83,13 +82,22 @@ public abstract class AbstractRelNode implements RelNode {
    * A short description of this relational expression's type, inputs, and
    * other properties. The string uniquely identifies the node; another node
    * is equivalent if and only if it has the same value. Computed by
-   * {@link #computeDigest}, assigned by {@link #onRegister}, returned by
-   * {@link #getDigest()}.
+   * {@link #computeDigest} when {@link #getDigest()} is first called after
+   * {@link #clearDigest()}.
+   *
+   * <p>Planners do not use this string to find equivalent nodes, but
+   * {@link #relDigest}, which is cheaper to compute.
    *
    * @see #desc
    */
   protected String digest;
 
+  /**
+   * Key by which a planner finds equivalent nodes. Computed on demand if
+   * null.
+   */
+  private RelDigest relDigest;
+
   private final RelOptCluster cluster;
 
   /**
@@ -112,9 +120,10 @@ public AbstractRelNode(RelOptCluster cluster, RelTraitSet traitSet) {
     assert cluster != null;
     this.cluster = cluster;
     this.traitSet = traitSet;
-    this.id = nextId++;
+    this.id = NEXT_ID.getAndIncrement();
     this.digest = getRelTypeName() + "#" + id;
     this.desc = digest;
+    this.relDigest = RelDigest.unique(this);
     LOGGER.trace("new {}", digest);
   }
 
@@ -349,21 +358,27 @@ public RelNode onRegister(RelOptPlanner planner) {
     if (!Util.equalShallow(oldInputs, inputs)) {
       r = copy(getTraitSet(), inputs);
     }
-    r.recomputeDigest();
+    r.clearDigest();
     assert r.isValid(Litmus.THROW, null);
     return r;
   }
 
   public String recomputeDigest() {
-    String tempDigest = computeDigest();
-    assert tempDigest != null : "post: return != null";
-    String prefix = "rel#" + id + ":";
+    clearDigest();
+    return getDigest();
+  }
 
-    // Substring uses the same underlying array of chars, so saves a bit
-    // of memory.
-    this.desc = prefix + tempDigest;
-    this.digest = this.desc.substring(prefix.length());
-    return this.digest;
+  public void clearDigest() {
+    this.desc = null;
+    this.digest = null;
+    this.relDigest = null;
+  }
+
+  public RelDigest getRelDigest() {
+    if (relDigest == null) {
+      relDigest = RelDigest.of(this);
+    }
+    return relDigest;
   }
 
   public void replaceInput(
@@ -373,17 +388,34 @@ public void replaceInput(
   }
 
   public String toString() {
-    return desc;
+    return getDescription();
   }
 
   public final String getDescription() {
+    if (desc == null) {
+      computeDescription();
+    }
     return desc;
   }
 
   public final String getDigest() {
+    if (digest == null) {
+      computeDescription();
+    }
     return digest;
   }
 
+  private void computeDescription() {
+    String tempDigest = computeDigest();
+    assert tempDigest != null : "post: return != null";
+    String prefix = "rel#" + id + ":";
+
+    // Substring uses the same underlying array of chars, so saves a bit
+    // of memory.
+    this.desc = prefix + tempDigest;
+    this.digest = this.desc.substring(prefix.length());
+  }
+
   public RelOptTable getTable() {
     return null;
   }
@@ -71,7 +71,7 @@ public void replaceInput(
     default:
       throw new IndexOutOfBoundsException("Input " + ordinalInParent);
     }
-    recomputeDigest();
+    clearDigest();
   }
 
   @Override public RelWriter explainTerms(RelWriter pw) {
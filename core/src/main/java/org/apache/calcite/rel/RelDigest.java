@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.rel;
+
+import org.apache.calcite.plan.RelTraitSet;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.sql.SqlExplainLevel;
+import org.apache.calcite.util.Pair;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Key by which a planner recognizes that two relational expressions are
+ * equivalent.
+ *
+ * <p>Two relational expressions have equal digests if they are of the same
+ * class, have the same traits and row type, have the same inputs, and have
+ * the same attributes, as printed by {@link RelNode#explain} at
+ * {@link SqlExplainLevel#DIGEST_ATTRIBUTES} level. This is the same
+ * equivalence as comparing the strings returned by
+ * {@link RelNode#getDigest()}, but the digest does not need to build a
+ * string containing the attributes of the expression. Inputs are compared
+ * by identity, and {@link RexNode} attributes by their digest, which each
+ * {@code RexNode} computes once and caches.
+ *
+ * <p>A digest is a snapshot: if the relational expression changes, for
+ * example if one of its inputs is replaced, its digest does not change until
+ * the planner calls {@link RelNode#clearDigest()} and gets a new one.
+ *
+ * <p>Until the planner first calls {@link RelNode#clearDigest()}, a
+ * relational expression's digest is equal only to itself.
+ *
+ * @see RelNode#getRelDigest()
+ */
+public final class RelDigest {
+  private final RelNode rel;
+  /** The attributes of the relational expression, or null if this digest is
+   * equal only to itself. */
+  private final List<Object> terms;
+  private final RelTraitSet traitSet;
+  private final RelDataType rowType;
+  private final int hash;
+
+  private RelDigest(RelNode rel, List<Object> terms) {
+    this.rel = rel;
+    this.terms = terms;
+    if (terms == null) {
+      this.traitSet = null;
+      this.rowType = null;
+      this.hash = System.identityHashCode(rel);
+    } else {
+      this.traitSet = rel.getTraitSet();
+      this.rowType = rel.getRowType();
+      this.hash =
+          Objects.hash(rel.getClass(), traitSet, rowType, terms);
+    }
+  }
+
+  /** Creates a digest that is equal only to itself. */
+  static RelDigest unique(RelNode rel) {
+    return new RelDigest(rel, null);
+  }
+
+  /** Creates a digest from the attributes of a relational expression. */
+  static RelDigest of(RelNode rel) {
+    final DigestWriter writer = new DigestWriter();
+    rel.explain(writer);
+    return new RelDigest(rel, writer.terms);
+  }
+
+  /** Returns the relational expression whose digest this is. */
+  public RelNode getRel() {
+    return rel;
+  }
+
+  @Override public int hashCode() {
+    return hash;
+  }
+
+  @Override public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof RelDigest)) {
+      return false;
+    }
+    final RelDigest that = (RelDigest) obj;
+    if (terms == null || that.terms == null) {
+      return rel == that.rel && terms == that.terms;
+    }
+    return hash == that.hash
+        && rel.getClass() == that.rel.getClass()
+        && traitSet.equals(that.traitSet)
+        && rowType.equals(that.rowType)
+        && terms.equals(that.terms);
+  }
+
+  @Override public String toString() {
+    return terms == null ? rel.getDescription() : rel.getDigest();
+  }
+
+  /** Converts an attribute of a relational expression into a value whose
+   * {@link Object#equals(Object)} is true when the attributes would have
+   * the same string in the digest. */
+  private static Object normalize(Object value) {
+    if (value == null
+        || value instanceof RelNode
+        || value instanceof String
+        || value instanceof Boolean
+        || value instanceof Enum) {
+      return value;
+    }
+    if (value instanceof RexNode) {
+      return value.toString();
+    }
+    if (value instanceof List) {
+      final List<Object> list = new ArrayList<>();
+      for (Object o : (List) value) {
+        list.add(normalize(o));
+      }
+      return list;
+    }
+    return value.toString();
+  }
+
+  /** Writer that collects the attributes of a relational expression, without
+   * converting them to a string. */
+  private static class DigestWriter implements RelWriter {
+    final List<Object> terms = new ArrayList<>();
+
+    public void explain(RelNode rel, List<Pair<String, Object>> valueList) {
+      for (Pair<String, Object> value : valueList) {
+        terms.add(value.left);
+        terms.add(normalize(value.right));
+      }
+    }
+
+    public SqlExplainLevel getDetailLevel() {
+      return SqlExplainLevel.DIGEST_ATTRIBUTES;
+    }
+
+    public RelWriter input(String term, RelNode input) {
+      return item(term, input);
+    }
+
+    public RelWriter item(String term, Object value) {
+      terms.add(term);
+      terms.add(normalize(value));
+      return this;
+    }
+
+    public RelWriter itemIf(String term, Object value, boolean condition) {
+      if (condition) {
+        item(term, value);
+      }
+      return this;
+    }
+
+    public RelWriter done(RelNode node) {
+      return this;
+    }
+
+    public boolean nest() {
+      return false;
+    }
+  }
+}
+
+// End RelDigest.java
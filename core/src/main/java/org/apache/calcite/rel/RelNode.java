@@ -310,6 +310,26 @@ public interface RelNode extends RelOptNode, Cloneable {
    */
   String recomputeDigest();
 
+  /**
+   * Discards this relational expression's digest and {@link RelDigest}, so
+   * that they are computed again when next needed. Call this method after
+   * changing the expression's inputs. For planner use only.
+   */
+  void clearDigest();
+
+  /**
+   * Returns the key by which a planner recognizes that this relational
+   * expression is equivalent to another. For planner use only.
+   *
+   * <p>Two relational expressions have equal keys if and only if they would
+   * have the same {@link #getDigest() digest} (and row type), but a key is
+   * cheaper to compute than a digest, especially for expressions that have
+   * many attributes.
+   *
+   * @return Key for this relational expression
+   */
+  RelDigest getRelDigest();
+
   /**
    * Replaces the <code>ordinalInParent</code><sup>th</sup> input. You must
    * override this method if you override {@link #getInputs}.
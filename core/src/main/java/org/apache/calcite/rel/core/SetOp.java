@@ -86,7 +86,7 @@ public abstract SetOp copy(
     final List<RelNode> newInputs = new ArrayList<RelNode>(inputs);
     newInputs.set(ordinalInParent, p);
     inputs = ImmutableList.copyOf(newInputs);
-    recomputeDigest();
+    clearDigest();
   }
 
   @Override public List<RelNode> getInputs() {
@@ -249,24 +249,19 @@ MetadataHandler<M> load3(MetadataDef<M> def,
           .append(" mq");
       paramList(buff, method.e)
           .append(") {\n");
-      buff.append("    final java.util.List key = ")
-          .append(
-              (method.e.getParameterTypes().length < 4
-              ? org.apache.calcite.runtime.FlatLists.class
-              : ImmutableList.class).getName())
-          .append(".of(")
-          .append(def.metadataClass.getName());
-      if (method.i == 0) {
-        buff.append(".DEF");
+      final int slot = MetadataCache.slot(method.e);
+      final String slotArgs;
+      if (method.e.getParameterTypes().length == 0) {
+        slotArgs = "r, " + slot;
       } else {
-        buff.append(".DEF.methods.get(")
-            .append(method.i)
-            .append(")");
+        slotArgs = "r, " + slot + ", key";
+        buff.append("    final Object key = ");
+        keyExpression(buff, method.e)
+            .append(";\n");
       }
-      buff.append(", r");
-      safeArgList(buff, method.e)
+      buff.append("    final Object v = mq.cache.get(")
+          .append(slotArgs)
           .append(");\n")
-          .append("    final Object v = mq.map.get(key);\n")
           .append("    if (v != null) {\n")
           .append("      if (v == ")
           .append(NullSentinel.class.getName())
@@ -279,7 +274,9 @@ MetadataHandler<M> load3(MetadataDef<M> def,
           .append(method.e.getReturnType().getName())
           .append(") v;\n")
           .append("    }\n")
-          .append("    mq.map.put(key,")
+          .append("    mq.cache.put(")
+          .append(slotArgs)
+          .append(", ")
           .append(NullSentinel.class.getName())
           .append(".ACTIVE);\n")
           .append("    try {\n")
@@ -290,12 +287,16 @@ MetadataHandler<M> load3(MetadataDef<M> def,
           .append("_(r, mq");
       argList(buff, method.e)
           .append(");\n")
-          .append("      mq.map.put(key, x);\n")
+          .append("      mq.cache.put(")
+          .append(slotArgs)
+          .append(", x);\n")
           .append("      return x;\n")
           .append("    } catch (")
           .append(Exception.class.getName())
           .append(" e) {\n")
-          .append("      mq.map.remove(key);\n")
+          .append("      mq.cache.remove(")
+          .append(slotArgs)
+          .append(");\n")
           .append("      throw e;\n")
           .append("    }\n")
           .append("  }\n")
@@ -391,20 +392,43 @@ private static StringBuilder argList(StringBuilder buff, Method method) {
     return buff;
   }
 
-  /** Returns e.g. ", ignoreNulls". */
-  private static StringBuilder safeArgList(StringBuilder buff, Method method) {
-    for (Ord<Class<?>> t : Ord.zip(method.getParameterTypes())) {
-      if (Primitive.is(t.e)) {
-        buff.append(", a").append(t.i);
-      } else if (RexNode.class.isAssignableFrom(t.e)) {
-        // For RexNode, convert to string, because equals does not look deep.
-        //   a1 == null ? "" : a1.toString()
-        buff.append(", a").append(t.i).append(" == null ? \"\" : a")
-            .append(t.i).append(".toString()");
-      } else {
-        buff.append(", ") .append(NullSentinel.class.getName())
-            .append(".mask(a").append(t.i).append(")");
+  /** Returns the key under which the value of a metadata method is cached;
+   * for example "a0" for one argument, or
+   * "org.apache.calcite.runtime.FlatLists.of(a0, a1.toString())" for
+   * several. */
+  private static StringBuilder keyExpression(StringBuilder buff,
+      Method method) {
+    final Class<?>[] parameterTypes = method.getParameterTypes();
+    if (parameterTypes.length == 1) {
+      return safeArg(buff, parameterTypes[0], 0);
+    }
+    buff.append(
+        (parameterTypes.length <= 6
+            ? org.apache.calcite.runtime.FlatLists.class
+            : ImmutableList.class).getName())
+        .append(".of(");
+    for (Ord<Class<?>> t : Ord.zip(parameterTypes)) {
+      if (t.i > 0) {
+        buff.append(", ");
       }
+      safeArg(buff, t.e, t.i);
+    }
+    return buff.append(")");
+  }
+
+  /** Returns e.g. "a1", or "a1 == null ? "" : a1.toString()". */
+  private static StringBuilder safeArg(StringBuilder buff, Class<?> type,
+      int i) {
+    if (Primitive.is(type)) {
+      buff.append("a").append(i);
+    } else if (RexNode.class.isAssignableFrom(type)) {
+      // For RexNode, convert to string, because equals does not look deep.
+      //   a1 == null ? "" : a1.toString()
+      buff.append("a").append(i).append(" == null ? \"\" : a")
+          .append(i).append(".toString()");
+    } else {
+      buff.append(NullSentinel.class.getName())
+          .append(".mask(a").append(i).append(")");
     }
     return buff;
   }
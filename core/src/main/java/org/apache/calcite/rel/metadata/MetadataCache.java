@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.rel.metadata;
+
+import org.apache.calcite.rel.RelNode;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cache of metadata values, and of metadata requests that are in progress,
+ * used by handlers generated by {@link JaninoRelMetadataProvider}.
+ *
+ * <p>Each relational expression has an array of slots, one per metadata
+ * method. A method with no arguments (such as
+ * {@link BuiltInMetadata.RowCount#getRowCount()}) stores its value directly
+ * in its slot, so that looking up the value does not allocate a key object
+ * and hashes only the relational expression; a method with arguments stores
+ * a map from arguments to values in its slot.
+ *
+ * <p>Slot numbers are allocated the first time a handler is generated for a
+ * method, and are the same for all caches in the JVM.
+ *
+ * <p>Not thread-safe; like {@link RelMetadataQuery}, an instance must only be
+ * used by one thread at a time.
+ */
+public class MetadataCache {
+  private static final ConcurrentMap<Method, Integer> SLOTS =
+      new ConcurrentHashMap<>();
+  private static final AtomicInteger SLOT_COUNT = new AtomicInteger();
+
+  private final Map<RelNode, Object[]> map = new IdentityHashMap<>();
+  private long hitCount;
+  private long missCount;
+
+  /** Returns the slot of a metadata method, allocating one if necessary. */
+  public static int slot(Method method) {
+    Integer slot = SLOTS.get(method);
+    if (slot == null) {
+      synchronized (SLOTS) {
+        slot = SLOTS.get(method);
+        if (slot == null) {
+          slot = SLOT_COUNT.getAndIncrement();
+          SLOTS.put(method, slot);
+        }
+      }
+    }
+    return slot;
+  }
+
+  /** Returns the value of a metadata method that has no arguments, or null
+   * if not known. */
+  public Object get(RelNode rel, int slot) {
+    final Object[] slots = map.get(rel);
+    return count(slots == null || slot >= slots.length ? null : slots[slot]);
+  }
+
+  /** Returns the value of a metadata method for given arguments, or null if
+   * not known.
+   *
+   * @param args Argument, or if the method has more than one argument, a
+   *             list of arguments; null arguments are represented by
+   *             {@link NullSentinel#INSTANCE}
+   */
+  public Object get(RelNode rel, int slot, Object args) {
+    final Object[] slots = map.get(rel);
+    if (slots == null || slot >= slots.length || slots[slot] == null) {
+      return count(null);
+    }
+    return count(argMap(slots, slot).get(args));
+  }
+
+  /** Sets the value of a metadata method that has no arguments. */
+  public void put(RelNode rel, int slot, Object value) {
+    slots(rel, slot)[slot] = value;
+  }
+
+  /** Sets the value of a metadata method for given arguments. */
+  public void put(RelNode rel, int slot, Object args, Object value) {
+    final Object[] slots = slots(rel, slot);
+    if (slots[slot] == null) {
+      slots[slot] = new HashMap<Object, Object>();
+    }
+    argMap(slots, slot).put(args, value);
+  }
+
+  /** Removes the value of a metadata method that has no arguments. */
+  public void remove(RelNode rel, int slot) {
+    final Object[] slots = map.get(rel);
+    if (slots != null && slot < slots.length) {
+      slots[slot] = null;
+    }
+  }
+
+  /** Removes the value of a metadata method for given arguments. */
+  public void remove(RelNode rel, int slot, Object args) {
+    final Object[] slots = map.get(rel);
+    if (slots != null && slot < slots.length && slots[slot] != null) {
+      argMap(slots, slot).remove(args);
+    }
+  }
+
+  /** Removes all values. */
+  public void clear() {
+    map.clear();
+  }
+
+  /** Returns the number of lookups that found a value. */
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  /** Returns the number of lookups that did not find a value. */
+  public long getMissCount() {
+    return missCount;
+  }
+
+  /** Returns the proportion of lookups that found a value, or 0 if there
+   * have been no lookups. */
+  public double getHitRate() {
+    final long lookupCount = hitCount + missCount;
+    return lookupCount == 0 ? 0D : (double) hitCount / lookupCount;
+  }
+
+  private Object count(Object value) {
+    if (value == null) {
+      ++missCount;
+    } else if (value != NullSentinel.ACTIVE) {
+      ++hitCount;
+    }
+    return value;
+  }
+
+  private Object[] slots(RelNode rel, int slot) {
+    Object[] slots = map.get(rel);
+    if (slots == null) {
+      slots = new Object[Math.max(slot + 1, SLOT_COUNT.get())];
+      map.put(rel, slots);
+    } else if (slot >= slots.length) {
+      slots = Arrays.copyOf(slots, Math.max(slot + 1, SLOT_COUNT.get()));
+      map.put(rel, slots);
+    }
+    return slots;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<Object, Object> argMap(Object[] slots, int slot) {
+    return (Map<Object, Object>) slots[slot];
+  }
+}
+
+// End MetadataCache.java
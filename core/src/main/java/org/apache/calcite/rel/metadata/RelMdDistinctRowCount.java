@@ -26,11 +26,13 @@
 import org.apache.calcite.rel.core.Project;
 import org.apache.calcite.rel.core.SemiJoin;
 import org.apache.calcite.rel.core.Sort;
+import org.apache.calcite.rel.core.TableScan;
 import org.apache.calcite.rel.core.Union;
 import org.apache.calcite.rel.core.Values;
 import org.apache.calcite.rex.RexBuilder;
 import org.apache.calcite.rex.RexNode;
 import org.apache.calcite.rex.RexUtil;
+import org.apache.calcite.schema.ColumnStatistic;
 import org.apache.calcite.sql.fun.SqlStdOperatorTable;
 import org.apache.calcite.util.Bug;
 import org.apache.calcite.util.BuiltInMethod;
@@ -80,6 +82,35 @@ public Double getDistinctRowCount(RelNode rel, RelMetadataQuery mq,
     return null;
   }
 
+  public Double getDistinctRowCount(TableScan rel, RelMetadataQuery mq,
+      ImmutableBitSet groupKey, RexNode predicate) {
+    if (groupKey.isEmpty()
+        || RelMdUtil.areColumnsDefinitelyUnique(mq, rel, groupKey)) {
+      return getDistinctRowCount((RelNode) rel, mq, groupKey, predicate);
+    }
+    // Use the number of distinct values of each column from the table's
+    // statistics, assuming that the columns are independent.
+    double ndv = 1D;
+    for (int column : groupKey) {
+      final ColumnStatistic statistic =
+          RelMdUtil.getColumnStatistic(mq.getColumnOrigin(rel, column));
+      if (statistic == null || statistic.getDistinctCount() == null) {
+        return getDistinctRowCount((RelNode) rel, mq, groupKey, predicate);
+      }
+      // A null value forms a group of its own
+      final boolean nulls = statistic.getNullCount() == null
+          || statistic.getNullCount() > 0D;
+      ndv *= statistic.getDistinctCount() + (nulls ? 1D : 0D);
+    }
+    final Double rowCount = mq.getRowCount(rel);
+    ndv = Math.min(ndv, rowCount);
+    if (predicate == null || predicate.isAlwaysTrue()) {
+      return ndv;
+    }
+    return RelMdUtil.numDistinctVals(ndv,
+        rowCount * mq.getSelectivity(rel, predicate));
+  }
+
   public Double getDistinctRowCount(Union rel, RelMetadataQuery mq,
       ImmutableBitSet groupKey, RexNode predicate) {
     Double rowCount = 0.0;
@@ -95,10 +95,13 @@ public Double getMaxRowCount(Sort rel, RelMetadataQuery mq) {
     if (rowCount == null) {
       rowCount = Double.POSITIVE_INFINITY;
     }
-    final int offset = rel.offset == null ? 0 : RexLiteral.intValue(rel.offset);
+    // Ignore an offset or fetch that is a dynamic parameter; we do not know
+    // its value until execution
+    final int offset =
+        rel.offset instanceof RexLiteral ? RexLiteral.intValue(rel.offset) : 0;
     rowCount = Math.max(rowCount - offset, 0D);
 
-    if (rel.fetch != null) {
+    if (rel.fetch instanceof RexLiteral) {
       final int limit = RexLiteral.intValue(rel.fetch);
       if (limit < rowCount) {
         return (double) limit;
@@ -112,10 +115,11 @@ public Double getMaxRowCount(EnumerableLimit rel, RelMetadataQuery mq) {
     if (rowCount == null) {
       rowCount = Double.POSITIVE_INFINITY;
     }
-    final int offset = rel.offset == null ? 0 : RexLiteral.intValue(rel.offset);
+    final int offset =
+        rel.offset instanceof RexLiteral ? RexLiteral.intValue(rel.offset) : 0;
     rowCount = Math.max(rowCount - offset, 0D);
 
-    if (rel.fetch != null) {
+    if (rel.fetch instanceof RexLiteral) {
       final int limit = RexLiteral.intValue(rel.fetch);
       if (limit < rowCount) {
         return (double) limit;
@@ -169,7 +173,7 @@ public Double getMaxRowCount(RelSubset rel, RelMetadataQuery mq) {
     for (RelNode node : rel.getRels()) {
       if (node instanceof Sort) {
         Sort sort = (Sort) node;
-        if (sort.fetch != null) {
+        if (sort.fetch instanceof RexLiteral) {
           return (double) RexLiteral.intValue(sort.fetch);
         }
       }
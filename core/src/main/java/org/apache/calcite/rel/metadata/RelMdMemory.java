@@ -16,6 +16,10 @@
  */
 package org.apache.calcite.rel.metadata;
 
+import org.apache.calcite.adapter.enumerable.EnumerableAggregate;
+import org.apache.calcite.adapter.enumerable.EnumerableJoin;
+import org.apache.calcite.adapter.enumerable.EnumerableSort;
+import org.apache.calcite.adapter.enumerable.EnumerableSortedAggregate;
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.util.BuiltInMethod;
 
@@ -56,6 +60,40 @@ public Double memory(RelNode rel, RelMetadataQuery mq) {
     return null;
   }
 
+  /** Hash join holds its right input in a hash table. */
+  public Double memory(EnumerableJoin rel, RelMetadataQuery mq) {
+    return bytes(rel.getRight(), mq);
+  }
+
+  /** Sort holds all of its input, unless it has a limit. */
+  public Double memory(EnumerableSort rel, RelMetadataQuery mq) {
+    if (rel.fetch != null) {
+      return null;
+    }
+    return bytes(rel.getInput(), mq);
+  }
+
+  /** Hash aggregate holds one entry per group. */
+  public Double memory(EnumerableAggregate rel, RelMetadataQuery mq) {
+    return bytes(rel, mq);
+  }
+
+  /** Sorted aggregate holds only the current group. */
+  public Double memory(EnumerableSortedAggregate rel, RelMetadataQuery mq) {
+    return mq.getAverageRowSize(rel);
+  }
+
+  /** Returns the number of bytes in the output of a relational expression,
+   * or null if not known. */
+  private static Double bytes(RelNode rel, RelMetadataQuery mq) {
+    final Double rowCount = mq.getRowCount(rel);
+    final Double averageRowSize = mq.getAverageRowSize(rel);
+    if (rowCount == null || averageRowSize == null) {
+      return null;
+    }
+    return rowCount * averageRowSize;
+  }
+
   /** Catch-all implementation for
    * {@link BuiltInMetadata.Memory#cumulativeMemoryWithinPhase()},
    * invoked using reflection.
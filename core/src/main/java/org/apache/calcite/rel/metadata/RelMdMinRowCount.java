@@ -29,6 +29,7 @@
 import org.apache.calcite.rel.core.TableScan;
 import org.apache.calcite.rel.core.Union;
 import org.apache.calcite.rel.core.Values;
+import org.apache.calcite.rex.RexDynamicParam;
 import org.apache.calcite.rex.RexLiteral;
 import org.apache.calcite.util.Bug;
 import org.apache.calcite.util.BuiltInMethod;
@@ -82,6 +83,11 @@ public Double getMinRowCount(Sort rel, RelMetadataQuery mq) {
     if (rowCount == null) {
       rowCount = 0D;
     }
+    // An offset or fetch that is a dynamic parameter may remove every row
+    if (rel.offset instanceof RexDynamicParam
+        || rel.fetch instanceof RexDynamicParam) {
+      return 0D;
+    }
     final int offset = rel.offset == null ? 0 : RexLiteral.intValue(rel.offset);
     rowCount = Math.max(rowCount - offset, 0D);
 
@@ -99,6 +105,10 @@ public Double getMinRowCount(EnumerableLimit rel, RelMetadataQuery mq) {
     if (rowCount == null) {
       rowCount = 0D;
     }
+    if (rel.offset instanceof RexDynamicParam
+        || rel.fetch instanceof RexDynamicParam) {
+      return 0D;
+    }
     final int offset = rel.offset == null ? 0 : RexLiteral.intValue(rel.offset);
     rowCount = Math.max(rowCount - offset, 0D);
 
@@ -143,7 +153,7 @@ public Double getMinRowCount(RelSubset rel, RelMetadataQuery mq) {
     for (RelNode node : rel.getRels()) {
       if (node instanceof Sort) {
         Sort sort = (Sort) node;
-        if (sort.fetch != null) {
+        if (sort.fetch instanceof RexLiteral) {
           return (double) RexLiteral.intValue(sort.fetch);
         }
       }
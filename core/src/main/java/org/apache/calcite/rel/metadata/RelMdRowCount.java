@@ -137,10 +137,13 @@ public Double getRowCount(Sort rel, RelMetadataQuery mq) {
     if (rowCount == null) {
       return null;
     }
-    final int offset = rel.offset == null ? 0 : RexLiteral.intValue(rel.offset);
+    // Ignore an offset or fetch that is a dynamic parameter; we do not know
+    // its value until execution
+    final int offset =
+        rel.offset instanceof RexLiteral ? RexLiteral.intValue(rel.offset) : 0;
     rowCount = Math.max(rowCount - offset, 0D);
 
-    if (rel.fetch != null) {
+    if (rel.fetch instanceof RexLiteral) {
       final int limit = RexLiteral.intValue(rel.fetch);
       if (limit < rowCount) {
         return (double) limit;
@@ -154,10 +157,11 @@ public Double getRowCount(EnumerableLimit rel, RelMetadataQuery mq) {
     if (rowCount == null) {
       return null;
     }
-    final int offset = rel.offset == null ? 0 : RexLiteral.intValue(rel.offset);
+    final int offset =
+        rel.offset instanceof RexLiteral ? RexLiteral.intValue(rel.offset) : 0;
     rowCount = Math.max(rowCount - offset, 0D);
 
-    if (rel.fetch != null) {
+    if (rel.fetch instanceof RexLiteral) {
       final int limit = RexLiteral.intValue(rel.fetch);
       if (limit < rowCount) {
         return (double) limit;
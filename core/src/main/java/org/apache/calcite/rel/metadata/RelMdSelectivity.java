@@ -182,10 +182,12 @@ public Double getSelectivity(Project rel, RelMetadataQuery mq,
     }
   }
 
-  // Catch-all rule when none of the others apply.
+  // Catch-all rule when none of the others apply. Uses column statistics of
+  // the underlying tables, if available, for simple predicates; for example
+  // "a = b" in a join condition or "a < 10" on a table scan.
   public Double getSelectivity(RelNode rel, RelMetadataQuery mq,
       RexNode predicate) {
-    return RelMdUtil.guessSelectivity(predicate);
+    return RelMdUtil.estimateSelectivity(mq, rel, predicate);
   }
 }
 
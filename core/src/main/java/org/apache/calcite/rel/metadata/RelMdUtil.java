@@ -36,12 +36,17 @@
 import org.apache.calcite.rex.RexProgram;
 import org.apache.calcite.rex.RexUtil;
 import org.apache.calcite.rex.RexVisitorImpl;
+import org.apache.calcite.schema.ColumnStatistic;
+import org.apache.calcite.schema.Histogram;
+import org.apache.calcite.schema.Statistic;
+import org.apache.calcite.schema.Table;
 import org.apache.calcite.sql.SqlFunction;
 import org.apache.calcite.sql.SqlFunctionCategory;
 import org.apache.calcite.sql.SqlKind;
 import org.apache.calcite.sql.type.OperandTypes;
 import org.apache.calcite.sql.type.ReturnTypes;
 import org.apache.calcite.util.ImmutableBitSet;
+import org.apache.calcite.util.NlsString;
 import org.apache.calcite.util.NumberUtil;
 
 import com.google.common.base.Preconditions;
@@ -420,6 +425,203 @@ public static double guessSelectivity(
     }
   }
 
+  /**
+   * Estimates the selectivity of a predicate, using statistics about the
+   * columns of the tables that its operands originate from where they are
+   * available, and falling back to {@link #guessSelectivity(RexNode)} for
+   * each conjunct where they are not.
+   *
+   * @param mq        Metadata query
+   * @param rel       Relational expression that the predicate is applied to
+   * @param predicate Predicate; null means true, so gives selectivity of 1.0
+   * @return estimated selectivity
+   */
+  public static double estimateSelectivity(RelMetadataQuery mq, RelNode rel,
+      RexNode predicate) {
+    double sel = 1.0;
+    if ((predicate == null) || predicate.isAlwaysTrue()) {
+      return sel;
+    }
+    for (RexNode pred : RelOptUtil.conjunctions(predicate)) {
+      final Double s = statisticSelectivity(mq, rel, pred);
+      sel *= s != null ? s : guessSelectivity(pred);
+    }
+    return sel;
+  }
+
+  /** Returns the selectivity of a simple predicate computed from column
+   * statistics, or null if the predicate is not simple or statistics are not
+   * available. */
+  private static Double statisticSelectivity(RelMetadataQuery mq, RelNode rel,
+      RexNode pred) {
+    switch (pred.getKind()) {
+    case IS_NULL:
+    case IS_NOT_NULL:
+      final RelColumnOrigin origin =
+          columnOrigin(mq, rel, ((RexCall) pred).getOperands().get(0));
+      final ColumnStatistic statistic = getColumnStatistic(origin);
+      if (statistic == null || statistic.getNullCount() == null) {
+        return null;
+      }
+      final double nullFraction = nullFraction(origin, statistic);
+      return pred.getKind() == SqlKind.IS_NULL
+          ? nullFraction
+          : 1D - nullFraction;
+    case EQUALS:
+    case NOT_EQUALS:
+    case LESS_THAN:
+    case LESS_THAN_OR_EQUAL:
+    case GREATER_THAN:
+    case GREATER_THAN_OR_EQUAL:
+      final RexNode op0 = ((RexCall) pred).getOperands().get(0);
+      final RexNode op1 = ((RexCall) pred).getOperands().get(1);
+      if (op1 instanceof RexLiteral) {
+        return comparisonSelectivity(mq, rel, pred.getKind(), op0,
+            (RexLiteral) op1);
+      } else if (op0 instanceof RexLiteral) {
+        return comparisonSelectivity(mq, rel, pred.getKind().reverse(), op1,
+            (RexLiteral) op0);
+      } else if (pred.getKind() == SqlKind.EQUALS) {
+        // Equi-join, or comparison between two columns of the same input
+        final Double ndv0 = getDistinctCount(mq, rel, op0);
+        final Double ndv1 = getDistinctCount(mq, rel, op1);
+        if (ndv0 == null || ndv1 == null) {
+          return null;
+        }
+        return 1D / Math.max(1D, Math.max(ndv0, ndv1));
+      }
+      return null;
+    default:
+      return null;
+    }
+  }
+
+  /** Returns the selectivity of a comparison between a column and a
+   * literal, using statistics about the column. */
+  private static Double comparisonSelectivity(RelMetadataQuery mq,
+      RelNode rel, SqlKind kind, RexNode e, RexLiteral literal) {
+    final RelColumnOrigin origin = columnOrigin(mq, rel, e);
+    final ColumnStatistic statistic = getColumnStatistic(origin);
+    final Comparable value = comparableValue(literal);
+    if (statistic == null || value == null) {
+      return null;
+    }
+    final double nonNull = statistic.getNullCount() == null
+        ? 1D
+        : 1D - nullFraction(origin, statistic);
+    final Histogram histogram = statistic.getHistogram();
+    if (histogram != null
+        && !Histogram.isComparable(histogram.endPoints.get(0), value)) {
+      return null;
+    }
+    switch (kind) {
+    case EQUALS:
+    case NOT_EQUALS:
+      double eq;
+      if (histogram != null && histogram.fractionEqual(value) >= 0D) {
+        eq = nonNull * histogram.fractionEqual(value);
+      } else if (statistic.getDistinctCount() != null) {
+        eq = nonNull / Math.max(1D, statistic.getDistinctCount());
+      } else {
+        return null;
+      }
+      return kind == SqlKind.EQUALS ? eq : Math.max(0D, nonNull - eq);
+    default:
+      final boolean upper =
+          kind == SqlKind.LESS_THAN || kind == SqlKind.LESS_THAN_OR_EQUAL;
+      final boolean inclusive = kind == SqlKind.LESS_THAN_OR_EQUAL
+          || kind == SqlKind.GREATER_THAN;
+      double below;
+      if (histogram != null) {
+        below = histogram.fractionBelow(value, inclusive);
+      } else if (statistic.getMin() instanceof Number
+          && statistic.getMax() instanceof Number
+          && value instanceof Number) {
+        final double min = ((Number) statistic.getMin()).doubleValue();
+        final double max = ((Number) statistic.getMax()).doubleValue();
+        final double v = ((Number) value).doubleValue();
+        below = max <= min
+            ? (v < min || v == min && !inclusive ? 0D : 1D)
+            : Math.max(0D, Math.min(1D, (v - min) / (max - min)));
+      } else {
+        return null;
+      }
+      // "x > v" is the complement of "x <= v", and "x >= v" of "x < v"
+      return nonNull * (upper ? below : 1D - below);
+    }
+  }
+
+  /** Returns the number of distinct values of an expression that is a
+   * column, possibly cast, according to column statistics; null if not
+   * known. */
+  private static Double getDistinctCount(RelMetadataQuery mq, RelNode rel,
+      RexNode e) {
+    final ColumnStatistic statistic =
+        getColumnStatistic(columnOrigin(mq, rel, e));
+    return statistic == null ? null : statistic.getDistinctCount();
+  }
+
+  /** Returns the fraction of rows of a column's table in which it is
+   * null. */
+  private static double nullFraction(RelColumnOrigin origin,
+      ColumnStatistic statistic) {
+    final double rowCount = origin.getOriginTable().getRowCount();
+    return Math.min(1D, statistic.getNullCount() / Math.max(1D, rowCount));
+  }
+
+  /** Returns the origin of an expression that is a column reference,
+   * perhaps wrapped in a cast that does not change its type family, or null
+   * if it is not a column reference or its origin is not unique. */
+  private static RelColumnOrigin columnOrigin(RelMetadataQuery mq,
+      RelNode rel, RexNode e) {
+    while (e.getKind() == SqlKind.CAST) {
+      final RexNode operand = ((RexCall) e).getOperands().get(0);
+      if (operand.getType().getSqlTypeName().getFamily()
+          != e.getType().getSqlTypeName().getFamily()) {
+        return null;
+      }
+      e = operand;
+    }
+    if (!(e instanceof RexInputRef)) {
+      return null;
+    }
+    try {
+      return mq.getColumnOrigin(rel, ((RexInputRef) e).getIndex());
+    } catch (CyclicMetadataException ex) {
+      return null;
+    }
+  }
+
+  /** Returns the statistics of the base table column that a column
+   * originates from, or null if not known. */
+  public static ColumnStatistic getColumnStatistic(RelColumnOrigin origin) {
+    if (origin == null) {
+      return null;
+    }
+    Statistic statistic = origin.getOriginTable().unwrap(Statistic.class);
+    if (statistic == null) {
+      final Table table = origin.getOriginTable().unwrap(Table.class);
+      if (table == null) {
+        return null;
+      }
+      statistic = table.getStatistic();
+    }
+    return statistic.getColumnStatistic(origin.getOriginColumnOrdinal());
+  }
+
+  /** Returns the value of a literal in the form used by column statistics,
+   * or null if it is null or of a type that statistics do not handle. */
+  private static Comparable comparableValue(RexLiteral literal) {
+    final Comparable value = literal.getValue();
+    if (value instanceof NlsString) {
+      return ((NlsString) value).getValue();
+    }
+    if (value instanceof Number || value instanceof Boolean) {
+      return value;
+    }
+    return null;
+  }
+
   /**
    * AND's two predicates together, either of which may be null, removing
    * redundant filters.
@@ -833,7 +1035,12 @@ public static boolean checkInputForCollationAndLimit(RelMetadataQuery mq,
     // Check if we are not reducing the number of tuples
     boolean alreadySmaller = true;
     final Double rowCount = mq.getMaxRowCount(input);
-    if (rowCount != null && fetch != null) {
+    if (fetch != null
+        && (!(fetch instanceof RexLiteral)
+            || offset != null && !(offset instanceof RexLiteral))) {
+      // Offset or fetch is a dynamic parameter, so may reduce the rows
+      alreadySmaller = false;
+    } else if (rowCount != null && fetch != null) {
       final int offsetVal = offset == null ? 0 : RexLiteral.intValue(offset);
       final int limit = RexLiteral.intValue(fetch);
       if ((double) offsetVal + (double) limit < rowCount) {
@@ -77,9 +77,14 @@
  * plugin mechanism.
  */
 public class RelMetadataQuery {
-  /** Set of active metadata queries, and cache of previous results. */
+  /** Set of active metadata queries, used by
+   * {@link ReflectiveRelMetadataProvider} to detect cycles. */
   public final Map<List, Object> map = new HashMap<>();
 
+  /** Set of active metadata queries, and cache of previous results, used by
+   * handlers generated by {@link JaninoRelMetadataProvider}. */
+  public final MetadataCache cache = new MetadataCache();
+
   public final JaninoRelMetadataProvider metadataProvider;
 
   protected static final RelMetadataQuery EMPTY = new RelMetadataQuery(false);
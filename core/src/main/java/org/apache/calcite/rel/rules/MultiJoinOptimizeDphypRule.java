@@ -0,0 +1,509 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.rel.rules;
+
+import org.apache.calcite.plan.RelOptRule;
+import org.apache.calcite.plan.RelOptRuleCall;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.core.JoinRelType;
+import org.apache.calcite.rel.core.RelFactories;
+import org.apache.calcite.rel.metadata.RelMdUtil;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.calcite.rex.RexBuilder;
+import org.apache.calcite.rex.RexCall;
+import org.apache.calcite.rex.RexInputRef;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexPermuteInputsShuttle;
+import org.apache.calcite.rex.RexUtil;
+import org.apache.calcite.sql.SqlKind;
+import org.apache.calcite.tools.RelBuilder;
+import org.apache.calcite.tools.RelBuilderFactory;
+import org.apache.calcite.util.ImmutableBitSet;
+import org.apache.calcite.util.Pair;
+import org.apache.calcite.util.Util;
+import org.apache.calcite.util.mapping.Mappings;
+
+import com.google.common.collect.Lists;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Planner rule that finds the cheapest bushy ordering for the inputs of a
+ * {@link MultiJoin} by dynamic programming.
+ *
+ * <p>It enumerates connected sub-graph/complement pairs of the join graph
+ * using the DPhyp algorithm of Moerkotte and Neumann ("Dynamic programming
+ * strikes back", SIGMOD 2008), so that it never considers a cross product
+ * unless the query requires one. The cost of a plan is the sum of the number
+ * of rows produced by each of its joins; row counts of inputs come from
+ * {@link RelMetadataQuery#getRowCount}, and the selectivity of an equi-join
+ * condition is 1 / the larger of the distinct counts of its two columns.
+ *
+ * <p>Unlike {@link MultiJoinOptimizeBushyRule}, the result is optimal with
+ * respect to this cost model, but the number of plans considered grows
+ * exponentially with the number of inputs (for a star join of <i>n</i>
+ * inputs, there are <i>n</i> &middot; 2<sup><i>n</i> - 1</sup>). If there
+ * are more than {@code maxFactors} inputs, or if enumeration considers more
+ * than {@code maxPairs} pairs, the rule falls back to the greedy algorithm
+ * of {@link MultiJoinOptimizeBushyRule}.
+ *
+ * <p>Limitations:
+ * <ol>
+ *   <li>A condition that references three or more inputs connects each pair
+ *       of those inputs, and is applied at the first join that contains all
+ *       of them; a true hyper-graph would restrict which pairs may join.
+ *   <li>If the join graph is not connected, its components are joined via
+ *       cross products in the order of their first input.
+ *   <li>The rule does not fire on a {@code MultiJoin} that contains outer
+ *       joins.
+ * </ol>
+ */
+public class MultiJoinOptimizeDphypRule extends RelOptRule {
+  /** Default maximum number of inputs for which the rule uses dynamic
+   * programming. */
+  public static final int DEFAULT_MAX_FACTORS = 15;
+
+  /** Default maximum number of sub-graph/complement pairs the rule considers
+   * before it gives up and uses the greedy algorithm. */
+  public static final int DEFAULT_MAX_PAIRS = 1 << 20;
+
+  public static final MultiJoinOptimizeDphypRule INSTANCE =
+      new MultiJoinOptimizeDphypRule(RelFactories.LOGICAL_BUILDER,
+          DEFAULT_MAX_FACTORS, DEFAULT_MAX_PAIRS);
+
+  private final int maxFactors;
+  private final int maxPairs;
+  private final MultiJoinOptimizeBushyRule greedyRule;
+
+  /** Creates a MultiJoinOptimizeDphypRule.
+   *
+   * @param relBuilderFactory Builder for relational expressions
+   * @param maxFactors Maximum number of inputs for which to use dynamic
+   *                   programming; above this, use the greedy algorithm
+   * @param maxPairs   Maximum number of sub-graph/complement pairs to
+   *                   consider before falling back to the greedy algorithm
+   */
+  public MultiJoinOptimizeDphypRule(RelBuilderFactory relBuilderFactory,
+      int maxFactors, int maxPairs) {
+    super(operand(MultiJoin.class, any()), relBuilderFactory, null);
+    this.maxFactors = Math.min(maxFactors, Long.SIZE - 1);
+    this.maxPairs = maxPairs;
+    this.greedyRule = new MultiJoinOptimizeBushyRule(relBuilderFactory);
+  }
+
+  @Override public void onMatch(RelOptRuleCall call) {
+    final MultiJoin multiJoinRel = call.rel(0);
+    if (multiJoinRel.isFullOuterJoin()) {
+      return;
+    }
+    for (JoinRelType joinType : multiJoinRel.getJoinTypes()) {
+      if (joinType != JoinRelType.INNER) {
+        return;
+      }
+    }
+    final LoptMultiJoin multiJoin = new LoptMultiJoin(multiJoinRel);
+    if (multiJoin.getNumJoinFactors() > maxFactors) {
+      greedyRule.onMatch(call);
+      return;
+    }
+    final Enumerator enumerator =
+        new Enumerator(multiJoin, call.getMetadataQuery(), maxPairs);
+    final Plan plan = enumerator.solve();
+    if (plan == null) {
+      greedyRule.onMatch(call);
+      return;
+    }
+    call.transformTo(enumerator.toRel(plan, call.builder()));
+  }
+
+  /** Plan for a set of inputs; a leaf if {@code left} is null. */
+  private static class Plan {
+    final long factors;
+    final int factor;
+    final Plan left;
+    final Plan right;
+    final double rowCount;
+    final double cost;
+
+    Plan(long factors, int factor, Plan left, Plan right, double rowCount,
+        double cost) {
+      this.factors = factors;
+      this.factor = factor;
+      this.left = left;
+      this.right = right;
+      this.rowCount = rowCount;
+      this.cost = cost;
+    }
+
+    @Override public String toString() {
+      return left == null
+          ? "Leaf(factor: " + factor + ", rows: " + Util.human(rowCount) + ")"
+          : "Join(" + left + ", " + right
+              + ", rows: " + Util.human(rowCount)
+              + ", cost: " + Util.human(cost) + ")";
+    }
+  }
+
+  /** Join condition, with the inputs it references and its selectivity. */
+  private static class Edge {
+    final RexNode condition;
+    final long factors;
+    final double selectivity;
+
+    Edge(RexNode condition, long factors, double selectivity) {
+      this.condition = condition;
+      this.factors = factors;
+      this.selectivity = selectivity;
+    }
+  }
+
+  /** Enumerates connected sub-graph/complement pairs of a join graph, and
+   * remembers the cheapest plan for each connected sub-graph. */
+  private static class Enumerator {
+    private final LoptMultiJoin multiJoin;
+    private final RelMetadataQuery mq;
+    private final int maxPairs;
+    private final int n;
+    /** For each input, the inputs that it shares a join condition with. */
+    private final long[] neighbors;
+    /** Conditions that reference two or more inputs. */
+    private final List<Edge> edges = Lists.newArrayList();
+    /** Conditions that reference one input, by input. */
+    private final List<List<RexNode>> leafConditions = Lists.newArrayList();
+    /** Conditions that reference no inputs. */
+    private final List<RexNode> constantConditions = Lists.newArrayList();
+    private final Map<Long, Plan> plans = new HashMap<>();
+    private int pairCount;
+
+    Enumerator(LoptMultiJoin multiJoin, RelMetadataQuery mq, int maxPairs) {
+      this.multiJoin = multiJoin;
+      this.mq = mq;
+      this.maxPairs = maxPairs;
+      this.n = multiJoin.getNumJoinFactors();
+      this.neighbors = new long[n];
+      for (int i = 0; i < n; i++) {
+        leafConditions.add(Lists.<RexNode>newArrayList());
+      }
+      for (RexNode condition : multiJoin.getJoinFilters()) {
+        final ImmutableBitSet factors =
+            multiJoin.createEdge(condition).factors;
+        switch (factors.cardinality()) {
+        case 0:
+          if (!condition.isAlwaysTrue()) {
+            constantConditions.add(condition);
+          }
+          break;
+        case 1:
+          leafConditions.get(factors.nth(0)).add(condition);
+          break;
+        default:
+          final long mask = mask(factors);
+          edges.add(new Edge(condition, mask, selectivity(condition)));
+          for (int i : factors) {
+            neighbors[i] |= mask & ~bit(i);
+          }
+        }
+      }
+      connectComponents();
+    }
+
+    private static long bit(int i) {
+      return 1L << i;
+    }
+
+    private static long mask(ImmutableBitSet bitSet) {
+      long mask = 0L;
+      for (int i : bitSet) {
+        mask |= bit(i);
+      }
+      return mask;
+    }
+
+    /** Adds an edge, with no condition, between the first input of each
+     * connected component of the join graph and the first input of the
+     * next, so that the enumerator can reach every input. */
+    private void connectComponents() {
+      long seen = 0L;
+      int previous = -1;
+      for (int i = 0; i < n; i++) {
+        if ((seen & bit(i)) != 0) {
+          continue;
+        }
+        long component = bit(i);
+        for (;;) {
+          long next = component;
+          for (long r = component; r != 0L; r &= r - 1L) {
+            next |= neighbors[Long.numberOfTrailingZeros(r)];
+          }
+          if (next == component) {
+            break;
+          }
+          component = next;
+        }
+        seen |= component;
+        if (previous >= 0) {
+          neighbors[previous] |= bit(i);
+          neighbors[i] |= bit(previous);
+        }
+        previous = i;
+      }
+    }
+
+    /** Estimates the selectivity of a join condition. For an equi-join
+     * condition between two columns, it is 1 / the larger of their distinct
+     * counts; otherwise a guess based on the kind of condition. */
+    private double selectivity(RexNode condition) {
+      if (condition.isA(SqlKind.EQUALS)) {
+        final List<RexNode> operands = ((RexCall) condition).getOperands();
+        if (operands.get(0) instanceof RexInputRef
+            && operands.get(1) instanceof RexInputRef) {
+          final Double ndv0 = distinctCount((RexInputRef) operands.get(0));
+          final Double ndv1 = distinctCount((RexInputRef) operands.get(1));
+          if (ndv0 != null && ndv1 != null) {
+            return 1D / Math.max(1D, Math.max(ndv0, ndv1));
+          }
+        }
+      }
+      return RelMdUtil.guessSelectivity(condition);
+    }
+
+    private Double distinctCount(RexInputRef ref) {
+      final int factor = multiJoin.findRef(ref.getIndex());
+      final int column = ref.getIndex() - multiJoin.getJoinStart(factor);
+      return mq.getDistinctRowCount(multiJoin.getJoinFactor(factor),
+          ImmutableBitSet.of(column), null);
+    }
+
+    /** Returns the cheapest plan that joins all inputs, or null if there
+     * are too many pairs to consider. */
+    Plan solve() {
+      for (int i = 0; i < n; i++) {
+        final RelNode rel = multiJoin.getJoinFactor(i);
+        double rowCount = Util.first(mq.getRowCount(rel), 1D);
+        for (RexNode condition : leafConditions.get(i)) {
+          rowCount *= RelMdUtil.guessSelectivity(condition);
+        }
+        plans.put(bit(i), new Plan(bit(i), i, null, null, rowCount, 0D));
+      }
+      try {
+        for (int i = n - 1; i >= 0; i--) {
+          emitCsg(bit(i));
+          enumerateCsgRec(bit(i), below(i));
+        }
+      } catch (TooManyPairsException e) {
+        return null;
+      }
+      return plans.get(below(n - 1));
+    }
+
+    /** Returns the set of inputs whose ordinal is less than or equal to
+     * {@code i}. */
+    private static long below(int i) {
+      return i == Long.SIZE - 1 ? -1L : bit(i + 1) - 1L;
+    }
+
+    /** Returns the inputs adjacent to {@code s} but not in {@code s} or
+     * {@code x}. */
+    private long neighborhood(long s, long x) {
+      long result = 0L;
+      for (long r = s; r != 0L; r &= r - 1L) {
+        result |= neighbors[Long.numberOfTrailingZeros(r)];
+      }
+      return result & ~s & ~x;
+    }
+
+    /** Returns the first non-empty subset of {@code set}, in increasing
+     * numeric order. Sub-graphs are built in this order so that the best
+     * plan for every subset of a set is known before the set itself is
+     * combined with anything else. */
+    private static long first(long set) {
+      return set & -set;
+    }
+
+    /** Returns the next subset of {@code set} after {@code subset}, in
+     * increasing numeric order, or 0 if there are no more. */
+    private static long next(long subset, long set) {
+      return (subset - set) & set;
+    }
+
+    private boolean connected(long s1, long s2) {
+      return (neighborhood(s1, 0L) & s2) != 0L;
+    }
+
+    private void enumerateCsgRec(long s1, long x) {
+      final long neighborhood = neighborhood(s1, x);
+      for (long s = first(neighborhood); s != 0L; s = next(s, neighborhood)) {
+        if (plans.containsKey(s1 | s)) {
+          emitCsg(s1 | s);
+        }
+      }
+      final long x2 = x | neighborhood;
+      for (long s = first(neighborhood); s != 0L; s = next(s, neighborhood)) {
+        enumerateCsgRec(s1 | s, x2);
+      }
+    }
+
+    private void emitCsg(long s1) {
+      final long x = s1 | below(Long.numberOfTrailingZeros(s1));
+      final long neighborhood = neighborhood(s1, x);
+      for (int v = Long.SIZE - 1 - Long.numberOfLeadingZeros(neighborhood);
+           v >= 0; v--) {
+        if ((neighborhood & bit(v)) == 0L) {
+          continue;
+        }
+        final long s2 = bit(v);
+        if (connected(s1, s2)) {
+          emitCsgCmp(s1, s2);
+        }
+        enumerateCmpRec(s1, s2, x | (below(v) & neighborhood));
+      }
+    }
+
+    private void enumerateCmpRec(long s1, long s2, long x) {
+      final long neighborhood = neighborhood(s2, x);
+      for (long s = first(neighborhood); s != 0L; s = next(s, neighborhood)) {
+        if (plans.containsKey(s2 | s) && connected(s1, s2 | s)) {
+          emitCsgCmp(s1, s2 | s);
+        }
+      }
+      final long x2 = x | neighborhood;
+      for (long s = first(neighborhood); s != 0L; s = next(s, neighborhood)) {
+        enumerateCmpRec(s1, s2 | s, x2);
+      }
+    }
+
+    /** Considers joining the best plans for two disjoint, connected sets of
+     * inputs, and remembers the result if it is the cheapest plan so far
+     * for their union. */
+    private void emitCsgCmp(long s1, long s2) {
+      if (++pairCount > maxPairs) {
+        throw TooManyPairsException.INSTANCE;
+      }
+      final Plan p1 = plans.get(s1);
+      final Plan p2 = plans.get(s2);
+      final long s = s1 | s2;
+      double rowCount = p1.rowCount * p2.rowCount;
+      for (Edge edge : edges) {
+        if (isNewCondition(edge.factors, s, s1, s2)) {
+          rowCount *= edge.selectivity;
+        }
+      }
+      final double cost = rowCount + p1.cost + p2.cost;
+      final Plan best = plans.get(s);
+      if (best == null || cost < best.cost) {
+        // Put the larger input on the left; joins in the enumerable
+        // convention build a hash table on the right input.
+        plans.put(s,
+            p1.rowCount >= p2.rowCount
+                ? new Plan(s, -1, p1, p2, rowCount, cost)
+                : new Plan(s, -1, p2, p1, rowCount, cost));
+      }
+    }
+
+    /** Returns whether a condition becomes applicable when joining two
+     * sets of inputs; that is, it references only inputs in their union,
+     * but is not applicable to either set alone. */
+    private static boolean isNewCondition(long factors, long s, long s1,
+        long s2) {
+      return (factors & ~s) == 0L
+          && (factors & ~s1) != 0L
+          && (factors & ~s2) != 0L;
+    }
+
+    /** Converts a plan to a tree of joins, with a project on top to restore
+     * the field order of the {@code MultiJoin}. */
+    RelNode toRel(Plan plan, RelBuilder relBuilder) {
+      final Pair<RelNode, Mappings.TargetMapping> top =
+          toRel(plan, relBuilder, multiJoin.getMultiJoinRel().getCluster()
+              .getRexBuilder());
+      relBuilder.push(top.left)
+          .project(relBuilder.fields(top.right));
+      final List<RexNode> conditions =
+          Lists.newArrayList(constantConditions);
+      final RexNode postJoinFilter =
+          multiJoin.getMultiJoinRel().getPostJoinFilter();
+      if (postJoinFilter != null) {
+        conditions.add(postJoinFilter);
+      }
+      if (!conditions.isEmpty()) {
+        relBuilder.filter(conditions);
+      }
+      return relBuilder.build();
+    }
+
+    private Pair<RelNode, Mappings.TargetMapping> toRel(Plan plan,
+        RelBuilder relBuilder, RexBuilder rexBuilder) {
+      if (plan.left == null) {
+        final RelNode rel = multiJoin.getJoinFactor(plan.factor);
+        final Mappings.TargetMapping mapping =
+            Mappings.offsetSource(
+                Mappings.createIdentity(rel.getRowType().getFieldCount()),
+                multiJoin.getJoinStart(plan.factor),
+                multiJoin.getNumTotalFields());
+        final List<RexNode> conditions = leafConditions.get(plan.factor);
+        if (conditions.isEmpty()) {
+          return Pair.of(rel, mapping);
+        }
+        final RexNode condition =
+            RexUtil.composeConjunction(rexBuilder, conditions, false);
+        final RelNode filter = relBuilder.push(rel)
+            .filter(condition.accept(new RexPermuteInputsShuttle(mapping, rel)))
+            .build();
+        return Pair.of(filter, mapping);
+      }
+      final Pair<RelNode, Mappings.TargetMapping> leftPair =
+          toRel(plan.left, relBuilder, rexBuilder);
+      final Pair<RelNode, Mappings.TargetMapping> rightPair =
+          toRel(plan.right, relBuilder, rexBuilder);
+      final RelNode left = leftPair.left;
+      final RelNode right = rightPair.left;
+      final Mappings.TargetMapping mapping =
+          Mappings.merge(leftPair.right,
+              Mappings.offsetTarget(rightPair.right,
+                  left.getRowType().getFieldCount()));
+      final List<RexNode> conditions = Lists.newArrayList();
+      for (Edge edge : edges) {
+        if (isNewCondition(edge.factors, plan.factors, plan.left.factors,
+            plan.right.factors)) {
+          conditions.add(edge.condition);
+        }
+      }
+      final RexNode condition =
+          RexUtil.composeConjunction(rexBuilder, conditions, false);
+      final RelNode join = relBuilder.push(left)
+          .push(right)
+          .join(JoinRelType.INNER,
+              condition.accept(new RexPermuteInputsShuttle(mapping, left, right)))
+          .build();
+      return Pair.of(join, mapping);
+    }
+  }
+
+  /** Thrown when the enumerator has considered more pairs than it is
+   * allowed to. */
+  private static class TooManyPairsException extends RuntimeException {
+    static final TooManyPairsException INSTANCE = new TooManyPairsException();
+
+    private TooManyPairsException() {
+      super(null, null, false, false);
+    }
+  }
+}
+
+// End MultiJoinOptimizeDphypRule.java
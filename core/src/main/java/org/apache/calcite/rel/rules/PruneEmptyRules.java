@@ -246,7 +246,7 @@ private static boolean isEmpty(RelNode node) {
           operand(Sort.class, any()), "PruneSortLimit0") {
         @Override public void onMatch(RelOptRuleCall call) {
           Sort sort = call.rel(0);
-          if (sort.fetch != null
+          if (sort.fetch instanceof RexLiteral
               && RexLiteral.intValue(sort.fetch) == 0) {
             call.transformTo(call.builder().push(sort).empty().build());
           }
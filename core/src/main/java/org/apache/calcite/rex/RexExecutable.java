@@ -22,6 +22,9 @@
 import org.apache.calcite.runtime.Utilities;
 import org.apache.calcite.util.Pair;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 import org.codehaus.commons.compiler.CompileException;
 import org.codehaus.janino.ClassBodyEvaluator;
 import org.codehaus.janino.Scanner;
@@ -40,6 +43,13 @@
 public class RexExecutable {
   private static final String GENERATED_CLASS_NAME = "Reducer";
 
+  /** Compiled functions, keyed by source code. The code is generated from
+   * the expressions and their types, so is a digest of them; expressions
+   * that are reduced or executed repeatedly are compiled only once.
+   * The functions are stateless, so may be shared between executables. */
+  private static final Cache<String, Function1<DataContext, Object[]>> CACHE =
+      CacheBuilder.newBuilder().maximumSize(1000).build();
+
   private final Function1<DataContext, Object[]> compiledFunction;
   private final String code;
   private DataContext dataContext;
@@ -51,6 +61,16 @@ public RexExecutable(String code, Object reason) {
 
   private static Function1<DataContext, Object[]> compile(String code,
       Object reason) {
+    Function1<DataContext, Object[]> function = CACHE.getIfPresent(code);
+    if (function == null) {
+      function = compile2(code, reason);
+      CACHE.put(code, function);
+    }
+    return function;
+  }
+
+  private static Function1<DataContext, Object[]> compile2(String code,
+      Object reason) {
     try {
       final ClassBodyEvaluator cbe = new ClassBodyEvaluator();
       cbe.setClassName(GENERATED_CLASS_NAME);
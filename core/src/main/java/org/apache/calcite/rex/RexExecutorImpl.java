@@ -111,10 +111,16 @@ public RexExecutable getExecutable(RexBuilder rexBuilder, List<RexNode> exps,
   }
 
   /**
-   * Do constant reduction using generated code.
+   * Do constant reduction.
+   *
+   * <p>Evaluates the expressions using {@link RexInterpreter} if it supports
+   * all of them, otherwise using generated code.
    */
   public void reduce(RexBuilder rexBuilder, List<RexNode> constExps,
       List<RexNode> reducedValues) {
+    if (RexInterpreter.reduce(rexBuilder, constExps, reducedValues)) {
+      return;
+    }
     final String code = compile(rexBuilder, constExps,
         new RexToLixTranslator.InputGetter() {
           public Expression field(BlockBuilder list, int index,
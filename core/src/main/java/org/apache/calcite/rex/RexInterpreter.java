@@ -0,0 +1,535 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.rex;
+
+import org.apache.calcite.avatica.util.DateTimeUtils;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.runtime.Like;
+import org.apache.calcite.runtime.SqlFunctions;
+import org.apache.calcite.sql.SqlKind;
+import org.apache.calcite.sql.SqlOperator;
+import org.apache.calcite.sql.fun.SqlStdOperatorTable;
+import org.apache.calcite.sql.type.SqlTypeName;
+import org.apache.calcite.util.ControlFlowException;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Evaluates constant {@link RexNode} expressions by walking the tree,
+ * without generating and compiling code.
+ *
+ * <p>Covers literals and the common operators of {@link SqlStdOperatorTable}:
+ * boolean logic, comparisons, arithmetic, {@code CAST} between numeric types,
+ * {@code CASE}, {@code COALESCE}, string functions, {@code LIKE}, and adding
+ * intervals to dates and timestamps. Values have the same representation as
+ * in code generated by
+ * {@link org.apache.calcite.adapter.enumerable.RexToLixTranslator}
+ * (for instance, a {@code DATE} is an {@link Integer}), and operators have
+ * the same semantics, including for null values.
+ *
+ * <p>If an expression contains anything else, or if the result might differ
+ * from generated code (for example, integer arithmetic that would
+ * overflow), {@link #evaluate} throws, and the caller should fall back to
+ * generated code.
+ *
+ * @see RexExecutorImpl
+ */
+class RexInterpreter {
+  /** Operators that the interpreter can evaluate. */
+  private static final ImmutableSet<SqlOperator> OPERATORS =
+      ImmutableSet.<SqlOperator>of(
+          SqlStdOperatorTable.AND,
+          SqlStdOperatorTable.OR,
+          SqlStdOperatorTable.NOT,
+          SqlStdOperatorTable.IS_NULL,
+          SqlStdOperatorTable.IS_NOT_NULL,
+          SqlStdOperatorTable.IS_TRUE,
+          SqlStdOperatorTable.IS_NOT_TRUE,
+          SqlStdOperatorTable.IS_FALSE,
+          SqlStdOperatorTable.IS_NOT_FALSE,
+          SqlStdOperatorTable.EQUALS,
+          SqlStdOperatorTable.NOT_EQUALS,
+          SqlStdOperatorTable.LESS_THAN,
+          SqlStdOperatorTable.LESS_THAN_OR_EQUAL,
+          SqlStdOperatorTable.GREATER_THAN,
+          SqlStdOperatorTable.GREATER_THAN_OR_EQUAL,
+          SqlStdOperatorTable.PLUS,
+          SqlStdOperatorTable.MINUS,
+          SqlStdOperatorTable.MULTIPLY,
+          SqlStdOperatorTable.DIVIDE,
+          SqlStdOperatorTable.UNARY_MINUS,
+          SqlStdOperatorTable.UNARY_PLUS,
+          SqlStdOperatorTable.CAST,
+          SqlStdOperatorTable.CASE,
+          SqlStdOperatorTable.COALESCE,
+          SqlStdOperatorTable.CONCAT,
+          SqlStdOperatorTable.UPPER,
+          SqlStdOperatorTable.LOWER,
+          SqlStdOperatorTable.CHAR_LENGTH,
+          SqlStdOperatorTable.CHARACTER_LENGTH,
+          SqlStdOperatorTable.SUBSTRING,
+          SqlStdOperatorTable.LIKE,
+          SqlStdOperatorTable.NOT_LIKE,
+          SqlStdOperatorTable.SIMILAR_TO,
+          SqlStdOperatorTable.NOT_SIMILAR_TO,
+          SqlStdOperatorTable.DATETIME_PLUS);
+
+  private RexInterpreter() {
+  }
+
+  /** Evaluates each of a list of constant expressions, and adds the results
+   * as literals to a list.
+   *
+   * <p>Returns false if any of the expressions cannot be interpreted; in
+   * which case {@code reducedValues} is unchanged. */
+  static boolean reduce(RexBuilder rexBuilder, List<RexNode> constExps,
+      List<RexNode> reducedValues) {
+    final List<RexNode> list = new ArrayList<>();
+    for (RexNode e : constExps) {
+      try {
+        final Object value = evaluate(e);
+        list.add(rexBuilder.makeLiteral(value, e.getType(), true));
+      } catch (RuntimeException ex) {
+        // Unsupported, or an error (such as division by zero) that generated
+        // code would also encounter
+        return false;
+      }
+    }
+    reducedValues.addAll(list);
+    return true;
+  }
+
+  /** Evaluates a constant expression.
+   *
+   * @throws RuntimeException if the expression cannot be interpreted */
+  static Object evaluate(RexNode e) {
+    if (e instanceof RexLiteral) {
+      return literal((RexLiteral) e);
+    }
+    if (!(e instanceof RexCall)) {
+      throw Unsupported.INSTANCE;
+    }
+    final RexCall call = (RexCall) e;
+    final SqlOperator op = call.getOperator();
+    if (!OPERATORS.contains(op)) {
+      throw Unsupported.INSTANCE;
+    }
+
+    // Operators that do not necessarily evaluate all of their operands,
+    // or that do not return null if an operand is null
+    switch (call.getKind()) {
+    case AND:
+      return and(call.getOperands());
+    case OR:
+      return or(call.getOperands());
+    case CASE:
+      return case_(call.getOperands());
+    case COALESCE:
+      for (RexNode operand : call.getOperands()) {
+        final Object o = evaluate(operand);
+        if (o != null) {
+          return o;
+        }
+      }
+      return null;
+    case IS_NULL:
+      return evaluate(call.getOperands().get(0)) == null;
+    case IS_NOT_NULL:
+      return evaluate(call.getOperands().get(0)) != null;
+    case IS_TRUE:
+      return Boolean.TRUE.equals(evaluate(call.getOperands().get(0)));
+    case IS_NOT_TRUE:
+      return !Boolean.TRUE.equals(evaluate(call.getOperands().get(0)));
+    case IS_FALSE:
+      return Boolean.FALSE.equals(evaluate(call.getOperands().get(0)));
+    case IS_NOT_FALSE:
+      return !Boolean.FALSE.equals(evaluate(call.getOperands().get(0)));
+    }
+
+    // The remaining operators return null if any operand is null
+    final List<Object> values = new ArrayList<>();
+    for (RexNode operand : call.getOperands()) {
+      final Object o = evaluate(operand);
+      if (o == null) {
+        return null;
+      }
+      values.add(o);
+    }
+    if (op == SqlStdOperatorTable.DATETIME_PLUS) {
+      return datetimePlus(call, values);
+    } else if (op == SqlStdOperatorTable.CONCAT) {
+      return SqlFunctions.concat((String) values.get(0),
+          (String) values.get(1));
+    } else if (op == SqlStdOperatorTable.UPPER) {
+      return SqlFunctions.upper((String) values.get(0));
+    } else if (op == SqlStdOperatorTable.LOWER) {
+      return SqlFunctions.lower((String) values.get(0));
+    } else if (op == SqlStdOperatorTable.CHAR_LENGTH
+        || op == SqlStdOperatorTable.CHARACTER_LENGTH) {
+      final int n = SqlFunctions.charLength((String) values.get(0));
+      return BigDecimal.valueOf(n);
+    } else if (op == SqlStdOperatorTable.SUBSTRING) {
+      return substring(values);
+    } else if (op == SqlStdOperatorTable.LIKE
+        || op == SqlStdOperatorTable.NOT_LIKE) {
+      final boolean b = Like.likeMatcher((String) values.get(1),
+          values.size() > 2 ? (String) values.get(2) : null)
+          .matches((String) values.get(0));
+      return b == (op == SqlStdOperatorTable.LIKE);
+    } else if (op == SqlStdOperatorTable.SIMILAR_TO
+        || op == SqlStdOperatorTable.NOT_SIMILAR_TO) {
+      final boolean b = Like.similarMatcher((String) values.get(1),
+          values.size() > 2 ? (String) values.get(2) : null)
+          .matches((String) values.get(0));
+      return b == (op == SqlStdOperatorTable.SIMILAR_TO);
+    }
+    switch (call.getKind()) {
+    case NOT:
+      return !(Boolean) values.get(0);
+    case EQUALS:
+      return compare(call, values) == 0;
+    case NOT_EQUALS:
+      return compare(call, values) != 0;
+    case LESS_THAN:
+      return compare(call, values) < 0;
+    case LESS_THAN_OR_EQUAL:
+      return compare(call, values) <= 0;
+    case GREATER_THAN:
+      return compare(call, values) > 0;
+    case GREATER_THAN_OR_EQUAL:
+      return compare(call, values) >= 0;
+    case PLUS:
+    case MINUS:
+    case TIMES:
+    case DIVIDE:
+    case MINUS_PREFIX:
+    case PLUS_PREFIX:
+      return arithmetic(call, values);
+    case CAST:
+      return cast(call, values.get(0));
+    default:
+      throw Unsupported.INSTANCE;
+    }
+  }
+
+  /** Converts a literal to the representation used by generated code. */
+  private static Object literal(RexLiteral literal) {
+    if (literal.getValue() == null) {
+      return null;
+    }
+    final SqlTypeName typeName = literal.getType().getSqlTypeName();
+    switch (typeName) {
+    case BOOLEAN:
+      return literal.getValue();
+    case TINYINT:
+    case SMALLINT:
+    case INTEGER:
+    case BIGINT:
+    case DECIMAL:
+      return literal.getValueAs(BigDecimal.class);
+    case FLOAT:
+    case DOUBLE:
+      return literal.getValueAs(BigDecimal.class).doubleValue();
+    case CHAR:
+    case VARCHAR:
+      return literal.getValueAs(String.class);
+    case DATE:
+    case TIME:
+      return literal.getValueAs(Integer.class);
+    case TIMESTAMP:
+      return literal.getValueAs(Long.class);
+    default:
+      if (SqlTypeName.YEAR_INTERVAL_TYPES.contains(typeName)) {
+        return literal.getValueAs(BigDecimal.class).intValueExact();
+      }
+      if (SqlTypeName.DAY_INTERVAL_TYPES.contains(typeName)) {
+        return literal.getValueAs(BigDecimal.class).longValueExact();
+      }
+      throw Unsupported.INSTANCE;
+    }
+  }
+
+  private static Boolean and(List<RexNode> operands) {
+    boolean unknown = false;
+    for (RexNode operand : operands) {
+      final Boolean b = (Boolean) evaluate(operand);
+      if (b == null) {
+        unknown = true;
+      } else if (!b) {
+        return false;
+      }
+    }
+    return unknown ? null : true;
+  }
+
+  private static Boolean or(List<RexNode> operands) {
+    boolean unknown = false;
+    for (RexNode operand : operands) {
+      final Boolean b = (Boolean) evaluate(operand);
+      if (b == null) {
+        unknown = true;
+      } else if (b) {
+        return true;
+      }
+    }
+    return unknown ? null : false;
+  }
+
+  private static Object case_(List<RexNode> operands) {
+    // Operands are WHEN, THEN, WHEN, THEN, ..., ELSE
+    for (int i = 0; i < operands.size() - 1; i += 2) {
+      if (Boolean.TRUE.equals(evaluate(operands.get(i)))) {
+        return evaluate(operands.get(i + 1));
+      }
+    }
+    return evaluate(operands.get(operands.size() - 1));
+  }
+
+  /** Compares two non-null values of the same family. */
+  private static int compare(RexCall call, List<Object> values) {
+    final Object v0 = values.get(0);
+    final Object v1 = values.get(1);
+    final SqlTypeName t0 = call.getOperands().get(0).getType().getSqlTypeName();
+    final SqlTypeName t1 = call.getOperands().get(1).getType().getSqlTypeName();
+    if (SqlTypeName.NUMERIC_TYPES.contains(t0)
+        && SqlTypeName.NUMERIC_TYPES.contains(t1)) {
+      if (v0 instanceof Double || v1 instanceof Double) {
+        // Compare as generated code does, using primitive operators, so that
+        // 0.0 equals -0.0. (Double.compare would order -0.0 before 0.0.)
+        // NaN is not ordered with respect to anything, even itself, which we
+        // cannot express as an int; decline.
+        final double d0 = ((Number) v0).doubleValue();
+        final double d1 = ((Number) v1).doubleValue();
+        if (Double.isNaN(d0) || Double.isNaN(d1)) {
+          throw Unsupported.INSTANCE;
+        }
+        return d0 < d1 ? -1 : d0 > d1 ? 1 : 0;
+      }
+      return ((BigDecimal) v0).compareTo((BigDecimal) v1);
+    }
+    if (SqlTypeName.CHAR_TYPES.contains(t0)
+        && SqlTypeName.CHAR_TYPES.contains(t1)) {
+      return ((String) v0).compareTo((String) v1);
+    }
+    if (t0 == t1) {
+      switch (t0) {
+      case BOOLEAN:
+        return ((Boolean) v0).compareTo((Boolean) v1);
+      case DATE:
+      case TIME:
+        return ((Integer) v0).compareTo((Integer) v1);
+      case TIMESTAMP:
+        return ((Long) v0).compareTo((Long) v1);
+      }
+    }
+    throw Unsupported.INSTANCE;
+  }
+
+  private static Object arithmetic(RexCall call, List<Object> values) {
+    for (RexNode operand : call.getOperands()) {
+      if (!SqlTypeName.NUMERIC_TYPES.contains(
+          operand.getType().getSqlTypeName())) {
+        throw Unsupported.INSTANCE;
+      }
+    }
+    final SqlTypeName typeName = call.getType().getSqlTypeName();
+    switch (typeName) {
+    case FLOAT:
+    case DOUBLE:
+      final double d0 = ((Number) values.get(0)).doubleValue();
+      if (values.size() == 1) {
+        return call.getKind() == SqlKind.MINUS_PREFIX ? -d0 : d0;
+      }
+      final double d1 = ((Number) values.get(1)).doubleValue();
+      switch (call.getKind()) {
+      case PLUS:
+        return d0 + d1;
+      case MINUS:
+        return d0 - d1;
+      case TIMES:
+        return d0 * d1;
+      case DIVIDE:
+        return d0 / d1;
+      }
+      throw Unsupported.INSTANCE;
+    case TINYINT:
+    case SMALLINT:
+    case INTEGER:
+    case BIGINT:
+    case DECIMAL:
+      break;
+    default:
+      throw Unsupported.INSTANCE;
+    }
+    final BigDecimal b0 = (BigDecimal) values.get(0);
+    final BigDecimal result;
+    if (values.size() == 1) {
+      result = call.getKind() == SqlKind.MINUS_PREFIX ? b0.negate() : b0;
+    } else {
+      final BigDecimal b1 = (BigDecimal) values.get(1);
+      switch (call.getKind()) {
+      case PLUS:
+        result = b0.add(b1);
+        break;
+      case MINUS:
+        result = b0.subtract(b1);
+        break;
+      case TIMES:
+        result = b0.multiply(b1);
+        break;
+      case DIVIDE:
+        if (typeName == SqlTypeName.DECIMAL) {
+          // Scale of the result depends on the type system
+          throw Unsupported.INSTANCE;
+        }
+        // Java integer division truncates towards zero
+        result = b0.divide(b1, 0, RoundingMode.DOWN);
+        break;
+      default:
+        throw Unsupported.INSTANCE;
+      }
+    }
+    if (typeName != SqlTypeName.DECIMAL) {
+      // Generated code does integer arithmetic in the widest of the operand
+      // types (at least int), and silently overflows
+      SqlTypeName widest = SqlTypeName.INTEGER;
+      for (RexNode operand : call.getOperands()) {
+        if (operand.getType().getSqlTypeName() == SqlTypeName.BIGINT) {
+          widest = SqlTypeName.BIGINT;
+        }
+      }
+      checkRange(result, widest);
+      checkRange(result, typeName);
+    }
+    return result;
+  }
+
+  /** Throws if an integer value is out of the range of a type. */
+  private static void checkRange(BigDecimal value, SqlTypeName typeName) {
+    final long min;
+    final long max;
+    switch (typeName) {
+    case TINYINT:
+      min = Byte.MIN_VALUE;
+      max = Byte.MAX_VALUE;
+      break;
+    case SMALLINT:
+      min = Short.MIN_VALUE;
+      max = Short.MAX_VALUE;
+      break;
+    case INTEGER:
+      min = Integer.MIN_VALUE;
+      max = Integer.MAX_VALUE;
+      break;
+    case BIGINT:
+      min = Long.MIN_VALUE;
+      max = Long.MAX_VALUE;
+      break;
+    default:
+      throw Unsupported.INSTANCE;
+    }
+    if (value.scale() > 0 && value.stripTrailingZeros().scale() > 0
+        || value.compareTo(BigDecimal.valueOf(min)) < 0
+        || value.compareTo(BigDecimal.valueOf(max)) > 0) {
+      throw Unsupported.INSTANCE;
+    }
+  }
+
+  private static Object cast(RexCall call, Object value) {
+    final RelDataType fromType = call.getOperands().get(0).getType();
+    final RelDataType toType = call.getType();
+    final SqlTypeName from = fromType.getSqlTypeName();
+    final SqlTypeName to = toType.getSqlTypeName();
+    if (from == to
+        && fromType.getPrecision() == toType.getPrecision()
+        && fromType.getScale() == toType.getScale()) {
+      // Only nullability changes
+      return value;
+    }
+    if (SqlTypeName.INT_TYPES.contains(from)
+        && SqlTypeName.INT_TYPES.contains(to)) {
+      checkRange((BigDecimal) value, to);
+      return value;
+    }
+    if (SqlTypeName.INT_TYPES.contains(from)
+        && (to == SqlTypeName.DOUBLE || to == SqlTypeName.FLOAT)) {
+      return ((BigDecimal) value).doubleValue();
+    }
+    if (SqlTypeName.CHAR_TYPES.contains(from)
+        && to == SqlTypeName.VARCHAR
+        && ((String) value).length() <= toType.getPrecision()) {
+      return value;
+    }
+    throw Unsupported.INSTANCE;
+  }
+
+  private static String substring(List<Object> values) {
+    final String s = (String) values.get(0);
+    final int from = ((BigDecimal) values.get(1)).intValueExact();
+    if (values.size() == 2) {
+      return SqlFunctions.substring(s, from);
+    }
+    final int for_ = ((BigDecimal) values.get(2)).intValueExact();
+    return SqlFunctions.substring(s, from, for_);
+  }
+
+  /** Adds an interval to a {@code DATE} or {@code TIMESTAMP}, the same way
+   * as the code generated for {@link SqlStdOperatorTable#DATETIME_PLUS}. */
+  private static Object datetimePlus(RexCall call, List<Object> values) {
+    final SqlTypeName typeName0 =
+        call.getOperands().get(0).getType().getSqlTypeName();
+    final SqlTypeName typeName1 =
+        call.getOperands().get(1).getType().getSqlTypeName();
+    if (call.getType().getSqlTypeName() != typeName0) {
+      throw Unsupported.INSTANCE;
+    }
+    switch (typeName0) {
+    case DATE:
+      final int date = (Integer) values.get(0);
+      if (SqlTypeName.YEAR_INTERVAL_TYPES.contains(typeName1)) {
+        return SqlFunctions.addMonths(date, (Integer) values.get(1));
+      }
+      if (SqlTypeName.DAY_INTERVAL_TYPES.contains(typeName1)) {
+        return date
+            + (int) ((Long) values.get(1) / DateTimeUtils.MILLIS_PER_DAY);
+      }
+      break;
+    case TIMESTAMP:
+      final long timestamp = (Long) values.get(0);
+      if (SqlTypeName.YEAR_INTERVAL_TYPES.contains(typeName1)) {
+        return SqlFunctions.addMonths(timestamp, (Integer) values.get(1));
+      }
+      if (SqlTypeName.DAY_INTERVAL_TYPES.contains(typeName1)) {
+        return timestamp + (Long) values.get(1);
+      }
+      break;
+    }
+    throw Unsupported.INSTANCE;
+  }
+
+  /** Thrown when the interpreter cannot evaluate an expression. */
+  private static class Unsupported extends ControlFlowException {
+    static final Unsupported INSTANCE = new Unsupported();
+  }
+}
+
+// End RexInterpreter.java
@@ -28,6 +28,7 @@
 import org.apache.calcite.sql.SqlExplainLevel;
 import org.apache.calcite.sql.fun.SqlStdOperatorTable;
 import org.apache.calcite.sql.type.SqlTypeUtil;
+import org.apache.calcite.util.ImmutableBitSet;
 import org.apache.calcite.util.Litmus;
 import org.apache.calcite.util.Pair;
 import org.apache.calcite.util.Permutation;
@@ -654,6 +655,37 @@ public int[] getReferenceCounts() {
     return refCounts;
   }
 
+  /**
+   * Returns the ordinals of the calls that are used, directly or indirectly,
+   * both by the condition and by at least one projection.
+   *
+   * <p>A program is evaluated once per row, so code generated for it should
+   * evaluate these sub-expressions once, and use their values both to decide
+   * whether the row passes the condition and to compute its projections.
+   *
+   * @return ordinals of shared calls; empty if the program has no condition
+   */
+  public ImmutableBitSet getSharedExprs() {
+    if (condition == null) {
+      return ImmutableBitSet.of();
+    }
+    final ReferenceMarker conditionMarker = new ReferenceMarker();
+    conditionMarker.visitLocalRef(condition);
+    final ReferenceMarker projectMarker = new ReferenceMarker();
+    for (RexLocalRef project : projects) {
+      projectMarker.visitLocalRef(project);
+    }
+    final ImmutableBitSet.Builder builder = ImmutableBitSet.builder();
+    for (int i = 0; i < exprs.size(); i++) {
+      if (conditionMarker.marked[i]
+          && projectMarker.marked[i]
+          && exprs.get(i) instanceof RexCall) {
+        builder.set(i);
+      }
+    }
+    return builder.build();
+  }
+
   /**
    * Returns whether an expression is constant.
    */
@@ -940,6 +972,27 @@ public Void visitLocalRef(RexLocalRef localRef) {
       return null;
     }
   }
+
+  /**
+   * Visitor which marks the expressions that an expression uses, directly or
+   * indirectly.
+   */
+  private class ReferenceMarker extends RexVisitorImpl<Void> {
+    final boolean[] marked = new boolean[exprs.size()];
+
+    ReferenceMarker() {
+      super(true);
+    }
+
+    public Void visitLocalRef(RexLocalRef localRef) {
+      final int index = localRef.getIndex();
+      if (!marked[index]) {
+        marked[index] = true;
+        exprs.get(index).accept(this);
+      }
+      return null;
+    }
+  }
 }
 
 // End RexProgram.java
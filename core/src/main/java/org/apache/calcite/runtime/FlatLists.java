@@ -16,11 +16,15 @@
  */
 package org.apache.calcite.runtime;
 
+import org.apache.calcite.linq4j.Spill;
 import org.apache.calcite.util.ImmutableNullableList;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -41,6 +45,19 @@ private FlatLists() {
   public static final ComparableEmptyList COMPARABLE_EMPTY_LIST =
       new ComparableEmptyList();
 
+  private static final Spill.Serializer<List<Object>> SPILL_SERIALIZER =
+      new Spill.Serializer<List<Object>>() {
+        public void write(ObjectOutput out, List<Object> list)
+            throws IOException {
+          Spill.listSerializer().write(out, list);
+        }
+
+        public List<Object> read(ObjectInput in) throws IOException {
+          final List<Object> list = Spill.listSerializer().read(in);
+          return list == null ? null : of(list);
+        }
+      };
+
   /** Creates a flat list with 0 elements. */
   public static <T> ComparableList<T> of() {
     //noinspection unchecked
@@ -199,6 +216,14 @@ private static <T> List<T> flatListNotComparable(T[] t) {
     }
   }
 
+  /** Returns a serializer that writes lists to spill files and reads them
+   * back as flat lists.
+   *
+   * @see Spill#listSerializer() */
+  public static Spill.Serializer<List<Object>> spillSerializer() {
+    return SPILL_SERIALIZER;
+  }
+
   /**
    * Creates a memory-, CPU- and cache-efficient immutable list from an
    * existing list. The list is always copied.
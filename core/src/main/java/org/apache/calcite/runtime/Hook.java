@@ -82,7 +82,12 @@ public enum Hook {
   /** Called with a query that has been generated to send to a back-end system.
    * The query might be a SQL string (for the JDBC adapter), a list of Mongo
    * pipeline expressions (for the MongoDB adapter), et cetera. */
-  QUERY_PLAN;
+  QUERY_PLAN,
+
+  /** Called when an operator has written rows to a temporary file, with the
+   * name of the operator, the number of rows and the number of bytes, in an
+   * array. */
+  SPILL;
 
   private final List<Function<Object, Object>> handlers =
       new CopyOnWriteArrayList<>();
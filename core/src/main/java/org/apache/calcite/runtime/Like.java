@@ -16,9 +16,17 @@
  */
 package org.apache.calcite.runtime;
 
+import org.apache.calcite.linq4j.function.Deterministic;
+import org.apache.calcite.util.Pair;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.regex.Pattern;
+
 /**
  * Utilities for converting SQL {@code LIKE} and {@code SIMILAR} operators
- * to regular expressions.
+ * to regular expressions, and for matching strings against them.
  */
 public class Like {
   private static final String JAVA_REGEX_SPECIALS = "[]()|^-+*?{}$\\";
@@ -40,9 +48,143 @@ public class Like {
     "[:alnum:]", "\\p{Alnum}"
   };
 
+  /** Maximum number of matchers held in each cache. */
+  private static final int CACHE_SIZE = 1000;
+
+  /** Cache of matchers for LIKE patterns, keyed by pattern and escape. */
+  private static final Cache<Pair<String, String>, Matcher> LIKE_MATCHERS =
+      CacheBuilder.newBuilder().maximumSize(CACHE_SIZE).build();
+
+  /** Cache of matchers for SIMILAR patterns, keyed by pattern and escape. */
+  private static final Cache<Pair<String, String>, Matcher> SIMILAR_MATCHERS =
+      CacheBuilder.newBuilder().maximumSize(CACHE_SIZE).build();
+
+  /** Matcher that accepts every string; for patterns such as '%'. */
+  private static final Matcher ANY =
+      new Matcher() {
+        public boolean matches(String s) {
+          return true;
+        }
+      };
+
   private Like() {
   }
 
+  /** Returns a matcher for a SQL LIKE pattern.
+   *
+   * <p>Patterns whose only wildcards are '%' at the start or end, such as
+   * 'abc', 'abc%', '%abc' and '%abc%', are matched without a regular
+   * expression. Matchers are cached, so calling this method for each row
+   * is cheap; code generation hoists calls with a constant pattern into a
+   * static field. */
+  @Deterministic
+  public static Matcher likeMatcher(String sqlPattern) {
+    return likeMatcher(sqlPattern, null);
+  }
+
+  /** Returns a matcher for a SQL LIKE pattern with an escape string
+   * (which may be null). */
+  @Deterministic
+  public static Matcher likeMatcher(String sqlPattern, String escapeStr) {
+    final Pair<String, String> key = Pair.of(sqlPattern, escapeStr);
+    Matcher matcher = LIKE_MATCHERS.getIfPresent(key);
+    if (matcher == null) {
+      matcher = createLikeMatcher(sqlPattern, escapeStr);
+      LIKE_MATCHERS.put(key, matcher);
+    }
+    return matcher;
+  }
+
+  /** Returns a matcher for a SQL SIMILAR pattern. */
+  @Deterministic
+  public static Matcher similarMatcher(String sqlPattern) {
+    return similarMatcher(sqlPattern, null);
+  }
+
+  /** Returns a matcher for a SQL SIMILAR pattern with an escape string
+   * (which may be null). */
+  @Deterministic
+  public static Matcher similarMatcher(String sqlPattern, String escapeStr) {
+    final Pair<String, String> key = Pair.of(sqlPattern, escapeStr);
+    Matcher matcher = SIMILAR_MATCHERS.getIfPresent(key);
+    if (matcher == null) {
+      matcher = createSimilarMatcher(sqlPattern, escapeStr);
+      SIMILAR_MATCHERS.put(key, matcher);
+    }
+    return matcher;
+  }
+
+  private static Matcher createLikeMatcher(String sqlPattern,
+      String escapeStr) {
+    final String regex = sqlToRegexLike(sqlPattern, escapeStr);
+    final char escapeChar = escapeStr == null ? 0 : escapeStr.charAt(0);
+
+    // Strip leading and trailing '%', and unescape what remains. If the
+    // remainder contains a wildcard, only a regular expression will do.
+    final int len = sqlPattern.length();
+    int start = 0;
+    while (start < len && sqlPattern.charAt(start) == '%'
+        && escapeChar != '%') {
+      ++start;
+    }
+    int end = len;
+    while (end > start && sqlPattern.charAt(end - 1) == '%'
+        && escapeChar != '%'
+        && (escapeStr == null || !isEscaped(sqlPattern, end - 1, escapeChar))) {
+      --end;
+    }
+    final StringBuilder buf = new StringBuilder(end - start);
+    for (int i = start; i < end; i++) {
+      final char c = sqlPattern.charAt(i);
+      if (escapeStr != null && c == escapeChar) {
+        // sqlToRegexLike has already validated the escape sequence
+        buf.append(sqlPattern.charAt(++i));
+      } else if (c == '_' || c == '%') {
+        return new RegexMatcher(regex);
+      } else {
+        buf.append(c);
+      }
+    }
+    final String literal = buf.toString();
+    final boolean leading = start > 0;
+    final boolean trailing = end < len;
+    if (leading && trailing) {
+      return literal.isEmpty() ? ANY : new ContainsMatcher(literal);
+    } else if (leading) {
+      return literal.isEmpty() ? ANY : new SuffixMatcher(literal);
+    } else if (trailing) {
+      return literal.isEmpty() ? ANY : new PrefixMatcher(literal);
+    } else {
+      return new ExactMatcher(literal);
+    }
+  }
+
+  /** Returns whether the character at position {@code i} of a pattern is
+   * preceded by an odd number of escape characters. */
+  private static boolean isEscaped(String sqlPattern, int i, char escapeChar) {
+    int n = 0;
+    while (i > 0 && sqlPattern.charAt(i - 1) == escapeChar) {
+      ++n;
+      --i;
+    }
+    return n % 2 == 1;
+  }
+
+  private static Matcher createSimilarMatcher(String sqlPattern,
+      String escapeStr) {
+    final String regex = sqlToRegexSimilar(sqlPattern, escapeStr);
+    final char escapeChar = escapeStr == null ? 0 : escapeStr.charAt(0);
+    for (int i = 0; i < sqlPattern.length(); i++) {
+      final char c = sqlPattern.charAt(i);
+      if ((!Character.isLetterOrDigit(c) && c != ' ')
+          || (escapeStr != null && c == escapeChar)) {
+        return new RegexMatcher(regex);
+      }
+    }
+    // No special or escape characters; the pattern matches only itself
+    return new ExactMatcher(sqlPattern);
+  }
+
   /**
    * Translates a SQL LIKE pattern to Java regex pattern, with optional
    * escape string.
@@ -301,6 +443,80 @@ static String sqlToRegexSimilar(
 
     return javaPattern.toString();
   }
+
+  /** Tests whether strings match a SQL LIKE or SIMILAR pattern.
+   *
+   * @see #likeMatcher(String, String)
+   * @see #similarMatcher(String, String) */
+  public interface Matcher {
+    /** Returns whether a string (not null) matches the pattern. */
+    boolean matches(String s);
+  }
+
+  /** Matcher for a pattern without wildcards, such as 'abc'. */
+  private static class ExactMatcher implements Matcher {
+    private final String literal;
+
+    ExactMatcher(String literal) {
+      this.literal = literal;
+    }
+
+    public boolean matches(String s) {
+      return s.equals(literal);
+    }
+  }
+
+  /** Matcher for a pattern such as 'abc%'. */
+  private static class PrefixMatcher implements Matcher {
+    private final String prefix;
+
+    PrefixMatcher(String prefix) {
+      this.prefix = prefix;
+    }
+
+    public boolean matches(String s) {
+      return s.startsWith(prefix);
+    }
+  }
+
+  /** Matcher for a pattern such as '%abc'. */
+  private static class SuffixMatcher implements Matcher {
+    private final String suffix;
+
+    SuffixMatcher(String suffix) {
+      this.suffix = suffix;
+    }
+
+    public boolean matches(String s) {
+      return s.endsWith(suffix);
+    }
+  }
+
+  /** Matcher for a pattern such as '%abc%'. */
+  private static class ContainsMatcher implements Matcher {
+    private final String literal;
+
+    ContainsMatcher(String literal) {
+      this.literal = literal;
+    }
+
+    public boolean matches(String s) {
+      return s.contains(literal);
+    }
+  }
+
+  /** Matcher that uses a compiled regular expression. */
+  private static class RegexMatcher implements Matcher {
+    private final Pattern pattern;
+
+    RegexMatcher(String regex) {
+      this.pattern = Pattern.compile(regex);
+    }
+
+    public boolean matches(String s) {
+      return pattern.matcher(s).matches();
+    }
+  }
 }
 
 // End Like.java
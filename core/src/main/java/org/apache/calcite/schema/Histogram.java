@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.schema;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+/**
+ * Equi-depth histogram of the non-null values of a column.
+ *
+ * <p>The {@code n + 1} end points divide the values into {@code n} buckets,
+ * each of which holds approximately the same number of values. Bucket
+ * {@code i} holds values between {@code endPoints[i]} and
+ * {@code endPoints[i + 1]}. A value that occurs very frequently has several
+ * consecutive end points, so a bucket whose end points are equal is entirely
+ * filled by that value.
+ *
+ * <p>All end points must be mutually comparable; numeric end points are
+ * compared by value, regardless of their class.
+ */
+public class Histogram {
+  public final ImmutableList<Comparable> endPoints;
+
+  /** Creates a Histogram. */
+  public Histogram(List<? extends Comparable> endPoints) {
+    Preconditions.checkArgument(endPoints.size() >= 2,
+        "histogram needs at least two end points");
+    this.endPoints = ImmutableList.copyOf(endPoints);
+  }
+
+  /** Creates a histogram with up to {@code bucketCount} buckets from a sorted
+   * list of non-null values; returns null if the list is empty. */
+  public static Histogram of(List<? extends Comparable> sortedValues,
+      int bucketCount) {
+    final int n = sortedValues.size();
+    if (n == 0) {
+      return null;
+    }
+    final int buckets = Math.max(1, Math.min(bucketCount, n - 1));
+    final ImmutableList.Builder<Comparable> builder = ImmutableList.builder();
+    for (int i = 0; i <= buckets; i++) {
+      builder.add(sortedValues.get((int) ((long) i * (n - 1) / buckets)));
+    }
+    return new Histogram(builder.build());
+  }
+
+  /** Returns the number of buckets. */
+  public int getBucketCount() {
+    return endPoints.size() - 1;
+  }
+
+  /** Returns the estimated fraction of values that are less than
+   * {@code value}, or, if {@code inclusive}, less than or equal to it. */
+  public double fractionBelow(Comparable value, boolean inclusive) {
+    final int n = getBucketCount();
+    double f = 0D;
+    for (int i = 0; i < n; i++) {
+      final Comparable lo = endPoints.get(i);
+      final Comparable hi = endPoints.get(i + 1);
+      final int cHi = compare(hi, value);
+      if (cHi < 0 || cHi == 0 && inclusive) {
+        f += 1D;
+        continue;
+      }
+      final int cLo = compare(lo, value);
+      if (cLo > 0 || cLo == 0 && !inclusive) {
+        break;
+      }
+      f += interpolate(lo, hi, value);
+      break;
+    }
+    return f / n;
+  }
+
+  /** Returns the fraction of values equal to {@code value} if it fills at
+   * least one whole bucket, or -1 if it does not, in which case the caller
+   * should estimate using the number of distinct values. */
+  public double fractionEqual(Comparable value) {
+    final int n = getBucketCount();
+    int full = 0;
+    for (int i = 0; i < n; i++) {
+      if (compare(endPoints.get(i), value) == 0
+          && compare(endPoints.get(i + 1), value) == 0) {
+        ++full;
+      }
+    }
+    return full == 0 ? -1D : (double) full / n;
+  }
+
+  /** Returns the fraction of the range from {@code lo} to {@code hi} that
+   * lies below {@code value}; assumes that values are uniformly distributed
+   * if they are numeric, otherwise returns one half. */
+  private static double interpolate(Comparable lo, Comparable hi,
+      Comparable value) {
+    if (lo instanceof Number && hi instanceof Number
+        && value instanceof Number) {
+      final double l = ((Number) lo).doubleValue();
+      final double h = ((Number) hi).doubleValue();
+      if (h <= l) {
+        return 1D;
+      }
+      final double v = ((Number) value).doubleValue();
+      return Math.max(0D, Math.min(1D, (v - l) / (h - l)));
+    }
+    return 0.5D;
+  }
+
+  /** Returns whether two values can be compared by {@link #compare}. */
+  public static boolean isComparable(Comparable c0, Comparable c1) {
+    return c0 instanceof Number && c1 instanceof Number
+        || c0.getClass() == c1.getClass();
+  }
+
+  /** Compares two values, comparing numbers by value. */
+  @SuppressWarnings("unchecked")
+  public static int compare(Comparable c0, Comparable c1) {
+    if (c0 instanceof Number && c1 instanceof Number) {
+      return Double.compare(((Number) c0).doubleValue(),
+          ((Number) c1).doubleValue());
+    }
+    return c0.compareTo(c1);
+  }
+}
+
+// End Histogram.java
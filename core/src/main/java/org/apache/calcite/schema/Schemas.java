@@ -25,8 +25,10 @@
 import org.apache.calcite.jdbc.CalcitePrepare;
 import org.apache.calcite.jdbc.CalciteSchema;
 import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.EnumerableDefaults;
 import org.apache.calcite.linq4j.QueryProvider;
 import org.apache.calcite.linq4j.Queryable;
+import org.apache.calcite.linq4j.function.Function1;
 import org.apache.calcite.linq4j.tree.Expression;
 import org.apache.calcite.linq4j.tree.Expressions;
 import org.apache.calcite.linq4j.tree.MethodCallExpression;
@@ -229,6 +231,10 @@ public static <E> Queryable<E> queryable(DataContext root, Class<E> clazz,
   /** Returns a {@link Queryable}, given a schema and table name. */
   public static <E> Queryable<E> queryable(DataContext root, SchemaPlus schema,
       Class<E> clazz, String tableName) {
+    if (root instanceof MorselDataContext) {
+      //noinspection unchecked
+      return ((MorselDataContext<E>) root).morsel.asQueryable();
+    }
     QueryableTable table = (QueryableTable) schema.getTable(tableName);
     return table.asQueryable(root.getQueryProvider(), schema, tableName);
   }
@@ -237,9 +243,41 @@ public static <E> Queryable<E> queryable(DataContext root, SchemaPlus schema,
    * a given table, representing each row as an object array. */
   public static Enumerable<Object[]> enumerable(final ScannableTable table,
       final DataContext root) {
+    if (root instanceof MorselDataContext) {
+      //noinspection unchecked
+      return ((MorselDataContext<Object[]>) root).morsel;
+    }
     return table.scan(root);
   }
 
+  /** Reads the rows of a table, divides them into morsels, and evaluates a
+   * pipeline over each morsel in parallel.
+   *
+   * <p>The pipeline is called with a data context in which the table that
+   * produced {@code source} returns just the rows of the morsel; see
+   * {@link #enumerable(ScannableTable, DataContext)} and
+   * {@link #queryable(DataContext, SchemaPlus, Class, String)}. Therefore the
+   * pipeline must read no other table.
+   *
+   * @param root Data context
+   * @param source Rows of the table
+   * @param pipeline Pipeline to evaluate for each morsel
+   * @param morselSize Number of rows in each morsel
+   * @param parallelism Maximum number of morsels to evaluate at the same time
+   */
+  public static <E, T> Enumerable<T> exchange(final DataContext root,
+      Enumerable<E> source,
+      final Function1<DataContext, Enumerable<T>> pipeline, int morselSize,
+      int parallelism) {
+    return EnumerableDefaults.exchange(source,
+        new Function1<Enumerable<E>, Enumerable<T>>() {
+          public Enumerable<T> apply(Enumerable<E> morsel) {
+            return pipeline.apply(new MorselDataContext<>(root, morsel));
+          }
+        },
+        morselSize, parallelism);
+  }
+
   /** Returns an {@link org.apache.calcite.linq4j.Enumerable} over the rows of
    * a given table, not applying any filters, representing each row as an object
    * array. */
@@ -567,6 +605,43 @@ public Object get(String name) {
     }
   }
 
+  /** Data context in which the table being read by
+   * {@link #exchange} returns the rows of a single morsel.
+   *
+   * <p>Operators in the pipeline run concurrently on several morsels, so the
+   * context does not give them a spill manager, which is not thread-safe;
+   * morsels are small enough to process in memory.
+   *
+   * @param <E> Row type */
+  private static class MorselDataContext<E> implements DataContext {
+    private final DataContext root;
+    private final Enumerable<E> morsel;
+
+    MorselDataContext(DataContext root, Enumerable<E> morsel) {
+      this.root = root;
+      this.morsel = morsel;
+    }
+
+    public SchemaPlus getRootSchema() {
+      return root.getRootSchema();
+    }
+
+    public JavaTypeFactory getTypeFactory() {
+      return root.getTypeFactory();
+    }
+
+    public QueryProvider getQueryProvider() {
+      return root.getQueryProvider();
+    }
+
+    public Object get(String name) {
+      if (name.equals(Variable.SPILL_MANAGER.camelName)) {
+        return null;
+      }
+      return root.get(name);
+    }
+  }
+
   /** Implementation of {@link Path}. */
   private static class PathImpl
       extends AbstractList<Pair<String, Schema>> implements Path {
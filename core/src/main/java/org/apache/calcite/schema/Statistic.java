@@ -48,6 +48,10 @@ public interface Statistic {
 
   /** Returns the distribution of the data in this table. */
   RelDistribution getDistribution();
+
+  /** Returns statistics about the column with a given ordinal, or null if
+   * nothing is known about it. */
+  ColumnStatistic getColumnStatistic(int ordinal);
 }
 
 // End Statistic.java
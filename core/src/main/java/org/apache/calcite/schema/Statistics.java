@@ -55,6 +55,10 @@ public List<RelCollation> getCollations() {
         public RelDistribution getDistribution() {
           return RelDistributionTraitDef.INSTANCE.getDefault();
         }
+
+        public ColumnStatistic getColumnStatistic(int ordinal) {
+          return null;
+        }
       };
 
   /** Returns a statistic with a given set of referential constraints. */
@@ -84,6 +88,20 @@ public static Statistic of(final Double rowCount,
       final List<ImmutableBitSet> keys,
       final List<RelReferentialConstraint> referentialConstraints,
       final List<RelCollation> collations) {
+    return of(rowCount, keys, referentialConstraints, collations,
+        ImmutableList.<ColumnStatistic>of());
+  }
+
+  /** Returns a statistic with a given row count, set of unique keys,
+   * referential constraints, collations, and statistics for each column.
+   *
+   * <p>Elements of {@code columnStatistics} may be null, and the list may be
+   * shorter than the number of columns. */
+  public static Statistic of(final Double rowCount,
+      final List<ImmutableBitSet> keys,
+      final List<RelReferentialConstraint> referentialConstraints,
+      final List<RelCollation> collations,
+      final List<ColumnStatistic> columnStatistics) {
     return new Statistic() {
       public Double getRowCount() {
         return rowCount;
@@ -109,8 +127,61 @@ public List<RelCollation> getCollations() {
       public RelDistribution getDistribution() {
         return RelDistributionTraitDef.INSTANCE.getDefault();
       }
+
+      public ColumnStatistic getColumnStatistic(int ordinal) {
+        return ordinal < columnStatistics.size()
+            ? columnStatistics.get(ordinal)
+            : null;
+      }
+    };
+  }
+
+  /** Returns a statistic about a column. Any of the arguments may be null,
+   * meaning "not known". */
+  public static ColumnStatistic column(final Double distinctCount,
+      final Double nullCount, final Comparable min, final Comparable max,
+      final Histogram histogram) {
+    return new ColumnStatistic() {
+      public Double getDistinctCount() {
+        return distinctCount;
+      }
+
+      public Double getNullCount() {
+        return nullCount;
+      }
+
+      public Comparable getMin() {
+        return min;
+      }
+
+      public Comparable getMax() {
+        return max;
+      }
+
+      public Histogram getHistogram() {
+        return histogram;
+      }
     };
   }
+
+  /** Returns a statistic about a column, computed from a sorted list of its
+   * non-null values and the number of nulls. */
+  public static ColumnStatistic column(List<? extends Comparable> sortedValues,
+      int nullCount, int bucketCount) {
+    if (sortedValues.isEmpty()) {
+      return column(0D, (double) nullCount, null, null, null);
+    }
+    int distinctCount = 1;
+    for (int i = 1; i < sortedValues.size(); i++) {
+      if (Histogram.compare(sortedValues.get(i - 1), sortedValues.get(i))
+          != 0) {
+        ++distinctCount;
+      }
+    }
+    return column((double) distinctCount, (double) nullCount,
+        sortedValues.get(0), sortedValues.get(sortedValues.size() - 1),
+        Histogram.of(sortedValues, bucketCount));
+  }
 }
 
 // End Statistics.java
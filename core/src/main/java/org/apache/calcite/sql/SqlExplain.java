@@ -31,7 +31,8 @@ public class SqlExplain extends SqlCall {
         @Override public SqlCall createCall(SqlLiteral functionQualifier,
             SqlParserPos pos, SqlNode... operands) {
           return new SqlExplain(pos, operands[0], (SqlLiteral) operands[1],
-              (SqlLiteral) operands[2], (SqlLiteral) operands[3], 0);
+              (SqlLiteral) operands[2], (SqlLiteral) operands[3],
+              operands.length > 4 ? (SqlLiteral) operands[4] : null, 0);
         }
       };
 
@@ -58,6 +59,7 @@ public SqlLiteral symbol(SqlParserPos pos) {
   SqlLiteral detailLevel;
   SqlLiteral depth;
   SqlLiteral format;
+  SqlLiteral plannerStatistics;
   private final int dynamicParameterCount;
 
   //~ Constructors -----------------------------------------------------------
@@ -68,11 +70,23 @@ public SqlExplain(SqlParserPos pos,
       SqlLiteral depth,
       SqlLiteral format,
       int dynamicParameterCount) {
+    this(pos, explicandum, detailLevel, depth, format, null,
+        dynamicParameterCount);
+  }
+
+  public SqlExplain(SqlParserPos pos,
+      SqlNode explicandum,
+      SqlLiteral detailLevel,
+      SqlLiteral depth,
+      SqlLiteral format,
+      SqlLiteral plannerStatistics,
+      int dynamicParameterCount) {
     super(pos);
     this.explicandum = explicandum;
     this.detailLevel = detailLevel;
     this.depth = depth;
     this.format = format;
+    this.plannerStatistics = plannerStatistics;
     this.dynamicParameterCount = dynamicParameterCount;
   }
 
@@ -87,7 +101,8 @@ public SqlOperator getOperator() {
   }
 
   public List<SqlNode> getOperandList() {
-    return ImmutableNullableList.of(explicandum, detailLevel, depth, format);
+    return ImmutableNullableList.of(explicandum, detailLevel, depth, format,
+        plannerStatistics);
   }
 
   @Override public void setOperand(int i, SqlNode operand) {
@@ -104,6 +119,9 @@ public List<SqlNode> getOperandList() {
     case 3:
       format = (SqlLiteral) operand;
       break;
+    case 4:
+      plannerStatistics = (SqlLiteral) operand;
+      break;
     default:
       throw new AssertionError(i);
     }
@@ -151,6 +169,14 @@ public boolean withType() {
     return getDepth() == Depth.TYPE;
   }
 
+  /**
+   * Returns whether the output should include statistics about the rules
+   * that the planner fired, as in "EXPLAIN PLAN WITH PLANNER STATISTICS".
+   */
+  public boolean withPlannerStatistics() {
+    return plannerStatistics != null && plannerStatistics.booleanValue();
+  }
+
   /**
    * Returns the desired output format.
    */
@@ -201,6 +227,9 @@ public boolean isJson() {
     default:
       throw new UnsupportedOperationException();
     }
+    if (withPlannerStatistics()) {
+      writer.keyword("WITH PLANNER STATISTICS");
+    }
     switch (getFormat()) {
     case XML:
       writer.keyword("AS XML");
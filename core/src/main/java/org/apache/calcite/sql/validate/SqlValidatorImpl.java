@@ -3197,6 +3197,20 @@ public String apply(String s) {
     // dialects you can refer to columns of the select list, e.g.
     // "SELECT empno AS x FROM emp ORDER BY x"
     validateOrderList(select);
+    handleOffsetFetch(select.getOffset(), select.getFetch());
+  }
+
+  /** Gives the type INTEGER to an offset or fetch that is a dynamic
+   * parameter, such as "?" in "FETCH NEXT ? ROWS ONLY". */
+  private void handleOffsetFetch(SqlNode offset, SqlNode fetch) {
+    if (offset instanceof SqlDynamicParam) {
+      setValidatedNodeType(offset,
+          typeFactory.createSqlType(SqlTypeName.INTEGER));
+    }
+    if (fetch instanceof SqlDynamicParam) {
+      setValidatedNodeType(fetch,
+          typeFactory.createSqlType(SqlTypeName.INTEGER));
+    }
   }
 
   /** Validates that a query can deliver the modality it promises. Only called
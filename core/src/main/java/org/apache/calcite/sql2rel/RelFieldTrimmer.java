@@ -43,6 +43,7 @@
 import org.apache.calcite.rel.type.RelDataTypeImpl;
 import org.apache.calcite.rex.RexBuilder;
 import org.apache.calcite.rex.RexCorrelVariable;
+import org.apache.calcite.rex.RexDynamicParam;
 import org.apache.calcite.rex.RexFieldAccess;
 import org.apache.calcite.rex.RexLiteral;
 import org.apache.calcite.rex.RexNode;
@@ -527,6 +528,16 @@ public TrimResult trimFields(
       return result(sort, Mappings.createIdentity(fieldCount));
     }
 
+    if (sort.offset instanceof RexDynamicParam
+        || sort.fetch instanceof RexDynamicParam) {
+      // RelBuilder.sortLimit only accepts a constant offset and fetch
+      final RelCollation newCollation = RexUtil.apply(inputMapping, collation);
+      return result(
+          sort.copy(sort.getTraitSet().replace(newCollation), newInput,
+              newCollation),
+          inputMapping);
+    }
+
     relBuilder.push(newInput);
     final int offset =
         sort.offset == null ? 0 : RexLiteral.intValue(sort.offset);
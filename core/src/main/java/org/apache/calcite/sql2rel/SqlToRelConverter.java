@@ -798,7 +798,9 @@ protected void convertOrder(
         || select.getOrderList().getList().isEmpty()) {
       assert collation.getFieldCollations().isEmpty();
       if ((offset == null
-            || ((SqlLiteral) offset).bigDecimalValue().equals(BigDecimal.ZERO))
+            || (offset instanceof SqlLiteral
+                && ((SqlLiteral) offset).bigDecimalValue()
+                    .equals(BigDecimal.ZERO)))
           && fetch == null) {
         return;
       }
@@ -0,0 +1,275 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.statistic;
+
+import org.apache.calcite.rel.RelCollation;
+import org.apache.calcite.rel.RelDistribution;
+import org.apache.calcite.rel.RelReferentialConstraint;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.schema.ColumnStatistic;
+import org.apache.calcite.schema.Histogram;
+import org.apache.calcite.schema.Statistic;
+import org.apache.calcite.schema.Statistics;
+import org.apache.calcite.util.ImmutableBitSet;
+import org.apache.calcite.util.Util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Catalog of table statistics, stored as JSON in a local file.
+ *
+ * <p>Each entry is keyed by the path of a table, and records the version of
+ * the table's structure at the time that the statistics were collected (see
+ * {@link StatisticsCollector#version(RelDataType)}); statistics whose version
+ * does not match the current structure of the table are ignored.
+ *
+ * <p>The file is re-read if another process modifies it. Minimum, maximum and
+ * histogram values are stored only if they are strings, numbers or booleans.
+ */
+public class FileStatisticStore {
+  private static final ConcurrentMap<File, FileStatisticStore> INSTANCES =
+      new ConcurrentHashMap<>();
+
+  private final File file;
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  /** Entries, keyed by table path; null until the file has been read. */
+  private Map<List<String>, Entry> entries;
+  private long lastModified;
+
+  private FileStatisticStore(File file) {
+    this.file = file;
+  }
+
+  /** Returns the store for a given file. There is one instance per file, so
+   * that concurrent updates from within this JVM are not lost. */
+  public static FileStatisticStore of(File file) {
+    final File key = file.getAbsoluteFile();
+    FileStatisticStore store = INSTANCES.get(key);
+    if (store == null) {
+      INSTANCES.putIfAbsent(key, new FileStatisticStore(key));
+      store = INSTANCES.get(key);
+    }
+    return store;
+  }
+
+  /** Saves statistics about a table, replacing any previous statistics for
+   * the same table. */
+  public synchronized void put(List<String> names, String version,
+      Statistic statistic, int columnCount) {
+    load();
+    final List<ColumnStatistic> columnStatistics = new ArrayList<>();
+    for (int i = 0; i < columnCount; i++) {
+      columnStatistics.add(statistic.getColumnStatistic(i));
+    }
+    entries.put(ImmutableList.copyOf(names),
+        new Entry(version, statistic.getRowCount(), columnStatistics));
+    save();
+  }
+
+  /** Removes the statistics about a table. */
+  public synchronized void remove(List<String> names) {
+    load();
+    if (entries.remove(names) != null) {
+      save();
+    }
+  }
+
+  /** Returns the statistics about a table, or null if there are none for
+   * the given version. */
+  public synchronized Statistic get(List<String> names, String version) {
+    load();
+    final Entry entry = entries.get(names);
+    if (entry == null || !entry.version.equals(version)) {
+      return null;
+    }
+    return Statistics.of(entry.rowCount, ImmutableList.<ImmutableBitSet>of(),
+        ImmutableList.<RelReferentialConstraint>of(),
+        ImmutableList.<RelCollation>of(), entry.columnStatistics);
+  }
+
+  /** Returns statistics about a table that use stored row count and column
+   * statistics, if present, and otherwise those of {@code base}. Keys,
+   * collations and distribution always come from {@code base}. */
+  public Statistic statistic(List<String> names, RelDataType rowType,
+      final Statistic base) {
+    final Statistic stored =
+        get(names, StatisticsCollector.version(rowType));
+    if (stored == null) {
+      return base;
+    }
+    return new Statistic() {
+      public Double getRowCount() {
+        return Util.first(stored.getRowCount(), base.getRowCount());
+      }
+
+      public boolean isKey(ImmutableBitSet columns) {
+        return base.isKey(columns);
+      }
+
+      public List<RelReferentialConstraint> getReferentialConstraints() {
+        return base.getReferentialConstraints();
+      }
+
+      public List<RelCollation> getCollations() {
+        return base.getCollations();
+      }
+
+      public RelDistribution getDistribution() {
+        return base.getDistribution();
+      }
+
+      public ColumnStatistic getColumnStatistic(int ordinal) {
+        return Util.first(stored.getColumnStatistic(ordinal),
+            base.getColumnStatistic(ordinal));
+      }
+    };
+  }
+
+  /** Reads the file, if it has not been read or has changed since. */
+  @SuppressWarnings("unchecked")
+  private void load() {
+    if (entries != null && file.lastModified() == lastModified) {
+      return;
+    }
+    entries = new HashMap<>();
+    lastModified = file.lastModified();
+    if (!file.exists()) {
+      return;
+    }
+    try {
+      final Map<String, Object> root = mapper.readValue(file, Map.class);
+      for (Object o : (List) root.get("tables")) {
+        final Map<String, Object> table = (Map<String, Object>) o;
+        final List<ColumnStatistic> columnStatistics = new ArrayList<>();
+        for (Object column : (List) table.get("columns")) {
+          columnStatistics.add(
+              column == null ? null : toColumn((Map<String, Object>) column));
+        }
+        entries.put(ImmutableList.copyOf((List<String>) table.get("path")),
+            new Entry((String) table.get("version"),
+                toDouble(table.get("rowCount")), columnStatistics));
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Error while reading statistics from "
+          + file, e);
+    }
+  }
+
+  /** Writes all entries to the file. Writes to a temporary file first, so
+   * that readers never see a partially written file. */
+  private void save() {
+    final List<Object> tables = new ArrayList<>();
+    for (Map.Entry<List<String>, Entry> entry : entries.entrySet()) {
+      final List<Object> columns = new ArrayList<>();
+      for (ColumnStatistic column : entry.getValue().columnStatistics) {
+        columns.add(column == null ? null : toJson(column));
+      }
+      final Map<String, Object> table = new LinkedHashMap<>();
+      table.put("path", entry.getKey());
+      table.put("version", entry.getValue().version);
+      table.put("rowCount", entry.getValue().rowCount);
+      table.put("columns", columns);
+      tables.add(table);
+    }
+    final Map<String, Object> root = new LinkedHashMap<>();
+    root.put("tables", tables);
+    final File tmp = new File(file.getPath() + ".tmp");
+    try {
+      mapper.writerWithDefaultPrettyPrinter().writeValue(tmp, root);
+      if (!tmp.renameTo(file)) {
+        // On some platforms rename does not replace an existing file
+        if (!file.delete() || !tmp.renameTo(file)) {
+          throw new IOException("could not rename " + tmp + " to " + file);
+        }
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Error while writing statistics to "
+          + file, e);
+    }
+    lastModified = file.lastModified();
+  }
+
+  private static Map<String, Object> toJson(ColumnStatistic column) {
+    final Map<String, Object> map = new LinkedHashMap<>();
+    map.put("distinctCount", column.getDistinctCount());
+    map.put("nullCount", column.getNullCount());
+    map.put("min", toJson(column.getMin()));
+    map.put("max", toJson(column.getMax()));
+    List<Object> endPoints = null;
+    if (column.getHistogram() != null) {
+      endPoints = new ArrayList<>();
+      for (Comparable c : column.getHistogram().endPoints) {
+        final Object o = toJson(c);
+        if (o == null) {
+          endPoints = null;
+          break;
+        }
+        endPoints.add(o);
+      }
+    }
+    map.put("histogram", endPoints);
+    return map;
+  }
+
+  private static Object toJson(Comparable c) {
+    return c instanceof String || c instanceof Number || c instanceof Boolean
+        ? c
+        : null;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static ColumnStatistic toColumn(Map<String, Object> map) {
+    final List<Comparable> endPoints = (List<Comparable>) map.get("histogram");
+    return Statistics.column(toDouble(map.get("distinctCount")),
+        toDouble(map.get("nullCount")), (Comparable) map.get("min"),
+        (Comparable) map.get("max"),
+        endPoints == null ? null : new Histogram(endPoints));
+  }
+
+  private static Double toDouble(Object o) {
+    return o == null ? null : ((Number) o).doubleValue();
+  }
+
+  /** Statistics about a table, and the version of the table's structure
+   * that they were collected from. */
+  private static class Entry {
+    final String version;
+    final Double rowCount;
+    final List<ColumnStatistic> columnStatistics;
+
+    Entry(String version, Double rowCount,
+        List<ColumnStatistic> columnStatistics) {
+      this.version = version;
+      this.rowCount = rowCount;
+      this.columnStatistics = columnStatistics;
+    }
+  }
+}
+
+// End FileStatisticStore.java
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.statistic;
+
+import com.google.common.base.Preconditions;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Uniform random sample of fixed size from a stream of unknown length.
+ *
+ * <p>Uses Vitter's "Algorithm R": the first {@code capacity} elements fill
+ * the reservoir, and the {@code n}th element thereafter replaces a random
+ * element of the reservoir with probability {@code capacity / n}.
+ *
+ * @param <E> Element type
+ */
+public class ReservoirSample<E> {
+  private final Object[] elements;
+  private final Random random;
+  private int size;
+  private long count;
+
+  /** Creates a ReservoirSample. */
+  public ReservoirSample(int capacity, Random random) {
+    Preconditions.checkArgument(capacity > 0, "capacity must be positive");
+    this.elements = new Object[capacity];
+    this.random = Preconditions.checkNotNull(random);
+  }
+
+  /** Offers an element to the sample. */
+  public void add(E e) {
+    ++count;
+    if (size < elements.length) {
+      elements[size++] = e;
+    } else {
+      final long j = (long) (random.nextDouble() * count);
+      if (j < elements.length) {
+        elements[(int) j] = e;
+      }
+    }
+  }
+
+  /** Returns the number of elements offered so far. */
+  public long count() {
+    return count;
+  }
+
+  /** Returns the elements in the sample. */
+  public List<E> toList() {
+    final int n = size;
+    return new AbstractList<E>() {
+      @SuppressWarnings("unchecked")
+      public E get(int index) {
+        return (E) elements[index];
+      }
+
+      public int size() {
+        return n;
+      }
+    };
+  }
+}
+
+// End ReservoirSample.java
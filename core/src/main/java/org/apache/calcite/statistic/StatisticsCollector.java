@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.statistic;
+
+import org.apache.calcite.DataContext;
+import org.apache.calcite.jdbc.CalciteConnection;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.rel.RelCollation;
+import org.apache.calcite.rel.RelReferentialConstraint;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.schema.ColumnStatistic;
+import org.apache.calcite.schema.FilterableTable;
+import org.apache.calcite.schema.Histogram;
+import org.apache.calcite.schema.ProjectableFilterableTable;
+import org.apache.calcite.schema.ScannableTable;
+import org.apache.calcite.schema.SchemaPlus;
+import org.apache.calcite.schema.Schemas;
+import org.apache.calcite.schema.Statistic;
+import org.apache.calcite.schema.Statistics;
+import org.apache.calcite.schema.Table;
+import org.apache.calcite.util.ImmutableBitSet;
+import org.apache.calcite.util.Util;
+
+import com.google.common.collect.ImmutableList;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Computes statistics about a table by scanning it once; the equivalent of
+ * the {@code ANALYZE} command in other databases.
+ *
+ * <p>For each column, counts nulls and tracks the minimum and maximum values
+ * exactly, estimates the number of distinct values using a
+ * {@link HyperLogLog} sketch, and builds an equi-depth {@link Histogram} from
+ * a {@link ReservoirSample} of the values. Memory use is therefore bounded,
+ * regardless of the size of the table.
+ *
+ * <p>The table must implement {@link ScannableTable}, {@link FilterableTable}
+ * or {@link ProjectableFilterableTable}.
+ */
+public class StatisticsCollector {
+  /** Collector with a sample of 10,000 values and 100 histogram buckets per
+   * column. */
+  public static final StatisticsCollector DEFAULT =
+      new StatisticsCollector(10000, 100, HyperLogLog.DEFAULT_PRECISION);
+
+  private final int sampleSize;
+  private final int bucketCount;
+  private final int precision;
+
+  /** Creates a StatisticsCollector.
+   *
+   * @param sampleSize  Number of values sampled per column for histograms
+   * @param bucketCount Maximum number of buckets in each histogram
+   * @param precision   Precision of the HyperLogLog sketches
+   */
+  public StatisticsCollector(int sampleSize, int bucketCount, int precision) {
+    this.sampleSize = sampleSize;
+    this.bucketCount = bucketCount;
+    this.precision = precision;
+  }
+
+  /** Scans a table and returns statistics about it. */
+  public Statistic collect(Table table, DataContext root) {
+    final int columnCount =
+        table.getRowType(root.getTypeFactory()).getFieldCount();
+    final List<ColumnCollector> collectors = new ArrayList<>();
+    final Random random = new Random(0);
+    for (int i = 0; i < columnCount; i++) {
+      collectors.add(new ColumnCollector(random));
+    }
+    long rowCount = 0;
+    final Enumerator<Object[]> enumerator = scan(table, root).enumerator();
+    try {
+      while (enumerator.moveNext()) {
+        final Object[] row = enumerator.current();
+        for (int i = 0; i < columnCount; i++) {
+          collectors.get(i).add(row[i]);
+        }
+        ++rowCount;
+      }
+    } finally {
+      enumerator.close();
+    }
+    final List<ColumnStatistic> columnStatistics = new ArrayList<>();
+    for (ColumnCollector collector : collectors) {
+      columnStatistics.add(collector.statistic());
+    }
+    return Statistics.of((double) rowCount,
+        ImmutableList.<ImmutableBitSet>of(),
+        ImmutableList.<RelReferentialConstraint>of(),
+        ImmutableList.<RelCollation>of(), columnStatistics);
+  }
+
+  /** Collects statistics about a table in a connection's root schema, and
+   * if the connection has a
+   * {@link org.apache.calcite.config.CalciteConnectionProperty#STATISTICS_FILE},
+   * saves them there.
+   *
+   * @param connection Connection
+   * @param names      Path of the table, for example {@code ["sales", "emp"]}
+   * @return Statistics about the table
+   */
+  public Statistic analyze(CalciteConnection connection, List<String> names) {
+    SchemaPlus schema = connection.getRootSchema();
+    for (String name : Util.skipLast(names)) {
+      schema = schema.getSubSchema(name);
+      if (schema == null) {
+        throw new IllegalArgumentException("schema not found: " + name);
+      }
+    }
+    final Table table = schema.getTable(Util.last(names));
+    if (table == null) {
+      throw new IllegalArgumentException("table not found: " + names);
+    }
+    final DataContext root =
+        Schemas.createDataContext(connection, connection.getRootSchema());
+    final Statistic statistic = collect(table, root);
+    final String file = connection.config().statisticsFile();
+    if (file != null) {
+      final RelDataType rowType = table.getRowType(root.getTypeFactory());
+      FileStatisticStore.of(new File(file))
+          .put(names, version(rowType), statistic, rowType.getFieldCount());
+    }
+    return statistic;
+  }
+
+  /** Returns a string that changes if the columns of a table change, so that
+   * statistics collected before the change are no longer used. */
+  public static String version(RelDataType rowType) {
+    return Integer.toHexString(rowType.getFullTypeString().hashCode());
+  }
+
+  private static Enumerable<Object[]> scan(Table table, DataContext root) {
+    if (table instanceof ScannableTable) {
+      return ((ScannableTable) table).scan(root);
+    }
+    if (table instanceof FilterableTable) {
+      return ((FilterableTable) table).scan(root, new ArrayList<RexNode>());
+    }
+    if (table instanceof ProjectableFilterableTable) {
+      return ((ProjectableFilterableTable) table)
+          .scan(root, new ArrayList<RexNode>(), null);
+    }
+    throw new IllegalArgumentException("cannot scan table " + table
+        + "; it must implement ScannableTable, FilterableTable or "
+        + "ProjectableFilterableTable");
+  }
+
+  /** Accumulates statistics about the values of one column. */
+  private class ColumnCollector {
+    final HyperLogLog hyperLogLog = new HyperLogLog(precision);
+    final ReservoirSample<Comparable> sample;
+    long nullCount;
+    long nonNullCount;
+    Comparable min;
+    Comparable max;
+    boolean comparable = true;
+
+    ColumnCollector(Random random) {
+      this.sample = new ReservoirSample<>(sampleSize, random);
+    }
+
+    void add(Object o) {
+      if (o == null) {
+        ++nullCount;
+        return;
+      }
+      ++nonNullCount;
+      hyperLogLog.add(o);
+      if (!comparable) {
+        return;
+      }
+      if (!(o instanceof Comparable)
+          || min != null && !Histogram.isComparable(min, (Comparable) o)) {
+        comparable = false;
+        min = max = null;
+        return;
+      }
+      final Comparable c = (Comparable) o;
+      if (min == null || Histogram.compare(c, min) < 0) {
+        min = c;
+      }
+      if (max == null || Histogram.compare(c, max) > 0) {
+        max = c;
+      }
+      sample.add(c);
+    }
+
+    ColumnStatistic statistic() {
+      Histogram histogram = null;
+      if (comparable) {
+        final List<Comparable> values = new ArrayList<>(sample.toList());
+        Collections.sort(values,
+            new Comparator<Comparable>() {
+              public int compare(Comparable o1, Comparable o2) {
+                return Histogram.compare(o1, o2);
+              }
+            });
+        histogram = Histogram.of(values, bucketCount);
+      }
+      return Statistics.column(
+          Math.min(hyperLogLog.estimate(), (double) nonNullCount),
+          (double) nullCount, min, max, histogram);
+    }
+  }
+}
+
+// End StatisticsCollector.java
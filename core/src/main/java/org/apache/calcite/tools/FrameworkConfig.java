@@ -82,6 +82,26 @@ public interface FrameworkConfig {
    */
   RelOptCostFactory getCostFactory();
 
+  /**
+   * Returns the maximum time, in milliseconds, that the planner may spend in
+   * each planning phase before it returns the cheapest complete plan found
+   * so far. Returns 0 to use the connection's setting, which by default
+   * means no limit.
+   *
+   * @see org.apache.calcite.config.CalciteConnectionProperty#PLANNER_PHASE_TIMEOUT
+   */
+  long getPlannerPhaseTimeout();
+
+  /**
+   * Returns the maximum number of rules that the planner may fire in each
+   * planning phase before it returns the cheapest complete plan found so
+   * far. Returns 0 to use the connection's setting, which by default means
+   * no limit.
+   *
+   * @see org.apache.calcite.config.CalciteConnectionProperty#PLANNER_PHASE_RULE_LIMIT
+   */
+  int getPlannerPhaseRuleLimit();
+
   /**
    * Returns a list of trait definitions.
    *
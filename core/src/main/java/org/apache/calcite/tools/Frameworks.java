@@ -183,13 +183,15 @@ public static class ConfigBuilder {
     private RexExecutor executor;
     private RelOptCostFactory costFactory;
     private RelDataTypeSystem typeSystem = RelDataTypeSystem.DEFAULT;
+    private long plannerPhaseTimeout;
+    private int plannerPhaseRuleLimit;
 
     private ConfigBuilder() {}
 
     public FrameworkConfig build() {
       return new StdFrameworkConfig(context, convertletTable, operatorTable,
           programs, traitDefs, parserConfig, defaultSchema, costFactory,
-          typeSystem, executor);
+          typeSystem, executor, plannerPhaseTimeout, plannerPhaseRuleLimit);
     }
 
     public ConfigBuilder context(Context c) {
@@ -265,6 +267,18 @@ public ConfigBuilder typeSystem(RelDataTypeSystem typeSystem) {
       this.typeSystem = Preconditions.checkNotNull(typeSystem);
       return this;
     }
+
+    public ConfigBuilder plannerPhaseTimeout(long plannerPhaseTimeout) {
+      Preconditions.checkArgument(plannerPhaseTimeout >= 0);
+      this.plannerPhaseTimeout = plannerPhaseTimeout;
+      return this;
+    }
+
+    public ConfigBuilder plannerPhaseRuleLimit(int plannerPhaseRuleLimit) {
+      Preconditions.checkArgument(plannerPhaseRuleLimit >= 0);
+      this.plannerPhaseRuleLimit = plannerPhaseRuleLimit;
+      return this;
+    }
   }
 
   /**
@@ -282,6 +296,8 @@ static class StdFrameworkConfig implements FrameworkConfig {
     private final RelOptCostFactory costFactory;
     private final RelDataTypeSystem typeSystem;
     private final RexExecutor executor;
+    private final long plannerPhaseTimeout;
+    private final int plannerPhaseRuleLimit;
 
     public StdFrameworkConfig(Context context,
         SqlRexConvertletTable convertletTable,
@@ -292,7 +308,9 @@ public StdFrameworkConfig(Context context,
         SchemaPlus defaultSchema,
         RelOptCostFactory costFactory,
         RelDataTypeSystem typeSystem,
-        RexExecutor executor) {
+        RexExecutor executor,
+        long plannerPhaseTimeout,
+        int plannerPhaseRuleLimit) {
       this.context = context;
       this.convertletTable = convertletTable;
       this.operatorTable = operatorTable;
@@ -303,6 +321,8 @@ public StdFrameworkConfig(Context context,
       this.costFactory = costFactory;
       this.typeSystem = typeSystem;
       this.executor = executor;
+      this.plannerPhaseTimeout = plannerPhaseTimeout;
+      this.plannerPhaseRuleLimit = plannerPhaseRuleLimit;
     }
 
     public SqlParser.Config getParserConfig() {
@@ -325,6 +345,14 @@ public RelOptCostFactory getCostFactory() {
       return costFactory;
     }
 
+    public long getPlannerPhaseTimeout() {
+      return plannerPhaseTimeout;
+    }
+
+    public int getPlannerPhaseRuleLimit() {
+      return plannerPhaseRuleLimit;
+    }
+
     public ImmutableList<RelTraitDef> getTraitDefs() {
       return traitDefs;
     }
@@ -16,6 +16,9 @@
  */
 package org.apache.calcite.tools;
 
+import org.apache.calcite.adapter.clone.ColumnarRules;
+import org.apache.calcite.adapter.enumerable.EnumerableExchange;
+import org.apache.calcite.adapter.enumerable.EnumerableExchangeRule;
 import org.apache.calcite.adapter.enumerable.EnumerableRules;
 import org.apache.calcite.config.CalciteConnectionConfig;
 import org.apache.calcite.interpreter.NoneToBindableConverterRule;
@@ -53,6 +56,7 @@
 import org.apache.calcite.rel.rules.JoinToMultiJoinRule;
 import org.apache.calcite.rel.rules.LoptOptimizeJoinRule;
 import org.apache.calcite.rel.rules.MultiJoinOptimizeBushyRule;
+import org.apache.calcite.rel.rules.MultiJoinOptimizeDphypRule;
 import org.apache.calcite.rel.rules.ProjectCalcMergeRule;
 import org.apache.calcite.rel.rules.ProjectMergeRule;
 import org.apache.calcite.rel.rules.ProjectToCalcRule;
@@ -119,6 +123,7 @@ public Program apply(RuleSet ruleSet) {
           EnumerableRules.ENUMERABLE_PROJECT_RULE,
           EnumerableRules.ENUMERABLE_FILTER_RULE,
           EnumerableRules.ENUMERABLE_AGGREGATE_RULE,
+          EnumerableRules.ENUMERABLE_SORTED_AGGREGATE_RULE,
           EnumerableRules.ENUMERABLE_SORT_RULE,
           EnumerableRules.ENUMERABLE_LIMIT_RULE,
           EnumerableRules.ENUMERABLE_UNION_RULE,
@@ -223,6 +228,33 @@ public RelNode run(RelOptPlanner planner, RelNode rel,
   public static Program heuristicJoinOrder(
       final Iterable<? extends RelOptRule> rules,
       final boolean bushy, final int minJoinCount) {
+    return joinOrder(rules,
+        bushy
+            ? MultiJoinOptimizeBushyRule.INSTANCE
+            : LoptOptimizeJoinRule.INSTANCE,
+        minJoinCount);
+  }
+
+  /** Creates a program that finds the cheapest join order by dynamic
+   * programming (via
+   * {@link org.apache.calcite.rel.rules.JoinToMultiJoinRule},
+   * {@link org.apache.calcite.rel.rules.MultiJoin} and
+   * {@link org.apache.calcite.rel.rules.MultiJoinOptimizeDphypRule})
+   * if there are {@code minJoinCount} or more joins. If there are more than
+   * {@code maxFactors} relations, it orders joins using the greedy algorithm
+   * of {@link org.apache.calcite.rel.rules.MultiJoinOptimizeBushyRule}. */
+  public static Program dphypJoinOrder(
+      final Iterable<? extends RelOptRule> rules,
+      final int minJoinCount, final int maxFactors) {
+    return joinOrder(rules,
+        new MultiJoinOptimizeDphypRule(RelFactories.LOGICAL_BUILDER,
+            maxFactors, MultiJoinOptimizeDphypRule.DEFAULT_MAX_PAIRS),
+        minJoinCount);
+  }
+
+  private static Program joinOrder(
+      final Iterable<? extends RelOptRule> rules,
+      final RelOptRule multiJoinRule, final int minJoinCount) {
     return new Program() {
       public RelNode run(RelOptPlanner planner, RelNode rel,
           RelTraitSet requiredOutputTraits,
@@ -243,7 +275,7 @@ public RelNode run(RelOptPlanner planner, RelNode rel,
               of(hep, false, DefaultRelMetadataProvider.INSTANCE);
 
           // Create a program that contains a rule to expand a MultiJoin
-          // into heuristically ordered joins.
+          // into ordered joins.
           // We use the rule set passed in, but remove JoinCommuteRule and
           // JoinPushThroughJoinRule, because they cause exhaustive search.
           final List<RelOptRule> list = Lists.newArrayList(rules);
@@ -252,9 +284,7 @@ public RelNode run(RelOptPlanner planner, RelNode rel,
                   JoinAssociateRule.INSTANCE,
                   JoinPushThroughJoinRule.LEFT,
                   JoinPushThroughJoinRule.RIGHT));
-          list.add(bushy
-              ? MultiJoinOptimizeBushyRule.INSTANCE
-              : LoptOptimizeJoinRule.INSTANCE);
+          list.add(multiJoinRule);
           final Program program2 = ofRules(list);
 
           program = sequence(program1, program2);
@@ -336,7 +366,14 @@ public RelNode run(RelOptPlanner planner, RelNode rel,
 
         // Second planner pass to do physical "tweaks". This the first time that
         // EnumerableCalcRel is introduced.
-        calc(metadataProvider));
+        calc(metadataProvider),
+
+        // Third pass converts operators on in-memory tables to work on column
+        // vectors, if the connection sets a batch size.
+        new ColumnarProgram(metadataProvider),
+
+        // Fourth pass inserts exchanges, if the connection allows parallelism.
+        new ParallelProgram(metadataProvider));
   }
 
   /** Program backed by a {@link RuleSet}. */
@@ -412,6 +449,63 @@ public RelNode run(RelOptPlanner planner, RelNode rel,
     }
   }
 
+  /** Program that converts scans of in-memory tables, and the filters,
+   * projects and aggregates above them, to operators that work on column
+   * vectors, if the connection's
+   * {@link CalciteConnectionConfig#columnarBatchSize()} is greater than 0. */
+  private static class ColumnarProgram implements Program {
+    private final RelMetadataProvider metadataProvider;
+
+    ColumnarProgram(RelMetadataProvider metadataProvider) {
+      this.metadataProvider = metadataProvider;
+    }
+
+    public RelNode run(RelOptPlanner planner, RelNode rel,
+        RelTraitSet requiredOutputTraits,
+        List<RelOptMaterialization> materializations,
+        List<RelOptLattice> lattices) {
+      final CalciteConnectionConfig config =
+          planner.getContext().unwrap(CalciteConnectionConfig.class);
+      if (config == null || config.columnarBatchSize() <= 0) {
+        return rel;
+      }
+      final HepProgram hepProgram = new HepProgramBuilder()
+          .addMatchOrder(HepMatchOrder.BOTTOM_UP)
+          .addRuleCollection(ColumnarRules.rules(config.columnarBatchSize()))
+          .build();
+      return of(hepProgram, true, metadataProvider)
+          .run(planner, rel, requiredOutputTraits, materializations, lattices);
+    }
+  }
+
+  /** Program that inserts {@link EnumerableExchange}s so that pipelines
+   * that read large tables are evaluated in parallel, if the connection's
+   * {@link CalciteConnectionConfig#parallelism()} is greater than 1. */
+  private static class ParallelProgram implements Program {
+    private final RelMetadataProvider metadataProvider;
+
+    ParallelProgram(RelMetadataProvider metadataProvider) {
+      this.metadataProvider = metadataProvider;
+    }
+
+    public RelNode run(RelOptPlanner planner, RelNode rel,
+        RelTraitSet requiredOutputTraits,
+        List<RelOptMaterialization> materializations,
+        List<RelOptLattice> lattices) {
+      final CalciteConnectionConfig config =
+          planner.getContext().unwrap(CalciteConnectionConfig.class);
+      if (config == null || config.parallelism() <= 1) {
+        return rel;
+      }
+      final HepProgram hepProgram = new HepProgramBuilder()
+          .addMatchOrder(HepMatchOrder.TOP_DOWN)
+          .addRuleInstance(new EnumerableExchangeRule(config.parallelism()))
+          .build();
+      return of(hepProgram, true, metadataProvider)
+          .run(planner, rel, requiredOutputTraits, materializations, lattices);
+    }
+  }
+
   /** Program that trims fields. */
   private static class TrimFieldsProgram implements Program {
     public RelNode run(RelOptPlanner planner, RelNode rel,
@@ -33,6 +33,7 @@
 import org.apache.calcite.linq4j.Linq4j;
 import org.apache.calcite.linq4j.QueryProvider;
 import org.apache.calcite.linq4j.Queryable;
+import org.apache.calcite.linq4j.Spill;
 import org.apache.calcite.linq4j.function.EqualityComparer;
 import org.apache.calcite.linq4j.function.Function0;
 import org.apache.calcite.linq4j.function.Function1;
@@ -73,6 +74,7 @@
 import org.apache.calcite.runtime.Bindable;
 import org.apache.calcite.runtime.Enumerables;
 import org.apache.calcite.runtime.FlatLists;
+import org.apache.calcite.runtime.Like;
 import org.apache.calcite.runtime.RandomFunction;
 import org.apache.calcite.runtime.ResultSetEnumerable;
 import org.apache.calcite.runtime.SortedMultiMap;
@@ -133,6 +135,8 @@ public enum BuiltInMethod {
       ProjectableFilterableTable.class, DataContext.class),
   SCHEMAS_QUERYABLE(Schemas.class, "queryable", DataContext.class,
       SchemaPlus.class, Class.class, String.class),
+  SCHEMAS_EXCHANGE(Schemas.class, "exchange", DataContext.class,
+      Enumerable.class, Function1.class, int.class, int.class),
   REFLECTIVE_SCHEMA_GET_TARGET(ReflectiveSchema.class, "getTarget"),
   DATA_CONTEXT_GET(DataContext.class, "get", String.class),
   DATA_CONTEXT_GET_ROOT_SCHEMA(DataContext.class, "getRootSchema"),
@@ -143,6 +147,11 @@ public enum BuiltInMethod {
       String.class, Function1.class),
   JOIN(ExtendedEnumerable.class, "join", Enumerable.class, Function1.class,
       Function1.class, Function2.class),
+  SPILLING_JOIN(EnumerableDefaults.class, "join", Enumerable.class,
+      Enumerable.class, Function1.class, Function1.class, Function2.class,
+      EqualityComparer.class, boolean.class, boolean.class,
+      Spill.Manager.class, int.class, Spill.Serializer.class,
+      Spill.Serializer.class),
   MERGE_JOIN(EnumerableDefaults.class, "mergeJoin", Enumerable.class,
       Enumerable.class, Function1.class, Function1.class, Function2.class,
       boolean.class, boolean.class),
@@ -164,6 +173,13 @@ public enum BuiltInMethod {
   GROUP_BY(ExtendedEnumerable.class, "groupBy", Function1.class),
   GROUP_BY2(ExtendedEnumerable.class, "groupBy", Function1.class,
       Function0.class, Function2.class, Function2.class),
+  SPILLING_GROUP_BY(EnumerableDefaults.class, "groupBy", Enumerable.class,
+      Function1.class, Function0.class, Function2.class, Function2.class,
+      EqualityComparer.class, Spill.Manager.class, int.class,
+      Spill.Serializer.class),
+  SORTED_GROUP_BY(EnumerableDefaults.class, "sortedGroupBy", Enumerable.class,
+      Function1.class, Function0.class, Function2.class, Function2.class,
+      EqualityComparer.class),
   GROUP_BY_MULTIPLE(EnumerableDefaults.class, "groupByMultiple",
       Enumerable.class, List.class, Function0.class, Function2.class,
       Function2.class),
@@ -171,10 +187,22 @@ public enum BuiltInMethod {
       Function2.class, Function1.class),
   ORDER_BY(ExtendedEnumerable.class, "orderBy", Function1.class,
       Comparator.class),
+  ORDER_BY_WITH_FETCH_AND_OFFSET(EnumerableDefaults.class, "orderBy",
+      Enumerable.class, Function1.class, Comparator.class, int.class,
+      int.class),
+  SPILLING_ORDER_BY(EnumerableDefaults.class, "orderBy", Enumerable.class,
+      Function1.class, Comparator.class, Spill.Manager.class, int.class,
+      Spill.Serializer.class),
   UNION(ExtendedEnumerable.class, "union", Enumerable.class),
   CONCAT(ExtendedEnumerable.class, "concat", Enumerable.class),
   INTERSECT(ExtendedEnumerable.class, "intersect", Enumerable.class),
   EXCEPT(ExtendedEnumerable.class, "except", Enumerable.class),
+  HASH_UNION(EnumerableDefaults.class, "hashUnion", Enumerable.class,
+      Enumerable.class, EqualityComparer.class),
+  HASH_INTERSECT(EnumerableDefaults.class, "hashIntersect", Enumerable.class,
+      Enumerable.class, EqualityComparer.class, boolean.class),
+  HASH_EXCEPT(EnumerableDefaults.class, "hashExcept", Enumerable.class,
+      Enumerable.class, EqualityComparer.class, boolean.class),
   SKIP(ExtendedEnumerable.class, "skip", int.class),
   TAKE(ExtendedEnumerable.class, "take", int.class),
   SINGLETON_ENUMERABLE(Linq4j.class, "singletonEnumerable", Object.class),
@@ -182,6 +210,10 @@ public enum BuiltInMethod {
   NULLS_COMPARATOR(Functions.class, "nullsComparator", boolean.class,
       boolean.class),
   ARRAY_COMPARER(Functions.class, "arrayComparer"),
+  SPILL_VALUE_SERIALIZER(Spill.class, "valueSerializer"),
+  SPILL_ARRAY_SERIALIZER(Spill.class, "arraySerializer"),
+  SPILL_OBJECT_SERIALIZER(Spill.class, "objectSerializer"),
+  FLAT_LIST_SPILL_SERIALIZER(FlatLists.class, "spillSerializer"),
   FUNCTION0_APPLY(Function0.class, "apply"),
   FUNCTION1_APPLY(Function1.class, "apply", Object.class),
   ARRAYS_AS_LIST(Arrays.class, "asList", Object[].class),
@@ -218,6 +250,7 @@ public enum BuiltInMethod {
       Calendar.class),
   TIME_ZONE_GET_OFFSET(TimeZone.class, "getOffset", long.class),
   LONG_VALUE(Number.class, "longValue"),
+  INT_VALUE(Number.class, "intValue"),
   COMPARATOR_COMPARE(Comparator.class, "compare", Object.class, Object.class),
   COLLECTIONS_REVERSE_ORDER(Collections.class, "reverseOrder"),
   COLLECTIONS_EMPTY_LIST(Collections.class, "emptyList"),
@@ -283,6 +316,9 @@ public enum BuiltInMethod {
   RTRIM(SqlFunctions.class, "rtrim", String.class),
   LIKE(SqlFunctions.class, "like", String.class, String.class),
   SIMILAR(SqlFunctions.class, "similar", String.class, String.class),
+  LIKE_MATCHER(Like.class, "likeMatcher", String.class),
+  SIMILAR_MATCHER(Like.class, "similarMatcher", String.class),
+  MATCHER_MATCHES(Like.Matcher.class, "matches", String.class),
   IS_TRUE(SqlFunctions.class, "isTrue", Boolean.class),
   IS_NOT_FALSE(SqlFunctions.class, "isNotFalse", Boolean.class),
   NOT(SqlFunctions.class, "not", Boolean.class),
@@ -22,6 +22,9 @@
 import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.rel.type.RelDataTypeImpl;
 import org.apache.calcite.rel.type.RelDataTypeSystem;
+import org.apache.calcite.schema.ColumnStatistic;
+import org.apache.calcite.schema.Histogram;
+import org.apache.calcite.sql.SqlKind;
 
 import org.junit.Test;
 
@@ -33,7 +36,8 @@
 import static org.junit.Assert.assertTrue;
 
 /**
- * Unit test for {@link ArrayTable} and {@link ColumnLoader}.
+ * Unit test for {@link ArrayTable}, {@link ColumnLoader} and
+ * {@link ColumnVectors}.
  */
 public class ArrayTableTest {
   @Test public void testPrimitiveArray() {
@@ -227,6 +231,84 @@ public class ArrayTableTest {
     assertEquals(2, pair.cardinality);
   }
 
+  @Test public void testColumnStatistic() {
+    final ColumnLoader.ValueSet valueSet =
+        new ColumnLoader.ValueSet(Integer.class);
+    for (int i = 0; i < 100; i++) {
+      valueSet.add(i % 10 == 0 ? null : i % 20);
+    }
+    final ColumnStatistic statistic =
+        valueSet.freeze(0, null).statistic(100);
+    assertEquals(18D, statistic.getDistinctCount(), 0D);
+    assertEquals(10D, statistic.getNullCount(), 0D);
+    assertEquals(1, statistic.getMin());
+    assertEquals(19, statistic.getMax());
+    final Histogram histogram = statistic.getHistogram();
+    assertEquals(89, histogram.getBucketCount());
+    assertEquals(1, histogram.endPoints.get(0));
+    assertEquals(19, histogram.endPoints.get(89));
+    assertEquals(0.5D, histogram.fractionBelow(10, true), 0.05D);
+  }
+
+  /** Tests {@link ColumnVectors.Predicate}, which filters a column using a
+   * selection vector. */
+  @Test public void testColumnarFilter() {
+    final ColumnLoader.ValueSet ints = new ColumnLoader.ValueSet(int.class);
+    for (int i = 0; i < 10; i++) {
+      ints.add(i);
+    }
+    final ArrayTable.Column intColumn = ints.freeze(0, null);
+    assertEquals("[3, 4, 5, 6, 7, 8, 9]",
+        Arrays.toString(
+            filter(intColumn, SqlKind.GREATER_THAN_OR_EQUAL, 3L, 10)));
+    assertEquals("[0, 1, 2, 4, 5, 6, 7, 8, 9]",
+        Arrays.toString(filter(intColumn, SqlKind.NOT_EQUALS, 3L, 10)));
+    assertEquals("[]",
+        Arrays.toString(filter(intColumn, SqlKind.LESS_THAN, 0L, 10)));
+    assertEquals("[]",
+        Arrays.toString(filter(intColumn, SqlKind.IS_NULL, null, 10)));
+
+    // Strings in a sorted dictionary; filters are evaluated on the codes.
+    final ColumnLoader.ValueSet strings =
+        new ColumnLoader.ValueSet(String.class);
+    for (int i = 0; i < 3000; i++) {
+      strings.add(i % 3 == 0 ? null : i % 3 == 1 ? "apple" : "pear");
+    }
+    final ArrayTable.Column stringColumn = strings.freeze(0, null);
+    assertTrue(
+        stringColumn.representation instanceof ArrayTable.ObjectDictionary);
+    final int[] pears = filter(stringColumn, SqlKind.EQUALS, "pear", 3000);
+    assertEquals(1000, pears.length);
+    assertEquals(2, pears[0]);
+    assertEquals(5, pears[1]);
+    assertEquals(1000,
+        filter(stringColumn, SqlKind.GREATER_THAN, "banana", 3000).length);
+    assertEquals(1000,
+        filter(stringColumn, SqlKind.LESS_THAN, "banana", 3000).length);
+    assertEquals(2000,
+        filter(stringColumn, SqlKind.LESS_THAN_OR_EQUAL, "pear", 3000)
+            .length);
+    assertEquals(1000,
+        filter(stringColumn, SqlKind.NOT_EQUALS, "apple", 3000).length);
+    assertEquals(0,
+        filter(stringColumn, SqlKind.EQUALS, "cherry", 3000).length);
+    assertEquals(1000,
+        filter(stringColumn, SqlKind.IS_NULL, null, 3000).length);
+    assertEquals(2000,
+        filter(stringColumn, SqlKind.IS_NOT_NULL, null, 3000).length);
+  }
+
+  private static int[] filter(ArrayTable.Column column, SqlKind kind,
+      Comparable value, int rowCount) {
+    final int[] selection = new int[rowCount];
+    for (int i = 0; i < rowCount; i++) {
+      selection[i] = i;
+    }
+    final int count = new ColumnVectors.Predicate(0, kind, value)
+        .filter(column, selection, rowCount);
+    return Arrays.copyOf(selection, count);
+  }
+
   @Test public void testAllNull() {
     ArrayTable.Column pair;
 
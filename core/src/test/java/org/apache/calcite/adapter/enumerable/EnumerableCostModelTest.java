@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.adapter.enumerable;
+
+import org.apache.calcite.plan.RelOptCost;
+import org.apache.calcite.plan.RelOptCostFactory;
+
+import com.google.common.collect.ImmutableMap;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Properties;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for {@link EnumerableCostModel}.
+ */
+public class EnumerableCostModelTest {
+  /** Tests that a model written by {@link EnumerableCostModel#toProperties()}
+   * reads back as the same model, and that constants missing from a
+   * properties file have their default values. */
+  @Test public void testPropertiesRoundTrip() throws IOException {
+    final EnumerableCostModel model =
+        new EnumerableCostModel(
+            ImmutableMap.of(EnumerableCostModel.Constant.HASH_BUILD, 75.5d,
+                EnumerableCostModel.Constant.SPILL_BYTE, 0.25d),
+            1000L);
+    final Properties properties = model.toProperties();
+    assertThat(properties.getProperty("hashBuild"), is("75.5"));
+    assertThat(properties.getProperty("row"), is("10.0"));
+    assertThat(EnumerableCostModel.of(properties, 1000L), equalTo(model));
+
+    final File file = File.createTempFile("cost", ".properties");
+    try {
+      try (OutputStream out = new FileOutputStream(file)) {
+        properties.store(out, null);
+      }
+      final EnumerableCostModel model2 =
+          EnumerableCostModel.load(file, 1000L);
+      assertThat(model2, equalTo(model));
+      assertThat(model2.get(EnumerableCostModel.Constant.SPILL_BYTE),
+          is(0.25d));
+      assertThat(model2.getMemoryBudget(), is(1000L));
+    } finally {
+      assertTrue(file.delete());
+    }
+
+    final Properties partial = new Properties();
+    partial.setProperty("merge", "3");
+    final EnumerableCostModel model3 = EnumerableCostModel.of(partial, 0L);
+    assertThat(model3.get(EnumerableCostModel.Constant.MERGE), is(3d));
+    assertThat(model3.get(EnumerableCostModel.Constant.HASH_PROBE),
+        is(EnumerableCostModel.Constant.HASH_PROBE.defaultValue));
+    assertThat(model3.withMemoryBudget(0L), equalTo(model3));
+    assertThat(model3.withMemoryBudget(5L).getMemoryBudget(), is(5L));
+  }
+
+  /** Tests that costs are ordered by their total time, converting rows to
+   * nanoseconds using the {@link EnumerableCostModel.Constant#ROW}
+   * constant, rather than by row count. */
+  @Test public void testCostOrdering() {
+    final RelOptCostFactory factory =
+        EnumerableCostModel.DEFAULT.getCostFactory();
+
+    // 10 rows at 10ns per row, plus 500ns of CPU, is 600ns in total
+    final RelOptCost a = factory.makeCost(10d, 500d, 0d);
+    // Same rows, more time: 100ns + 400ns + 200ns is 700ns
+    final RelOptCost b = factory.makeCost(10d, 400d, 200d);
+    // Many more rows, but less time: 50 * 10ns is 500ns
+    final RelOptCost c = factory.makeCost(50d, 0d, 0d);
+    assertTrue(a.isLt(b));
+    assertFalse(b.isLt(a));
+    assertTrue(c.isLt(a));
+    assertTrue(c.isLe(a));
+    assertFalse(a.isLe(c));
+
+    // Different components, same total
+    final RelOptCost d = factory.makeCost(20d, 400d, 0d);
+    assertTrue(a.isEqWithEpsilon(d));
+    assertTrue(a.isLe(d));
+    assertFalse(a.isLt(d));
+    assertFalse(a.equals(d));
+
+    assertThat(a.plus(b).isEqWithEpsilon(factory.makeCost(20d, 900d, 200d)),
+        is(true));
+    assertThat(b.minus(a).isEqWithEpsilon(factory.makeCost(0d, -100d, 200d)),
+        is(true));
+    assertThat(a.multiplyBy(2d).divideBy(a), is(2d));
+
+    assertTrue(factory.makeTinyCost().isLt(a));
+    assertTrue(a.isLt(factory.makeHugeCost()));
+    assertTrue(factory.makeHugeCost().isLt(factory.makeInfiniteCost()));
+    assertTrue(factory.makeInfiniteCost().isInfinite());
+    assertFalse(factory.makeHugeCost().isInfinite());
+  }
+}
+
+// End EnumerableCostModelTest.java
@@ -120,6 +120,107 @@ public VolcanoPlannerTest() {
     assertTrue(result instanceof PhysSingleRel);
   }
 
+  /**
+   * Tests that a planner with a rule budget stops as soon as it has a
+   * complete plan, and reports statistics for each phase.
+   */
+  @Test public void testPhaseBudget() {
+    VolcanoPlanner planner = new VolcanoPlanner();
+    planner.addRelTraitDef(ConventionTraitDef.INSTANCE);
+    planner.setPhaseBudget(0, 1);
+    final List<VolcanoPlannerPhaseListener.PhaseStatistics> statisticsList =
+        new ArrayList<>();
+    planner.addPhaseListener(
+        new VolcanoPlannerPhaseListener() {
+          public void phaseCompleted(PhaseStatistics statistics) {
+            statisticsList.add(statistics);
+          }
+        });
+
+    planner.addRule(new PhysLeafRule());
+    planner.addRule(new GoodSingleRule());
+
+    RelOptCluster cluster = newCluster(planner);
+    NoneLeafRel leafRel =
+        new NoneLeafRel(
+            cluster,
+            "a");
+    NoneSingleRel singleRel =
+        new NoneSingleRel(
+            cluster,
+            leafRel);
+    RelNode convertedRel =
+        planner.changeTraits(
+            singleRel,
+            cluster.traitSetOf(PHYS_CALLING_CONVENTION));
+    planner.setRoot(convertedRel);
+    RelNode result = planner.chooseDelegate().findBestExp();
+
+    // The budget is 1 rule, but the planner needs to fire 2 rules to find a
+    // complete plan, so it exceeds the budget
+    assertTrue(result instanceof PhysSingleRel);
+    assertThat(statisticsList.size(),
+        equalTo(VolcanoPlannerPhase.values().length));
+    for (VolcanoPlannerPhaseListener.PhaseStatistics statistics
+        : statisticsList) {
+      if (statistics.phase == VolcanoPlannerPhase.OPTIMIZE) {
+        assertThat(statistics.ruleCount, equalTo(2));
+        assertTrue(statistics.budgetExhausted);
+        assertTrue(statistics.setCount >= 2);
+        assertTrue(statistics.subsetCount >= statistics.setCount);
+        assertTrue(!statistics.bestCost.isInfinite());
+      } else {
+        assertThat(statistics.ruleCount, equalTo(0));
+      }
+    }
+  }
+
+  /** Tests that a planner that fires rules in parallel finds the same plan
+   * as one that fires them one at a time. */
+  @Test public void testParallel() {
+    final RelNode expected = planParallel(1, true);
+    assertTrue(expected instanceof PhysSingleRel);
+    final RelNode input = ((PhysSingleRel) expected).getInput();
+    assertTrue(input instanceof PhysSingleRel);
+    assertTrue(((PhysSingleRel) input).getInput() instanceof PhysLeafRel);
+    for (boolean deterministic : new boolean[] {true, false}) {
+      final RelNode result = planParallel(4, deterministic);
+      assertThat(RelOptUtil.toString(result),
+          equalTo(RelOptUtil.toString(expected)));
+    }
+  }
+
+  /** Plans a query with two single-input rels over a leaf, using a given
+   * degree of parallelism. */
+  private RelNode planParallel(int parallelism, boolean deterministic) {
+    VolcanoPlanner planner = new VolcanoPlanner();
+    planner.addRelTraitDef(ConventionTraitDef.INSTANCE);
+    planner.setParallelism(parallelism, deterministic);
+
+    planner.addRule(new PhysLeafRule());
+    planner.addRule(new GoodSingleRule());
+
+    RelOptCluster cluster = newCluster(planner);
+    NoneLeafRel leafRel =
+        new NoneLeafRel(
+            cluster,
+            "a");
+    NoneSingleRel singleRel =
+        new NoneSingleRel(
+            cluster,
+            leafRel);
+    NoneSingleRel singleRel2 =
+        new NoneSingleRel(
+            cluster,
+            singleRel);
+    RelNode convertedRel =
+        planner.changeTraits(
+            singleRel2,
+            cluster.traitSetOf(PHYS_CALLING_CONVENTION));
+    planner.setRoot(convertedRel);
+    return planner.chooseDelegate().findBestExp();
+  }
+
   /**
    * Tests a rule that is fired once per subset (whereas most rules are fired
    * once per rel in a set or rel in a subset)
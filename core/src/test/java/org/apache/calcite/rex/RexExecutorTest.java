@@ -19,6 +19,7 @@
 import org.apache.calcite.DataContext;
 import org.apache.calcite.adapter.java.JavaTypeFactory;
 import org.apache.calcite.avatica.util.ByteString;
+import org.apache.calcite.avatica.util.TimeUnit;
 import org.apache.calcite.linq4j.QueryProvider;
 import org.apache.calcite.plan.RelOptCluster;
 import org.apache.calcite.plan.RelOptSchema;
@@ -28,9 +29,11 @@
 import org.apache.calcite.schema.Schemas;
 import org.apache.calcite.server.CalciteServerStatement;
 import org.apache.calcite.sql.SqlBinaryOperator;
+import org.apache.calcite.sql.SqlIntervalQualifier;
 import org.apache.calcite.sql.SqlKind;
 import org.apache.calcite.sql.fun.SqlMonotonicBinaryOperator;
 import org.apache.calcite.sql.fun.SqlStdOperatorTable;
+import org.apache.calcite.sql.parser.SqlParserPos;
 import org.apache.calcite.sql.type.InferTypes;
 import org.apache.calcite.sql.type.OperandTypes;
 import org.apache.calcite.sql.type.ReturnTypes;
@@ -254,6 +257,116 @@ public void check(RexBuilder rexBuilder, RexExecutorImpl executor) {
     });
   }
 
+  /** Tests that {@link RexInterpreter} reduces expressions to the same
+   * values as generated code, and that it declines to reduce expressions
+   * where it might not. */
+  @Test public void testInterpreter() throws Exception {
+    check(new Action() {
+      public void check(RexBuilder rexBuilder, RexExecutorImpl executor) {
+        final RelDataTypeFactory typeFactory = rexBuilder.getTypeFactory();
+        final RexNode one = rexBuilder.makeExactLiteral(BigDecimal.ONE);
+        final RexNode ten = rexBuilder.makeExactLiteral(BigDecimal.TEN);
+        final RexNode three =
+            rexBuilder.makeExactLiteral(BigDecimal.valueOf(3));
+        final RexNode nullInt =
+            rexBuilder.makeNullLiteral(SqlTypeName.INTEGER);
+        final RexNode hello = rexBuilder.makeLiteral("Hello");
+        final RexNode date =
+            rexBuilder.makeDateLiteral(new DateString(2017, 1, 31));
+        final RexNode oneMonth =
+            rexBuilder.makeIntervalLiteral(BigDecimal.ONE,
+                new SqlIntervalQualifier(TimeUnit.MONTH, null,
+                    SqlParserPos.ZERO));
+        final List<RexNode> exps = ImmutableList.of(
+            rexBuilder.makeCall(SqlStdOperatorTable.PLUS, ten, one),
+            rexBuilder.makeCall(SqlStdOperatorTable.DIVIDE,
+                rexBuilder.makeCall(SqlStdOperatorTable.UNARY_MINUS, ten),
+                three),
+            rexBuilder.makeCall(SqlStdOperatorTable.MULTIPLY, ten, nullInt),
+            rexBuilder.makeCall(SqlStdOperatorTable.OR,
+                rexBuilder.makeCall(SqlStdOperatorTable.EQUALS, one, nullInt),
+                rexBuilder.makeCall(SqlStdOperatorTable.LESS_THAN, one, ten)),
+            rexBuilder.makeCall(SqlStdOperatorTable.IS_NULL,
+                rexBuilder.makeCall(SqlStdOperatorTable.EQUALS, one,
+                    nullInt)),
+            rexBuilder.makeCall(SqlStdOperatorTable.UPPER,
+                rexBuilder.makeCall(SqlStdOperatorTable.CONCAT, hello,
+                    hello)),
+            rexBuilder.makeCall(SqlStdOperatorTable.LIKE, hello,
+                rexBuilder.makeLiteral("He%")),
+            rexBuilder.makeCall(SqlStdOperatorTable.DATETIME_PLUS, date,
+                oneMonth));
+        final List<RexNode> reducedValues = new ArrayList<>();
+        assertThat(RexInterpreter.reduce(rexBuilder, exps, reducedValues),
+            is(true));
+        assertThat(((RexLiteral) reducedValues.get(0)).getValue2(),
+            equalTo((Object) 11L));
+        assertThat(((RexLiteral) reducedValues.get(1)).getValue2(),
+            equalTo((Object) (-3L)));
+        assertThat(((RexLiteral) reducedValues.get(6)).getValue2(),
+            equalTo((Object) true));
+        assertThat(reducedValues.get(7).toString(), is("2017-02-28"));
+
+        final RelDataType emptyRowType = typeFactory.builder().build();
+        final Object[] values =
+            executor.getExecutable(rexBuilder, exps, emptyRowType).execute();
+        for (int i = 0; i < exps.size(); i++) {
+          final RexNode literal =
+              rexBuilder.makeLiteral(values[i], exps.get(i).getType(), true);
+          assertThat(reducedValues.get(i).toString(),
+              is(literal.toString()));
+        }
+
+        // Generated code would overflow, so the interpreter declines; the
+        // executor falls back to generated code
+        final RexNode maxInt =
+            rexBuilder.makeExactLiteral(BigDecimal.valueOf(Integer.MAX_VALUE));
+        final List<RexNode> overflow = ImmutableList.of(
+            rexBuilder.makeCall(SqlStdOperatorTable.PLUS, maxInt, one));
+        reducedValues.clear();
+        assertThat(RexInterpreter.reduce(rexBuilder, overflow, reducedValues),
+            is(false));
+        assertThat(reducedValues.isEmpty(), is(true));
+        executor.reduce(rexBuilder, overflow, reducedValues);
+        assertThat(reducedValues.toString(),
+            is("[" + Integer.MIN_VALUE + "]"));
+
+        // 0.0 equals -0.0, as in generated code
+        final RexNode zero = rexBuilder.makeApproxLiteral(BigDecimal.ZERO);
+        final RexNode minusZero =
+            rexBuilder.makeCall(SqlStdOperatorTable.UNARY_MINUS, zero);
+        final List<RexNode> zeros = ImmutableList.of(
+            rexBuilder.makeCall(SqlStdOperatorTable.EQUALS, zero, minusZero),
+            rexBuilder.makeCall(SqlStdOperatorTable.LESS_THAN, minusZero,
+                zero),
+            rexBuilder.makeCall(SqlStdOperatorTable.GREATER_THAN_OR_EQUAL,
+                minusZero, zero));
+        reducedValues.clear();
+        assertThat(RexInterpreter.reduce(rexBuilder, zeros, reducedValues),
+            is(true));
+        assertThat(reducedValues.toString(), is("[true, false, true]"));
+
+        // NaN is not equal to, less than or greater than anything, so the
+        // interpreter declines, and generated code evaluates the comparisons
+        final RexNode nan =
+            rexBuilder.makeCall(SqlStdOperatorTable.DIVIDE, zero, zero);
+        final List<RexNode> nans = ImmutableList.of(
+            rexBuilder.makeCall(SqlStdOperatorTable.EQUALS, nan, nan),
+            rexBuilder.makeCall(SqlStdOperatorTable.LESS_THAN, nan, zero),
+            rexBuilder.makeCall(SqlStdOperatorTable.GREATER_THAN, nan, zero));
+        for (RexNode e : nans) {
+          reducedValues.clear();
+          assertThat(
+              RexInterpreter.reduce(rexBuilder, ImmutableList.of(e),
+                  reducedValues),
+              is(false));
+          executor.reduce(rexBuilder, ImmutableList.of(e), reducedValues);
+          assertThat(reducedValues.toString(), is("[false]"));
+        }
+      }
+    });
+  }
+
   @Test public void testDeterministic1() throws Exception {
     check(new Action() {
       public void check(RexBuilder rexBuilder, RexExecutorImpl executor) {
@@ -2461,6 +2461,13 @@ void checkPeriodPredicate(Checker checker) {
             + "FROM `FOO`\n"
             + "ORDER BY `B`, `C`\n"
             + "OFFSET 1 ROWS");
+    check(
+        "select a from foo order by b, c limit ? offset ?",
+        "SELECT `A`\n"
+            + "FROM `FOO`\n"
+            + "ORDER BY `B`, `C`\n"
+            + "OFFSET ? ROWS\n"
+            + "FETCH NEXT ? ROWS ONLY");
   }
 
   /** Test case that does not reproduce but is related to
@@ -3125,6 +3132,22 @@ void checkPeriodPredicate(Checker checker) {
             + "FROM `EMPS`");
   }
 
+  @Test public void testExplainWithPlannerStatistics() {
+    check(
+        "explain plan with planner statistics for select * from emps",
+        "EXPLAIN PLAN INCLUDING ATTRIBUTES WITH IMPLEMENTATION"
+            + " WITH PLANNER STATISTICS FOR\n"
+            + "SELECT *\n"
+            + "FROM `EMPS`");
+    check(
+        "explain plan with implementation with planner statistics as json"
+            + " for select * from emps",
+        "EXPLAIN PLAN INCLUDING ATTRIBUTES WITH IMPLEMENTATION"
+            + " WITH PLANNER STATISTICS AS JSON FOR\n"
+            + "SELECT *\n"
+            + "FROM `EMPS`");
+  }
+
   @Test public void testExplainWithType() {
     check(
         "explain plan with type for (values (true))",
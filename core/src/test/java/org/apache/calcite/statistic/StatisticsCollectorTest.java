@@ -0,0 +1,233 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.statistic;
+
+import org.apache.calcite.DataContext;
+import org.apache.calcite.jdbc.CalciteConnection;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rel.type.RelDataTypeFactory;
+import org.apache.calcite.schema.ColumnStatistic;
+import org.apache.calcite.schema.ScannableTable;
+import org.apache.calcite.schema.SchemaPlus;
+import org.apache.calcite.schema.Schemas;
+import org.apache.calcite.schema.Statistic;
+import org.apache.calcite.schema.impl.AbstractSchema;
+import org.apache.calcite.schema.impl.AbstractTable;
+import org.apache.calcite.sql.type.SqlTypeName;
+
+import com.google.common.collect.ImmutableList;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for {@link StatisticsCollector}, {@link HyperLogLog},
+ * {@link ReservoirSample} and {@link FileStatisticStore}.
+ */
+public class StatisticsCollectorTest {
+  private static final List<String> PATH = ImmutableList.of("s", "t");
+
+  /** Checks that {@link HyperLogLog} estimates are within a few percent of
+   * the true number of distinct values. */
+  @Test public void testHyperLogLog() {
+    final HyperLogLog hll = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+    for (int i = 0; i < 300000; i++) {
+      hll.add(i % 100000);
+    }
+    assertWithin(hll.estimate(), 100000d, 0.03d);
+
+    final HyperLogLog hll2 = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+    for (int i = 0; i < 1000; i++) {
+      hll2.add("value " + i);
+      hll2.add("value " + i);
+    }
+    assertWithin(hll2.estimate(), 1000d, 0.03d);
+
+    // Numbers of different types but the same value hash the same
+    final HyperLogLog hll3 = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+    hll3.add(1);
+    hll3.add(1L);
+    hll3.add((short) 1);
+    assertWithin(hll3.estimate(), 1d, 0.03d);
+
+    // Merging two sketches estimates the union
+    hll.merge(hll2);
+    assertWithin(hll.estimate(), 101000d, 0.03d);
+  }
+
+  @Test public void testReservoirSample() {
+    final ReservoirSample<Integer> sample =
+        new ReservoirSample<>(100, new Random(0));
+    for (int i = 0; i < 50; i++) {
+      sample.add(i);
+    }
+    assertThat(sample.count(), is(50L));
+    assertThat(sample.toList().size(), is(50));
+    for (int i = 50; i < 10000; i++) {
+      sample.add(i);
+    }
+    assertThat(sample.count(), is(10000L));
+    assertThat(sample.toList().size(), is(100));
+    int high = 0;
+    for (Integer i : sample.toList()) {
+      if (i >= 5000) {
+        ++high;
+      }
+    }
+    // A uniform sample has about as many values from each half of the input
+    assertTrue("high=" + high, high > 30 && high < 70);
+  }
+
+  @Test public void testCollect() throws Exception {
+    final Connection connection = DriverManager.getConnection("jdbc:calcite:");
+    final CalciteConnection calciteConnection =
+        connection.unwrap(CalciteConnection.class);
+    final DataContext root =
+        Schemas.createDataContext(connection,
+            calciteConnection.getRootSchema());
+    final Statistic statistic =
+        StatisticsCollector.DEFAULT.collect(new NumbersTable(1000), root);
+    connection.close();
+    assertThat(statistic.getRowCount(), is(1000d));
+
+    final ColumnStatistic x = statistic.getColumnStatistic(0);
+    assertWithin(x.getDistinctCount(), 1000d, 0.03d);
+    assertThat(x.getNullCount(), is(0d));
+    assertThat(x.getMin(), equalTo((Comparable) 0));
+    assertThat(x.getMax(), equalTo((Comparable) 999));
+    assertThat(x.getHistogram(), notNullValue());
+    assertWithin(x.getHistogram().fractionBelow(250, false), 0.25d, 0.05d);
+
+    final ColumnStatistic y = statistic.getColumnStatistic(1);
+    assertWithin(y.getDistinctCount(), 9d, 0.03d);
+    assertThat(y.getNullCount(), is(100d));
+    assertThat(y.getMin(), equalTo((Comparable) "v0"));
+    assertThat(y.getMax(), equalTo((Comparable) "v8"));
+  }
+
+  /** Analyzes a table via a connection, and checks that the statistics are
+   * saved to the file and used when planning later queries. */
+  @Test public void testAnalyze() throws Exception {
+    final File file = File.createTempFile("statistics", ".json");
+    assertTrue(file.delete());
+    try {
+      final Properties info = new Properties();
+      info.setProperty("statisticsFile", file.getAbsolutePath());
+      final Connection connection =
+          DriverManager.getConnection("jdbc:calcite:", info);
+      final CalciteConnection calciteConnection =
+          connection.unwrap(CalciteConnection.class);
+      final SchemaPlus rootSchema = calciteConnection.getRootSchema();
+      final SchemaPlus schema = rootSchema.add("s", new AbstractSchema());
+      schema.add("t", new NumbersTable(500));
+
+      // Before ANALYZE, the planner uses the default row count
+      assertThat(explain(connection), containsString("rowcount = 100.0"));
+
+      final Statistic statistic =
+          new StatisticsCollector(100, 10, 10).analyze(calciteConnection, PATH);
+      assertThat(statistic.getRowCount(), is(500d));
+      assertTrue(file.exists());
+
+      final RelDataType rowType =
+          schema.getTable("t").getRowType(calciteConnection.getTypeFactory());
+      final Statistic stored = FileStatisticStore.of(file)
+          .get(PATH, StatisticsCollector.version(rowType));
+      assertThat(stored, notNullValue());
+      assertThat(stored.getRowCount(), is(500d));
+      assertThat(stored.getColumnStatistic(1).getNullCount(), is(50d));
+      assertThat(stored.getColumnStatistic(1).getMax(),
+          equalTo((Comparable) "v8"));
+
+      // Statistics for a different version of the table are ignored
+      assertThat(FileStatisticStore.of(file).get(PATH, "x"), nullValue());
+
+      // After ANALYZE, the planner uses the collected row count
+      assertThat(explain(connection), containsString("rowcount = 500.0"));
+      connection.close();
+    } finally {
+      //noinspection ResultOfMethodCallIgnored
+      file.delete();
+    }
+  }
+
+  private static String explain(Connection connection) throws SQLException {
+    final Statement statement = connection.createStatement();
+    final ResultSet resultSet =
+        statement.executeQuery("explain plan including all attributes for\n"
+            + "select * from \"s\".\"t\"");
+    assertTrue(resultSet.next());
+    final String plan = resultSet.getString(1);
+    resultSet.close();
+    statement.close();
+    return plan;
+  }
+
+  private static void assertWithin(double actual, double expected,
+      double tolerance) {
+    assertTrue("expected " + expected + ", actual " + actual,
+        Math.abs(actual - expected) <= expected * tolerance);
+  }
+
+  /** Table whose column "x" holds the values 0 .. n - 1, and whose column
+   * "y" holds strings "v0" .. "v8", or null for every tenth row. */
+  public static class NumbersTable extends AbstractTable
+      implements ScannableTable {
+    private final int n;
+
+    NumbersTable(int n) {
+      this.n = n;
+    }
+
+    public RelDataType getRowType(RelDataTypeFactory typeFactory) {
+      return typeFactory.builder()
+          .add("x", SqlTypeName.INTEGER)
+          .add("y", SqlTypeName.VARCHAR).nullable(true)
+          .build();
+    }
+
+    public Enumerable<Object[]> scan(DataContext root) {
+      final List<Object[]> rows = new ArrayList<>();
+      for (int i = 0; i < n; i++) {
+        rows.add(new Object[] {i, i % 10 == 9 ? null : "v" + i % 10});
+      }
+      return Linq4j.asEnumerable(rows);
+    }
+  }
+}
+
+// End StatisticsCollectorTest.java
@@ -17,6 +17,7 @@
 package org.apache.calcite.test;
 
 import org.apache.calcite.adapter.clone.ArrayTableTest;
+import org.apache.calcite.adapter.enumerable.EnumerableCostModelTest;
 import org.apache.calcite.jdbc.CalciteRemoteDriverTest;
 import org.apache.calcite.plan.RelOptPlanReaderTest;
 import org.apache.calcite.plan.RelOptUtilTest;
@@ -46,6 +47,7 @@
 import org.apache.calcite.sql.type.SqlTypeFactoryTest;
 import org.apache.calcite.sql.validate.LexCaseSensitiveTest;
 import org.apache.calcite.sql.validate.SqlValidatorUtilTest;
+import org.apache.calcite.statistic.StatisticsCollectorTest;
 import org.apache.calcite.test.enumerable.EnumerableCorrelateTest;
 import org.apache.calcite.tools.FrameworksTest;
 import org.apache.calcite.tools.PlannerTest;
@@ -77,6 +79,7 @@
 @Suite.SuiteClasses({
     // very fast tests (under 0.1s)
     ArrayTableTest.class,
+    EnumerableCostModelTest.class,
     BitSetsTest.class,
     ImmutableBitSetTest.class,
     DirectedGraphTest.class,
@@ -89,6 +92,7 @@
     MappingTest.class,
     CalciteResourceTest.class,
     FilteratorTest.class,
+    StatisticsCollectorTest.class,
     PermutationTestCase.class,
     SqlFunctionsTest.class,
     SqlTypeNameTest.class,
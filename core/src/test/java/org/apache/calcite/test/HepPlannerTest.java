@@ -16,10 +16,13 @@
  */
 package org.apache.calcite.test;
 
+import org.apache.calcite.plan.RelOptProfiler;
+import org.apache.calcite.plan.RelOptUtil;
 import org.apache.calcite.plan.hep.HepMatchOrder;
 import org.apache.calcite.plan.hep.HepPlanner;
 import org.apache.calcite.plan.hep.HepProgram;
 import org.apache.calcite.plan.hep.HepProgramBuilder;
+import org.apache.calcite.rel.RelRoot;
 import org.apache.calcite.rel.logical.LogicalIntersect;
 import org.apache.calcite.rel.logical.LogicalUnion;
 import org.apache.calcite.rel.rules.CalcMergeRule;
@@ -31,6 +34,13 @@
 
 import org.junit.Test;
 
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
 /**
  * HepPlannerTest is a unit test for {@link HepPlanner}. See
  * {@link RelOptRulesTest} for an explanation of how to add tests; the tests in
@@ -169,6 +179,71 @@ protected DiffRepository getDiffRepos() {
         programBuilder.build(),
         "select upper(name) from dept where deptno=20");
   }
+
+  /** Tests that a {@link RelOptProfiler} records the rules fired by a
+   * HepPlanner. */
+  @Test public void testProfiler() throws Exception {
+    HepProgramBuilder programBuilder = HepProgram.builder();
+    programBuilder.addRuleInstance(ProjectToCalcRule.INSTANCE);
+    programBuilder.addRuleInstance(CalcMergeRule.INSTANCE);
+
+    final HepPlanner planner = new HepPlanner(programBuilder.build());
+    final RelOptProfiler profiler = new RelOptProfiler();
+    planner.setProfiler(profiler);
+    final RelRoot root = tester.convertSqlToRel(
+        "select upper(ename) from (select lower(ename) as ename from emp)");
+    planner.setRoot(root.rel);
+    planner.findBestExp();
+
+    final Map<String, RelOptProfiler.RuleStatistics> map = new HashMap<>();
+    for (RelOptProfiler.RuleStatistics stats : profiler.getStatistics()) {
+      map.put(stats.getRule(), stats);
+    }
+    final RelOptProfiler.RuleStatistics projectToCalc =
+        map.get("ProjectToCalcRule");
+    assertThat(projectToCalc.getFires(), is(2));
+    assertThat(projectToCalc.getAttempts() >= 2, is(true));
+    assertThat(projectToCalc.getProduced(), is(2));
+    assertThat(projectToCalc.getChosen(), is(0));
+    final RelOptProfiler.RuleStatistics calcMerge = map.get("CalcMergeRule");
+    assertThat(calcMerge.getFires(), is(1));
+    assertThat(calcMerge.getProduced(), is(1));
+    assertThat(calcMerge.getChosen(), is(1));
+    assertThat(profiler.toJson(),
+        containsString("\"rule\": \"CalcMergeRule\""));
+  }
+
+  /** Tests that a HepPlanner that skips rules that are known to have no
+   * effect produces the same plan as one that does not, with fewer
+   * attempts. */
+  @Test public void testIncremental() throws Exception {
+    final String sql =
+        "select upper(ename) from (select lower(ename) as ename from emp)";
+    final String[] plans = new String[2];
+    final int[] attempts = new int[2];
+    for (int i = 0; i < 2; i++) {
+      // The second pass of each rule has no effect, and the incremental
+      // planner can skip most of it.
+      HepProgramBuilder programBuilder = HepProgram.builder();
+      programBuilder.addMatchOrder(HepMatchOrder.TOP_DOWN);
+      programBuilder.addRuleInstance(ProjectToCalcRule.INSTANCE);
+      programBuilder.addRuleInstance(CalcMergeRule.INSTANCE);
+      programBuilder.addRuleInstance(ProjectToCalcRule.INSTANCE);
+      programBuilder.addRuleInstance(CalcMergeRule.INSTANCE);
+
+      final HepPlanner planner = new HepPlanner(programBuilder.build());
+      planner.setIncremental(i == 0);
+      final RelOptProfiler profiler = new RelOptProfiler();
+      planner.setProfiler(profiler);
+      planner.setRoot(tester.convertSqlToRel(sql).rel);
+      plans[i] = RelOptUtil.toString(planner.findBestExp());
+      for (RelOptProfiler.RuleStatistics stats : profiler.getStatistics()) {
+        attempts[i] += stats.getAttempts();
+      }
+    }
+    assertThat(plans[0], is(plans[1]));
+    assertThat(attempts[0] < attempts[1], is(true));
+  }
 }
 
 // End HepPlannerTest.java
@@ -106,6 +106,25 @@ public Object get(String name) {
     assertRows(interpreter, "[b, 2]", "[c, 3]");
   }
 
+  /** Tests executing a plan whose filters and projects are fused into a
+   * single compiled {@link org.apache.calcite.rel.core.Calc}. */
+  @Test public void testInterpretCompiledProjectFilter() throws Exception {
+    SqlNode parse =
+        planner.parse("select y, x * 2 as z\n"
+            + "from (\n"
+            + "  select x + 1 as x, upper(y) as y\n"
+            + "  from (values (1, 'a'), (2, 'b'), (3, 'c')) as t(x, y)\n"
+            + "  where x > 1)\n"
+            + "where x < 4");
+
+    SqlNode validate = planner.validate(parse);
+    RelNode convert = planner.rel(validate).rel;
+
+    final Interpreter interpreter =
+        new Interpreter(dataContext, convert, true);
+    assertRows(interpreter, "[B, 6]");
+  }
+
   /** Tests a plan where the sort field is projected away. */
   @Test public void testInterpretOrder() throws Exception {
     final String sql = "select y\n"
@@ -236,6 +255,48 @@ private static void assertRows(Interpreter interpreter,
     assertRows(interpreter, "[0]", "[10]");
   }
 
+  /** Tests executing an equi-join using a hash table in a compiled
+   * interpreter. */
+  @Test public void testInterpretCompiledHashJoin() throws Exception {
+    SqlNode parse =
+        planner.parse("select e.\"name\", d.\"name\"\n"
+            + "from \"hr\".\"emps\" as e\n"
+            + "join \"hr\".\"depts\" as d\n"
+            + "on e.\"deptno\" = d.\"deptno\" and e.\"empid\" < 150");
+
+    SqlNode validate = planner.validate(parse);
+    RelNode convert = planner.rel(validate).rel;
+
+    final Interpreter interpreter =
+        new Interpreter(dataContext, convert, true);
+    assertRowsUnordered(interpreter,
+        "[Bill, Sales]",
+        "[Theodore, Sales]");
+  }
+
+  /** Tests executing a full outer equi-join using a hash table in a compiled
+   * interpreter. */
+  @Test public void testInterpretCompiledHashFullJoin() throws Exception {
+    SqlNode parse =
+        planner.parse("select e.\"name\", d.\"name\"\n"
+            + "from \"hr\".\"emps\" as e\n"
+            + "full join \"hr\".\"depts\" as d\n"
+            + "on e.\"deptno\" = d.\"deptno\"");
+
+    SqlNode validate = planner.validate(parse);
+    RelNode convert = planner.rel(validate).rel;
+
+    final Interpreter interpreter =
+        new Interpreter(dataContext, convert, true);
+    assertRowsUnordered(interpreter,
+        "[Bill, Sales]",
+        "[Eric, null]",
+        "[Sebastian, Sales]",
+        "[Theodore, Sales]",
+        "[null, HR]",
+        "[null, Marketing]");
+  }
+
   /** Tests executing a UNION ALL query using an interpreter. */
   @Test public void testInterpretUnionAll() throws Exception {
     rootSchema.add("simple", new ScannableTableTest.SimpleTable());
@@ -17,6 +17,7 @@
 package org.apache.calcite.test;
 
 import org.apache.calcite.adapter.clone.CloneSchema;
+import org.apache.calcite.adapter.enumerable.EnumerableInterpretable;
 import org.apache.calcite.adapter.generate.RangeTable;
 import org.apache.calcite.adapter.java.AbstractQueryableTable;
 import org.apache.calcite.adapter.java.JavaTypeFactory;
@@ -29,6 +30,7 @@
 import org.apache.calcite.avatica.HandlerImpl;
 import org.apache.calcite.avatica.Meta;
 import org.apache.calcite.config.CalciteConnectionConfig;
+import org.apache.calcite.config.CalciteConnectionProperty;
 import org.apache.calcite.config.Lex;
 import org.apache.calcite.config.NullCollation;
 import org.apache.calcite.jdbc.CalciteConnection;
@@ -1195,6 +1197,259 @@ private void checkResultSetMetaData(Connection connection, String sql)
         .returns("EXPR$0=1\n");
   }
 
+  /** Tests that when the bindable cache is enabled, a statement whose
+   * generated code is the same as a previous statement's re-uses the compiled
+   * class. */
+  @Test public void testBindableCache() {
+    EnumerableInterpretable.clearBindableCaches();
+    final long hitCount0 =
+        EnumerableInterpretable.bindableCacheStats().hitCount();
+    final CalciteAssert.AssertThat with = CalciteAssert.hr()
+        .with(CalciteConnectionProperty.BINDABLE_CACHE_MAX_SIZE.camelName(),
+            10);
+    final String sql = "select \"empid\" from \"hr\".\"emps\"\n"
+        + "where \"deptno\" = 20";
+    with.query(sql).returns("empid=200\n");
+    with.query(sql).returns("empid=200\n");
+    final long hitCount1 =
+        EnumerableInterpretable.bindableCacheStats().hitCount();
+    assertThat(hitCount1 > hitCount0, is(true));
+  }
+
+  /** Tests that when the plan cache is enabled, preparing the same SQL twice
+   * on a connection re-uses the first statement's plan, and that a change
+   * to the schema invalidates it. */
+  @Test public void testPlanCache() {
+    CalcitePrepareImpl.clearPlanCaches();
+    CalciteAssert.hr()
+        .with(CalciteConnectionProperty.PLAN_CACHE_MAX_SIZE.camelName(), 10)
+        .doWithConnection(
+            new Function<CalciteConnection, Object>() {
+              public Object apply(CalciteConnection c) {
+                try {
+                  final String sql = "select \"empid\"\n"
+                      + "from \"hr\".\"emps\"\n"
+                      + "where \"deptno\" = ?";
+                  final long hitCount0 =
+                      CalcitePrepareImpl.planCacheStats().hitCount();
+                  checkPlanCache(c, sql, 200);
+                  assertThat(CalcitePrepareImpl.planCacheStats().hitCount(),
+                      is(hitCount0));
+                  checkPlanCache(c, sql, 200);
+                  assertThat(CalcitePrepareImpl.planCacheStats().hitCount(),
+                      is(hitCount0 + 1));
+
+                  // Changing the schema makes the cached plan unreachable
+                  c.getRootSchema().add("s2", new AbstractSchema());
+                  checkPlanCache(c, sql, 200);
+                  assertThat(CalcitePrepareImpl.planCacheStats().hitCount(),
+                      is(hitCount0 + 1));
+                  return null;
+                } catch (SQLException e) {
+                  throw new RuntimeException(e);
+                }
+              }
+            });
+  }
+
+  private static void checkPlanCache(CalciteConnection c, String sql,
+      int expectedEmpid) throws SQLException {
+    final PreparedStatement p = c.prepareStatement(sql);
+    p.setInt(1, 20);
+    final ResultSet rs = p.executeQuery();
+    assertThat(rs.next(), is(true));
+    assertThat(rs.getInt(1), is(expectedEmpid));
+    assertThat(rs.next(), is(false));
+    rs.close();
+    p.close();
+  }
+
+  /** Tests a hash join that exceeds its memory budget and spills its inputs
+   * to disk. */
+  @Test public void testSpillingJoin() {
+    final List<Object[]> spills = new ArrayList<>();
+    try (Hook.Closeable hook = Hook.SPILL.addThread(
+        new Function<Object[], Void>() {
+          public Void apply(Object[] args) {
+            spills.add(args);
+            return null;
+          }
+        })) {
+      CalciteAssert.hr()
+          .with(CalciteConnectionProperty.SPILL_MEMORY_BUDGET.camelName(), "1")
+          .query("select e.\"empid\", d.\"name\"\n"
+              + "from (select \"empid\", \"deptno\" from \"hr\".\"emps\") as e\n"
+              + "full join (select \"deptno\", \"name\" from \"hr\".\"depts\") as d\n"
+              + "on e.\"deptno\" = d.\"deptno\"")
+          .returnsUnordered("empid=100; name=Sales",
+              "empid=110; name=Sales",
+              "empid=150; name=Sales",
+              "empid=200; name=null",
+              "empid=null; name=Marketing",
+              "empid=null; name=HR");
+    }
+    assertThat(spills.isEmpty(), is(false));
+    assertThat(spills.get(0)[0], equalTo((Object) "join"));
+  }
+
+  /** Tests that the planner can compare plans using a calibrated cost model
+   * for Enumerable operators, with and without a memory budget. */
+  @Test public void testCostModel() {
+    final String sql = "select e.\"empid\", d.\"name\"\n"
+        + "from \"hr\".\"emps\" as e\n"
+        + "join \"hr\".\"depts\" as d on e.\"deptno\" = d.\"deptno\"\n"
+        + "order by e.\"empid\"";
+    for (String budget : new String[] {"0", "1"}) {
+      CalciteAssert.hr()
+          .with(CalciteConnectionProperty.COST_MODEL.camelName(), "default")
+          .with(CalciteConnectionProperty.SPILL_MEMORY_BUDGET.camelName(),
+              budget)
+          .query(sql)
+          .explainContains("EnumerableSort")
+          .returnsOrdered("empid=100; name=Sales",
+              "empid=110; name=Sales",
+              "empid=150; name=Sales");
+    }
+  }
+
+  /** Tests that the calibrated cost model changes the choice of join
+   * algorithm. {@code EMP} is sorted on {@code EMPNO}, so a merge join needs
+   * to sort only one input. Without the model, sorting seems so expensive
+   * that the planner chooses a hash join; with the model, and a memory
+   * budget that a hash join would exceed (spilling both of its inputs), the
+   * planner chooses a merge join. */
+  @Test public void testCostModelChoosesMergeJoin() {
+    final String sql = "select e.\"ENAME\", m.\"ENAME\"\n"
+        + "from \"scott\".\"EMP\" as e\n"
+        + "join \"scott\".\"EMP\" as m on e.\"MGR\" = m.\"EMPNO\"";
+    CalciteAssert.that()
+        .with(CalciteAssert.Config.SCOTT)
+        .query(sql)
+        .explainContains("EnumerableJoin(");
+    CalciteAssert.that()
+        .with(CalciteAssert.Config.SCOTT)
+        .with(CalciteConnectionProperty.COST_MODEL.camelName(), "default")
+        .with(CalciteConnectionProperty.SPILL_MEMORY_BUDGET.camelName(), "1")
+        .query(sql)
+        .explainContains("EnumerableMergeJoin(");
+  }
+
+  /** Tests {@link CalciteConnectionProperty#PRIMITIVE_ROWS}. The Calc below
+   * the Aggregate passes rows as a synthetic class with {@code int} fields,
+   * so the Aggregate does not need to unbox values from an array. */
+  @Test public void testPrimitiveRows() {
+    final String sql = "select \"deptno\", count(*) as c, sum(\"x\") as s\n"
+        + "from (\n"
+        + "  select \"deptno\", \"empid\" * 2 as \"x\"\n"
+        + "  from \"hr\".\"emps\"\n"
+        + "  where \"empid\" > 100)\n"
+        + "group by \"deptno\"";
+    final String[] expected = {
+      "deptno=10; C=2; S=520",
+      "deptno=20; C=1; S=400"
+    };
+    CalciteAssert.hr()
+        .query(sql)
+        .returnsUnordered(expected);
+    CalciteAssert.hr()
+        .with(CalciteConnectionProperty.PRIMITIVE_ROWS.camelName(), "true")
+        .query(sql)
+        .withHook(Hook.JAVA_PLAN,
+            new Function<String, Void>() {
+              public Void apply(String code) {
+                assertThat(code, containsString("public int f1;"));
+                assertThat(code, not(containsString("SqlFunctions.toInt(")));
+                return null;
+              }
+            })
+        .returnsUnordered(expected);
+  }
+
+  /** Tests that an expression used by both the condition and the projections
+   * of a Calc is evaluated once per row. The Filter and Project are merged
+   * into one Calc, and "empid + deptno" is computed once in "moveNext()". */
+  @Test public void testCalcSharedExpression() {
+    final String sql = "select \"x\"\n"
+        + "from (\n"
+        + "  select \"empid\" + \"deptno\" as \"x\"\n"
+        + "  from \"hr\".\"emps\")\n"
+        + "where \"x\" > 150";
+    CalciteAssert.hr()
+        .query(sql)
+        .withHook(Hook.JAVA_PLAN,
+            new Function<String, Void>() {
+              public Void apply(String code) {
+                assertThat(code, containsString("outputRow = "));
+                assertThat(code.split("\\.empid", -1).length - 1, is(1));
+                return null;
+              }
+            })
+        .returnsUnordered("x=160", "x=210");
+  }
+
+  /** Tests a sort that exceeds its memory budget and merges sorted runs from
+   * disk. */
+  @Test public void testSpillingSort() {
+    final List<Object[]> spills = new ArrayList<>();
+    try (Hook.Closeable hook = Hook.SPILL.addThread(
+        new Function<Object[], Void>() {
+          public Void apply(Object[] args) {
+            spills.add(args);
+            return null;
+          }
+        })) {
+      CalciteAssert.hr()
+          .with(CalciteConnectionProperty.SPILL_MEMORY_BUDGET.camelName(), "1")
+          .query("select \"empid\", upper(\"name\") as u\n"
+              + "from \"hr\".\"emps\"\n"
+              + "order by u desc")
+          .returnsOrdered("empid=110; U=THEODORE",
+              "empid=150; U=SEBASTIAN",
+              "empid=200; U=ERIC",
+              "empid=100; U=BILL");
+    }
+    assertThat(spills.isEmpty(), is(false));
+    assertThat(spills.get(0)[0], equalTo((Object) "sort"));
+  }
+
+  /** Tests an aggregate whose groups exceed its memory budget, so that the
+   * rows of some groups are spilled to disk and aggregated afterwards. */
+  @Test public void testSpillingAggregate() {
+    final List<Object[]> spills = new ArrayList<>();
+    try (Hook.Closeable hook = Hook.SPILL.addThread(
+        new Function<Object[], Void>() {
+          public Void apply(Object[] args) {
+            spills.add(args);
+            return null;
+          }
+        })) {
+      CalciteAssert.hr()
+          .with(CalciteConnectionProperty.SPILL_MEMORY_BUDGET.camelName(), "1")
+          .query("select \"deptno\" * 2 as d, count(*) as c,\n"
+              + " sum(\"salary\") as s\n"
+              + "from \"hr\".\"emps\"\n"
+              + "group by \"deptno\" * 2")
+          .returnsUnordered("D=20; C=3; S=28500.0",
+              "D=40; C=1; S=8000.0");
+    }
+    assertThat(spills.isEmpty(), is(false));
+    assertThat(spills.get(0)[0], equalTo((Object) "aggregate"));
+  }
+
+  /** Tests that an aggregate whose input is already sorted on the group
+   * keys is implemented by {@code EnumerableSortedAggregate}, and returns its
+   * groups in key order. */
+  @Test public void testSortedAggregate() {
+    CalciteAssert.hr()
+        .query("select \"deptno\", count(*) as c\n"
+            + "from (select * from \"hr\".\"emps\"\n"
+            + "  order by \"deptno\" limit 10)\n"
+            + "group by \"deptno\"")
+        .explainContains("EnumerableSortedAggregate(group=[{1}], C=[COUNT()])")
+        .returnsOrdered("deptno=10; C=3",
+            "deptno=20; C=1");
+  }
+
   /** Tests accessing columns by name. */
   @Test public void testGetByName() throws Exception {
     // JDBC 3.0 specification: "Column names supplied to getter methods are case
@@ -1288,6 +1543,35 @@ public Object apply(CalciteConnection c) {
             + "the_year=1998; C=365; M=April\n");
   }
 
+  /** Tests that filters and aggregates on a cloned table are evaluated over
+   * its column vectors when
+   * {@link CalciteConnectionProperty#COLUMNAR_BATCH_SIZE} is set. */
+  @Test public void testCloneColumnar() {
+    final CalciteAssert.AssertThat with = CalciteAssert.that()
+        .with(CalciteAssert.Config.FOODMART_CLONE)
+        .with(CalciteConnectionProperty.COLUMNAR_BATCH_SIZE.camelName(), 100);
+    with.query("select \"the_year\", count(*) as c,\n"
+            + " min(\"day_of_month\") as m, max(\"day_of_month\") as x\n"
+            + "from \"foodmart2\".\"time_by_day\"\n"
+            + "where \"the_month\" = 'April'\n"
+            + "group by \"the_year\"\n"
+            + "order by 1")
+        .explainContains("ColumnarAggregate(group=[{0}]")
+        .explainContains("ColumnarTableScan(table=[[foodmart2, time_by_day]], "
+            + "filters=[[")
+        .returns(""
+            + "the_year=1997; C=30; M=1; X=30\n"
+            + "the_year=1998; C=30; M=1; X=30\n");
+    with.query("select \"the_year\", \"day_of_month\" * 2 as d\n"
+            + "from \"foodmart2\".\"time_by_day\"\n"
+            + "where \"the_month\" = 'April' and \"day_of_month\" > 28")
+        .explainContains("ColumnarTableScan(table=[[foodmart2, time_by_day]]")
+        .returnsUnordered("the_year=1997; D=58",
+            "the_year=1997; D=60",
+            "the_year=1998; D=58",
+            "the_year=1998; D=60");
+  }
+
   @Ignore("The test returns expected results. Not sure why it is disabled")
   @Test public void testCloneGroupBy2() {
     CalciteAssert.that()
@@ -3203,6 +3487,50 @@ public Void apply(ResultSet resultSet) {
             + "store_id=6; grocery_sqft=15337\n");
   }
 
+  /** Tests ORDER BY ... OFFSET ... FETCH, and LIMIT, whose values are dynamic
+   * parameters. The client may bind them as int or as long. */
+  @Test public void testDynamicOffsetFetch() {
+    CalciteAssert.that()
+        .with(CalciteAssert.Config.FOODMART_CLONE)
+        .doWithConnection(
+            new Function<CalciteConnection, Object>() {
+              public Object apply(CalciteConnection c) {
+                try {
+                  final PreparedStatement p = c.prepareStatement(
+                      "select \"store_id\", \"grocery_sqft\" from \"store\"\n"
+                          + "where \"store_id\" < 10\n"
+                          + "order by 1 offset ? rows fetch next ? rows only");
+                  p.setInt(1, 2);
+                  p.setInt(2, 3);
+                  assertThat(CalciteAssert.toString(p.executeQuery()),
+                      is("store_id=2; grocery_sqft=22271\n"
+                          + "store_id=3; grocery_sqft=24390\n"
+                          + "store_id=4; grocery_sqft=16844\n"));
+                  p.setLong(1, 0L);
+                  p.setLong(2, 2L);
+                  assertThat(CalciteAssert.toString(p.executeQuery()),
+                      is("store_id=0; grocery_sqft=null\n"
+                          + "store_id=1; grocery_sqft=17475\n"));
+
+                  final PreparedStatement p2 = c.prepareStatement(
+                      "select \"store_id\" from \"store\"\n"
+                          + "where \"store_id\" < 10\n"
+                          + "limit ?");
+                  p2.setLong(1, 4L);
+                  final ResultSet resultSet = p2.executeQuery();
+                  int n = 0;
+                  while (resultSet.next()) {
+                    ++n;
+                  }
+                  assertThat(n, is(4));
+                  return null;
+                } catch (SQLException e) {
+                  throw new RuntimeException(e);
+                }
+              }
+            });
+  }
+
   /** Tests FETCH with no ORDER BY. */
   @Test public void testFetch() {
     CalciteAssert.hr()
@@ -4590,6 +4918,37 @@ public boolean moveNext() {
         .returns("C=12\n");
   }
 
+  /** Tests INTERSECT ALL and EXCEPT ALL, which count duplicate rows in a hash
+   * table rather than storing them. */
+  @Test public void testIntersectExceptAll() {
+    final String intersectAll = "select \"deptno\" from \"hr\".\"emps\"\n"
+        + "intersect all\n"
+        + "select \"deptno\" from \"hr\".\"emps\" where \"empid\" > 100";
+    CalciteAssert.hr()
+        .query(intersectAll)
+        .explainContains("EnumerableIntersect(all=[true])")
+        .returnsUnordered("deptno=10", "deptno=10", "deptno=20");
+    final String exceptAll = "select \"deptno\" from \"hr\".\"emps\"\n"
+        + "except all\n"
+        + "select \"deptno\" from \"hr\".\"depts\"";
+    CalciteAssert.hr()
+        .query(exceptAll)
+        .explainContains("EnumerableMinus(all=[true])")
+        .returnsUnordered("deptno=10", "deptno=10", "deptno=20");
+    final String except = "select \"deptno\" from \"hr\".\"emps\"\n"
+        + "except\n"
+        + "select \"deptno\" from \"hr\".\"depts\"";
+    CalciteAssert.hr()
+        .query(except)
+        .returnsUnordered("deptno=20");
+    final String union = "select \"deptno\" from \"hr\".\"emps\"\n"
+        + "union\n"
+        + "select \"deptno\" from \"hr\".\"depts\"";
+    CalciteAssert.hr()
+        .query(union)
+        .returnsUnordered("deptno=10", "deptno=20", "deptno=30", "deptno=40");
+  }
+
   /** Tests the NOT IN operator. Problems arose in code-generation because
    * the column allows nulls. */
   @Test public void testNotIn() {
@@ -5621,6 +5980,25 @@ public Object apply(CalciteConnection a0) {
             + "EXPR$1 CHAR(2) CHARACTER SET \"ISO-8859-1\" COLLATE \"ISO-8859-1$en_US$primary\" NOT NULL\n");
   }
 
+  /** Tests "EXPLAIN PLAN WITH PLANNER STATISTICS", which appends the
+   * statistics recorded by {@link org.apache.calcite.plan.RelOptProfiler}
+   * to the plan. */
+  @Test public void testExplainWithPlannerStatistics() {
+    final String sql = "explain plan with planner statistics for\n"
+        + "select \"empid\" from \"hr\".\"emps\" where \"deptno\" = 10";
+    CalciteAssert.hr()
+        .query(sql)
+        .returns(
+            CalciteAssert.checkResultContains("PLAN=Enumerable",
+                "\nPlanner statistics:\n",
+                "\nEnumerableProjectRule: attempts="));
+    CalciteAssert.hr()
+        .query(sql.replace("statistics", "statistics as json"))
+        .returns(
+            CalciteAssert.checkResultContains("\"rules\": [",
+                "\"rule\": \"EnumerableProjectRule\""));
+  }
+
   /** Test case for bug where if two tables have different element classes
    * but those classes have identical fields, Calcite would generate code to use
    * the wrong element class; a {@link ClassCastException} would ensue. */
@@ -53,6 +53,7 @@
 import org.apache.calcite.rex.RexInputRef;
 import org.apache.calcite.rex.RexNode;
 import org.apache.calcite.rex.RexUtil;
+import org.apache.calcite.schema.ColumnStatistic;
 import org.apache.calcite.schema.CustomColumnResolvingTable;
 import org.apache.calcite.schema.ExtensibleTable;
 import org.apache.calcite.schema.Path;
@@ -1480,6 +1481,10 @@ public List<RelCollation> getCollations() {
         public RelDistribution getDistribution() {
           return table.getDistribution();
         }
+
+        public ColumnStatistic getColumnStatistic(int ordinal) {
+          return null;
+        }
       };
     }
 
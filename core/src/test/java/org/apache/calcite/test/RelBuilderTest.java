@@ -18,6 +18,7 @@
 
 import org.apache.calcite.plan.RelOptUtil;
 import org.apache.calcite.plan.RelTraitDef;
+import org.apache.calcite.rel.RelDigest;
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.core.AggregateCall;
 import org.apache.calcite.rel.core.Correlate;
@@ -428,6 +429,40 @@ private String str(RelNode r) {
     assertThat(str(root), is(expected));
   }
 
+  /** Tests that relational expressions that have the same digest have equal
+   * {@link RelDigest}s. */
+  @Test public void testRelDigest() {
+    final RelBuilder builder = RelBuilder.create(config().build());
+    final RelNode scan = builder.scan("EMP").build();
+    final RelNode project1 = project(builder, scan, 1);
+    final RelNode project2 = project(builder, scan, 1);
+    final RelNode project3 = project(builder, scan, 2);
+
+    // Until the planner clears their digests, expressions are equal only to
+    // themselves
+    assertThat(project1.getRelDigest().equals(project2.getRelDigest()),
+        is(false));
+
+    project1.clearDigest();
+    project2.clearDigest();
+    project3.clearDigest();
+    assertThat(project1.getRelDigest(), is(project2.getRelDigest()));
+    assertThat(project1.getRelDigest().hashCode(),
+        is(project2.getRelDigest().hashCode()));
+    assertThat(project1.getDigest(), is(project2.getDigest()));
+    assertThat(project1.getRelDigest().equals(project3.getRelDigest()),
+        is(false));
+    assertThat(project1.getDigest().equals(project3.getDigest()), is(false));
+  }
+
+  private static RelNode project(RelBuilder builder, RelNode input, int i) {
+    return builder.push(input)
+        .project(builder.field("DEPTNO"),
+            builder.call(SqlStdOperatorTable.PLUS, builder.field("SAL"),
+                builder.literal(i)))
+        .build();
+  }
+
   /** Test case for
    * <a href="https://issues.apache.org/jira/browse/CALCITE-1297">[CALCITE-1297]
    * RelBuilder does not translate identity projects even if they rename
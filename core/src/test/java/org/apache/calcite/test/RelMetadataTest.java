@@ -31,6 +31,7 @@
 import org.apache.calcite.rel.RelDistributions;
 import org.apache.calcite.rel.RelFieldCollation;
 import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.RelReferentialConstraint;
 import org.apache.calcite.rel.RelRoot;
 import org.apache.calcite.rel.core.Aggregate;
 import org.apache.calcite.rel.core.AggregateCall;
@@ -60,6 +61,7 @@
 import org.apache.calcite.rel.metadata.DefaultRelMetadataProvider;
 import org.apache.calcite.rel.metadata.JaninoRelMetadataProvider;
 import org.apache.calcite.rel.metadata.Metadata;
+import org.apache.calcite.rel.metadata.MetadataCache;
 import org.apache.calcite.rel.metadata.MetadataDef;
 import org.apache.calcite.rel.metadata.MetadataHandler;
 import org.apache.calcite.rel.metadata.ReflectiveRelMetadataProvider;
@@ -69,6 +71,7 @@
 import org.apache.calcite.rel.metadata.RelMetadataProvider;
 import org.apache.calcite.rel.metadata.RelMetadataQuery;
 import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rel.type.RelDataTypeFactory;
 import org.apache.calcite.rex.RexBuilder;
 import org.apache.calcite.rex.RexCall;
 import org.apache.calcite.rex.RexInputRef;
@@ -76,7 +79,11 @@
 import org.apache.calcite.rex.RexNode;
 import org.apache.calcite.rex.RexTableInputRef;
 import org.apache.calcite.rex.RexTableInputRef.RelTableRef;
+import org.apache.calcite.schema.Histogram;
 import org.apache.calcite.schema.SchemaPlus;
+import org.apache.calcite.schema.Statistic;
+import org.apache.calcite.schema.Statistics;
+import org.apache.calcite.schema.impl.AbstractTable;
 import org.apache.calcite.sql.SqlKind;
 import org.apache.calcite.sql.SqlOperator;
 import org.apache.calcite.sql.SqlSpecialOperator;
@@ -506,6 +513,38 @@ private void checkRowCount(String sql, double expected, double expectedMin,
     checkRowCount(sql, EMP_SIZE * DEPT_SIZE, 0D, Double.POSITIVE_INFINITY);
   }
 
+  /** Tests that metadata values are cached, per relational expression and
+   * arguments, and that the cache counts hits and misses. */
+  @Test public void testMetadataCache() {
+    final RelNode rel = convertSql("select * from emp where deptno = 10");
+    final Filter filter = (Filter) rel.getInput(0);
+    final RelMetadataQuery mq = RelMetadataQuery.instance();
+    final MetadataCache cache = mq.cache;
+    assertThat(cache.getHitRate(), is(0D));
+
+    final Double rowCount = mq.getRowCount(rel);
+    final long missCount = cache.getMissCount();
+    final long hitCount = cache.getHitCount();
+    assertTrue(missCount > 0);
+    assertThat(mq.getRowCount(rel), is(rowCount));
+    assertThat(cache.getHitCount(), is(hitCount + 1));
+    assertThat(cache.getMissCount(), is(missCount));
+
+    // Methods with arguments are cached per argument
+    final RelNode scan = filter.getInput();
+    final Double selectivity = mq.getSelectivity(scan, filter.getCondition());
+    final Double selectivity2 = mq.getSelectivity(scan, null);
+    final long hitCount2 = cache.getHitCount();
+    assertThat(mq.getSelectivity(scan, filter.getCondition()),
+        is(selectivity));
+    assertThat(mq.getSelectivity(scan, null), is(selectivity2));
+    assertThat(cache.getHitCount(), is(hitCount2 + 2));
+    assertTrue(cache.getHitRate() > 0D);
+
+    // A new query has an empty cache
+    assertThat(RelMetadataQuery.instance().cache.getHitCount(), is(0L));
+  }
+
   @Test public void testRowCountJoin() {
     final String sql = "select * from emp\n"
         + "inner join dept on emp.deptno = dept.deptno";
@@ -2243,6 +2282,87 @@ private void checkNodeTypeCount(String sql, Map<Class<? extends RelNode>, Intege
         mq.getPulledUpPredicates(filter1).pulledUpPredicates.get(0).toString());
   }
 
+  /** Tests that selectivity and the number of distinct values are derived
+   * from the column statistics of a table, if it has them. */
+  @Test public void testColumnStatistics() {
+    final SchemaPlus rootSchema = Frameworks.createRootSchema(true);
+    rootSchema.add("T", new ColumnStatisticTable());
+    final FrameworkConfig config = Frameworks.newConfigBuilder()
+        .defaultSchema(rootSchema)
+        .build();
+    final RelBuilder builder = RelBuilder.create(config);
+    final RelMetadataQuery mq = RelMetadataQuery.instance();
+
+    // "A" is uniformly distributed between its min and max
+    RelNode rel = builder.scan("T")
+        .filter(
+            builder.call(SqlStdOperatorTable.GREATER_THAN_OR_EQUAL,
+                builder.field("A"), builder.literal(33)))
+        .build();
+    assertEquals(2D / 3D, mq.getSelectivity(rel, null), EPSILON);
+    rel = builder.scan("T")
+        .filter(
+            builder.call(SqlStdOperatorTable.EQUALS,
+                builder.field("A"), builder.literal(7)))
+        .build();
+    assertEquals(0.1D, mq.getSelectivity(rel, null), EPSILON);
+
+    // "B" is 10% null, and 5 fills two of the four buckets of its histogram
+    rel = builder.scan("T")
+        .filter(builder.call(SqlStdOperatorTable.IS_NULL, builder.field("B")))
+        .build();
+    assertEquals(0.1D, mq.getSelectivity(rel, null), EPSILON);
+    rel = builder.scan("T")
+        .filter(
+            builder.call(SqlStdOperatorTable.EQUALS,
+                builder.field("B"), builder.literal(5)))
+        .build();
+    assertEquals(0.45D, mq.getSelectivity(rel, null), EPSILON);
+    rel = builder.scan("T")
+        .filter(
+            builder.call(SqlStdOperatorTable.GREATER_THAN,
+                builder.field("B"), builder.literal(5)))
+        .build();
+    assertEquals(0.225D, mq.getSelectivity(rel, null), EPSILON);
+
+    // Equi-join uses the larger number of distinct values
+    rel = builder.scan("T")
+        .scan("T")
+        .join(JoinRelType.INNER,
+            builder.equals(builder.field(2, 0, "A"),
+                builder.field(2, 1, "B")))
+        .build();
+    assertEquals(1000D * 1000D / 200D, mq.getRowCount(rel), EPSILON);
+
+    rel = builder.scan("T").build();
+    assertEquals(10D, mq.getDistinctRowCount(rel, ImmutableBitSet.of(0), null),
+        EPSILON);
+    assertEquals(201D,
+        mq.getDistinctRowCount(rel, ImmutableBitSet.of(1), null), EPSILON);
+    assertEquals(1000D,
+        mq.getDistinctRowCount(rel, ImmutableBitSet.of(0, 1), null), EPSILON);
+  }
+
+  /** Table with 1,000 rows and statistics about its two columns. */
+  private static class ColumnStatisticTable extends AbstractTable {
+    public RelDataType getRowType(RelDataTypeFactory typeFactory) {
+      return typeFactory.builder()
+          .add("A", SqlTypeName.INTEGER)
+          .add("B", SqlTypeName.INTEGER).nullable(true)
+          .build();
+    }
+
+    @Override public Statistic getStatistic() {
+      return Statistics.of(1000D, ImmutableList.<ImmutableBitSet>of(),
+          ImmutableList.<RelReferentialConstraint>of(),
+          ImmutableList.<RelCollation>of(),
+          ImmutableList.of(
+              Statistics.column(10D, 0D, 0, 99, null),
+              Statistics.column(200D, 100D, 0, 10,
+                  new Histogram(ImmutableList.of(0, 5, 5, 5, 10)))));
+    }
+  }
+
   /**
    * Matcher that succeeds for any collection that, when converted to strings
    * and sorted on those strings, matches the given reference string.
@@ -359,6 +359,25 @@ private RexNode gt(RexNode n1, RexNode n2) {
         program);
   }
 
+  /**
+   * Tests {@link RexProgram#getSharedExprs()}, which finds the calls that are
+   * used by both the condition and the projections.
+   */
+  @Test public void testSharedExprs() {
+    // No condition, so nothing is shared.
+    final RexProgram program0 = createProg(0).getProgram(true);
+    assertThat(program0.getSharedExprs().isEmpty(), is(true));
+
+    // "x + y" is used by projection "a" and by the condition
+    final RexProgram program2 = createProg(2).getProgram(true);
+    assertThat(program2.toString(),
+        is("(expr#0..1=[{inputs}], expr#2=[+($t0, $t1)], expr#3=[1], "
+            + "expr#4=[+($t0, $t3)], expr#5=[+($t2, $t4)], "
+            + "expr#6=[+($t0, $t0)], expr#7=[>($t2, $t0)], "
+            + "a=[$t5], b=[$t6], $condition=[$t7])"));
+    assertThat(program2.getSharedExprs().toString(), is("{2}"));
+  }
+
   /**
    * Creates a program, depending on variant:
    *
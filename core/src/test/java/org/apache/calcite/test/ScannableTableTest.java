@@ -22,6 +22,7 @@
 import org.apache.calcite.linq4j.AbstractEnumerable;
 import org.apache.calcite.linq4j.Enumerable;
 import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
 import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.rel.type.RelDataTypeFactory;
 import org.apache.calcite.rex.RexCall;
@@ -40,7 +41,9 @@
 import org.apache.calcite.schema.impl.AbstractTable;
 import org.apache.calcite.sql.fun.SqlStdOperatorTable;
 import org.apache.calcite.sql.type.SqlTypeName;
+import org.apache.calcite.util.ImmutableBitSet;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 
 import org.junit.Assert;
@@ -53,6 +56,7 @@
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.AbstractList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
@@ -60,8 +64,10 @@
 import java.util.Properties;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
@@ -361,6 +367,58 @@ public Enumerator<Object[]> enumerator() {
     }
   }
 
+  /** Tests that, if the connection allows parallelism, a query over a large
+   * {@link ScannableTable} evaluates its filter and aggregate in an exchange,
+   * and returns the same results as it would on a single thread. */
+  @Test public void testParallel() throws Exception {
+    final Properties properties = new Properties();
+    properties.setProperty("parallelism", "4");
+    try (Connection connection =
+             DriverManager.getConnection("jdbc:calcite:", properties)) {
+      CalciteConnection calciteConnection =
+          connection.unwrap(CalciteConnection.class);
+      SchemaPlus rootSchema = calciteConnection.getRootSchema();
+      SchemaPlus schema = rootSchema.add("s", new AbstractSchema());
+      schema.add("numbers", new NumbersTable(10000));
+      final String sql = "select count(*) as c, sum(\"i\") as s,\n"
+          + " max(\"i\") as m\n"
+          + "from \"s\".\"numbers\"\n"
+          + "where mod(\"i\", 3) = 0";
+      final Statement statement = connection.createStatement();
+      ResultSet resultSet = statement.executeQuery("explain plan for " + sql);
+      assertTrue(resultSet.next());
+      final String plan = resultSet.getString(1);
+      assertThat(plan,
+          containsString("EnumerableExchange(distribution=[single], "
+              + "parallelism=[4], morselSize=[1024])"));
+      resultSet.close();
+
+      resultSet = statement.executeQuery(sql);
+      assertThat(CalciteAssert.toString(resultSet),
+          equalTo("C=3334; S=16668333; M=9999\n"));
+
+      resultSet = statement.executeQuery("select mod(\"i\", 2) as p,\n"
+          + " count(*) as c\n"
+          + "from \"s\".\"numbers\"\n"
+          + "group by mod(\"i\", 2)");
+      assertThat(resultSet,
+          Matchers.returnsUnordered("P=0; C=5000", "P=1; C=5000"));
+
+      // A pipeline without an aggregate gets an exchange too, but a pipeline
+      // over a small table does not
+      resultSet = statement.executeQuery("explain plan for\n"
+          + "select * from \"s\".\"numbers\" where \"i\" > 10");
+      assertTrue(resultSet.next());
+      assertThat(resultSet.getString(1), containsString("EnumerableExchange"));
+      schema.add("few", new NumbersTable(100));
+      resultSet = statement.executeQuery("explain plan for\n"
+          + "select * from \"s\".\"few\" where \"i\" > 10");
+      assertTrue(resultSet.next());
+      assertThat(resultSet.getString(1),
+          not(containsString("EnumerableExchange")));
+    }
+  }
+
   /** Table that returns one column via the {@link ScannableTable} interface. */
   public static class SimpleTable implements ScannableTable {
     public RelDataType getRowType(RelDataTypeFactory typeFactory) {
@@ -410,6 +468,41 @@ public Enumerator<Object[]> enumerator() {
     }
   }
 
+  /** Table that returns the integers from 0 up to a given number via the
+   * {@link ScannableTable} interface, and knows its row count. */
+  public static class NumbersTable implements ScannableTable {
+    private final int rowCount;
+
+    NumbersTable(int rowCount) {
+      this.rowCount = rowCount;
+    }
+
+    public RelDataType getRowType(RelDataTypeFactory typeFactory) {
+      return typeFactory.builder().add("i", SqlTypeName.INTEGER).build();
+    }
+
+    public Statistic getStatistic() {
+      return Statistics.of(rowCount, ImmutableList.<ImmutableBitSet>of());
+    }
+
+    public Schema.TableType getJdbcTableType() {
+      return Schema.TableType.TABLE;
+    }
+
+    public Enumerable<Object[]> scan(DataContext root) {
+      return Linq4j.asEnumerable(
+          new AbstractList<Object[]>() {
+            public Object[] get(int index) {
+              return new Object[] {index};
+            }
+
+            public int size() {
+              return rowCount;
+            }
+          });
+    }
+  }
+
   /** Table that returns two columns via the {@link FilterableTable}
    * interface. */
   public static class BeatlesFilterableTable extends AbstractTable
@@ -36,9 +36,11 @@
 import static org.apache.calcite.runtime.SqlFunctions.greater;
 import static org.apache.calcite.runtime.SqlFunctions.initcap;
 import static org.apache.calcite.runtime.SqlFunctions.lesser;
+import static org.apache.calcite.runtime.SqlFunctions.like;
 import static org.apache.calcite.runtime.SqlFunctions.lower;
 import static org.apache.calcite.runtime.SqlFunctions.ltrim;
 import static org.apache.calcite.runtime.SqlFunctions.rtrim;
+import static org.apache.calcite.runtime.SqlFunctions.similar;
 import static org.apache.calcite.runtime.SqlFunctions.subtractMonths;
 import static org.apache.calcite.runtime.SqlFunctions.trim;
 import static org.apache.calcite.runtime.SqlFunctions.upper;
@@ -50,6 +52,7 @@
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 /**
@@ -89,6 +92,54 @@ public class SqlFunctionsTest {
     assertEquals(" B0123b", initcap(" b0123B"));
   }
 
+  /** Tests LIKE, including patterns that are matched without a regular
+   * expression. */
+  @Test public void testLike() {
+    assertTrue(like("abc", "abc"));
+    assertTrue(!like("abcd", "abc"));
+    assertTrue(like("abcd", "abc%"));
+    assertTrue(like("abc\ndef", "abc%"));
+    assertTrue(!like("xabc", "abc%"));
+    assertTrue(like("xabc", "%abc"));
+    assertTrue(!like("abcx", "%abc"));
+    assertTrue(like("xabcx", "%abc%"));
+    assertTrue(like("x\nabc\nx", "%abc%"));
+    assertTrue(!like("xabx", "%abc%"));
+    assertTrue(like("", "%"));
+    assertTrue(like("abc", "%%"));
+    assertTrue(like("abc", "a%c"));
+    assertTrue(like("abc", "a_c"));
+    assertTrue(!like("a\nc", "a_c"));
+
+    // Escaped '%' is a literal, not a wildcard
+    assertTrue(like("a%", "a\\%", "\\"));
+    assertTrue(!like("ab", "a\\%", "\\"));
+    assertTrue(like("a%b", "a\\%%", "\\"));
+    assertTrue(!like("ab", "a\\%%", "\\"));
+    assertTrue(like("x%", "%#%", "#"));
+    assertTrue(!like("x", "%#%", "#"));
+    try {
+      final boolean b = like("abc", "a\\bc", "\\");
+      fail("expected error, got " + b);
+    } catch (RuntimeException e) {
+      assertThat(e.getMessage(),
+          equalTo("Invalid escape sequence 'a\\bc', 1"));
+    }
+  }
+
+  @Test public void testSimilar() {
+    assertTrue(similar("abc", "abc"));
+    assertTrue(!similar("abcd", "abc"));
+    assertTrue(similar("abc", "a_c"));
+    assertTrue(similar("abbc", "ab*c"));
+    assertTrue(similar("a c", "a c"));
+
+    // The escape character is a letter, so the pattern is not a literal
+    assertTrue(similar("a", "aa", "a"));
+    assertTrue(!similar("aa", "aa", "a"));
+    assertTrue(similar("a+", "ab+", "b"));
+  }
+
   @Test public void testLesser() {
     assertEquals("a", lesser("a", "bc"));
     assertEquals("ac", lesser("bc", "ac"));
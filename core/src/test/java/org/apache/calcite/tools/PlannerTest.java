@@ -40,17 +40,23 @@
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.RelRoot;
 import org.apache.calcite.rel.convert.ConverterRule;
+import org.apache.calcite.rel.core.Join;
 import org.apache.calcite.rel.core.RelFactories;
 import org.apache.calcite.rel.core.TableScan;
 import org.apache.calcite.rel.logical.LogicalFilter;
 import org.apache.calcite.rel.logical.LogicalProject;
+import org.apache.calcite.rel.metadata.RelMdUtil;
 import org.apache.calcite.rel.metadata.RelMetadataQuery;
 import org.apache.calcite.rel.rules.FilterMergeRule;
+import org.apache.calcite.rel.rules.MultiJoinOptimizeDphypRule;
 import org.apache.calcite.rel.rules.ProjectMergeRule;
 import org.apache.calcite.rel.rules.ProjectToWindowRule;
 import org.apache.calcite.rel.rules.SortRemoveRule;
 import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.rel.type.RelDataTypeFactory;
+import org.apache.calcite.rex.RexCall;
+import org.apache.calcite.rex.RexInputRef;
+import org.apache.calcite.rex.RexNode;
 import org.apache.calcite.schema.SchemaPlus;
 import org.apache.calcite.sql.SqlAggFunction;
 import org.apache.calcite.sql.SqlCall;
@@ -73,6 +79,8 @@
 import org.apache.calcite.sql.validate.SqlValidator;
 import org.apache.calcite.sql.validate.SqlValidatorScope;
 import org.apache.calcite.test.CalciteAssert;
+import org.apache.calcite.util.ImmutableBitSet;
+import org.apache.calcite.util.Pair;
 import org.apache.calcite.util.Util;
 
 import com.google.common.base.Throwables;
@@ -92,6 +100,7 @@
 
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 /**
@@ -893,9 +902,146 @@ private void checkHeuristic(String sql, String expected) throws Exception {
             + "        EnumerableTableScan(table=[[foodmart2, sales_fact_1997]])\n");
   }
 
-  /** Checks that a query returns a particular plan, using a planner with
+  /** Plans a 5-table join query on the FoodMart schema using dynamic
+   * programming. Every join has a condition; there are no cross products. */
+  @Test public void testDphyp5() throws Exception {
+    final String sql = "select *\n"
+        + "from \"sales_fact_1997\" as s\n"
+        + "  join \"customer\" as c using (\"customer_id\")\n"
+        + "  join \"product\" as p using (\"product_id\")\n"
+        + "  join \"product_class\" as pc using (\"product_class_id\")\n"
+        + "  join \"store\" as st using (\"store_id\")\n"
+        + "where c.\"city\" = 'San Francisco'\n";
+    final RelNode rel =
+        dphyp(sql, MultiJoinOptimizeDphypRule.DEFAULT_MAX_FACTORS);
+    final String plan = toString(rel);
+    assertThat(count(plan, "EnumerableJoin"), equalTo(4));
+    assertThat(count(plan, "condition=[true]"), equalTo(0));
+    assertThat(plan,
+        containsString("EnumerableFilter(condition=[=($9, 'San Francisco')])"));
+
+    // The plan is optimal in the rule's cost model, so it is no more
+    // expensive than the plan of the greedy algorithm.
+    assertTrue(joinCost(rel) <= joinCost(bushy(sql)));
+  }
+
+  /** As {@link #testDphyp5()}, but with fewer inputs allowed than the query
+   * has, so that the rule falls back to the greedy algorithm. */
+  @Test public void testDphypGreedyFallback() throws Exception {
+    final String sql = "select *\n"
+        + "from \"sales_fact_1997\" as s\n"
+        + "  join \"customer\" as c using (\"customer_id\")\n"
+        + "  join \"product\" as p using (\"product_id\")\n"
+        + "  join \"product_class\" as pc using (\"product_class_id\")\n"
+        + "  join \"store\" as st using (\"store_id\")\n"
+        + "where c.\"city\" = 'San Francisco'\n";
+    final String plan = toString(dphyp(sql, 3));
+    assertThat(count(plan, "EnumerableJoin"), equalTo(4));
+    assertThat(count(plan, "condition=[true]"), equalTo(0));
+    assertThat(plan, equalTo(toString(bushy(sql))));
+  }
+
+  /** Tests the dynamic programming algorithm against a query where not all
+   * tables have a join condition to the others. There must be precisely one
+   * cross product. */
+  @Test public void testDphypCrossJoin() throws Exception {
+    final String sql = "select * from \"sales_fact_1997\"\n"
+        + "join \"customer\" using (\"customer_id\")\n"
+        + "cross join \"department\"\n"
+        + "join \"employee\" using (\"department_id\")";
+    final RelNode rel =
+        dphyp(sql, MultiJoinOptimizeDphypRule.DEFAULT_MAX_FACTORS);
+    final String plan = toString(rel);
+    assertThat(count(plan, "EnumerableJoin"), equalTo(3));
+    assertThat(count(plan, "condition=[true]"), equalTo(1));
+    assertTrue(joinCost(rel) <= joinCost(bushy(sql)));
+  }
+
+  private static int count(String s, String seek) {
+    int n = 0;
+    for (int i = s.indexOf(seek); i >= 0; i = s.indexOf(seek, i + 1)) {
+      ++n;
+    }
+    return n;
+  }
+
+  /** Returns the cost of a plan in the cost model of
+   * {@link MultiJoinOptimizeDphypRule}: the sum of the number of rows
+   * produced by each join. */
+  private static double joinCost(RelNode rel) {
+    return rowsAndCost(rel, rel.getCluster().getMetadataQuery()).right;
+  }
+
+  private static Pair<Double, Double> rowsAndCost(RelNode rel,
+      RelMetadataQuery mq) {
+    if (rel instanceof Join) {
+      final Join join = (Join) rel;
+      final Pair<Double, Double> left = rowsAndCost(join.getLeft(), mq);
+      final Pair<Double, Double> right = rowsAndCost(join.getRight(), mq);
+      double rowCount = left.left * right.left;
+      for (RexNode condition : RelOptUtil.conjunctions(join.getCondition())) {
+        rowCount *= selectivity(join, condition, mq);
+      }
+      return Pair.of(rowCount, rowCount + left.right + right.right);
+    }
+    if (RelOptUtil.countJoins(rel) > 0) {
+      // A project or filter above the joins
+      return rowsAndCost(rel.getInput(0), mq);
+    }
+    return Pair.of(Util.first(mq.getRowCount(rel), 1D), 0D);
+  }
+
+  /** Estimates the selectivity of a join condition as
+   * {@link MultiJoinOptimizeDphypRule} does. */
+  private static double selectivity(Join join, RexNode condition,
+      RelMetadataQuery mq) {
+    if (condition.isA(SqlKind.EQUALS)) {
+      final List<RexNode> operands = ((RexCall) condition).getOperands();
+      if (operands.get(0) instanceof RexInputRef
+          && operands.get(1) instanceof RexInputRef) {
+        final Double ndv0 =
+            distinctCount(join, ((RexInputRef) operands.get(0)).getIndex(), mq);
+        final Double ndv1 =
+            distinctCount(join, ((RexInputRef) operands.get(1)).getIndex(), mq);
+        if (ndv0 != null && ndv1 != null) {
+          return 1D / Math.max(1D, Math.max(ndv0, ndv1));
+        }
+      }
+    }
+    return RelMdUtil.guessSelectivity(condition);
+  }
+
+  /** Returns the number of distinct values of a column in the input of a
+   * tree of joins that the column comes from. */
+  private static Double distinctCount(RelNode rel, int column,
+      RelMetadataQuery mq) {
+    while (rel instanceof Join) {
+      final RelNode left = ((Join) rel).getLeft();
+      final int leftCount = left.getRowType().getFieldCount();
+      if (column < leftCount) {
+        rel = left;
+      } else {
+        rel = ((Join) rel).getRight();
+        column -= leftCount;
+      }
+    }
+    return mq.getDistinctRowCount(rel, ImmutableBitSet.of(column), null);
+  }
+
+  /** Returns the plan of a query, using a planner with
+   * MultiJoinOptimizeDphypRule enabled. */
+  private RelNode dphyp(String sql, int maxFactors) throws Exception {
+    return plan(sql,
+        Programs.dphypJoinOrder(Programs.RULE_SET, 2, maxFactors));
+  }
+
+  /** Returns the plan of a query, using a planner with
    * MultiJoinOptimizeBushyRule enabled. */
-  private void checkBushy(String sql, String expected) throws Exception {
+  private RelNode bushy(String sql) throws Exception {
+    return plan(sql, Programs.heuristicJoinOrder(Programs.RULE_SET, true, 2));
+  }
+
+  private RelNode plan(String sql, Program program) throws Exception {
     final SchemaPlus rootSchema = Frameworks.createRootSchema(true);
     final FrameworkConfig config = Frameworks.newConfigBuilder()
         .parserConfig(SqlParser.Config.DEFAULT)
@@ -903,17 +1049,21 @@ private void checkBushy(String sql, String expected) throws Exception {
             CalciteAssert.addSchema(rootSchema,
                 CalciteAssert.SchemaSpec.CLONE_FOODMART))
         .traitDefs((List<RelTraitDef>) null)
-        .programs(Programs.heuristicJoinOrder(Programs.RULE_SET, true, 2))
+        .programs(program)
         .build();
     Planner planner = Frameworks.getPlanner(config);
     SqlNode parse = planner.parse(sql);
-
     SqlNode validate = planner.validate(parse);
     RelNode convert = planner.rel(validate).project();
     RelTraitSet traitSet = planner.getEmptyTraitSet()
         .replace(EnumerableConvention.INSTANCE);
-    RelNode transform = planner.transform(0, traitSet, convert);
-    assertThat(toString(transform), containsString(expected));
+    return planner.transform(0, traitSet, convert);
+  }
+
+  /** Checks that a query returns a particular plan, using a planner with
+   * MultiJoinOptimizeBushyRule enabled. */
+  private void checkBushy(String sql, String expected) throws Exception {
+    assertThat(toString(bushy(sql)), containsString(expected));
   }
 
   /**
@@ -42,6 +42,7 @@
 import java.util.AbstractList;
 import java.util.AbstractMap;
 import java.util.AbstractSet;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -55,9 +56,14 @@
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.PriorityQueue;
 import java.util.RandomAccess;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import static org.apache.calcite.linq4j.Linq4j.CollectionEnumerable;
 import static org.apache.calcite.linq4j.Linq4j.ListEnumerable;
@@ -67,6 +73,16 @@
  * Default implementations of methods in the {@link Enumerable} interface.
  */
 public abstract class EnumerableDefaults {
+  /** Number of partitions into which a spilling operator divides its
+   * input. */
+  private static final int SPILL_PARTITION_COUNT = 16;
+
+  /** Maximum number of times that a spilling operator re-partitions an
+   * input that is still too large to fit into memory. */
+  private static final int SPILL_MAX_DEPTH = 4;
+
+  /** Maximum number of sorted runs that a spilling sort merges at once. */
+  private static final int SPILL_MERGE_FAN_IN = 64;
 
   /**
    * Applies an accumulator function over a sequence.
@@ -573,6 +589,35 @@ public static <TSource> Enumerable<TSource> except(
     return Linq4j.asEnumerable(set).select(unwrapper);
   }
 
+  /**
+   * Divides a sequence into morsels of consecutive elements, applies a
+   * pipeline to each morsel in parallel, and concatenates the results in the
+   * order of the morsels.
+   *
+   * <p>The source is read on the calling thread. Each morsel is processed by
+   * a task in a shared {@link ForkJoinPool}, and at most
+   * {@code 2 * parallelism} morsels are buffered or in progress at any time.
+   * The pipeline must be safe to call from several threads at once.
+   *
+   * @param source Source sequence
+   * @param pipeline Function applied to each morsel
+   * @param morselSize Number of elements in each morsel
+   * @param parallelism Maximum number of morsels processed at the same time
+   */
+  public static <TSource, TResult> Enumerable<TResult> exchange(
+      final Enumerable<TSource> source,
+      final Function1<Enumerable<TSource>, Enumerable<TResult>> pipeline,
+      final int morselSize, final int parallelism) {
+    assert morselSize > 0 : morselSize;
+    assert parallelism > 0 : parallelism;
+    return new AbstractEnumerable<TResult>() {
+      public Enumerator<TResult> enumerator() {
+        return new ExchangeEnumerator<>(source, pipeline, morselSize,
+            parallelism);
+      }
+    };
+  }
+
   /**
    * Returns the first element of a sequence. (Defined
    * by Enumerable.)
@@ -816,6 +861,175 @@ public Map<Wrapped<TKey>, TAccumulate> apply() {
         resultSelector);
   }
 
+  /**
+   * Groups the elements of a sequence according to a specified key selector
+   * function, initializing an accumulator for each group and adding to it
+   * each time an element with the same key is seen, and writing elements to
+   * temporary files if the groups do not fit into the memory budget of the
+   * given {@link Spill.Manager}.
+   *
+   * <p>Once the number of groups in memory reaches the budget, an element
+   * whose key is not already in memory is written to one of several
+   * partitions on disk, chosen by the hash of its key. Groups in memory
+   * continue to accumulate. After the input has been read, the groups in
+   * memory are returned, and then each partition is grouped in the same way.
+   * Accumulators are never written to disk, so the accumulator functions need
+   * not be able to combine partial results.
+   *
+   * <p>If {@code spillManager} or {@code serializer} is null, the grouping is
+   * performed in memory.
+   *
+   * @param comparer Compares keys, or null to use their {@code equals} method
+   * @param groupSize Estimated size of a group (key and accumulator), in bytes
+   */
+  public static <TSource, TKey, TAccumulate, TResult> Enumerable<TResult>
+  groupBy(Enumerable<TSource> enumerable, Function1<TSource, TKey> keySelector,
+      Function0<TAccumulate> accumulatorInitializer,
+      Function2<TAccumulate, TSource, TAccumulate> accumulatorAdder,
+      Function2<TKey, TAccumulate, TResult> resultSelector,
+      EqualityComparer<TKey> comparer, Spill.Manager spillManager,
+      int groupSize, Spill.Serializer<TSource> serializer) {
+    if (spillManager == null || serializer == null) {
+      if (comparer == null) {
+        return groupBy(enumerable, keySelector, accumulatorInitializer,
+            accumulatorAdder, resultSelector);
+      }
+      return groupBy(enumerable, keySelector, accumulatorInitializer,
+          accumulatorAdder, resultSelector, comparer);
+    }
+    return spillingGroupBy(enumerable, keySelector, accumulatorInitializer,
+        accumulatorAdder, resultSelector, comparer, spillManager, groupSize,
+        serializer, 0);
+  }
+
+  /** Implementation of groupBy that writes elements of groups that do not fit
+   * into memory to partitioned files, and groups each file afterwards. */
+  private static <TSource, TKey, TAccumulate, TResult> Enumerable<TResult>
+  spillingGroupBy(final Enumerable<TSource> enumerable,
+      final Function1<TSource, TKey> keySelector,
+      final Function0<TAccumulate> accumulatorInitializer,
+      final Function2<TAccumulate, TSource, TAccumulate> accumulatorAdder,
+      final Function2<TKey, TAccumulate, TResult> resultSelector,
+      final EqualityComparer<TKey> comparer, final Spill.Manager spillManager,
+      final int groupSize, final Spill.Serializer<TSource> serializer,
+      final int depth) {
+    return new AbstractEnumerable<TResult>() {
+      public Enumerator<TResult> enumerator() {
+        final int maxGroups = spillManager.maxRows(groupSize);
+        final Map<TKey, TAccumulate> map;
+        if (comparer == null) {
+          map = new HashMap<>();
+        } else {
+          map = new WrapMap<>(
+              new Function0<Map<Wrapped<TKey>, TAccumulate>>() {
+                public Map<Wrapped<TKey>, TAccumulate> apply() {
+                  return new HashMap<>();
+                }
+              },
+              comparer);
+        }
+        final List<Spill.SpillFile<TSource>> files = new ArrayList<>();
+        try (Enumerator<TSource> os = enumerable.enumerator()) {
+          while (os.moveNext()) {
+            final TSource o = os.current();
+            final TKey key = keySelector.apply(o);
+            TAccumulate accumulator = map.get(key);
+            if (accumulator == null) {
+              if (map.size() >= maxGroups && depth < SPILL_MAX_DEPTH) {
+                // No room for another group. The key is not in memory and
+                // never will be, so all of its elements go to disk.
+                if (files.isEmpty()) {
+                  for (int i = 0; i < SPILL_PARTITION_COUNT; i++) {
+                    files.add(spillManager.createFile("aggregate", serializer));
+                  }
+                }
+                final int i = spillPartition(keySelector, o, comparer, depth);
+                files.get(i).add(o);
+                continue;
+              }
+              accumulator = accumulatorInitializer.apply();
+              accumulator = accumulatorAdder.apply(accumulator, o);
+              map.put(key, accumulator);
+            } else {
+              TAccumulate accumulator0 = accumulator;
+              accumulator = accumulatorAdder.apply(accumulator, o);
+              if (accumulator != accumulator0) {
+                map.put(key, accumulator);
+              }
+            }
+          }
+        } catch (RuntimeException e) {
+          closeAll(files);
+          throw e;
+        }
+        final Enumerable<TResult> results =
+            new LookupResultEnumerable<>(map, resultSelector);
+        if (files.isEmpty()) {
+          return results.enumerator();
+        }
+        final List<Enumerable<TResult>> list = new ArrayList<>();
+        list.add(results);
+        for (Spill.SpillFile<TSource> file : files) {
+          file.finish();
+          if (file.getRowCount() > 0) {
+            list.add(
+                spillingGroupBy(file.enumerable(), keySelector,
+                    accumulatorInitializer, accumulatorAdder, resultSelector,
+                    comparer, spillManager, groupSize, serializer, depth + 1));
+          }
+        }
+        final Enumerator<TResult> enumerator = Linq4j.concat(list).enumerator();
+        return new Enumerator<TResult>() {
+          public TResult current() {
+            return enumerator.current();
+          }
+
+          public boolean moveNext() {
+            return enumerator.moveNext();
+          }
+
+          public void reset() {
+            enumerator.reset();
+          }
+
+          public void close() {
+            enumerator.close();
+            closeAll(files);
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Groups the elements of a sequence that is sorted on a specified key,
+   * initializing an accumulator for each group and adding to it each time an
+   * element with the same key is seen. Creates a result value from each
+   * accumulator and its key using a specified function.
+   *
+   * <p>Because elements with the same key are adjacent, each group is
+   * returned as soon as the key changes, and only one accumulator is in
+   * memory at a time. If the sequence is not sorted, a key may be returned
+   * more than once.
+   *
+   * @param comparer Compares keys, or null to use their {@code equals} method
+   */
+  public static <TSource, TKey, TAccumulate, TResult> Enumerable<TResult>
+  sortedGroupBy(final Enumerable<TSource> enumerable,
+      final Function1<TSource, TKey> keySelector,
+      final Function0<TAccumulate> accumulatorInitializer,
+      final Function2<TAccumulate, TSource, TAccumulate> accumulatorAdder,
+      final Function2<TKey, TAccumulate, TResult> resultSelector,
+      final EqualityComparer<TKey> comparer) {
+    return new AbstractEnumerable<TResult>() {
+      public Enumerator<TResult> enumerator() {
+        return new SortedAggregateEnumerator<>(enumerable.enumerator(),
+            keySelector, accumulatorInitializer, accumulatorAdder,
+            resultSelector, comparer);
+      }
+    };
+  }
+
   private static <TSource, TKey, TAccumulate, TResult> Enumerable<TResult>
   groupBy_(final Map<TKey, TAccumulate> map, Enumerable<TSource> enumerable,
       Function1<TSource, TKey> keySelector,
@@ -1174,6 +1388,189 @@ public void close() {
     };
   }
 
+  /**
+   * Correlates the elements of two sequences based on matching keys, writing
+   * rows to temporary files if the inner sequence does not fit into the
+   * memory budget of the given {@link Spill.Manager}.
+   *
+   * <p>If the inner sequence is too large, both sequences are divided into
+   * partitions by the hash of their keys, written to disk, and each pair of
+   * partitions is joined; partitions that are still too large are divided
+   * again, using a different hash function ("grace" hash join).
+   *
+   * <p>If {@code spillManager} or either serializer is null, the join is
+   * performed in memory.
+   *
+   * @param innerRowSize Estimated size of a row of the inner sequence, in bytes
+   */
+  public static <TSource, TInner, TKey, TResult> Enumerable<TResult> join(
+      Enumerable<TSource> outer, Enumerable<TInner> inner,
+      Function1<TSource, TKey> outerKeySelector,
+      Function1<TInner, TKey> innerKeySelector,
+      Function2<TSource, TInner, TResult> resultSelector,
+      EqualityComparer<TKey> comparer, boolean generateNullsOnLeft,
+      boolean generateNullsOnRight, Spill.Manager spillManager,
+      int innerRowSize, Spill.Serializer<TSource> outerSerializer,
+      Spill.Serializer<TInner> innerSerializer) {
+    if (spillManager == null
+        || outerSerializer == null
+        || innerSerializer == null) {
+      return join_(outer, inner, outerKeySelector, innerKeySelector,
+          resultSelector, comparer, generateNullsOnLeft, generateNullsOnRight);
+    }
+    return spillingJoin(outer, inner, outerKeySelector, innerKeySelector,
+        resultSelector, comparer, generateNullsOnLeft, generateNullsOnRight,
+        spillManager, innerRowSize, outerSerializer, innerSerializer, 0);
+  }
+
+  /** Implementation of join that spills both inputs to partitioned files if
+   * the right input does not fit into memory. */
+  private static <TSource, TInner, TKey, TResult> Enumerable<TResult>
+  spillingJoin(
+      final Enumerable<TSource> outer, final Enumerable<TInner> inner,
+      final Function1<TSource, TKey> outerKeySelector,
+      final Function1<TInner, TKey> innerKeySelector,
+      final Function2<TSource, TInner, TResult> resultSelector,
+      final EqualityComparer<TKey> comparer, final boolean generateNullsOnLeft,
+      final boolean generateNullsOnRight, final Spill.Manager spillManager,
+      final int innerRowSize, final Spill.Serializer<TSource> outerSerializer,
+      final Spill.Serializer<TInner> innerSerializer, final int depth) {
+    return new AbstractEnumerable<TResult>() {
+      public Enumerator<TResult> enumerator() {
+        final int maxRows = spillManager.maxRows(innerRowSize);
+        final List<TInner> innerList = new ArrayList<>();
+        final List<Spill.SpillFile<TInner>> innerFiles = new ArrayList<>();
+        final List<Spill.SpillFile<TSource>> outerFiles = new ArrayList<>();
+        try (Enumerator<TInner> inners = inner.enumerator()) {
+          while (innerList.size() <= maxRows && inners.moveNext()) {
+            innerList.add(inners.current());
+          }
+          if (innerList.size() <= maxRows || depth >= SPILL_MAX_DEPTH) {
+            // The right input fits into memory, or further partitioning
+            // would not help (perhaps all rows have the same key).
+            while (inners.moveNext()) {
+              innerList.add(inners.current());
+            }
+            return join_(outer, Linq4j.asEnumerable(innerList),
+                outerKeySelector, innerKeySelector, resultSelector, comparer,
+                generateNullsOnLeft, generateNullsOnRight).enumerator();
+          }
+          for (int i = 0; i < SPILL_PARTITION_COUNT; i++) {
+            innerFiles.add(spillManager.createFile("join", innerSerializer));
+            outerFiles.add(spillManager.createFile("join", outerSerializer));
+          }
+          for (TInner row : innerList) {
+            final int i = spillPartition(innerKeySelector, row, comparer, depth);
+            innerFiles.get(i).add(row);
+          }
+          innerList.clear();
+          while (inners.moveNext()) {
+            final TInner row = inners.current();
+            final int i = spillPartition(innerKeySelector, row, comparer, depth);
+            innerFiles.get(i).add(row);
+          }
+        } catch (RuntimeException e) {
+          closeAll(innerFiles);
+          closeAll(outerFiles);
+          throw e;
+        }
+        try (Enumerator<TSource> outers = outer.enumerator()) {
+          while (outers.moveNext()) {
+            final TSource row = outers.current();
+            final int i = spillPartition(outerKeySelector, row, comparer, depth);
+            outerFiles.get(i).add(row);
+          }
+        } catch (RuntimeException e) {
+          closeAll(innerFiles);
+          closeAll(outerFiles);
+          throw e;
+        }
+        for (int i = 0; i < SPILL_PARTITION_COUNT; i++) {
+          innerFiles.get(i).finish();
+          outerFiles.get(i).finish();
+        }
+        return new Enumerator<TResult>() {
+          int partition = -1;
+          Enumerator<TResult> results = Linq4j.emptyEnumerator();
+
+          public TResult current() {
+            return results.current();
+          }
+
+          public boolean moveNext() {
+            for (;;) {
+              if (results.moveNext()) {
+                return true;
+              }
+              results.close();
+              results = Linq4j.emptyEnumerator();
+              if (++partition >= SPILL_PARTITION_COUNT) {
+                return false;
+              }
+              final Spill.SpillFile<TSource> outerFile =
+                  outerFiles.get(partition);
+              final Spill.SpillFile<TInner> innerFile =
+                  innerFiles.get(partition);
+              if ((outerFile.getRowCount() == 0 || innerFile.getRowCount() == 0)
+                  && !(outerFile.getRowCount() > 0 && generateNullsOnRight)
+                  && !(innerFile.getRowCount() > 0 && generateNullsOnLeft)) {
+                // Neither side has rows that can appear in the output.
+                continue;
+              }
+              results =
+                  spillingJoin(outerFile.enumerable(), innerFile.enumerable(),
+                      outerKeySelector, innerKeySelector, resultSelector,
+                      comparer, generateNullsOnLeft, generateNullsOnRight,
+                      spillManager, innerRowSize, outerSerializer,
+                      innerSerializer, depth + 1).enumerator();
+            }
+          }
+
+          public void reset() {
+            results.close();
+            results = Linq4j.emptyEnumerator();
+            partition = -1;
+          }
+
+          public void close() {
+            results.close();
+            closeAll(innerFiles);
+            closeAll(outerFiles);
+          }
+        };
+      }
+    };
+  }
+
+  /** Returns the partition of a row that is being spilled to disk. Rows
+   * whose key is null go into partition 0. The hash function depends on the
+   * depth of partitioning, so that a partition that is too large is divided
+   * differently when it is partitioned again. */
+  private static <TSource, TKey> int spillPartition(
+      Function1<TSource, TKey> keySelector, TSource row,
+      EqualityComparer<TKey> comparer, int depth) {
+    if (row == null) {
+      return 0;
+    }
+    final TKey key = keySelector.apply(row);
+    if (key == null) {
+      return 0;
+    }
+    int h = comparer == null ? key.hashCode() : comparer.hashCode(key);
+    h ^= depth * 0x9E3779B9;
+    h *= 0x85EBCA6B;
+    h ^= h >>> 13;
+    h *= 0xC2B2AE35;
+    h ^= h >>> 16;
+    return (h & Integer.MAX_VALUE) % SPILL_PARTITION_COUNT;
+  }
+
+  private static void closeAll(List<? extends Spill.SpillFile<?>> files) {
+    for (Spill.SpillFile<?> file : files) {
+      file.close();
+    }
+  }
+
   /**
    * Returns elements of {@code outer} for which there is a member of
    * {@code inner} with a matching key. A specified
@@ -1840,6 +2237,252 @@ public static <TSource, TKey> Enumerable<TSource> orderBy(
     return lookup.valuesEnumerable();
   }
 
+  /**
+   * Sorts the elements of a sequence in ascending order by using a specified
+   * comparer, skips the first {@code offset} elements and returns at most
+   * {@code fetch} elements.
+   *
+   * <p>Unlike sorting the whole input and then applying
+   * {@link #skip(Enumerable, int)} and {@link #take(Enumerable, int)}, this
+   * method holds at most {@code offset + fetch} elements in memory. Elements
+   * with equal keys are returned in the order they were read, as in
+   * {@link #orderBy(Enumerable, Function1, Comparator)}.
+   *
+   * @param source Source enumerable
+   * @param keySelector Extracts the sort key from an element
+   * @param comparator Compares keys, or null if keys are {@link Comparable}
+   * @param offset Number of elements to skip
+   * @param fetch Maximum number of elements to return, or -1 for no limit
+   */
+  public static <TSource, TKey> Enumerable<TSource> orderBy(
+      final Enumerable<TSource> source,
+      final Function1<TSource, TKey> keySelector,
+      final Comparator<TKey> comparator, final int offset, final int fetch) {
+    if (fetch < 0) {
+      return skip(orderBy(source, keySelector, comparator), offset);
+    }
+    return new AbstractEnumerable<TSource>() {
+      public Enumerator<TSource> enumerator() {
+        if (fetch == 0) {
+          return Linq4j.emptyEnumerator();
+        }
+        final TreeMap<TKey, List<TSource>> map = new TreeMap<>(comparator);
+        final long needed = (long) offset + fetch;
+        long size = 0;
+        try (Enumerator<TSource> os = source.enumerator()) {
+          while (os.moveNext()) {
+            final TSource o = os.current();
+            final TKey key = keySelector.apply(o);
+            if (size >= needed) {
+              // The map is full. If the element sorts at or after the last
+              // key, it can never be output; otherwise it displaces the last
+              // element.
+              final Map.Entry<TKey, List<TSource>> last = map.lastEntry();
+              if (compare(comparator, key, last.getKey()) >= 0) {
+                continue;
+              }
+              final List<TSource> lastList = last.getValue();
+              if (lastList.size() == 1) {
+                map.remove(last.getKey());
+              } else {
+                lastList.remove(lastList.size() - 1);
+              }
+              --size;
+            }
+            List<TSource> list = map.get(key);
+            if (list == null) {
+              list = new ArrayList<>(1);
+              map.put(key, list);
+            }
+            list.add(o);
+            ++size;
+          }
+        }
+        final List<TSource> result = new ArrayList<>((int) size);
+        for (List<TSource> list : map.values()) {
+          result.addAll(list);
+        }
+        return Linq4j.enumerator(
+            offset >= result.size()
+                ? Collections.<TSource>emptyList()
+                : result.subList(offset, result.size()));
+      }
+    };
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> int compare(Comparator<T> comparator, T t0, T t1) {
+    return comparator == null
+        ? ((Comparable) t0).compareTo(t1)
+        : comparator.compare(t0, t1);
+  }
+
+  /**
+   * Sorts the elements of a sequence in ascending order by using a specified
+   * comparer, writing sorted runs to temporary files if the sequence does not
+   * fit into the memory budget of the given {@link Spill.Manager}.
+   *
+   * <p>Elements are read into memory until the budget is reached; each such
+   * run is sorted and, if there is more than one, written to disk. The runs
+   * are then merged. Elements with equal keys are returned in the order they
+   * were read, as in {@link #orderBy(Enumerable, Function1, Comparator)}.
+   *
+   * <p>If {@code spillManager} or {@code serializer} is null, the sort is
+   * performed in memory.
+   *
+   * @param source Source enumerable
+   * @param keySelector Extracts the sort key from an element
+   * @param comparator Compares keys, or null if keys are {@link Comparable}
+   * @param spillManager Spill manager, or null
+   * @param rowSize Estimated size of an element, in bytes
+   * @param serializer Serializer for elements, or null
+   */
+  public static <TSource, TKey> Enumerable<TSource> orderBy(
+      final Enumerable<TSource> source,
+      final Function1<TSource, TKey> keySelector,
+      final Comparator<TKey> comparator, final Spill.Manager spillManager,
+      final int rowSize, final Spill.Serializer<TSource> serializer) {
+    if (spillManager == null || serializer == null) {
+      return orderBy(source, keySelector, comparator);
+    }
+    return new AbstractEnumerable<TSource>() {
+      public Enumerator<TSource> enumerator() {
+        final int maxRows = spillManager.maxRows(rowSize);
+        final List<Spill.SpillFile<TSource>> files = new ArrayList<>();
+        final List<TSource> run = new ArrayList<>();
+        try (Enumerator<TSource> os = source.enumerator()) {
+          while (os.moveNext()) {
+            if (run.size() >= maxRows) {
+              files.add(
+                  writeRun(spillManager, serializer, run, keySelector,
+                      comparator));
+              run.clear();
+            }
+            run.add(os.current());
+          }
+          sortRun(run, keySelector, comparator);
+          if (files.isEmpty()) {
+            return Linq4j.enumerator(run);
+          }
+          // Merge runs in groups until few enough remain to merge at once.
+          // Runs are merged in order, which preserves stability.
+          while (files.size() + 1 > SPILL_MERGE_FAN_IN) {
+            final List<Spill.SpillFile<TSource>> merged = new ArrayList<>();
+            for (int i = 0; i < files.size(); i += SPILL_MERGE_FAN_IN) {
+              final List<Spill.SpillFile<TSource>> group =
+                  files.subList(i,
+                      Math.min(i + SPILL_MERGE_FAN_IN, files.size()));
+              final Spill.SpillFile<TSource> file =
+                  spillManager.createFile("sort", serializer);
+              merged.add(file);
+              try (Enumerator<TSource> e =
+                       merge(spillEnumerables(group), keySelector,
+                           comparator)
+                           .enumerator()) {
+                while (e.moveNext()) {
+                  file.add(e.current());
+                }
+              }
+              file.finish();
+              closeAll(group);
+            }
+            files.clear();
+            files.addAll(merged);
+          }
+        } catch (RuntimeException e) {
+          closeAll(files);
+          throw e;
+        }
+        final List<Enumerable<TSource>> runs = spillEnumerables(files);
+        runs.add(Linq4j.asEnumerable(run));
+        final Enumerator<TSource> enumerator =
+            merge(runs, keySelector, comparator).enumerator();
+        return new Enumerator<TSource>() {
+          public TSource current() {
+            return enumerator.current();
+          }
+
+          public boolean moveNext() {
+            return enumerator.moveNext();
+          }
+
+          public void reset() {
+            enumerator.reset();
+          }
+
+          public void close() {
+            enumerator.close();
+            closeAll(files);
+          }
+        };
+      }
+    };
+  }
+
+  /** Sorts a run of rows and writes it to a spill file. */
+  private static <TSource, TKey> Spill.SpillFile<TSource> writeRun(
+      Spill.Manager spillManager, Spill.Serializer<TSource> serializer,
+      List<TSource> run, Function1<TSource, TKey> keySelector,
+      Comparator<TKey> comparator) {
+    sortRun(run, keySelector, comparator);
+    final Spill.SpillFile<TSource> file =
+        spillManager.createFile("sort", serializer);
+    for (TSource row : run) {
+      file.add(row);
+    }
+    file.finish();
+    return file;
+  }
+
+  /** Sorts a run of rows by key, in place. Extracts each row's key once,
+   * rather than twice per comparison. Rows with equal keys stay in input
+   * order. */
+  private static <TSource, TKey> void sortRun(List<TSource> run,
+      Function1<TSource, TKey> keySelector,
+      final Comparator<TKey> comparator) {
+    final List<Map.Entry<TKey, TSource>> entries =
+        new ArrayList<>(run.size());
+    for (TSource row : run) {
+      entries.add(
+          new AbstractMap.SimpleImmutableEntry<>(keySelector.apply(row), row));
+    }
+    // Collections.sort is stable
+    Collections.sort(entries,
+        new Comparator<Map.Entry<TKey, TSource>>() {
+          public int compare(Map.Entry<TKey, TSource> e0,
+              Map.Entry<TKey, TSource> e1) {
+            return EnumerableDefaults.compare(comparator, e0.getKey(),
+                e1.getKey());
+          }
+        });
+    for (int i = 0; i < entries.size(); i++) {
+      run.set(i, entries.get(i).getValue());
+    }
+  }
+
+  private static <TSource> List<Enumerable<TSource>> spillEnumerables(
+      List<Spill.SpillFile<TSource>> files) {
+    final List<Enumerable<TSource>> list = new ArrayList<>();
+    for (Spill.SpillFile<TSource> file : files) {
+      list.add(file.enumerable());
+    }
+    return list;
+  }
+
+  /** Merges sequences, each of which is sorted by key, into a sorted
+   * sequence. If keys compare equal, the element from the earlier input is
+   * returned first. */
+  private static <TSource, TKey> Enumerable<TSource> merge(
+      final List<Enumerable<TSource>> inputs,
+      final Function1<TSource, TKey> keySelector,
+      final Comparator<TKey> comparator) {
+    return new AbstractEnumerable<TSource>() {
+      public Enumerator<TSource> enumerator() {
+        return new MergeEnumerator<>(inputs, keySelector, comparator);
+      }
+    };
+  }
+
   /**
    * Sorts the elements of a sequence in descending
    * order according to a key.
@@ -2766,6 +3409,85 @@ public static <TSource> Enumerable<TSource> union(Enumerable<TSource> source0,
     return Linq4j.asEnumerable(set).select(unwrapper);
   }
 
+  /**
+   * Produces the set union of two sequences, using a hash table that stores
+   * each distinct value once.
+   *
+   * <p>Unlike {@link #union(Enumerable, Enumerable, EqualityComparer)}, does
+   * not wrap values, and returns values in the order they are first seen.
+   *
+   * @param comparer Comparer, or null to use {@link Object#equals}
+   */
+  public static <TSource> Enumerable<TSource> hashUnion(
+      final Enumerable<TSource> source0, final Enumerable<TSource> source1,
+      final EqualityComparer<TSource> comparer) {
+    return new AbstractEnumerable<TSource>() {
+      public Enumerator<TSource> enumerator() {
+        return new HashSetOpEnumerator<TSource>(null,
+            EnumerableDefaults.concat(source0, source1), comparer) {
+          boolean accept(TSource t) {
+            return counter.add(t) == 0;
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Produces the intersection of two sequences, using a hash table that
+   * counts the values of the first sequence.
+   *
+   * <p>If {@code all}, a value that occurs m times in the first sequence and
+   * n times in the second occurs min(m, n) times in the result; otherwise
+   * each value occurs at most once.
+   *
+   * @param comparer Comparer, or null to use {@link Object#equals}
+   * @param all Whether to retain duplicates (INTERSECT ALL)
+   */
+  public static <TSource> Enumerable<TSource> hashIntersect(
+      final Enumerable<TSource> source0, final Enumerable<TSource> source1,
+      final EqualityComparer<TSource> comparer, boolean all) {
+    final int max = all ? 1 : Integer.MAX_VALUE;
+    return new AbstractEnumerable<TSource>() {
+      public Enumerator<TSource> enumerator() {
+        return new HashSetOpEnumerator<TSource>(source0, source1, comparer) {
+          boolean accept(TSource t) {
+            return counter.take(t, max) > 0;
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Produces the difference of two sequences, using a hash table that counts
+   * the values of the second sequence.
+   *
+   * <p>If {@code all}, a value that occurs m times in the first sequence and
+   * n times in the second occurs max(m - n, 0) times in the result; otherwise
+   * each value occurs at most once.
+   *
+   * @param comparer Comparer, or null to use {@link Object#equals}
+   * @param all Whether to retain duplicates (EXCEPT ALL)
+   */
+  public static <TSource> Enumerable<TSource> hashExcept(
+      final Enumerable<TSource> source0, final Enumerable<TSource> source1,
+      final EqualityComparer<TSource> comparer, final boolean all) {
+    return new AbstractEnumerable<TSource>() {
+      public Enumerator<TSource> enumerator() {
+        return new HashSetOpEnumerator<TSource>(source1, source0, comparer) {
+          boolean accept(TSource t) {
+            // For EXCEPT, a value from the first sequence that is new to the
+            // table is neither in the second sequence nor already returned.
+            return all
+                ? counter.take(t, 1) == 0
+                : counter.add(t) == 0;
+          }
+        };
+      }
+    };
+  }
+
   private static <TSource> Function1<Wrapped<TSource>, TSource> unwrapper() {
     return new Function1<Wrapped<TSource>, TSource>() {
       public TSource apply(Wrapped<TSource> a0) {
@@ -3345,6 +4067,333 @@ public void reset() {
     public void close() {
     }
   }
+
+  /** Enumerator that merges several sorted inputs.
+   *
+   * @param <T> Element type */
+  private static class MergeEnumerator<T, K> implements Enumerator<T> {
+    private final List<Enumerable<T>> inputs;
+    private final Function1<T, K> keySelector;
+    private final List<Enumerator<T>> enumerators = new ArrayList<>();
+    /** Key of the current element of each enumerator, extracted once when
+     * the enumerator advances. */
+    private final List<K> keys = new ArrayList<>();
+    private final PriorityQueue<Integer> queue;
+    private T current;
+    private boolean started;
+
+    MergeEnumerator(List<Enumerable<T>> inputs, Function1<T, K> keySelector,
+        final Comparator<K> comparator) {
+      this.inputs = inputs;
+      this.keySelector = keySelector;
+      this.queue = new PriorityQueue<>(Math.max(inputs.size(), 1),
+          new Comparator<Integer>() {
+            public int compare(Integer i0, Integer i1) {
+              final int c = EnumerableDefaults.compare(comparator,
+                  keys.get(i0), keys.get(i1));
+              return c != 0 ? c : Integer.compare(i0, i1);
+            }
+          });
+    }
+
+    public T current() {
+      return current;
+    }
+
+    public boolean moveNext() {
+      if (!started) {
+        started = true;
+        for (Enumerable<T> input : inputs) {
+          final Enumerator<T> enumerator = input.enumerator();
+          enumerators.add(enumerator);
+          keys.add(null);
+          if (enumerator.moveNext()) {
+            final int i = enumerators.size() - 1;
+            keys.set(i, keySelector.apply(enumerator.current()));
+            queue.add(i);
+          }
+        }
+      }
+      final Integer i = queue.poll();
+      if (i == null) {
+        return false;
+      }
+      final Enumerator<T> enumerator = enumerators.get(i);
+      current = enumerator.current();
+      if (enumerator.moveNext()) {
+        keys.set(i, keySelector.apply(enumerator.current()));
+        queue.add(i);
+      }
+      return true;
+    }
+
+    public void reset() {
+      close();
+      started = false;
+      current = null;
+    }
+
+    public void close() {
+      for (Enumerator<T> enumerator : enumerators) {
+        enumerator.close();
+      }
+      enumerators.clear();
+      keys.clear();
+      queue.clear();
+    }
+  }
+
+  /** Enumerator that aggregates groups of adjacent elements with the same
+   * key.
+   *
+   * @see #sortedGroupBy */
+  private static class SortedAggregateEnumerator<TSource, TKey, TAccumulate,
+      TResult> implements Enumerator<TResult> {
+    private final Enumerator<TSource> enumerator;
+    private final Function1<TSource, TKey> keySelector;
+    private final Function0<TAccumulate> accumulatorInitializer;
+    private final Function2<TAccumulate, TSource, TAccumulate> accumulatorAdder;
+    private final Function2<TKey, TAccumulate, TResult> resultSelector;
+    private final EqualityComparer<TKey> comparer;
+    private boolean started;
+    /** Whether {@link #enumerator} is positioned on an element that has not
+     * yet been added to a group. */
+    private boolean hasNext;
+    private TKey nextKey;
+    private TResult current;
+
+    SortedAggregateEnumerator(Enumerator<TSource> enumerator,
+        Function1<TSource, TKey> keySelector,
+        Function0<TAccumulate> accumulatorInitializer,
+        Function2<TAccumulate, TSource, TAccumulate> accumulatorAdder,
+        Function2<TKey, TAccumulate, TResult> resultSelector,
+        EqualityComparer<TKey> comparer) {
+      this.enumerator = enumerator;
+      this.keySelector = keySelector;
+      this.accumulatorInitializer = accumulatorInitializer;
+      this.accumulatorAdder = accumulatorAdder;
+      this.resultSelector = resultSelector;
+      this.comparer = comparer;
+    }
+
+    public TResult current() {
+      return current;
+    }
+
+    public boolean moveNext() {
+      if (!started) {
+        started = true;
+        advance();
+      }
+      if (!hasNext) {
+        return false;
+      }
+      final TKey key = nextKey;
+      TAccumulate accumulator = accumulatorInitializer.apply();
+      do {
+        accumulator = accumulatorAdder.apply(accumulator, enumerator.current());
+        advance();
+      } while (hasNext && equal(key, nextKey));
+      current = resultSelector.apply(key, accumulator);
+      return true;
+    }
+
+    private void advance() {
+      hasNext = enumerator.moveNext();
+      nextKey = hasNext ? keySelector.apply(enumerator.current()) : null;
+    }
+
+    private boolean equal(TKey key0, TKey key1) {
+      if (comparer == null) {
+        return Objects.equals(key0, key1);
+      }
+      return key0 == key1
+          || key0 != null && key1 != null && comparer.equal(key0, key1);
+    }
+
+    public void reset() {
+      enumerator.reset();
+      started = false;
+      hasNext = false;
+      nextKey = null;
+      current = null;
+    }
+
+    public void close() {
+      enumerator.close();
+    }
+  }
+
+  /** Pool that runs the tasks of {@link #exchange}. Created on first use. */
+  private static class ExchangePool {
+    static final ForkJoinPool INSTANCE =
+        new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+  }
+
+  /** Enumerator that processes morsels of its source in parallel.
+   *
+   * @see #exchange
+   *
+   * @param <TSource> Element type of the source
+   * @param <TResult> Element type of the result */
+  private static class ExchangeEnumerator<TSource, TResult>
+      implements Enumerator<TResult> {
+    private final Enumerable<TSource> source;
+    private final Function1<Enumerable<TSource>, Enumerable<TResult>> pipeline;
+    private final int morselSize;
+    private final int parallelism;
+    private final ArrayDeque<Future<List<TResult>>> pending =
+        new ArrayDeque<>();
+    private Enumerator<TSource> enumerator;
+    private boolean sourceDone;
+    private Iterator<TResult> iterator = Collections.emptyIterator();
+    private TResult current;
+
+    ExchangeEnumerator(Enumerable<TSource> source,
+        Function1<Enumerable<TSource>, Enumerable<TResult>> pipeline,
+        int morselSize, int parallelism) {
+      this.source = source;
+      this.pipeline = pipeline;
+      this.morselSize = morselSize;
+      this.parallelism = parallelism;
+    }
+
+    public TResult current() {
+      return current;
+    }
+
+    public boolean moveNext() {
+      for (;;) {
+        if (iterator.hasNext()) {
+          current = iterator.next();
+          return true;
+        }
+        submit();
+        final Future<List<TResult>> future = pending.poll();
+        if (future == null) {
+          current = null;
+          return false;
+        }
+        iterator = get(future).iterator();
+      }
+    }
+
+    /** Reads morsels from the source and submits a task for each, until
+     * enough tasks are pending or the source is exhausted. */
+    private void submit() {
+      if (enumerator == null) {
+        enumerator = source.enumerator();
+      }
+      while (!sourceDone && pending.size() < 2 * parallelism) {
+        final List<TSource> morsel = new ArrayList<>(morselSize);
+        while (morsel.size() < morselSize) {
+          if (!enumerator.moveNext()) {
+            sourceDone = true;
+            break;
+          }
+          morsel.add(enumerator.current());
+        }
+        if (morsel.isEmpty()) {
+          break;
+        }
+        pending.add(
+            ExchangePool.INSTANCE.submit(
+                new Callable<List<TResult>>() {
+                  public List<TResult> call() {
+                    return pipeline.apply(Linq4j.asEnumerable(morsel))
+                        .toList();
+                  }
+                }));
+      }
+    }
+
+    private static <T> List<T> get(Future<List<T>> future) {
+      try {
+        return future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
+      } catch (ExecutionException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw new RuntimeException(cause);
+      }
+    }
+
+    public void reset() {
+      close();
+      sourceDone = false;
+      iterator = Collections.emptyIterator();
+      current = null;
+    }
+
+    public void close() {
+      for (Future<List<TResult>> future : pending) {
+        future.cancel(true);
+      }
+      pending.clear();
+      if (enumerator != null) {
+        enumerator.close();
+        enumerator = null;
+      }
+    }
+  }
+
+  /** Enumerator that implements a set operation by loading one input into a
+   * {@link HashCounter} and then filtering the rows of the other input.
+   *
+   * @param <TSource> Element type */
+  private abstract static class HashSetOpEnumerator<TSource>
+      implements Enumerator<TSource> {
+    final HashCounter<TSource> counter;
+    private final Enumerable<TSource> build;
+    private final Enumerator<TSource> probe;
+
+    HashSetOpEnumerator(Enumerable<TSource> build, Enumerable<TSource> probe,
+        EqualityComparer<TSource> comparer) {
+      this.counter = new HashCounter<>(comparer);
+      this.build = build;
+      load();
+      this.probe = probe.enumerator();
+    }
+
+    private void load() {
+      if (build != null) {
+        counter.addAll(build);
+      }
+    }
+
+    /** Returns whether a row of the probe input belongs in the result. */
+    abstract boolean accept(TSource t);
+
+    public TSource current() {
+      return probe.current();
+    }
+
+    public boolean moveNext() {
+      while (probe.moveNext()) {
+        if (accept(probe.current())) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    public void reset() {
+      probe.reset();
+      counter.clear();
+      load();
+    }
+
+    public void close() {
+      probe.close();
+    }
+  }
 }
 
 // End EnumerableDefaults.java
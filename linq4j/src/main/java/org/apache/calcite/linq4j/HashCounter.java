@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.linq4j;
+
+import org.apache.calcite.linq4j.function.EqualityComparer;
+import org.apache.calcite.linq4j.function.Functions;
+
+import java.util.Arrays;
+
+/**
+ * Hash table that counts how many times each value occurs.
+ *
+ * <p>Used to implement UNION, INTERSECT and EXCEPT, with and without ALL.
+ * Duplicate values are represented by a count, not stored again.
+ *
+ * <p>The table uses open addressing with linear probing over parallel arrays,
+ * so it allocates no entry objects. A value's hash code is computed once, when
+ * the value is looked up, and is stored beside the value, so growing the
+ * table does not call {@code hashCode} again, and probing calls
+ * {@code equals} only for values whose hash codes match.
+ *
+ * @param <T> Value type
+ */
+final class HashCounter<T> {
+  private static final int INITIAL_CAPACITY = 16;
+
+  /** Compares values; null means use {@link Object#equals} and
+   * {@link Object#hashCode}. */
+  private final EqualityComparer<T> comparer;
+
+  private Object[] values;
+  private int[] hashes;
+  /** Count of each value. A value whose count has been taken down to 0 keeps
+   * its slot. */
+  private int[] counts;
+  /** Whether each slot holds a value; values may be null. */
+  private boolean[] used;
+  private int size;
+
+  HashCounter(EqualityComparer<T> comparer) {
+    this.comparer = comparer == Functions.identityComparer() ? null : comparer;
+    allocate(INITIAL_CAPACITY);
+  }
+
+  private void allocate(int capacity) {
+    values = new Object[capacity];
+    hashes = new int[capacity];
+    counts = new int[capacity];
+    used = new boolean[capacity];
+    size = 0;
+  }
+
+  /** Removes all values. */
+  void clear() {
+    Arrays.fill(values, null);
+    Arrays.fill(counts, 0);
+    Arrays.fill(used, false);
+    size = 0;
+  }
+
+  /** Adds each value of a sequence. */
+  HashCounter<T> addAll(Enumerable<T> source) {
+    try (Enumerator<T> os = source.enumerator()) {
+      while (os.moveNext()) {
+        add(os.current());
+      }
+    }
+    return this;
+  }
+
+  /** Increments the count of a value, adding the value if it is not present,
+   * and returns its previous count. */
+  int add(T t) {
+    final int hash = hash(t);
+    int slot = find(t, hash);
+    if (slot < 0) {
+      if ((size + 1) * 2 > values.length) {
+        grow();
+      }
+      slot = insert(t, hash);
+    }
+    return counts[slot]++;
+  }
+
+  /** Reduces the count of a value by at most {@code max}, and returns by how
+   * much it was reduced. Does not add the value if it is not present. */
+  int take(T t, int max) {
+    final int slot = find(t, hash(t));
+    if (slot < 0) {
+      return 0;
+    }
+    final int n = Math.min(counts[slot], max);
+    counts[slot] -= n;
+    return n;
+  }
+
+  private int hash(T t) {
+    final int h = comparer != null ? comparer.hashCode(t)
+        : t == null ? 0
+        : t.hashCode();
+    // Spread the high bits, as HashMap does, because the table size is a power
+    // of 2 and rows often hash to values that differ only in their high bits.
+    return h ^ (h >>> 16);
+  }
+
+  private boolean equal(Object v, T t) {
+    //noinspection unchecked
+    return comparer != null ? comparer.equal((T) v, t)
+        : v == null ? t == null
+        : v.equals(t);
+  }
+
+  /** Returns the slot of a value, or -1 if it is not present. */
+  private int find(T t, int hash) {
+    final int mask = values.length - 1;
+    for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+      if (!used[slot]) {
+        return -1;
+      }
+      if (hashes[slot] == hash && equal(values[slot], t)) {
+        return slot;
+      }
+    }
+  }
+
+  /** Puts a value that is known not to be present into a free slot. */
+  private int insert(Object v, int hash) {
+    final int mask = values.length - 1;
+    int slot = hash & mask;
+    while (used[slot]) {
+      slot = (slot + 1) & mask;
+    }
+    values[slot] = v;
+    hashes[slot] = hash;
+    used[slot] = true;
+    ++size;
+    return slot;
+  }
+
+  /** Doubles the capacity, re-inserting values using their stored hash
+   * codes. */
+  private void grow() {
+    final Object[] oldValues = values;
+    final int[] oldHashes = hashes;
+    final int[] oldCounts = counts;
+    final boolean[] oldUsed = used;
+    allocate(oldValues.length * 2);
+    for (int i = 0; i < oldValues.length; i++) {
+      if (oldUsed[i]) {
+        counts[insert(oldValues[i], oldHashes[i])] = oldCounts[i];
+      }
+    }
+  }
+}
+
+// End HashCounter.java
@@ -0,0 +1,581 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.linq4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Utilities for operators that write rows to temporary files ("spill") when
+ * holding them in memory would exceed a memory budget.
+ *
+ * <p>An operator that can spill is given a {@link Manager}, which holds the
+ * memory budget and the directory for temporary files, and collects
+ * statistics, and a {@link Serializer} appropriate to the format of its rows.
+ * If the manager is null, the operator works entirely in memory.
+ */
+public abstract class Spill {
+  private Spill() {}
+
+  /** Number of rows after which a {@link SpillFile} resets its object stream,
+   * so that the stream does not retain references to rows already written. */
+  private static final int RESET_INTERVAL = 1024;
+
+  // Tags for values written by the compact serializers.
+  private static final byte NULL = 0;
+  private static final byte FALSE = 1;
+  private static final byte TRUE = 2;
+  private static final byte INT = 3;
+  private static final byte LONG = 4;
+  private static final byte DOUBLE = 5;
+  private static final byte STRING = 6;
+  private static final byte BIG_DECIMAL = 7;
+  private static final byte SHORT = 8;
+  private static final byte BYTE = 9;
+  private static final byte FLOAT = 10;
+  private static final byte CHARACTER = 11;
+  private static final byte ARRAY = 12;
+  private static final byte OBJECT = 13;
+
+  private static final Serializer<Object> VALUE_SERIALIZER =
+      new Serializer<Object>() {
+        public void write(ObjectOutput out, Object o) throws IOException {
+          writeValue(out, o);
+        }
+
+        public Object read(ObjectInput in) throws IOException {
+          return readValue(in);
+        }
+      };
+
+  private static final Serializer<Object[]> ARRAY_SERIALIZER =
+      new Serializer<Object[]>() {
+        public void write(ObjectOutput out, Object[] values)
+            throws IOException {
+          writeValue(out, values);
+        }
+
+        public Object[] read(ObjectInput in) throws IOException {
+          return (Object[]) readValue(in);
+        }
+      };
+
+  private static final Serializer<List<Object>> LIST_SERIALIZER =
+      new Serializer<List<Object>>() {
+        public void write(ObjectOutput out, List<Object> list)
+            throws IOException {
+          if (list == null) {
+            out.writeInt(-1);
+            return;
+          }
+          out.writeInt(list.size());
+          for (Object o : list) {
+            writeValue(out, o);
+          }
+        }
+
+        public List<Object> read(ObjectInput in) throws IOException {
+          final int size = in.readInt();
+          if (size < 0) {
+            return null;
+          }
+          final List<Object> list = new ArrayList<>(size);
+          for (int i = 0; i < size; i++) {
+            list.add(readValue(in));
+          }
+          return list;
+        }
+      };
+
+  private static final Serializer<Object> OBJECT_SERIALIZER =
+      new Serializer<Object>() {
+        public void write(ObjectOutput out, Object o) throws IOException {
+          out.writeObject(o);
+        }
+
+        public Object read(ObjectInput in) throws IOException {
+          try {
+            return in.readObject();
+          } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+          }
+        }
+      };
+
+  /** Returns a serializer for rows that are single values, such as
+   * {@link Integer} or {@link String}. Values of types that it does not know
+   * are written using Java serialization. */
+  @SuppressWarnings("unchecked")
+  public static <T> Serializer<T> valueSerializer() {
+    return (Serializer<T>) VALUE_SERIALIZER;
+  }
+
+  /** Returns a serializer for rows that are arrays of values. */
+  public static Serializer<Object[]> arraySerializer() {
+    return ARRAY_SERIALIZER;
+  }
+
+  /** Returns a serializer for rows that are lists of values. Rows are read
+   * back as {@link ArrayList}s. */
+  public static Serializer<List<Object>> listSerializer() {
+    return LIST_SERIALIZER;
+  }
+
+  /** Returns a serializer that uses Java serialization. Rows must implement
+   * {@link java.io.Serializable}. */
+  @SuppressWarnings("unchecked")
+  public static <T> Serializer<T> objectSerializer() {
+    return (Serializer<T>) OBJECT_SERIALIZER;
+  }
+
+  private static void writeValue(ObjectOutput out, Object o)
+      throws IOException {
+    if (o == null) {
+      out.writeByte(NULL);
+    } else if (o instanceof Boolean) {
+      out.writeByte((Boolean) o ? TRUE : FALSE);
+    } else if (o instanceof Integer) {
+      out.writeByte(INT);
+      out.writeInt((Integer) o);
+    } else if (o instanceof Long) {
+      out.writeByte(LONG);
+      out.writeLong((Long) o);
+    } else if (o instanceof Double) {
+      out.writeByte(DOUBLE);
+      out.writeDouble((Double) o);
+    } else if (o instanceof String) {
+      final byte[] bytes = ((String) o).getBytes(StandardCharsets.UTF_8);
+      out.writeByte(STRING);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    } else if (o instanceof BigDecimal) {
+      final BigDecimal d = (BigDecimal) o;
+      final byte[] bytes = d.unscaledValue().toByteArray();
+      out.writeByte(BIG_DECIMAL);
+      out.writeInt(d.scale());
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    } else if (o instanceof Short) {
+      out.writeByte(SHORT);
+      out.writeShort((Short) o);
+    } else if (o instanceof Byte) {
+      out.writeByte(BYTE);
+      out.writeByte((Byte) o);
+    } else if (o instanceof Float) {
+      out.writeByte(FLOAT);
+      out.writeFloat((Float) o);
+    } else if (o instanceof Character) {
+      out.writeByte(CHARACTER);
+      out.writeChar((Character) o);
+    } else if (o.getClass() == Object[].class) {
+      final Object[] values = (Object[]) o;
+      out.writeByte(ARRAY);
+      out.writeInt(values.length);
+      for (Object value : values) {
+        writeValue(out, value);
+      }
+    } else {
+      out.writeByte(OBJECT);
+      out.writeObject(o);
+    }
+  }
+
+  private static Object readValue(ObjectInput in) throws IOException {
+    final byte tag = in.readByte();
+    switch (tag) {
+    case NULL:
+      return null;
+    case FALSE:
+      return false;
+    case TRUE:
+      return true;
+    case INT:
+      return in.readInt();
+    case LONG:
+      return in.readLong();
+    case DOUBLE:
+      return in.readDouble();
+    case STRING:
+      final byte[] bytes = new byte[in.readInt()];
+      in.readFully(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    case BIG_DECIMAL:
+      final int scale = in.readInt();
+      final byte[] unscaled = new byte[in.readInt()];
+      in.readFully(unscaled);
+      return new BigDecimal(new BigInteger(unscaled), scale);
+    case SHORT:
+      return in.readShort();
+    case BYTE:
+      return in.readByte();
+    case FLOAT:
+      return in.readFloat();
+    case CHARACTER:
+      return in.readChar();
+    case ARRAY:
+      final Object[] values = new Object[in.readInt()];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = readValue(in);
+      }
+      return values;
+    case OBJECT:
+      try {
+        return in.readObject();
+      } catch (ClassNotFoundException e) {
+        throw new IOException(e);
+      }
+    default:
+      throw new IOException("unknown tag " + tag);
+    }
+  }
+
+  /** Writes rows to, and reads rows from, a stream.
+   *
+   * @param <T> Row type */
+  public interface Serializer<T> {
+    void write(ObjectOutput out, T t) throws IOException;
+
+    T read(ObjectInput in) throws IOException;
+  }
+
+  /** Receives notifications when an operator spills rows to disk. */
+  public interface Listener {
+    /** Called when an operator has finished writing a spill file.
+     *
+     * @param operator Name of the operator, for example "join"
+     * @param rowCount Number of rows written
+     * @param byteCount Number of bytes written
+     */
+    void onSpill(String operator, long rowCount, long byteCount);
+  }
+
+  /** Settings and statistics for the operators of a query that may spill.
+   *
+   * <p>A manager is typically created for each execution of a query, so that
+   * its statistics describe that execution. It is thread-safe. */
+  public static class Manager {
+    /** Maximum number of bytes that each operator may use to hold rows in
+     * memory. */
+    public final long memoryBudget;
+    private final File directory;
+    private final Listener listener;
+    private final AtomicLong fileCount = new AtomicLong();
+    private final AtomicLong rowCount = new AtomicLong();
+    private final AtomicLong byteCount = new AtomicLong();
+
+    /** Creates a Manager.
+     *
+     * @param memoryBudget Maximum number of bytes that each operator may use
+     *                     to hold rows in memory; must be positive
+     * @param directory Directory for temporary files, or null to use the
+     *                  system's default temporary directory
+     * @param listener Listener to notify of each spill, or null
+     */
+    public Manager(long memoryBudget, File directory, Listener listener) {
+      if (memoryBudget <= 0) {
+        throw new IllegalArgumentException("memory budget must be positive");
+      }
+      this.memoryBudget = memoryBudget;
+      this.directory = directory;
+      this.listener = listener;
+    }
+
+    /** Returns the maximum number of rows that an operator may hold in
+     * memory, given the estimated size of each row in bytes. Always at least
+     * 1. */
+    public int maxRows(int rowSize) {
+      final long rows = memoryBudget / Math.max(rowSize, 1);
+      return (int) Math.max(1L, Math.min(rows, Integer.MAX_VALUE));
+    }
+
+    /** Creates a temporary file for rows. The caller must
+     * {@link SpillFile#close} it, which deletes the file. */
+    public <T> SpillFile<T> createFile(String operator,
+        Serializer<T> serializer) {
+      File file = null;
+      try {
+        file = File.createTempFile("calcite-spill-" + operator, ".bin",
+            directory);
+        return new SpillFile<>(this, operator, file, serializer);
+      } catch (IOException e) {
+        if (file != null) {
+          //noinspection ResultOfMethodCallIgnored
+          file.delete();
+        }
+        throw new RuntimeException("while creating spill file", e);
+      }
+    }
+
+    private void spilled(String operator, long rows, long bytes) {
+      fileCount.incrementAndGet();
+      rowCount.addAndGet(rows);
+      byteCount.addAndGet(bytes);
+      if (listener != null) {
+        listener.onSpill(operator, rows, bytes);
+      }
+    }
+
+    /** Returns the number of spill files written. */
+    public long getFileCount() {
+      return fileCount.get();
+    }
+
+    /** Returns the number of rows written to spill files. */
+    public long getRowCount() {
+      return rowCount.get();
+    }
+
+    /** Returns the number of bytes written to spill files. */
+    public long getByteCount() {
+      return byteCount.get();
+    }
+
+    @Override public String toString() {
+      return "Spill.Manager(files: " + getFileCount()
+          + ", rows: " + getRowCount()
+          + ", bytes: " + getByteCount() + ")";
+    }
+  }
+
+  /** Temporary file of rows.
+   *
+   * <p>Rows are written using {@link #add}; after {@link #finish}, the rows
+   * can be read, any number of times, using {@link #enumerable}.
+   * {@link #close} deletes the file.
+   *
+   * @param <T> Row type */
+  public static class SpillFile<T> implements AutoCloseable {
+    private final Manager manager;
+    private final String operator;
+    private final File file;
+    private final Serializer<T> serializer;
+    private CountingOutputStream counter;
+    private ObjectOutputStream out;
+    private long rowCount;
+    /** Class loader of the first non-null row written; used to resolve
+     * classes when reading rows back, because rows may be instances of
+     * generated classes. */
+    private ClassLoader classLoader;
+
+    private SpillFile(Manager manager, String operator, File file,
+        Serializer<T> serializer) throws IOException {
+      this.manager = manager;
+      this.operator = operator;
+      this.file = file;
+      this.serializer = serializer;
+      this.counter = new CountingOutputStream(
+          new BufferedOutputStream(new FileOutputStream(file)));
+      try {
+        this.out = new ObjectOutputStream(counter);
+      } catch (IOException e) {
+        counter.close();
+        throw e;
+      }
+    }
+
+    /** Writes a row. */
+    public void add(T t) {
+      if (out == null) {
+        throw new IllegalStateException("finished");
+      }
+      if (classLoader == null && t != null) {
+        classLoader = t.getClass().getClassLoader();
+      }
+      try {
+        serializer.write(out, t);
+        if (++rowCount % RESET_INTERVAL == 0) {
+          out.reset();
+        }
+      } catch (IOException e) {
+        close();
+        throw new RuntimeException("while writing spill file", e);
+      }
+    }
+
+    /** Returns the number of rows written. */
+    public long getRowCount() {
+      return rowCount;
+    }
+
+    /** Finishes writing. */
+    public void finish() {
+      if (out == null) {
+        return;
+      }
+      try {
+        out.close();
+      } catch (IOException e) {
+        close();
+        throw new RuntimeException("while writing spill file", e);
+      }
+      out = null;
+      manager.spilled(operator, rowCount, counter.count);
+      counter = null;
+    }
+
+    /** Returns an enumerable that reads the rows in the file. The file must
+     * have been finished. */
+    public Enumerable<T> enumerable() {
+      if (out != null) {
+        throw new IllegalStateException("not finished");
+      }
+      return new AbstractEnumerable<T>() {
+        public Enumerator<T> enumerator() {
+          return new SpillFileEnumerator();
+        }
+      };
+    }
+
+    /** Deletes the file. */
+    public void close() {
+      if (out != null) {
+        try {
+          out.close();
+        } catch (IOException e) {
+          // ignore; we are deleting the file anyway
+        }
+        out = null;
+      }
+      //noinspection ResultOfMethodCallIgnored
+      file.delete();
+    }
+
+    /** Enumerator that reads rows from a {@link SpillFile}. */
+    private class SpillFileEnumerator implements Enumerator<T> {
+      private ObjectInputStream in;
+      private long remaining;
+      private T current;
+
+      SpillFileEnumerator() {
+        reset();
+      }
+
+      public T current() {
+        return current;
+      }
+
+      public boolean moveNext() {
+        if (remaining <= 0) {
+          return false;
+        }
+        try {
+          current = serializer.read(in);
+        } catch (IOException e) {
+          throw new RuntimeException("while reading spill file", e);
+        }
+        --remaining;
+        return true;
+      }
+
+      public void reset() {
+        close();
+        try {
+          in = new ClassLoaderObjectInputStream(
+              new BufferedInputStream(new FileInputStream(file)),
+              classLoader);
+        } catch (IOException e) {
+          throw new RuntimeException("while reading spill file", e);
+        }
+        remaining = rowCount;
+        current = null;
+      }
+
+      public void close() {
+        if (in != null) {
+          try {
+            in.close();
+          } catch (IOException e) {
+            // ignore
+          }
+          in = null;
+        }
+      }
+    }
+  }
+
+  /** Output stream that counts the bytes written to it. */
+  private static class CountingOutputStream extends OutputStream {
+    private final OutputStream out;
+    long count;
+
+    CountingOutputStream(OutputStream out) {
+      this.out = out;
+    }
+
+    @Override public void write(int b) throws IOException {
+      out.write(b);
+      ++count;
+    }
+
+    @Override public void write(byte[] b, int off, int len)
+        throws IOException {
+      out.write(b, off, len);
+      count += len;
+    }
+
+    @Override public void flush() throws IOException {
+      out.flush();
+    }
+
+    @Override public void close() throws IOException {
+      out.close();
+    }
+  }
+
+  /** Object input stream that resolves classes using a given class loader
+   * before falling back to the default mechanism. */
+  private static class ClassLoaderObjectInputStream extends ObjectInputStream {
+    private final ClassLoader classLoader;
+
+    ClassLoaderObjectInputStream(InputStream in, ClassLoader classLoader)
+        throws IOException {
+      super(in);
+      this.classLoader = classLoader;
+    }
+
+    @Override protected Class<?> resolveClass(ObjectStreamClass desc)
+        throws IOException, ClassNotFoundException {
+      if (classLoader != null) {
+        try {
+          return Class.forName(desc.getName(), false, classLoader);
+        } catch (ClassNotFoundException e) {
+          // fall through
+        }
+      }
+      return super.resolveClass(desc);
+    }
+  }
+}
+
+// End Spill.java
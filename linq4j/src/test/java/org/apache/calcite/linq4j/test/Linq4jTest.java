@@ -26,6 +26,7 @@
 import org.apache.calcite.linq4j.Lookup;
 import org.apache.calcite.linq4j.Queryable;
 import org.apache.calcite.linq4j.QueryableDefaults;
+import org.apache.calcite.linq4j.Spill;
 import org.apache.calcite.linq4j.function.EqualityComparer;
 import org.apache.calcite.linq4j.function.Function0;
 import org.apache.calcite.linq4j.function.Function1;
@@ -42,6 +43,7 @@
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 import org.junit.Test;
 
@@ -1033,6 +1035,63 @@ private void checkIterable(Enumerator<Integer> enumerator) {
             .count());
   }
 
+  /** Tests {@link EnumerableDefaults#hashUnion},
+   * {@link EnumerableDefaults#hashIntersect} and
+   * {@link EnumerableDefaults#hashExcept}, with and without ALL. */
+  @Test public void testHashSetOps() {
+    final Enumerable<String> e0 =
+        Linq4j.asEnumerable(
+            Arrays.asList("a", "b", "b", "b", "c", null, null, "d"));
+    final Enumerable<String> e1 =
+        Linq4j.asEnumerable(Arrays.asList("b", "b", "c", "c", null, "e"));
+    assertEquals("[a, b, c, null, d, e]",
+        EnumerableDefaults.hashUnion(e0, e1, null).toList().toString());
+    assertEquals("[b, c, null]",
+        EnumerableDefaults.hashIntersect(e0, e1, null, false).toList()
+            .toString());
+    assertEquals("[b, b, c, null]",
+        EnumerableDefaults.hashIntersect(e0, e1, null, true).toList()
+            .toString());
+    assertEquals("[a, d]",
+        EnumerableDefaults.hashExcept(e0, e1, null, false).toList()
+            .toString());
+    assertEquals("[a, b, null, d]",
+        EnumerableDefaults.hashExcept(e0, e1, null, true).toList()
+            .toString());
+
+    // Enough distinct values to grow the table several times.
+    final List<Integer> list = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      list.add(i % 300);
+    }
+    final Enumerable<Integer> e2 = Linq4j.asEnumerable(list);
+    final Enumerable<Integer> e3 = Linq4j.asEnumerable(list.subList(0, 400));
+    assertEquals(300, EnumerableDefaults.hashUnion(e2, e3, null).count());
+    assertEquals(300,
+        EnumerableDefaults.hashIntersect(e2, e3, null, false).count());
+    assertEquals(400,
+        EnumerableDefaults.hashIntersect(e2, e3, null, true).count());
+    assertEquals(0,
+        EnumerableDefaults.hashExcept(e2, e3, null, false).count());
+    assertEquals(600,
+        EnumerableDefaults.hashExcept(e2, e3, null, true).count());
+
+    // With a comparer, as used for rows that are arrays.
+    final Enumerable<Object[]> e4 =
+        Linq4j.asEnumerable(
+            Arrays.asList(new Object[] {1, "x"}, new Object[] {1, "x"},
+                new Object[] {2, "y"}));
+    final Enumerable<Object[]> e5 =
+        Linq4j.asEnumerable(
+            Collections.singletonList(new Object[] {1, "x"}));
+    final EqualityComparer<Object[]> comparer = Functions.arrayComparer();
+    assertEquals(2, EnumerableDefaults.hashUnion(e4, e5, comparer).count());
+    assertEquals(1,
+        EnumerableDefaults.hashIntersect(e4, e5, comparer, true).count());
+    assertEquals(2,
+        EnumerableDefaults.hashExcept(e4, e5, comparer, true).count());
+  }
+
   @Test public void testDistinct() {
     final Employee[] emps2 = {
       new Employee(150, "Theodore", 10),
@@ -1260,6 +1319,192 @@ public String apply(Employee v1, Department v2) {
         s);
   }
 
+  /** Tests a join whose right input does not fit into the memory budget,
+   * and is therefore partitioned and spilled to disk. The result should be
+   * the same as an in-memory join. */
+  @Test public void testSpillingJoin() {
+    final List<Object[]> lefts = new ArrayList<>();
+    final List<Object[]> rights = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      lefts.add(new Object[] {i % 10 == 0 ? null : i % 300, "l" + i});
+      rights.add(new Object[] {i % 350, "r" + i, new BigDecimal(i)});
+    }
+    final Function1<Object[], Object> keySelector =
+        new Function1<Object[], Object>() {
+          public Object apply(Object[] row) {
+            return row[0];
+          }
+        };
+    final Function2<Object[], Object[], String> resultSelector =
+        new Function2<Object[], Object[], String>() {
+          public String apply(Object[] left, Object[] right) {
+            return (left == null ? null : left[1]) + ":"
+                + (right == null ? null : right[1] + "," + right[2]);
+          }
+        };
+    for (boolean nullsOnLeft : new boolean[] {false, true}) {
+      for (boolean nullsOnRight : new boolean[] {false, true}) {
+        final List<String> expected =
+            EnumerableDefaults.join(Linq4j.asEnumerable(lefts),
+                Linq4j.asEnumerable(rights), keySelector, keySelector,
+                resultSelector, null, nullsOnLeft, nullsOnRight)
+                .orderBy(Functions.<String>identitySelector())
+                .toList();
+        final Spill.Manager manager = new Spill.Manager(1000, null, null);
+        final List<String> actual =
+            EnumerableDefaults.join(Linq4j.asEnumerable(lefts),
+                Linq4j.asEnumerable(rights), keySelector, keySelector,
+                resultSelector, null, nullsOnLeft, nullsOnRight, manager, 20,
+                Spill.arraySerializer(), Spill.arraySerializer())
+                .orderBy(Functions.<String>identitySelector())
+                .toList();
+        assertThat(actual, equalTo(expected));
+        assertThat(manager.getRowCount() >= 2000, is(true));
+        assertThat(manager.getByteCount() > 0, is(true));
+      }
+    }
+  }
+
+  /** Tests a group-by whose groups do not fit into the memory budget, so
+   * that rows of some groups are spilled to disk and aggregated later. */
+  @Test public void testSpillingGroupBy() {
+    final List<Object[]> rows = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      rows.add(new Object[] {i % 7 == 0 ? null : i % 150, i});
+    }
+    final Function1<Object[], Object> keySelector =
+        new Function1<Object[], Object>() {
+          public Object apply(Object[] row) {
+            return row[0];
+          }
+        };
+    final Function0<int[]> accumulatorInitializer =
+        new Function0<int[]>() {
+          public int[] apply() {
+            return new int[2];
+          }
+        };
+    final Function2<int[], Object[], int[]> accumulatorAdder =
+        new Function2<int[], Object[], int[]>() {
+          public int[] apply(int[] acc, Object[] row) {
+            ++acc[0];
+            acc[1] += (Integer) row[1];
+            return acc;
+          }
+        };
+    final Function2<Object, int[], String> resultSelector =
+        new Function2<Object, int[], String>() {
+          public String apply(Object key, int[] acc) {
+            return key + ":" + acc[0] + ":" + acc[1];
+          }
+        };
+    final List<String> expected =
+        EnumerableDefaults.groupBy(Linq4j.asEnumerable(rows), keySelector,
+            accumulatorInitializer, accumulatorAdder, resultSelector)
+            .orderBy(Functions.<String>identitySelector())
+            .toList();
+    final Spill.Manager manager = new Spill.Manager(100, null, null);
+    final List<String> actual =
+        EnumerableDefaults.groupBy(Linq4j.asEnumerable(rows), keySelector,
+            accumulatorInitializer, accumulatorAdder, resultSelector, null,
+            manager, 10, Spill.arraySerializer())
+            .orderBy(Functions.<String>identitySelector())
+            .toList();
+    assertThat(actual, equalTo(expected));
+    assertThat(manager.getFileCount() > 0, is(true));
+  }
+
+  @Test public void testSortedGroupBy() {
+    final List<Object[]> rows = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      rows.add(new Object[] {i < 5 ? null : i / 10, i});
+    }
+    final Function1<Object[], Object> keySelector =
+        new Function1<Object[], Object>() {
+          public Object apply(Object[] row) {
+            return row[0];
+          }
+        };
+    final Function0<int[]> accumulatorInitializer =
+        new Function0<int[]>() {
+          public int[] apply() {
+            return new int[2];
+          }
+        };
+    final Function2<int[], Object[], int[]> accumulatorAdder =
+        new Function2<int[], Object[], int[]>() {
+          public int[] apply(int[] acc, Object[] row) {
+            ++acc[0];
+            acc[1] += (Integer) row[1];
+            return acc;
+          }
+        };
+    final Function2<Object, int[], String> resultSelector =
+        new Function2<Object, int[], String>() {
+          public String apply(Object key, int[] acc) {
+            return key + ":" + acc[0] + ":" + acc[1];
+          }
+        };
+    final List<String> expected =
+        EnumerableDefaults.groupBy(Linq4j.asEnumerable(rows), keySelector,
+            accumulatorInitializer, accumulatorAdder, resultSelector)
+            .toList();
+    final List<String> actual =
+        EnumerableDefaults.sortedGroupBy(Linq4j.asEnumerable(rows),
+            keySelector, accumulatorInitializer, accumulatorAdder,
+            resultSelector, null)
+            .toList();
+    assertThat(actual.size(), is(11));
+    assertThat(actual.get(0), is("null:5:10"));
+    assertThat(actual.get(1), is("0:5:35"));
+    assertThat(actual.get(10), is("9:10:945"));
+    assertThat(Sets.newHashSet(actual), equalTo(Sets.newHashSet(expected)));
+
+    // empty input gives no groups
+    assertThat(
+        EnumerableDefaults.sortedGroupBy(
+            Linq4j.asEnumerable(new ArrayList<Object[]>()), keySelector,
+            accumulatorInitializer, accumulatorAdder, resultSelector, null)
+            .count(),
+        is(0));
+  }
+
+  @Test public void testExchange() {
+    final List<Integer> numbers = new ArrayList<>();
+    for (int i = 0; i < 10007; i++) {
+      numbers.add(i);
+    }
+    final Function1<Enumerable<Integer>, Enumerable<String>> pipeline =
+        new Function1<Enumerable<Integer>, Enumerable<String>>() {
+          public Enumerable<String> apply(Enumerable<Integer> morsel) {
+            return morsel
+                .where(
+                    new Predicate1<Integer>() {
+                      public boolean apply(Integer i) {
+                        return i % 3 == 0;
+                      }
+                    })
+                .select(
+                    new Function1<Integer, String>() {
+                      public String apply(Integer i) {
+                        return "#" + i;
+                      }
+                    });
+          }
+        };
+    final List<String> expected =
+        pipeline.apply(Linq4j.asEnumerable(numbers)).toList();
+    final List<String> actual =
+        EnumerableDefaults.exchange(Linq4j.asEnumerable(numbers), pipeline,
+            100, 4).toList();
+    assertThat(actual, equalTo(expected));
+    assertThat(
+        EnumerableDefaults.exchange(
+            Linq4j.asEnumerable(new ArrayList<Integer>()), pipeline, 100, 4)
+            .count(),
+        is(0));
+  }
+
   @Test public void testJoinCartesianProduct() {
     int n =
         Linq4j.asEnumerable(emps)
@@ -1655,6 +1900,67 @@ public boolean apply(Department v1, Integer v2) {
             .toList().toString());
   }
 
+  @Test public void testOrderByWithOffsetFetch() {
+    // Sort is stable. Only the first 3 rows (offset + fetch) are retained.
+    assertEquals(
+        "[Employee(name: Eric, deptno:10),"
+            + " Employee(name: Janet, deptno:10)]",
+        EnumerableDefaults.orderBy(Linq4j.asEnumerable(emps),
+            EMP_DEPTNO_SELECTOR, null, 1, 2)
+            .toList().toString());
+    assertEquals(
+        "[Employee(name: Bill, deptno:30),"
+            + " Employee(name: Fred, deptno:10)]",
+        EnumerableDefaults.orderBy(Linq4j.asEnumerable(emps),
+            EMP_DEPTNO_SELECTOR, Collections.<Integer>reverseOrder(), 0, 2)
+            .toList().toString());
+    // No fetch
+    assertEquals(
+        "[Employee(name: Janet, deptno:10),"
+            + " Employee(name: Bill, deptno:30)]",
+        EnumerableDefaults.orderBy(Linq4j.asEnumerable(emps),
+            EMP_DEPTNO_SELECTOR, null, 2, -1)
+            .toList().toString());
+    // Offset beyond the end, and zero fetch
+    assertEquals("[]",
+        EnumerableDefaults.orderBy(Linq4j.asEnumerable(emps),
+            EMP_DEPTNO_SELECTOR, null, 10, 2)
+            .toList().toString());
+    assertEquals("[]",
+        EnumerableDefaults.orderBy(Linq4j.asEnumerable(emps),
+            EMP_DEPTNO_SELECTOR, null, 0, 0)
+            .toList().toString());
+  }
+  /** Tests a sort that exceeds its memory budget, and therefore writes sorted
+   * runs to disk and merges them. Elements with equal keys must remain in
+   * input order. */
+  @Test public void testSpillingOrderBy() {
+    final List<Object[]> rows = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      rows.add(new Object[] {(i * 37) % 100, i});
+    }
+    final Function1<Object[], Integer> keySelector =
+        new Function1<Object[], Integer>() {
+          public Integer apply(Object[] row) {
+            return (Integer) row[0];
+          }
+        };
+    final Spill.Manager manager = new Spill.Manager(100, null, null);
+    final List<Object[]> sorted =
+        EnumerableDefaults.orderBy(Linq4j.asEnumerable(rows), keySelector,
+            null, manager, 10, Spill.arraySerializer()).toList();
+    assertThat(sorted.size(), is(1000));
+    for (int i = 1; i < sorted.size(); i++) {
+      final Object[] prev = sorted.get(i - 1);
+      final Object[] row = sorted.get(i);
+      final int c = ((Integer) prev[0]).compareTo((Integer) row[0]);
+      assertThat(c < 0 || c == 0 && (Integer) prev[1] < (Integer) row[1],
+          is(true));
+    }
+    assertThat(manager.getFileCount() > 1, is(true));
+  }
+
+
   @Test public void testOrderByInSeries() {
     // OrderBy in series works because sort is stable.
     assertEquals(
@@ -0,0 +1,290 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.benchmarks;
+
+import org.apache.calcite.adapter.enumerable.EnumerableCostModel;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the constants of an {@link EnumerableCostModel} on the current
+ * machine.
+ *
+ * <p>Each benchmark performs {@code size} units of one kind of work, such as
+ * adding a row to a hash table. {@link #main} runs the benchmarks, divides
+ * the time of each by the number of units, and writes the resulting
+ * constants to a properties file, which the {@code costModel} connection
+ * property can name:
+ *
+ * <blockquote>
+ *   <code>java -cp ./target/ubenchmarks.jar
+ *     org.apache.calcite.benchmarks.CostCalibrationBenchmark
+ *     cost-model.properties</code>
+ * </blockquote>
+ */
+@Fork(value = 1, jvmArgsPrepend = "-Xmx512m")
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Threads(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CostCalibrationBenchmark {
+
+  /** Number of bytes in each row that {@link #spillByte()} writes. */
+  private static final int ROW_BYTES = 64;
+
+  /** Number of rows in the outer input of {@link #nestedLoop()}. */
+  private static final int OUTER_ROWS = 10;
+
+  @Param({ "100000" })
+  int size;
+
+  List<Object[]> rows;
+  Object[][] sortedLeft;
+  Object[][] sortedRight;
+  Map<Object, Object[]> hashTable;
+  File file;
+
+  @Setup
+  public void setup() throws IOException {
+    final Random random = new Random(0);
+    rows = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      rows.add(new Object[] {random.nextInt(size), "name" + i, i});
+    }
+    sortedLeft = new Object[size / 2][];
+    sortedRight = new Object[size - size / 2][];
+    for (int i = 0; i < sortedLeft.length; i++) {
+      sortedLeft[i] = new Object[] {i * 2};
+    }
+    for (int i = 0; i < sortedRight.length; i++) {
+      sortedRight[i] = new Object[] {i * 2 + 1};
+    }
+    hashTable = new HashMap<>();
+    for (Object[] row : rows) {
+      hashTable.put(row[0], row);
+    }
+    file = File.createTempFile("calibration", ".bin");
+    file.deleteOnExit();
+  }
+
+  /** Produces and consumes {@code size} rows; measures
+   * {@link EnumerableCostModel.Constant#ROW}. */
+  @Benchmark
+  public int row() {
+    int n = 0;
+    final Enumerator<Object[]> enumerator =
+        Linq4j.asEnumerable(rows).enumerator();
+    while (enumerator.moveNext()) {
+      n += (Integer) enumerator.current()[2];
+    }
+    enumerator.close();
+    return n;
+  }
+
+  /** Adds {@code size} rows to a hash table; measures
+   * {@link EnumerableCostModel.Constant#HASH_BUILD}. */
+  @Benchmark
+  public Map<Object, Object[]> hashBuild() {
+    final Map<Object, Object[]> map = new HashMap<>();
+    for (Object[] row : rows) {
+      map.put(row[0], row);
+    }
+    return map;
+  }
+
+  /** Looks up {@code size} rows in a hash table; measures
+   * {@link EnumerableCostModel.Constant#HASH_PROBE}. */
+  @Benchmark
+  public int hashProbe() {
+    int n = 0;
+    for (Object[] row : rows) {
+      if (hashTable.get(row[0]) != null) {
+        ++n;
+      }
+    }
+    return n;
+  }
+
+  /** Merges two sorted inputs whose total size is {@code size}; measures
+   * {@link EnumerableCostModel.Constant#MERGE}. */
+  @Benchmark
+  public int merge() {
+    int i = 0;
+    int j = 0;
+    int n = 0;
+    while (i < sortedLeft.length && j < sortedRight.length) {
+      final int c = ((Integer) sortedLeft[i][0])
+          .compareTo((Integer) sortedRight[j][0]);
+      if (c == 0) {
+        ++n;
+        ++i;
+        ++j;
+      } else if (c < 0) {
+        ++i;
+      } else {
+        ++j;
+      }
+    }
+    return n + (sortedLeft.length - i) + (sortedRight.length - j);
+  }
+
+  /** Evaluates a join condition on {@code size} pairs of rows; measures
+   * {@link EnumerableCostModel.Constant#NESTED_LOOP}. */
+  @Benchmark
+  public int nestedLoop() {
+    int n = 0;
+    final int innerRows = size / OUTER_ROWS;
+    for (int i = 0; i < OUTER_ROWS; i++) {
+      final Object[] left = rows.get(i);
+      for (int j = 0; j < innerRows; j++) {
+        if (((Integer) left[0]) < ((Integer) rows.get(j)[0])) {
+          ++n;
+        }
+      }
+    }
+    return n;
+  }
+
+  /** Sorts {@code size} rows; measures
+   * {@link EnumerableCostModel.Constant#SORT_COMPARE}. */
+  @Benchmark
+  public Object[][] sortCompare() {
+    final Object[][] array = rows.toArray(new Object[size][]);
+    Arrays.sort(array,
+        new Comparator<Object[]>() {
+          public int compare(Object[] o1, Object[] o2) {
+            return ((Integer) o1[0]).compareTo((Integer) o2[0]);
+          }
+        });
+    return array;
+  }
+
+  /** Writes {@code size} rows to a file and reads them back; measures
+   * {@link EnumerableCostModel.Constant#SPILL_BYTE}. */
+  @Benchmark
+  public long spillByte() throws IOException {
+    final byte[] bytes = new byte[ROW_BYTES];
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(file)))) {
+      for (int i = 0; i < size; i++) {
+        out.write(bytes);
+      }
+    }
+    long n = 0;
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(new FileInputStream(file)))) {
+      for (int i = 0; i < size; i++) {
+        in.readFully(bytes);
+        n += bytes[0];
+      }
+    }
+    return n;
+  }
+
+  /** Returns the number of units of work that a benchmark performs in each
+   * invocation. */
+  private static double units(EnumerableCostModel.Constant constant,
+      int size) {
+    switch (constant) {
+    case SORT_COMPARE:
+      // The cost model charges n log n comparisons to sort n rows
+      return size * Math.log(size);
+    case SPILL_BYTE:
+      return (double) size * ROW_BYTES;
+    default:
+      return size;
+    }
+  }
+
+  /** Runs the benchmarks and writes the constants to a properties file
+   * (by default "cost-model.properties"). */
+  public static void main(String[] args)
+      throws RunnerException, IOException {
+    final File file =
+        new File(args.length > 0 ? args[0] : "cost-model.properties");
+    final Options opt = new OptionsBuilder()
+        .include(CostCalibrationBenchmark.class.getSimpleName())
+        .detectJvmArgs()
+        .build();
+    final Collection<RunResult> results = new Runner(opt).run();
+
+    final Map<EnumerableCostModel.Constant, Double> constants =
+        new EnumMap<>(EnumerableCostModel.Constant.class);
+    for (RunResult result : results) {
+      final String benchmark = result.getParams().getBenchmark();
+      final String method = benchmark.substring(benchmark.lastIndexOf('.') + 1);
+      final int size = Integer.parseInt(result.getParams().getParam("size"));
+      for (EnumerableCostModel.Constant constant
+          : EnumerableCostModel.Constant.values()) {
+        if (constant.camelName.equals(method)) {
+          constants.put(constant,
+              result.getPrimaryResult().getScore() / units(constant, size));
+        }
+      }
+    }
+    final EnumerableCostModel model =
+        new EnumerableCostModel(constants, 0L);
+    try (OutputStream out = new FileOutputStream(file)) {
+      model.toProperties().store(out, "Calibrated by "
+          + CostCalibrationBenchmark.class.getSimpleName());
+    }
+    System.out.println("Wrote " + model + " to " + file);
+  }
+
+}
+
+// End CostCalibrationBenchmark.java
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.benchmarks;
+
+import org.apache.calcite.plan.hep.HepMatchOrder;
+import org.apache.calcite.plan.hep.HepPlanner;
+import org.apache.calcite.plan.hep.HepProgram;
+import org.apache.calcite.plan.hep.HepProgramBuilder;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.rules.CalcMergeRule;
+import org.apache.calcite.rel.rules.FilterToCalcRule;
+import org.apache.calcite.rel.rules.ProjectToCalcRule;
+import org.apache.calcite.sql.fun.SqlStdOperatorTable;
+import org.apache.calcite.tools.Frameworks;
+import org.apache.calcite.tools.RelBuilder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link HepPlanner} on a program that applies the same rules
+ * several times, with and without
+ * {@link HepPlanner#setIncremental(boolean) incremental} planning.
+ *
+ * <p>The query is a union of {@code width} branches, each a chain of
+ * {@code depth} filters and projects. After the first pass, the rules
+ * have no effect, and an incremental planner can skip them.
+ */
+@Fork(value = 1, jvmArgsPrepend = "-Xmx512m")
+@Measurement(iterations = 7, time = 1, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = 7, time = 1, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Threads(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class HepPlannerBenchmark {
+
+  @Param({ "true", "false" })
+  boolean incremental;
+
+  @Param({ "20" })
+  int width;
+
+  @Param({ "10" })
+  int depth;
+
+  @Param({ "1", "10" })
+  int passes;
+
+  RelNode rel;
+  HepProgram program;
+
+  @Setup
+  public void setup() {
+    final RelBuilder builder =
+        RelBuilder.create(
+            Frameworks.newConfigBuilder()
+                .defaultSchema(Frameworks.createRootSchema(true))
+                .build());
+    for (int i = 0; i < width; i++) {
+      builder.values(new String[] {"a", "b"}, i, i + 1);
+      for (int j = 0; j < depth; j++) {
+        builder.filter(
+            builder.call(SqlStdOperatorTable.GREATER_THAN,
+                builder.field(0), builder.literal(j)));
+        builder.project(
+            builder.call(SqlStdOperatorTable.PLUS, builder.field(0),
+                builder.literal(1)),
+            builder.field(1));
+      }
+    }
+    rel = builder.union(true, width).build();
+
+    final HepProgramBuilder programBuilder = HepProgram.builder();
+    programBuilder.addMatchOrder(HepMatchOrder.BOTTOM_UP);
+    for (int i = 0; i < passes; i++) {
+      programBuilder.addRuleInstance(FilterToCalcRule.INSTANCE);
+      programBuilder.addRuleInstance(ProjectToCalcRule.INSTANCE);
+      programBuilder.addRuleInstance(CalcMergeRule.INSTANCE);
+    }
+    program = programBuilder.build();
+  }
+
+  @Benchmark
+  public RelNode plan() {
+    final HepPlanner planner = new HepPlanner(program);
+    planner.setIncremental(incremental);
+    planner.setRoot(rel);
+    return planner.findBestExp();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .include(HepPlannerBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .detectJvmArgs()
+        .build();
+
+    new Runner(opt).run();
+  }
+
+}
+
+// End HepPlannerBenchmark.java
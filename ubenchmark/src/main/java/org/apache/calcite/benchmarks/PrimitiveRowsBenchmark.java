@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.calcite.benchmarks;
+
+import org.apache.calcite.adapter.java.ReflectiveSchema;
+import org.apache.calcite.config.CalciteConnectionProperty;
+import org.apache.calcite.jdbc.CalciteConnection;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the time and allocation rate of a query whose Calc and Aggregate
+ * pass rows as arrays of boxed values with the same query when they pass
+ * rows as synthetic classes with primitive fields (the
+ * {@link CalciteConnectionProperty#PRIMITIVE_ROWS primitiveRows} connection
+ * property).
+ *
+ * <p>{@link #main} runs with the GC profiler; compare the
+ * {@code gc.alloc.rate.norm} figures, which are bytes allocated per
+ * execution.
+ */
+@Fork(value = 1, jvmArgsPrepend = "-Xmx512m")
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Threads(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PrimitiveRowsBenchmark {
+
+  @Param({ "false", "true" })
+  boolean primitiveRows;
+
+  @Param({ "100000" })
+  int rowCount;
+
+  Connection connection;
+  PreparedStatement statement;
+
+  @Setup
+  public void setup() throws SQLException {
+    final Properties info = new Properties();
+    info.setProperty(CalciteConnectionProperty.PRIMITIVE_ROWS.camelName(),
+        Boolean.toString(primitiveRows));
+    connection = DriverManager.getConnection("jdbc:calcite:", info);
+    final CalciteConnection calciteConnection =
+        connection.unwrap(CalciteConnection.class);
+    calciteConnection.getRootSchema()
+        .add("s", new ReflectiveSchema(new Schema(rowCount)));
+    statement = connection.prepareStatement(
+        "select \"k\", count(*) as c, sum(\"x\") as s, max(\"y\") as m\n"
+            + "from (\n"
+            + "  select \"k\", \"a\" * 2 + \"b\" as \"x\", \"d\" * 1.5 as \"y\"\n"
+            + "  from \"s\".\"rows\"\n"
+            + "  where \"a\" > 10 and \"b\" < 1000000)\n"
+            + "group by \"k\"");
+  }
+
+  @TearDown
+  public void tearDown() throws SQLException {
+    statement.close();
+    connection.close();
+  }
+
+  @Benchmark
+  public long execute() throws SQLException {
+    long n = 0;
+    try (ResultSet resultSet = statement.executeQuery()) {
+      while (resultSet.next()) {
+        n += resultSet.getLong(2);
+      }
+    }
+    return n;
+  }
+
+  /** Schema containing a table of rows whose fields are all NOT NULL. */
+  public static class Schema {
+    public final Row[] rows;
+
+    Schema(int rowCount) {
+      final Random random = new Random(0);
+      rows = new Row[rowCount];
+      for (int i = 0; i < rowCount; i++) {
+        rows[i] = new Row(random.nextInt(10), random.nextInt(100),
+            random.nextLong() % 1000, random.nextDouble());
+      }
+    }
+  }
+
+  /** Row of {@link Schema#rows}. */
+  public static class Row {
+    public final int k;
+    public final int a;
+    public final long b;
+    public final double d;
+
+    Row(int k, int a, long b, double d) {
+      this.k = k;
+      this.a = a;
+      this.b = b;
+      this.d = d;
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .include(PrimitiveRowsBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .detectJvmArgs()
+        .build();
+
+    new Runner(opt).run();
+  }
+
+}
+
+// End PrimitiveRowsBenchmark.java